@@ -45,6 +45,18 @@ public @interface CacheNamespace {
 
   boolean blocking() default false;
 
+  /**
+   * @return how long entries live after they were cached in milliseconds, 0 for no limit
+   * @since 3.5.2
+   */
+  long timeToLive() default 0;
+
+  /**
+   * @return how long entries live after they were last read in milliseconds, 0 for no limit
+   * @since 3.5.2
+   */
+  long timeToIdle() default 0;
+
   /**
    * Property values for a implementation object.
    * @since 3.4.2
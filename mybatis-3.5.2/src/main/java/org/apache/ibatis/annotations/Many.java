@@ -33,4 +33,16 @@ public @interface Many {
 
   FetchType fetchType() default FetchType.DEFAULT;
 
+  /**
+   * @return the number of parent keys loaded by one execution of the select, 0 loads them one by one
+   * @since 3.5.2
+   */
+  int fetchBatchSize() default 0;
+
+  /**
+   * @return the properties of the loaded objects that hold the parent keys, required with {@link #fetchBatchSize()}
+   * @since 3.5.2
+   */
+  String fetchKeyProperty() default "";
+
 }
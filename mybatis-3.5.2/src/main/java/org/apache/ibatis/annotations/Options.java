@@ -46,6 +46,34 @@ public @interface Options {
 
   boolean useCache() default true;
 
+  /**
+   * @return true to run the statement on the primary data source even when replica data sources are configured
+   * @since 3.5.2
+   */
+  boolean usePrimary() default false;
+
+  /**
+   * @return the tables the statement reads or writes, for {@code cacheInvalidation=TABLE}; by default they are found
+   *         in its SQL, which misses the tables behind a view and those changed by triggers or cascades, so list
+   *         them here
+   * @since 3.5.2
+   */
+  String[] tables() default {};
+
+  /**
+   * @return how long the results of the statement live in the second level cache in milliseconds, 0 for no limit;
+   *         by default the time to live of the cache applies
+   * @since 3.5.2
+   */
+  long cacheTimeToLive() default -1;
+
+  /**
+   * @return how long the results of the statement live in the second level cache after they were last read in
+   *         milliseconds, 0 for no limit; by default the time to idle of the cache applies
+   * @since 3.5.2
+   */
+  long cacheTimeToIdle() default -1;
+
   FlushCachePolicy flushCache() default FlushCachePolicy.DEFAULT;
 
   ResultSetType resultSetType() default ResultSetType.DEFAULT;
@@ -23,10 +23,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.result.ColumnResultHandler;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.executor.result.DoubleList;
+import org.apache.ibatis.executor.result.IntList;
+import org.apache.ibatis.executor.result.LongList;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
@@ -74,6 +80,14 @@ public class MapperMethod {
    * @return
    */
   public Object execute(SqlSession sqlSession, Object[] args) {
+    if (method.returnsFuture()) {
+      // 返回CompletableFuture的方法，在会话的异步调用队列中执行
+      return sqlSession.executeAsync(session -> executeCommand(session, args));
+    }
+    return executeCommand(sqlSession, args);
+  }
+
+  private Object executeCommand(SqlSession sqlSession, Object[] args) {
     Object result;
     switch (command.getType()) { // 根据SQL语句类型，执行不同的操作
       case INSERT: { // 如果是插入语句
@@ -102,6 +116,8 @@ public class MapperMethod {
           // 使用结果处理器执行查询
           executeWithResultHandler(sqlSession, args);
           result = null;
+        } else if (method.returnsColumnValues()) { // 单列基本类型结果查询
+          result = executeForColumnValues(sqlSession, args);
         } else if (method.returnsMany()) { // 多条结果查询
           result = executeForMany(sqlSession, args);
         } else if (method.returnsMap()) { // map结果查询
@@ -185,6 +201,41 @@ public class MapperMethod {
     return result;
   }
 
+  private Object executeForColumnValues(SqlSession sqlSession, Object[] args) {
+    ColumnResultHandler values = newColumnValues();
+    Object param = method.convertArgsToSqlCommandParam(args);
+    RowBounds rowBounds = method.hasRowBounds() ? method.extractRowBounds(args) : RowBounds.DEFAULT;
+    MappedStatement ms = sqlSession.getConfiguration().getMappedStatement(command.getName());
+    if (ms.getCache() != null && ms.isUseCache()) {
+      // 语句使用了二级缓存，仍然通过selectList查询以便读写缓存
+      DefaultResultContext<Object> context = new DefaultResultContext<>();
+      for (Object value : sqlSession.selectList(command.getName(), param, rowBounds)) {
+        context.nextResultObject(value);
+        values.handleResult(context);
+      }
+    } else {
+      sqlSession.select(command.getName(), param, rowBounds, values);
+    }
+    if (values instanceof LongList) {
+      return method.getReturnType().isArray() ? ((LongList) values).toArray() : values;
+    } else if (values instanceof IntList) {
+      return method.getReturnType().isArray() ? ((IntList) values).toArray() : values;
+    } else {
+      return method.getReturnType().isArray() ? ((DoubleList) values).toArray() : values;
+    }
+  }
+
+  private ColumnResultHandler newColumnValues() {
+    Class<?> returnType = method.getReturnType();
+    if (long[].class.equals(returnType) || LongList.class.equals(returnType)) {
+      return new LongList();
+    } else if (int[].class.equals(returnType) || IntList.class.equals(returnType)) {
+      return new IntList();
+    } else {
+      return new DoubleList();
+    }
+  }
+
   private <T> Cursor<T> executeForCursor(SqlSession sqlSession, Object[] args) {
     Cursor<T> result;
     Object param = method.convertArgsToSqlCommandParam(args);
@@ -327,6 +378,10 @@ public class MapperMethod {
     private final boolean returnsMap;
     // 该方法返回类型是否是空
     private final boolean returnsVoid;
+    // 该方法返回类型是否是long[]、int[]、double[]或对应的LongList、IntList、DoubleList
+    private final boolean returnsColumnValues;
+    // 该方法返回类型是否是CompletableFuture，此时以下的返回类型均指其类型参数
+    private final boolean returnsFuture;
     // 该方法返回类型是否是cursor类型
     private final boolean returnsCursor;
     // 该方法返回类型是否是optional类型
@@ -344,15 +399,23 @@ public class MapperMethod {
 
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+      this.returnsFuture = CompletableFuture.class.equals(method.getReturnType());
+      if (this.returnsFuture) {
+        resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+            ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+      }
       if (resolvedReturnType instanceof Class<?>) {
         this.returnType = (Class<?>) resolvedReturnType;
       } else if (resolvedReturnType instanceof ParameterizedType) {
         this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
       } else {
-        this.returnType = method.getReturnType();
+        this.returnType = this.returnsFuture ? Object.class : method.getReturnType();
       }
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || (this.returnsFuture && Void.class.equals(this.returnType));
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
+      this.returnsColumnValues = long[].class.equals(this.returnType) || int[].class.equals(this.returnType)
+          || double[].class.equals(this.returnType) || LongList.class.equals(this.returnType)
+          || IntList.class.equals(this.returnType) || DoubleList.class.equals(this.returnType);
       this.returnsCursor = Cursor.class.equals(this.returnType);
       this.returnsOptional = Optional.class.equals(this.returnType);
       this.mapKey = getMapKey(method);
@@ -402,6 +465,25 @@ public class MapperMethod {
       return returnsVoid;
     }
 
+    /**
+     * return whether return type is a primitive array or a primitive list
+     * such as {@code long[]} or {@link LongList}.
+     * @return return {@code true}, if the column values are collected without boxing
+     * @since 3.5.2
+     */
+    public boolean returnsColumnValues() {
+      return returnsColumnValues;
+    }
+
+    /**
+     * return whether return type is {@code java.util.concurrent.CompletableFuture}.
+     * @return return {@code true}, if the method runs asynchronously
+     * @since 3.5.2
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
     public boolean returnsCursor() {
       return returnsCursor;
     }
@@ -23,8 +23,11 @@ import org.apache.ibatis.type.TypeAliasRegistry;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -63,11 +66,26 @@ public abstract class BaseBuilder {
     return value == null ? defaultValue : Integer.valueOf(value);
   }
 
+  protected Long longValueOf(String value, Long defaultValue) {
+    return value == null ? defaultValue : Long.valueOf(value);
+  }
+
   protected Set<String> stringSetValueOf(String value, String defaultValue) {
     value = value == null ? defaultValue : value;
     return new HashSet<>(Arrays.asList(value.split(",")));
   }
 
+  protected List<String> stringListValueOf(String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<String> values = new ArrayList<>();
+    for (String item : value.split(",")) {
+      values.add(item.trim());
+    }
+    return values;
+  }
+
   protected JdbcType resolveJdbcType(String alias) {
     if (alias == null) {
       return null;
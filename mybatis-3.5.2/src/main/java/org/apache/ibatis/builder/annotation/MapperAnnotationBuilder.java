@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
@@ -71,6 +72,9 @@ import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.executor.result.DoubleList;
+import org.apache.ibatis.executor.result.IntList;
+import org.apache.ibatis.executor.result.LongList;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.FetchType;
@@ -202,8 +206,24 @@ public class MapperAnnotationBuilder {
       Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
       Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
       Properties props = convertToProperties(cacheDomain.properties());
-      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
+      Long timeToLive = cacheDomain.timeToLive() == 0 ? null : cacheDomain.timeToLive();
+      Long timeToIdle = cacheDomain.timeToIdle() == 0 ? null : cacheDomain.timeToIdle();
+      if (timeToLive == null && timeToIdle == null && hasExpiringStatements()) {
+        // 缓存没有默认的过期时间，但其中的语句设置了过期时间
+        timeToLive = 0L;
+      }
+      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), timeToLive, timeToIdle, props);
+    }
+  }
+
+  private boolean hasExpiringStatements() {
+    for (Method method : type.getMethods()) {
+      Options options = method.getAnnotation(Options.class);
+      if (options != null && (options.cacheTimeToLive() > 0 || options.cacheTimeToIdle() > 0)) {
+        return true;
+      }
     }
+    return false;
   }
 
   private Properties convertToProperties(Property[] properties) {
@@ -331,6 +351,10 @@ public class MapperAnnotationBuilder {
       boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
       boolean flushCache = !isSelect;
       boolean useCache = isSelect;
+      boolean usePrimary = false;
+      String tables = null;
+      Long cacheTimeToLive = null;
+      Long cacheTimeToIdle = null;
 
       KeyGenerator keyGenerator;
       String keyProperty = null;
@@ -359,6 +383,10 @@ public class MapperAnnotationBuilder {
           flushCache = false;
         }
         useCache = options.useCache();
+        usePrimary = options.usePrimary();
+        tables = options.tables().length > 0 ? String.join(",", options.tables()) : null;
+        cacheTimeToLive = options.cacheTimeToLive() >= 0 ? options.cacheTimeToLive() : null;
+        cacheTimeToIdle = options.cacheTimeToIdle() >= 0 ? options.cacheTimeToIdle() : null;
         fetchSize = options.fetchSize() > -1 || options.fetchSize() == Integer.MIN_VALUE ? options.fetchSize() : null; //issue #348
         timeout = options.timeout() > -1 ? options.timeout() : null;
         statementType = options.statementType();
@@ -400,7 +428,11 @@ public class MapperAnnotationBuilder {
           null,
           languageDriver,
           // ResultSets
-          options != null ? nullOrEmpty(options.resultSets()) : null);
+          options != null ? nullOrEmpty(options.resultSets()) : null,
+          usePrimary,
+          tables,
+          cacheTimeToLive,
+          cacheTimeToIdle);
     }
   }
 
@@ -432,10 +464,22 @@ public class MapperAnnotationBuilder {
   private Class<?> getReturnType(Method method) {
     Class<?> returnType = method.getReturnType();
     Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+    if (CompletableFuture.class.equals(returnType)) {
+      // 异步方法，结果类型由CompletableFuture的类型参数决定
+      returnType = Object.class;
+      resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+          ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+    }
     if (resolvedReturnType instanceof Class) {
       returnType = (Class<?>) resolvedReturnType;
       if (returnType.isArray()) {
         returnType = returnType.getComponentType();
+      } else if (LongList.class.equals(returnType)) {
+        returnType = long.class;
+      } else if (IntList.class.equals(returnType)) {
+        returnType = int.class;
+      } else if (DoubleList.class.equals(returnType)) {
+        returnType = double.class;
       }
       // gcode issue #508
       if (void.class.equals(returnType)) {
@@ -603,7 +647,9 @@ public class MapperAnnotationBuilder {
           flags,
           null,
           null,
-          isLazy(result));
+          isLazy(result),
+          fetchBatchSize(result),
+          fetchKeyProperty(result));
       resultMappings.add(resultMapping);
     }
   }
@@ -629,6 +675,14 @@ public class MapperAnnotationBuilder {
     return isLazy;
   }
 
+  private int fetchBatchSize(Result result) {
+    return result.one().select().length() > 0 ? result.one().fetchBatchSize() : result.many().fetchBatchSize();
+  }
+
+  private String fetchKeyProperty(Result result) {
+    return nullOrEmpty(result.one().select().length() > 0 ? result.one().fetchKeyProperty() : result.many().fetchKeyProperty());
+  }
+
   private boolean hasNestedSelect(Result result) {
     if (result.one().select().length() > 0 && result.many().select().length() > 0) {
       throw new BuilderException("Cannot use both @One and @Many annotations in the same @Result");
@@ -698,9 +752,10 @@ public class MapperAnnotationBuilder {
     SqlSource sqlSource = buildSqlSourceFromStrings(selectKeyAnnotation.statement(), parameterTypeClass, languageDriver);
     SqlCommandType sqlCommandType = SqlCommandType.SELECT;
 
+    // 生成主键的查询必须在执行插入的主库上执行
     assistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType, fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass, resultSetTypeEnum,
         flushCache, useCache, false,
-        keyGenerator, keyProperty, keyColumn, null, languageDriver, null);
+        keyGenerator, keyProperty, keyColumn, null, languageDriver, null, true);
 
     id = assistant.applyCurrentNamespace(id, false);
 
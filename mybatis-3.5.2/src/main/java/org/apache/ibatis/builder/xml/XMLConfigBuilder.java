@@ -17,19 +17,23 @@ package org.apache.ibatis.builder.xml;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.HashSet;
 import java.util.Properties;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cache.codec.CacheCodec;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
+import org.apache.ibatis.executor.resultset.ResultSetMetadataCache;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.DatabaseIdProvider;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.ReplicaSelection;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.parsing.XPathParser;
 import org.apache.ibatis.plugin.Interceptor;
@@ -39,6 +43,7 @@ import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.CacheInvalidation;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
@@ -302,6 +307,39 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
+    configuration.setResultSetMetadataCacheSize(integerValueOf(props.getProperty("resultSetMetadataCacheSize"), ResultSetMetadataCache.DEFAULT_MAX_SIZE));
+    configuration.setResultMappingParallelism(integerValueOf(props.getProperty("resultMappingParallelism"), 0));
+    configuration.setResultMappingParallelThreshold(integerValueOf(props.getProperty("resultMappingParallelThreshold"), 1000));
+    configuration.setAsyncPoolSize(integerValueOf(props.getProperty("asyncPoolSize"), 0));
+    configuration.setGroupBatchStatements(booleanValueOf(props.getProperty("groupBatchStatements"), false));
+    configuration.setBatchStatementOrder(stringListValueOf(props.getProperty("batchStatementOrder")));
+    configuration.setBatchMaxSize(integerValueOf(props.getProperty("batchMaxSize"), 0));
+    configuration.setBatchMaxRows(integerValueOf(props.getProperty("batchMaxRows"), 0));
+    configuration.setBatchMaxBytes(longValueOf(props.getProperty("batchMaxBytes"), 0L));
+    configuration.setDiscardBatchParameters(booleanValueOf(props.getProperty("discardBatchParameters"), false));
+    configuration.setRewriteBatchedInserts(booleanValueOf(props.getProperty("rewriteBatchedInserts"), false));
+    configuration.setRewriteBatchedInsertStatements(new HashSet<>(stringListValueOf(props.getProperty("rewriteBatchedInsertStatements"))));
+    configuration.setMultiRowInsertMaxParameters(integerValueOf(props.getProperty("multiRowInsertMaxParameters"), 0));
+    configuration.setCoalesceCacheMisses(booleanValueOf(props.getProperty("coalesceCacheMisses"), false));
+    configuration.setCacheReplicaReads(booleanValueOf(props.getProperty("cacheReplicaReads"), false));
+    configuration.setLocalCacheMaxEntries(integerValueOf(props.getProperty("localCacheMaxEntries"), 0));
+    configuration.setLocalCacheMaxBytes(longValueOf(props.getProperty("localCacheMaxBytes"), 0L));
+    cacheCodecElement(props.getProperty("cacheCodec"));
+    configuration.setCacheInvalidation(CacheInvalidation.valueOf(props.getProperty("cacheInvalidation", "NAMESPACE")));
+  }
+
+  /**
+   * 设置二级缓存使用的编解码器
+   * @param codec 编解码器的类名或别名
+   */
+  private void cacheCodecElement(String codec) {
+    if (codec != null) {
+      try {
+        configuration.setCacheCodec((CacheCodec) resolveClass(codec).newInstance());
+      } catch (Exception e) {
+        throw new BuilderException("Error creating cache codec '" + codec + "'. Cause: " + e, e);
+      }
+    }
   }
 
   private void environmentsElement(XNode context) throws Exception {
@@ -318,6 +356,14 @@ public class XMLConfigBuilder extends BaseBuilder {
           Environment.Builder environmentBuilder = new Environment.Builder(id)
               .transactionFactory(txFactory)
               .dataSource(dataSource);
+          // 只读副本数据源，查询语句在没有写操作的会话中路由到副本执行
+          for (XNode replica : child.evalNodes("replicaDataSource")) {
+            environmentBuilder.replicaDataSource(dataSourceElement(replica).getDataSource());
+          }
+          String replicaSelection = child.getStringAttribute("replicaSelection");
+          if (replicaSelection != null) {
+            environmentBuilder.replicaSelection(ReplicaSelection.valueOf(replicaSelection));
+          }
           configuration.setEnvironment(environmentBuilder.build());
         }
       }
@@ -239,9 +239,31 @@ public class XMLMapperBuilder extends BaseBuilder {
       Integer size = context.getIntAttribute("size");
       boolean readWrite = !context.getBooleanAttribute("readOnly", false);
       boolean blocking = context.getBooleanAttribute("blocking", false);
+      Long timeToLive = context.getLongAttribute("timeToLive");
+      Long timeToIdle = context.getLongAttribute("timeToIdle");
+      if (timeToLive == null && timeToIdle == null && hasExpiringStatements(context.evalNodes("/mapper/select"))) {
+        // 缓存没有默认的过期时间，但其中的语句设置了过期时间
+        timeToLive = 0L;
+      }
       Properties props = context.getChildrenAsProperties();
-      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, timeToLive, timeToIdle, props);
+    }
+  }
+
+  /**
+   * 判断语句中是否有设置了存活时间或空闲时间的
+   * @param list 查询语句节点
+   * @return 是否有设置了过期时间的语句
+   */
+  private boolean hasExpiringStatements(List<XNode> list) {
+    for (XNode statementNode : list) {
+      Long timeToLive = statementNode.getLongAttribute("cacheTimeToLive");
+      Long timeToIdle = statementNode.getLongAttribute("cacheTimeToIdle");
+      if ((timeToLive != null && timeToLive > 0) || (timeToIdle != null && timeToIdle > 0)) {
+        return true;
+      }
     }
+    return false;
   }
 
   private void parameterMapElement(List<XNode> list) {
@@ -418,10 +440,12 @@ public class XMLMapperBuilder extends BaseBuilder {
     String resultSet = context.getStringAttribute("resultSet");
     String foreignColumn = context.getStringAttribute("foreignColumn");
     boolean lazy = "lazy".equals(context.getStringAttribute("fetchType", configuration.isLazyLoadingEnabled() ? "lazy" : "eager"));
+    int fetchBatchSize = context.getIntAttribute("fetchBatchSize", 0);
+    String fetchKeyProperty = context.getStringAttribute("fetchKeyProperty");
     Class<?> javaTypeClass = resolveClass(javaType);
     Class<? extends TypeHandler<?>> typeHandlerClass = resolveClass(typeHandler);
     JdbcType jdbcTypeEnum = resolveJdbcType(jdbcType);
-    return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum, nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet, foreignColumn, lazy);
+    return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum, nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet, foreignColumn, lazy, fetchBatchSize, fetchKeyProperty);
   }
 
   private String processNestedResultMappings(XNode context, List<ResultMapping> resultMappings, Class<?> enclosingType) throws Exception {
@@ -130,4 +130,42 @@ public interface Cache {
     return null;
   }
 
+  /**
+   * Puts a value that expires on its own. Caches that do not expire entries ignore the times.
+   *
+   * @param key The key
+   * @param value The result of a select.
+   * @param timeToLive How long the value lives after it is put in milliseconds, 0 for no limit, negative for the
+   *        default of the cache
+   * @param timeToIdle How long the value lives after it was last read in milliseconds, 0 for no limit, negative for
+   *        the default of the cache
+   * @since 3.5.2
+   */
+  default void putObject(Object key, Object value, long timeToLive, long timeToIdle) {
+    putObject(key, value);
+  }
+
+  /**
+   * Optional. Returns how long an entry has left before it expires.
+   *
+   * @param key The key
+   * @return The remaining time in milliseconds, 0 if the entry has expired, or -1 if it does not expire or the cache
+   *         does not know
+   * @since 3.5.2
+   */
+  default long getTimeToLive(Object key) {
+    return -1;
+  }
+
+  /**
+   * Returns whether values put with a time to live or a time to idle expire accordingly. Statements that set these
+   * times are only accepted by caches that support them.
+   *
+   * @return true if the cache expires entries individually
+   * @since 3.5.2
+   */
+  default boolean supportsExpiry() {
+    return false;
+  }
+
 }
@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * A cached result together with the versions of the tables it was read from.
+ *
+ * @since 3.5.2
+ */
+final class TableDependentValue implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private Object value;
+  private String[] tables;
+  private long[] versions;
+
+  private TableDependentValue() {
+    // for the cache codecs
+  }
+
+  TableDependentValue(Object value, String[] tables, long[] versions) {
+    this.value = value;
+    this.tables = tables;
+    this.versions = versions;
+  }
+
+  Object getValue() {
+    return value;
+  }
+
+  /**
+   * Returns true if none of the tables has been written since the value was read, nor by the current transaction.
+   */
+  boolean isCurrent(TableVersions tableVersions, Set<String> writtenTables) {
+    if (!writtenTables.isEmpty()) {
+      for (String table : tables) {
+        if (writtenTables.contains(table)) {
+          return false;
+        }
+      }
+    }
+    return tableVersions.isCurrent(tables, versions);
+  }
+
+}
@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The versions of the tables that second level cache entries depend on, for {@code cacheInvalidation=TABLE}.
+ * <p>
+ * An entry records the versions its tables had before its query ran. Committing a write increments the versions of
+ * the tables it wrote, which makes every entry that read one of them stale, whatever cache holds it. Nothing has to
+ * be removed from the caches: stale entries are skipped when read and replaced or evicted in time.
+ * <p>
+ * The versions are kept in this JVM only, so writes made by other applications, or by other JVMs sharing a
+ * distributed cache, do not invalidate entries.
+ *
+ * @since 3.5.2
+ */
+public class TableVersions {
+
+  private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the current versions of the tables, in the same order.
+   */
+  public long[] snapshot(String[] tables) {
+    final long[] snapshot = new long[tables.length];
+    for (int i = 0; i < tables.length; i++) {
+      snapshot[i] = getVersion(tables[i]);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns true if none of the tables has been written since the snapshot was taken.
+   */
+  public boolean isCurrent(String[] tables, long[] snapshot) {
+    for (int i = 0; i < tables.length; i++) {
+      if (getVersion(tables[i]) != snapshot[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Marks the tables as written, which invalidates the entries that depend on them.
+   */
+  public void increment(Collection<String> tables) {
+    for (String table : tables) {
+      versions.computeIfAbsent(table, k -> new AtomicLong()).incrementAndGet();
+    }
+  }
+
+  public long getVersion(String table) {
+    final AtomicLong version = versions.get(table);
+    return version == null ? 0L : version.get();
+  }
+
+}
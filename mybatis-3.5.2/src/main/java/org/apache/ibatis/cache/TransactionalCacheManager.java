@@ -15,8 +15,11 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.decorators.TransactionalCache;
 
@@ -27,23 +30,81 @@ public class TransactionalCacheManager {
 
   // 管理多个缓存的映射
   private final Map<Cache, TransactionalCache> transactionalCaches = new HashMap<>();
+  // 表的版本，为null时不按表失效缓存
+  private final TableVersions tableVersions;
+  // 当前事务写过的表，提交时增加它们的版本
+  private final Set<String> writtenTables = new HashSet<>();
+
+  public TransactionalCacheManager() {
+    this(null);
+  }
+
+  /**
+   * @param tableVersions the table versions for {@code cacheInvalidation=TABLE}, or {@code null}
+   * @since 3.5.2
+   */
+  public TransactionalCacheManager(TableVersions tableVersions) {
+    this.tableVersions = tableVersions;
+  }
 
   public void clear(Cache cache) {
     getTransactionalCache(cache).clear();
   }
 
+  /**
+   * Invalidates, when the transaction commits, the entries of all caches that depend on the tables. Until then the
+   * entries are not read by this transaction anymore.
+   *
+   * @param tables the tables written
+   * @since 3.5.2
+   */
+  public void invalidate(String[] tables) {
+    if (tableVersions != null) {
+      Collections.addAll(writtenTables, tables);
+    }
+  }
+
   public Object getObject(Cache cache, CacheKey key) {
-    return getTransactionalCache(cache).getObject(key);
+    Object object = getTransactionalCache(cache).getObject(key);
+    if (object instanceof TableDependentValue) {
+      TableDependentValue value = (TableDependentValue) object;
+      // 依赖的表被修改过的结果已经过期
+      return tableVersions == null || value.isCurrent(tableVersions, writtenTables) ? value.getValue() : null;
+    }
+    return object;
   }
 
   public void putObject(Cache cache, CacheKey key, Object value) {
     getTransactionalCache(cache).putObject(key, value);
   }
 
+  /**
+   * Caches a result with the versions its tables had before it was queried, and the times it may live.
+   *
+   * @param cache the cache
+   * @param key the key of the result
+   * @param value the result
+   * @param tables the tables the result was read from, or {@code null} if it is not invalidated by table
+   * @param versions the versions of the tables, taken before the query ran
+   * @param timeToLive how long the result lives in milliseconds, negative for the default of the cache
+   * @param timeToIdle how long the result lives unread in milliseconds, negative for the default of the cache
+   * @since 3.5.2
+   */
+  public void putObject(Cache cache, CacheKey key, Object value, String[] tables, long[] versions, long timeToLive,
+      long timeToIdle) {
+    Object entry = tables == null ? value : new TableDependentValue(value, tables, versions);
+    getTransactionalCache(cache).putObject(key, entry, timeToLive, timeToIdle);
+  }
+
   /**
    * 事务提交
    */
   public void commit() {
+    if (!writtenTables.isEmpty()) {
+      // 先使依赖这些表的缓存项失效，本事务中查询的旧结果随后写入时已经过期
+      tableVersions.increment(writtenTables);
+      writtenTables.clear();
+    }
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.commit();
     }
@@ -53,6 +114,7 @@ public class TransactionalCacheManager {
    * 事务回滚
    */
   public void rollback() {
+    writtenTables.clear();
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.rollback();
     }
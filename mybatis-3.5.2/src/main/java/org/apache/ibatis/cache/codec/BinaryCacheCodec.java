@@ -0,0 +1,679 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * A compact binary codec for mapped results, {@code <setting name="cacheCodec" value="BINARY"/>}.
+ * <p>
+ * Result objects are written as the values of their properties, read and written through the getters and setters
+ * the {@link Reflector} of their class found, the same way the result mapping populated them. The property list of
+ * each class is worked out once, and a class is written as a number assigned by this codec, so an entry carries no
+ * class descriptions. Strings, numbers, dates, byte and long arrays, object arrays and the common JDK lists, sets and maps are
+ * written directly; shared and circular references are kept.
+ * <p>
+ * Classes that are not plain serializable beans are written with Java serialization inside the entry: classes without
+ * a default constructor, with custom serialization methods, with a field that is not a readable and writable property
+ * of the same name, and proxies. Since class numbers are only known to the codec instance that assigned them, the
+ * bytes must be decoded by the same instance, which holds as the codec lives as long as the configuration.
+ *
+ * @since 3.5.2
+ */
+public class BinaryCacheCodec implements CacheCodec {
+
+  private static final byte NULL = 0;
+  private static final byte REFERENCE = 1;
+  private static final byte TRUE = 2;
+  private static final byte FALSE = 3;
+  private static final byte BYTE = 4;
+  private static final byte SHORT = 5;
+  private static final byte INTEGER = 6;
+  private static final byte LONG = 7;
+  private static final byte FLOAT = 8;
+  private static final byte DOUBLE = 9;
+  private static final byte CHARACTER = 10;
+  private static final byte STRING = 11;
+  private static final byte BIG_DECIMAL = 12;
+  private static final byte BIG_INTEGER = 13;
+  private static final byte DATE = 14;
+  private static final byte SQL_DATE = 15;
+  private static final byte TIME = 16;
+  private static final byte TIMESTAMP = 17;
+  private static final byte BYTES = 18;
+  private static final byte ARRAY_LIST = 19;
+  private static final byte LINKED_LIST = 20;
+  private static final byte HASH_SET = 21;
+  private static final byte LINKED_HASH_SET = 22;
+  private static final byte HASH_MAP = 23;
+  private static final byte LINKED_HASH_MAP = 24;
+  private static final byte OBJECT_ARRAY = 25;
+  private static final byte ENUM = 26;
+  private static final byte BEAN = 27;
+  private static final byte SERIALIZED = 28;
+  private static final byte LONGS = 29;
+
+  private static final Map<Class<?>, Byte> TAGS = new HashMap<>();
+  private static final Schema NOT_A_BEAN = new Schema(null, null, null, null, null);
+  private static final List<String> SERIALIZATION_METHODS = Arrays.asList(
+      "writeObject", "readObject", "readObjectNoData", "writeReplace", "readResolve");
+
+  static {
+    TAGS.put(Boolean.class, TRUE);
+    TAGS.put(Byte.class, BYTE);
+    TAGS.put(Short.class, SHORT);
+    TAGS.put(Integer.class, INTEGER);
+    TAGS.put(Long.class, LONG);
+    TAGS.put(Float.class, FLOAT);
+    TAGS.put(Double.class, DOUBLE);
+    TAGS.put(Character.class, CHARACTER);
+    TAGS.put(String.class, STRING);
+    TAGS.put(BigDecimal.class, BIG_DECIMAL);
+    TAGS.put(BigInteger.class, BIG_INTEGER);
+    TAGS.put(Date.class, DATE);
+    TAGS.put(java.sql.Date.class, SQL_DATE);
+    TAGS.put(Time.class, TIME);
+    TAGS.put(Timestamp.class, TIMESTAMP);
+    TAGS.put(byte[].class, BYTES);
+    TAGS.put(long[].class, LONGS);
+    TAGS.put(ArrayList.class, ARRAY_LIST);
+    TAGS.put(LinkedList.class, LINKED_LIST);
+    TAGS.put(HashSet.class, HASH_SET);
+    TAGS.put(LinkedHashSet.class, LINKED_HASH_SET);
+    TAGS.put(HashMap.class, HASH_MAP);
+    TAGS.put(LinkedHashMap.class, LINKED_HASH_MAP);
+  }
+
+  private final ReflectorFactory reflectorFactory;
+  private final JavaSerializationCodec serializationCodec = new JavaSerializationCodec();
+  private final Map<Class<?>, Schema> schemas = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Integer> classIds = new ConcurrentHashMap<>();
+  private volatile Class<?>[] classes = new Class<?>[0];
+
+  public BinaryCacheCodec() {
+    this(new DefaultReflectorFactory());
+  }
+
+  public BinaryCacheCodec(ReflectorFactory reflectorFactory) {
+    this.reflectorFactory = reflectorFactory;
+  }
+
+  @Override
+  public byte[] encode(Object value) {
+    Output output = new Output();
+    try {
+      write(output, value, new IdentityHashMap<>());
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error encoding object.  Cause: " + e, e);
+    }
+    return output.toByteArray();
+  }
+
+  @Override
+  public Object decode(byte[] bytes) {
+    try {
+      return read(new Input(bytes), new ArrayList<>());
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error decoding object.  Cause: " + e, e);
+    }
+  }
+
+  private void write(Output output, Object value, IdentityHashMap<Object, Integer> written) throws Exception {
+    if (value == null) {
+      output.writeByte(NULL);
+      return;
+    }
+    final Class<?> type = value.getClass();
+    final Byte tag = TAGS.get(type);
+    if (tag != null && tag < DATE) {
+      writeImmutable(output, tag, value);
+      return;
+    }
+    // 可变对象记录引用，保持共享引用和循环引用
+    Integer reference = written.get(value);
+    if (reference != null) {
+      output.writeByte(REFERENCE);
+      output.writeVarInt(reference);
+      return;
+    }
+    if (type.isEnum() || (type.getSuperclass() != null && type.getSuperclass().isEnum())) {
+      Enum<?> constant = (Enum<?>) value;
+      output.writeByte(ENUM);
+      output.writeVarInt(classId(constant.getDeclaringClass()));
+      output.writeVarInt(constant.ordinal());
+      return;
+    }
+    written.put(value, written.size());
+    if (tag != null) {
+      writeMutable(output, tag, value, written);
+    } else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+      Object[] array = (Object[]) value;
+      output.writeByte(OBJECT_ARRAY);
+      output.writeVarInt(classId(type.getComponentType()));
+      output.writeVarInt(array.length);
+      for (Object element : array) {
+        write(output, element, written);
+      }
+    } else {
+      Schema schema = schemaOf(type);
+      if (schema == NOT_A_BEAN) {
+        if (!(value instanceof Serializable)) {
+          throw new CacheException("Cannot encode a non-serializable object: " + value);
+        }
+        output.writeByte(SERIALIZED);
+        output.writeBytes(serializationCodec.encode(value));
+      } else {
+        output.writeByte(BEAN);
+        output.writeVarInt(schema.classId);
+        for (Invoker getter : schema.getters) {
+          write(output, getter.invoke(value, null), written);
+        }
+      }
+    }
+  }
+
+  private void writeImmutable(Output output, byte tag, Object value) {
+    switch (tag) {
+      case TRUE:
+        output.writeByte((Boolean) value ? TRUE : FALSE);
+        break;
+      case BYTE:
+        output.writeByte(BYTE);
+        output.writeByte((Byte) value);
+        break;
+      case SHORT:
+        output.writeByte(SHORT);
+        output.writeVarInt((Short) value);
+        break;
+      case INTEGER:
+        output.writeByte(INTEGER);
+        output.writeVarInt((Integer) value);
+        break;
+      case LONG:
+        output.writeByte(LONG);
+        output.writeVarLong((Long) value);
+        break;
+      case FLOAT:
+        output.writeByte(FLOAT);
+        output.writeInt(Float.floatToIntBits((Float) value));
+        break;
+      case DOUBLE:
+        output.writeByte(DOUBLE);
+        output.writeLong(Double.doubleToLongBits((Double) value));
+        break;
+      case CHARACTER:
+        output.writeByte(CHARACTER);
+        output.writeVarInt((Character) value);
+        break;
+      case STRING:
+        output.writeByte(STRING);
+        output.writeString((String) value);
+        break;
+      case BIG_DECIMAL:
+        BigDecimal decimal = (BigDecimal) value;
+        output.writeByte(BIG_DECIMAL);
+        output.writeVarInt(decimal.scale());
+        output.writeBytes(decimal.unscaledValue().toByteArray());
+        break;
+      default:
+        output.writeByte(BIG_INTEGER);
+        output.writeBytes(((BigInteger) value).toByteArray());
+        break;
+    }
+  }
+
+  private void writeMutable(Output output, byte tag, Object value, IdentityHashMap<Object, Integer> written) throws Exception {
+    output.writeByte(tag);
+    switch (tag) {
+      case DATE:
+      case SQL_DATE:
+      case TIME:
+        output.writeVarLong(((Date) value).getTime());
+        break;
+      case TIMESTAMP:
+        output.writeVarLong(((Timestamp) value).getTime());
+        output.writeVarInt(((Timestamp) value).getNanos());
+        break;
+      case BYTES:
+        output.writeBytes((byte[]) value);
+        break;
+      case LONGS:
+        long[] longs = (long[]) value;
+        output.writeVarInt(longs.length);
+        for (long element : longs) {
+          output.writeVarLong(element);
+        }
+        break;
+      case HASH_MAP:
+      case LINKED_HASH_MAP:
+        Map<?, ?> map = (Map<?, ?>) value;
+        output.writeVarInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          write(output, entry.getKey(), written);
+          write(output, entry.getValue(), written);
+        }
+        break;
+      default:
+        Collection<?> collection = (Collection<?>) value;
+        output.writeVarInt(collection.size());
+        for (Object element : collection) {
+          write(output, element, written);
+        }
+        break;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object read(Input input, List<Object> read) throws Exception {
+    final byte tag = input.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case REFERENCE:
+        return read.get(input.readVarInt());
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case BYTE:
+        return input.readByte();
+      case SHORT:
+        return (short) input.readVarInt();
+      case INTEGER:
+        return input.readVarInt();
+      case LONG:
+        return input.readVarLong();
+      case FLOAT:
+        return Float.intBitsToFloat(input.readInt());
+      case DOUBLE:
+        return Double.longBitsToDouble(input.readLong());
+      case CHARACTER:
+        return (char) input.readVarInt();
+      case STRING:
+        return input.readString();
+      case BIG_DECIMAL:
+        int scale = input.readVarInt();
+        return new BigDecimal(new BigInteger(input.readBytes()), scale);
+      case BIG_INTEGER:
+        return new BigInteger(input.readBytes());
+      case ENUM:
+        Class<?> enumType = classOf(input.readVarInt());
+        return enumType.getEnumConstants()[input.readVarInt()];
+      case DATE:
+        return register(read, new Date(input.readVarLong()));
+      case SQL_DATE:
+        return register(read, new java.sql.Date(input.readVarLong()));
+      case TIME:
+        return register(read, new Time(input.readVarLong()));
+      case TIMESTAMP:
+        Timestamp timestamp = new Timestamp(input.readVarLong());
+        timestamp.setNanos(input.readVarInt());
+        return register(read, timestamp);
+      case BYTES:
+        return register(read, input.readBytes());
+      case LONGS:
+        long[] longs = register(read, new long[input.readVarInt()]);
+        for (int i = 0; i < longs.length; i++) {
+          longs[i] = input.readVarLong();
+        }
+        return longs;
+      case ARRAY_LIST:
+      case LINKED_LIST:
+      case HASH_SET:
+      case LINKED_HASH_SET:
+        int size = input.readVarInt();
+        Collection<Object> collection = register(read, newCollection(tag, size));
+        for (int i = 0; i < size; i++) {
+          collection.add(read(input, read));
+        }
+        return collection;
+      case HASH_MAP:
+      case LINKED_HASH_MAP:
+        int entries = input.readVarInt();
+        Map<Object, Object> map = register(read, tag == HASH_MAP ? new HashMap<>(capacityFor(entries)) : new LinkedHashMap<>(capacityFor(entries)));
+        for (int i = 0; i < entries; i++) {
+          Object key = read(input, read);
+          map.put(key, read(input, read));
+        }
+        return map;
+      case OBJECT_ARRAY:
+        Class<?> componentType = classOf(input.readVarInt());
+        Object[] array = register(read, (Object[]) Array.newInstance(componentType, input.readVarInt()));
+        for (int i = 0; i < array.length; i++) {
+          array[i] = read(input, read);
+        }
+        return array;
+      case BEAN:
+        Schema schema = schemaOf(classOf(input.readVarInt()));
+        Object bean = register(read, schema.constructor.newInstance());
+        for (int i = 0; i < schema.setters.length; i++) {
+          Object value = read(input, read);
+          if (value != null || !schema.primitives[i]) {
+            schema.setters[i].invoke(bean, new Object[] { value });
+          }
+        }
+        return bean;
+      case SERIALIZED:
+        return register(read, serializationCodec.decode(input.readBytes()));
+      default:
+        throw new CacheException("Unknown tag " + tag + " in encoded cache entry.");
+    }
+  }
+
+  private static <T> T register(List<Object> read, T value) {
+    read.add(value);
+    return value;
+  }
+
+  private static Collection<Object> newCollection(byte tag, int size) {
+    switch (tag) {
+      case ARRAY_LIST:
+        return new ArrayList<>(size);
+      case LINKED_LIST:
+        return new LinkedList<>();
+      case HASH_SET:
+        return new HashSet<>(capacityFor(size));
+      default:
+        return new LinkedHashSet<>(capacityFor(size));
+    }
+  }
+
+  private static int capacityFor(int size) {
+    return Math.max(16, (int) (size / .75F) + 1);
+  }
+
+  private Schema schemaOf(Class<?> type) {
+    Schema schema = schemas.get(type);
+    if (schema == null) {
+      schema = resolveSchema(type);
+      schemas.put(type, schema);
+    }
+    return schema;
+  }
+
+  /**
+   * Works out the properties of a plain serializable bean, in name order, or {@link #NOT_A_BEAN}.
+   */
+  private Schema resolveSchema(Class<?> type) {
+    if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+        || Modifier.isAbstract(type.getModifiers()) || type.getName().contains("$$")) {
+      return NOT_A_BEAN;
+    }
+    Reflector reflector = reflectorFactory.findForClass(type);
+    if (!reflector.hasDefaultConstructor()) {
+      return NOT_A_BEAN;
+    }
+    Constructor<?> constructor = reflector.getDefaultConstructor();
+    if (!Modifier.isPublic(constructor.getModifiers()) || !Modifier.isPublic(type.getModifiers())) {
+      if (!Reflector.canControlMemberAccessible()) {
+        return NOT_A_BEAN;
+      }
+      constructor.setAccessible(true);
+    }
+    List<String> properties = new ArrayList<>();
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      // 自定义了序列化逻辑的类只能交给Java序列化
+      for (Method method : current.getDeclaredMethods()) {
+        if (SERIALIZATION_METHODS.contains(method.getName())) {
+          return NOT_A_BEAN;
+        }
+      }
+      // 每个需要序列化的字段都必须是同名的可读写属性，否则无法完整复制对象状态
+      for (Field field : current.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+          continue;
+        }
+        String name = field.getName();
+        if (!reflector.hasGetter(name) || !reflector.hasSetter(name)
+            || !boxed(reflector.getSetterType(name)).isAssignableFrom(boxed(reflector.getGetterType(name)))) {
+          return NOT_A_BEAN;
+        }
+        if (!properties.contains(name)) {
+          properties.add(name);
+        }
+      }
+    }
+    properties.sort(null);
+    Invoker[] getters = new Invoker[properties.size()];
+    Invoker[] setters = new Invoker[properties.size()];
+    boolean[] primitives = new boolean[properties.size()];
+    for (int i = 0; i < getters.length; i++) {
+      getters[i] = reflector.getGetInvoker(properties.get(i));
+      setters[i] = reflector.getSetInvoker(properties.get(i));
+      primitives[i] = reflector.getSetterType(properties.get(i)).isPrimitive();
+    }
+    return new Schema(classId(type), constructor, getters, setters, primitives);
+  }
+
+  private static Class<?> boxed(Class<?> type) {
+    if (!type.isPrimitive()) {
+      return type;
+    }
+    return Array.get(Array.newInstance(type, 1), 0).getClass();
+  }
+
+  private Integer classId(Class<?> type) {
+    Integer id = classIds.get(type);
+    if (id == null) {
+      synchronized (classIds) {
+        id = classIds.get(type);
+        if (id == null) {
+          Class<?>[] current = classes;
+          Class<?>[] extended = Arrays.copyOf(current, current.length + 1);
+          extended[current.length] = type;
+          id = current.length;
+          // 先发布类数组，再发布编号，解码时总能找到编号对应的类
+          classes = extended;
+          classIds.put(type, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  private Class<?> classOf(int id) {
+    Class<?>[] current = classes;
+    if (id >= current.length) {
+      throw new CacheException("Unknown class number " + id + " in encoded cache entry.");
+    }
+    return current[id];
+  }
+
+  private static final class Schema {
+    private final Integer classId;
+    private final Constructor<?> constructor;
+    private final Invoker[] getters;
+    private final Invoker[] setters;
+    private final boolean[] primitives;
+
+    Schema(Integer classId, Constructor<?> constructor, Invoker[] getters, Invoker[] setters, boolean[] primitives) {
+      this.classId = classId;
+      this.constructor = constructor;
+      this.getters = getters;
+      this.setters = setters;
+      this.primitives = primitives;
+    }
+  }
+
+  private static final class Output {
+    private byte[] buffer = new byte[256];
+    private int position;
+
+    void writeByte(int value) {
+      ensure(1);
+      buffer[position++] = (byte) value;
+    }
+
+    void writeInt(int value) {
+      ensure(4);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeLong(long value) {
+      ensure(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeVarInt(int value) {
+      // zigzag编码，绝对值小的负数也只占少量字节
+      int zigzag = (value << 1) ^ (value >> 31);
+      ensure(5);
+      while ((zigzag & ~0x7F) != 0) {
+        buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+        zigzag >>>= 7;
+      }
+      buffer[position++] = (byte) zigzag;
+    }
+
+    void writeVarLong(long value) {
+      long zigzag = (value << 1) ^ (value >> 63);
+      ensure(10);
+      while ((zigzag & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+        zigzag >>>= 7;
+      }
+      buffer[position++] = (byte) zigzag;
+    }
+
+    void writeBytes(byte[] bytes) {
+      writeVarInt(bytes.length);
+      ensure(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    void writeString(String value) {
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensure(int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+      }
+    }
+  }
+
+  private static final class Input {
+    private final byte[] buffer;
+    private int position;
+
+    Input(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    byte readByte() {
+      return buffer[position++];
+    }
+
+    int readInt() {
+      int value = 0;
+      for (int i = 0; i < 4; i++) {
+        value = (value << 8) | (buffer[position++] & 0xFF);
+      }
+      return value;
+    }
+
+    long readLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (buffer[position++] & 0xFF);
+      }
+      return value;
+    }
+
+    int readVarInt() {
+      int zigzag = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = buffer[position++];
+        zigzag |= (b & 0x7F) << shift;
+        if (b >= 0) {
+          break;
+        }
+      }
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    long readVarLong() {
+      long zigzag = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = buffer[position++];
+        zigzag |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          break;
+        }
+      }
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    byte[] readBytes() {
+      int length = readVarInt();
+      byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+      position += length;
+      return bytes;
+    }
+
+    String readString() {
+      int length = readVarInt();
+      String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+  }
+
+}
@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+/**
+ * Turns the values of a cache into bytes and back, so that every read of the cache gets a copy of its own.
+ * <p>
+ * Implementations must be thread safe and have a public no-argument constructor to be usable from the
+ * {@code cacheCodec} setting. They report failures with {@link org.apache.ibatis.cache.CacheException}.
+ *
+ * @since 3.5.2
+ * @see org.apache.ibatis.cache.decorators.SerializedCache
+ */
+public interface CacheCodec {
+
+  /**
+   * @param value the value to encode, may be {@code null}
+   * @return the encoded value
+   */
+  byte[] encode(Object value);
+
+  /**
+   * @param bytes bytes returned by {@link #encode(Object)} of this codec
+   * @return a new copy of the encoded value
+   */
+  Object decode(byte[] bytes);
+
+}
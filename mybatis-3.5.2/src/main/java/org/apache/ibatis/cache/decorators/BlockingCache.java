@@ -77,6 +77,25 @@ public class BlockingCache implements Cache {
     }
   }
 
+  @Override
+  public void putObject(Object key, Object value, long timeToLive, long timeToIdle) {
+    try {
+      delegate.putObject(key, value, timeToLive, timeToIdle);
+    } finally {
+      releaseLock(key);
+    }
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return delegate.supportsExpiry();
+  }
+
   /**
    * 从缓存中读取一条信息
    * @param key 信息的键
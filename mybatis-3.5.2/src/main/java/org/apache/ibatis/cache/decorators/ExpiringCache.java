@@ -0,0 +1,388 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * Expires entries one by one, after a time to live since they were cached or a time to idle since they were last
+ * read, instead of clearing the whole cache at once like {@link ScheduledCache}.
+ * <p>
+ * The times come from the statement that cached an entry, or else from the defaults of the cache. A read checks the
+ * exact expiry time of its entry, so expired entries are never returned. Expired entries nobody reads are removed by
+ * a hierarchical timer wheel, advanced as the cache is used: an entry is filed in a bucket of the level whose span
+ * covers its remaining time, moves down a level when the wheel reaches its bucket early, and is removed once its
+ * time has come. Scheduling and expiring an entry take constant time, so entries expire spread over time without
+ * scanning the cache.
+ * <p>
+ * The cache builder puts this decorator right around the cache that stores the entries, beneath the eviction policy,
+ * so that evicted entries are removed through it. A policy that stores the entries itself, like
+ * {@link TinyLfuCache}, is decorated from outside and reports its evictions to {@link #forget(Object)}.
+ *
+ * @since 3.5.2
+ */
+public class ExpiringCache implements Cache {
+
+  // 各级时间轮每个槽的跨度（毫秒）的位移和槽数，跨度约为1秒、1分钟、1小时、3天，最后一级存放更远的条目
+  private static final int[] SHIFTS = { 10, 16, 22, 28, 34 };
+  private static final int[] BUCKETS = { 64, 64, 64, 64, 1 };
+
+  // 被装饰的对象
+  private final Cache delegate;
+  // 有过期时间的条目
+  private final ConcurrentMap<Object, Node> nodes = new ConcurrentHashMap<>();
+  private final Node[][] wheel = new Node[SHIFTS.length][];
+  // 时间轮推进时正在处理的槽中的节点
+  private final Node processing = Node.sentinel();
+  private final ReentrantLock lock = new ReentrantLock();
+  // 默认的存活时间和空闲时间，0表示不过期
+  private long timeToLive;
+  private long timeToIdle;
+  // 是否有条目设置过过期时间，没有时直接访问被装饰的对象
+  private volatile boolean expiring;
+  // 时间轮上次推进到的时刻
+  private volatile long wheelTime;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+    for (int level = 0; level < SHIFTS.length; level++) {
+      wheel[level] = new Node[BUCKETS[level]];
+      for (int i = 0; i < BUCKETS[level]; i++) {
+        wheel[level][i] = Node.sentinel();
+      }
+    }
+    this.wheelTime = currentTimeMillis();
+  }
+
+  /**
+   * Sets how long entries live after they were cached unless their statement says otherwise, 0 (the default) for
+   * no limit.
+   */
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = Math.max(0, timeToLive);
+    this.expiring |= timeToLive > 0;
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * Sets how long entries live after they were last read unless their statement says otherwise, 0 (the default) for
+   * no limit.
+   */
+  public void setTimeToIdle(long timeToIdle) {
+    this.timeToIdle = Math.max(0, timeToIdle);
+    this.expiring |= timeToIdle > 0;
+  }
+
+  public long getTimeToIdle() {
+    return timeToIdle;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    if (expiring) {
+      tryAdvance(currentTimeMillis());
+    }
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    putObject(key, value, -1, -1);
+  }
+
+  @Override
+  public void putObject(Object key, Object value, long timeToLive, long timeToIdle) {
+    final long ttl = timeToLive < 0 ? this.timeToLive : timeToLive;
+    final long tti = timeToIdle < 0 ? this.timeToIdle : timeToIdle;
+    if (!expiring && ttl == 0 && tti == 0) {
+      delegate.putObject(key, value);
+      return;
+    }
+    expiring = true;
+    final long now = currentTimeMillis();
+    lock.lock();
+    try {
+      advance(now);
+      Node node = nodes.remove(key);
+      if (node != null) {
+        node.unlink();
+      }
+      if (ttl > 0 || tti > 0) {
+        node = new Node(key, ttl > 0 ? now + ttl : Long.MAX_VALUE, tti, now);
+        nodes.put(key, node);
+        schedule(node, node.deadline());
+      }
+      // 在锁内写入，避免旧条目过期时删除新写入的值；写入时立即被淘汰的条目也会被遗忘
+      delegate.putObject(key, value);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    if (!expiring) {
+      return delegate.getObject(key);
+    }
+    final long now = currentTimeMillis();
+    tryAdvance(now);
+    final Node node = nodes.get(key);
+    if (node != null) {
+      if (node.deadline() <= now) {
+        expire(node);
+      } else {
+        // 空闲时间只在读取时记录，时间轮到期检查时再按新的过期时刻重新安排
+        node.accessed = now;
+      }
+    }
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    if (expiring) {
+      lock.lock();
+      try {
+        Node node = nodes.remove(key);
+        if (node != null) {
+          node.unlink();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      nodes.clear();
+      for (Node[] buckets : wheel) {
+        for (Node sentinel : buckets) {
+          sentinel.prev = sentinel;
+          sentinel.next = sentinel;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    // 在锁外清除，被装饰对象清除时可能要等待正在通知淘汰的线程
+    delegate.clear();
+  }
+
+  /**
+   * Forgets the expiry of an entry the decorated cache evicted on its own, so that the expiry index does not outgrow
+   * the cache.
+   *
+   * @param key the key of the evicted entry
+   */
+  public void forget(Object key) {
+    if (!expiring) {
+      return;
+    }
+    lock.lock();
+    try {
+      Node node = nodes.remove(key);
+      if (node != null) {
+        node.unlink();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return true;
+  }
+
+  /**
+   * Returns how long the entry has left to live, 0 if it has expired, or -1 if it does not expire.
+   */
+  @Override
+  public long getTimeToLive(Object key) {
+    final Node node = expiring ? nodes.get(key) : null;
+    if (node == null) {
+      return delegate.getTimeToLive(key);
+    }
+    return Math.max(0, node.deadline() - currentTimeMillis());
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  /**
+   * Returns the current time in milliseconds.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private void expire(Node node) {
+    lock.lock();
+    try {
+      if (nodes.remove(node.key, node)) {
+        node.unlink();
+        delegate.removeObject(node.key);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Files the node in the bucket of the lowest level whose span covers the time it has left.
+   */
+  private void schedule(Node node, long deadline) {
+    final long delay = deadline - wheelTime;
+    int level = 0;
+    while (level < SHIFTS.length - 1 && delay >= (1L << SHIFTS[level + 1])) {
+      level++;
+    }
+    // 当前槽已经处理过，落在其中的条目放到下一个槽
+    final long ticks = Math.max(deadline >>> SHIFTS[level], (wheelTime >>> SHIFTS[level]) + 1);
+    final int index = (int) (ticks & (BUCKETS[level] - 1));
+    node.linkBefore(wheel[level][index]);
+  }
+
+  /**
+   * Moves the wheel when a reader finds it behind, unless another thread is moving it.
+   */
+  private void tryAdvance(long now) {
+    if ((now >>> SHIFTS[0]) != (wheelTime >>> SHIFTS[0]) && lock.tryLock()) {
+      try {
+        advance(now);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Moves the wheel to the current time: the nodes of the buckets it passes are expired if their time has come and
+   * filed again otherwise. Must be called with the lock held.
+   */
+  private void advance(long now) {
+    final long previous = wheelTime;
+    if ((now >>> SHIFTS[0]) == (previous >>> SHIFTS[0])) {
+      return;
+    }
+    wheelTime = now;
+    for (int level = 0; level < SHIFTS.length; level++) {
+      final long previousTicks = previous >>> SHIFTS[level];
+      final long ticks = now >>> SHIFTS[level];
+      if (ticks == previousTicks) {
+        break;
+      }
+      // 时间跳过整圈时每个槽都要处理
+      final int count = (int) Math.min(ticks - previousTicks, BUCKETS[level]);
+      for (int i = 1; i <= count; i++) {
+        expireBucket(wheel[level][(int) ((previousTicks + i) & (BUCKETS[level] - 1))], now);
+      }
+    }
+  }
+
+  private void expireBucket(Node sentinel, long now) {
+    if (sentinel.next == sentinel) {
+      return;
+    }
+    // 先把整个槽移到待处理链表上，处理期间被遗忘的节点可以安全地从中摘除
+    processing.next = sentinel.next;
+    processing.prev = sentinel.prev;
+    processing.next.prev = processing;
+    processing.prev.next = processing;
+    sentinel.prev = sentinel;
+    sentinel.next = sentinel;
+    Node node;
+    while ((node = processing.next) != processing) {
+      node.unlink();
+      final long deadline = node.deadline();
+      if (deadline <= now) {
+        if (nodes.remove(node.key, node)) {
+          delegate.removeObject(node.key);
+        }
+      } else {
+        schedule(node, deadline);
+      }
+    }
+  }
+
+  private static final class Node {
+    private final Object key;
+    // 按存活时间计算的过期时刻
+    private final long expiresAt;
+    private final long timeToIdle;
+    private volatile long accessed;
+    private Node prev;
+    private Node next;
+
+    Node(Object key, long expiresAt, long timeToIdle, long accessed) {
+      this.key = key;
+      this.expiresAt = expiresAt;
+      this.timeToIdle = timeToIdle;
+      this.accessed = accessed;
+    }
+
+    static Node sentinel() {
+      Node sentinel = new Node(null, Long.MAX_VALUE, 0, 0);
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+      return sentinel;
+    }
+
+    long deadline() {
+      return timeToIdle > 0 ? Math.min(expiresAt, accessed + timeToIdle) : expiresAt;
+    }
+
+    void linkBefore(Node sentinel) {
+      prev = sentinel.prev;
+      next = sentinel;
+      sentinel.prev.next = this;
+      sentinel.prev = this;
+    }
+
+    void unlink() {
+      if (prev != null) {
+        prev.next = next;
+        next.prev = prev;
+        prev = null;
+        next = null;
+      }
+    }
+  }
+
+}
@@ -70,6 +70,22 @@ public class FifoCache implements Cache {
     delegate.putObject(key, value);
   }
 
+  @Override
+  public void putObject(Object key, Object value, long timeToLive, long timeToIdle) {
+    cycleKeyList(key);
+    delegate.putObject(key, value, timeToLive, timeToIdle);
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return delegate.supportsExpiry();
+  }
+
   @Override
   public Object getObject(Object key) {
     return delegate.getObject(key);
@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -33,8 +35,21 @@ public class LoggingCache implements Cache {
 
   private final Log log;
   private final Cache delegate;
+  /**
+   * @deprecated Since 3.5.2, not exact when the cache is used concurrently without a {@link SynchronizedCache}, as
+   *             with {@link TinyLfuCache}. Use {@link #getRequestCount()} instead.
+   */
+  @Deprecated
   protected int requests = 0;
+  /**
+   * @deprecated Since 3.5.2, not exact when the cache is used concurrently without a {@link SynchronizedCache}, as
+   *             with {@link TinyLfuCache}. Use {@link #getHitCount()} instead.
+   */
+  @Deprecated
   protected int hits = 0;
+  // 没有同步装饰器时会被并发访问，准确的计数使用LongAdder
+  private final LongAdder requestCount = new LongAdder();
+  private final LongAdder hitCount = new LongAdder();
 
   public LoggingCache(Cache delegate) {
     this.delegate = delegate;
@@ -56,6 +71,21 @@ public class LoggingCache implements Cache {
     delegate.putObject(key, object);
   }
 
+  @Override
+  public void putObject(Object key, Object object, long timeToLive, long timeToIdle) {
+    delegate.putObject(key, object, timeToLive, timeToIdle);
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return delegate.supportsExpiry();
+  }
+
   /**
    * 从缓存中读取一条信息
    * @param key 数据的键
@@ -65,10 +95,12 @@ public class LoggingCache implements Cache {
   public Object getObject(Object key) {
     // 请求缓存次数+1
     requests++;
+    requestCount.increment();
     final Object value = delegate.getObject(key);
     if (value != null) { // 命中缓存
       // 命中缓存次数+1
       hits++;
+      hitCount.increment();
     }
     if (log.isDebugEnabled()) {
       log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
@@ -96,12 +128,28 @@ public class LoggingCache implements Cache {
     return delegate.equals(obj);
   }
 
+  /**
+   * @return how many times the cache was read, exact also under concurrent use
+   * @since 3.5.2
+   */
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  /**
+   * @return how many reads of the cache found a value, exact also under concurrent use
+   * @since 3.5.2
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
   /**
    * 获取缓存命中率
    * @return
    */
   private double getHitRatio() {
-    return (double) hits / (double) requests;
+    return (double) hitCount.sum() / (double) requestCount.sum();
   }
 
 }
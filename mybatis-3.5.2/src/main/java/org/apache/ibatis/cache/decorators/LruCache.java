@@ -95,6 +95,22 @@ public class LruCache implements Cache {
     cycleKeyList(key);
   }
 
+  @Override
+  public void putObject(Object key, Object value, long timeToLive, long timeToIdle) {
+    delegate.putObject(key, value, timeToLive, timeToIdle);
+    cycleKeyList(key);
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return delegate.supportsExpiry();
+  }
+
   /**
    * 从缓存中读取一条数据
    * @param key 数据的键
@@ -35,8 +35,8 @@ public class ScheduledCache implements Cache {
   private final Cache delegate;
   // 清理的时间间隔
   protected long clearInterval;
-  // 上次清理的时刻
-  protected long lastClear;
+  // 上次清理的时刻，没有同步装饰器时会被并发访问
+  protected volatile long lastClear;
 
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
@@ -65,6 +65,22 @@ public class ScheduledCache implements Cache {
     delegate.putObject(key, object);
   }
 
+  @Override
+  public void putObject(Object key, Object object, long timeToLive, long timeToIdle) {
+    clearWhenStale();
+    delegate.putObject(key, object, timeToLive, timeToIdle);
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return delegate.supportsExpiry();
+  }
+
   @Override
   public Object getObject(Object key) {
     return clearWhenStale() ? null : delegate.getObject(key);
@@ -98,7 +114,12 @@ public class ScheduledCache implements Cache {
 
   private boolean clearWhenStale() {
     if (System.currentTimeMillis() - lastClear > clearInterval) {
-      clear();
+      synchronized (this) {
+        // 只由一个线程清理，其余线程看到的是刚清理过的缓存
+        if (System.currentTimeMillis() - lastClear > clearInterval) {
+          clear();
+        }
+      }
       return true;
     }
     return false;
@@ -15,17 +15,16 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.codec.CacheCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
 import org.apache.ibatis.io.Resources;
 
 /**
@@ -40,9 +39,19 @@ import org.apache.ibatis.io.Resources;
 public class SerializedCache implements Cache {
 
   private final Cache delegate;
+  // 负责对象与字节串之间的转换，默认使用Java序列化
+  private final CacheCodec codec;
 
   public SerializedCache(Cache delegate) {
+    this(delegate, new JavaSerializationCodec());
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public SerializedCache(Cache delegate, CacheCodec codec) {
     this.delegate = delegate;
+    this.codec = codec;
   }
 
   @Override
@@ -62,13 +71,23 @@ public class SerializedCache implements Cache {
    */
   @Override
   public void putObject(Object key, Object object) {
-    if (object == null || object instanceof Serializable) { // 要缓存的数据必须是可以序列化的
-      // 将数据序列化后写入缓存
-      delegate.putObject(key, serialize((Serializable) object));
-    } else { // 要缓存的数据不可序列化
-      // 抛出异常
-      throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
-    }
+    // 将数据序列化后写入缓存
+    delegate.putObject(key, encode(object));
+  }
+
+  @Override
+  public void putObject(Object key, Object object, long timeToLive, long timeToIdle) {
+    delegate.putObject(key, encode(object), timeToLive, timeToIdle);
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return delegate.supportsExpiry();
   }
 
   /**
@@ -81,7 +100,7 @@ public class SerializedCache implements Cache {
     // 读取缓存中的序列化串
     Object object = delegate.getObject(key);
     // 反序列化后返回
-    return object == null ? null : deserialize((byte[]) object);
+    return object == null ? null : codec.decode((byte[]) object);
   }
 
   @Override
@@ -104,26 +123,20 @@ public class SerializedCache implements Cache {
     return delegate.equals(obj);
   }
 
-  private byte[] serialize(Serializable value) {
-    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
-      oos.writeObject(value);
-      oos.flush();
-      return bos.toByteArray();
-    } catch (Exception e) {
-      throw new CacheException("Error serializing object.  Cause: " + e, e);
+  private byte[] encode(Object object) {
+    if (object == null || object instanceof Serializable) { // 要缓存的数据必须是可以序列化的
+      return codec.encode(object);
+    } else { // 要缓存的数据不可序列化
+      // 抛出异常
+      throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
     }
   }
 
-  private Serializable deserialize(byte[] value) {
-    Serializable result;
-    try (ByteArrayInputStream bis = new ByteArrayInputStream(value);
-         ObjectInputStream ois = new CustomObjectInputStream(bis)) {
-      result = (Serializable) ois.readObject();
-    } catch (Exception e) {
-      throw new CacheException("Error deserializing object.  Cause: " + e, e);
-    }
-    return result;
+  /**
+   * @since 3.5.2
+   */
+  public CacheCodec getCodec() {
+    return codec;
   }
 
   public static class CustomObjectInputStream extends ObjectInputStream {
@@ -63,6 +63,22 @@ public class SoftCache implements Cache {
     delegate.putObject(key, new SoftEntry(key, value, queueOfGarbageCollectedEntries));
   }
 
+  @Override
+  public void putObject(Object key, Object value, long timeToLive, long timeToIdle) {
+    removeGarbageCollectedItems();
+    delegate.putObject(key, new SoftEntry(key, value, queueOfGarbageCollectedEntries), timeToLive, timeToIdle);
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return delegate.supportsExpiry();
+  }
+
   @Override
   public Object getObject(Object key) {
     Object result = null;
@@ -64,6 +64,21 @@ public class SynchronizedCache implements Cache {
     delegate.putObject(key, object);
   }
 
+  @Override
+  public synchronized void putObject(Object key, Object object, long timeToLive, long timeToIdle) {
+    delegate.putObject(key, object, timeToLive, timeToIdle);
+  }
+
+  @Override
+  public synchronized long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return delegate.supportsExpiry();
+  }
+
   @Override
   public synchronized Object getObject(Object key) {
     return delegate.getObject(key);
@@ -0,0 +1,521 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * W-TinyLFU (window tiny least frequently used) cache decorator, {@code <cache eviction="TINYLFU"/>}.
+ * <p>
+ * The entries live in a {@link ConcurrentHashMap} held by this decorator, the decorated cache only provides the id.
+ * Reads take no lock: they record the access in a lossy striped buffer. Writes queue their change. Both buffers are
+ * drained in batches by whichever thread gets the eviction lock, which is never waited for. New entries enter a small
+ * LRU window; an entry leaving the window is admitted to the main segmented LRU only if a frequency sketch says it is
+ * used more often than the entry it would push out. As it needs no external locking, the cache builder does not wrap
+ * it in a {@link SynchronizedCache}; the standard decorators it puts around it, such as {@link LoggingCache} and
+ * {@link ScheduledCache}, are safe for concurrent use on their own. An {@link ExpiringCache} around it learns of the
+ * evicted entries through the eviction listener.
+ *
+ * @since 3.5.2
+ */
+public class TinyLfuCache implements Cache {
+
+  private static final int IDLE = 0;
+  private static final int REQUIRED = 1;
+  private static final int PROCESSING = 2;
+
+  private static final byte NONE = 0;
+  private static final byte WINDOW = 1;
+  private static final byte PROBATION = 2;
+  private static final byte PROTECTED = 3;
+
+  private static final int READ_BUFFER_SIZE = 16;
+  private static final int READ_BUFFER_STRIPES = stripes();
+
+  private final Cache delegate;
+  private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<>();
+  private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFER_STRIPES];
+  private final ConcurrentLinkedQueue<Node> writeBuffer = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final AtomicInteger drainStatus = new AtomicInteger(IDLE);
+
+  // 以下字段只在持有淘汰锁时访问
+  private final AccessOrderDeque window = new AccessOrderDeque();
+  private final AccessOrderDeque probation = new AccessOrderDeque();
+  private final AccessOrderDeque protectedDeque = new AccessOrderDeque();
+  private FrequencySketch sketch;
+  private int maximum;
+  private int windowMaximum;
+  private int protectedMaximum;
+  private long evictionCount;
+  private volatile Consumer<Object> evictionListener;
+
+  public TinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    for (int i = 0; i < readBuffers.length; i++) {
+      readBuffers[i] = new ReadBuffer();
+    }
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return data.size();
+  }
+
+  /**
+   * Sets how many entries the cache keeps, 1024 by default.
+   *
+   * @param size the maximum number of entries
+   */
+  public void setSize(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("The cache size must be positive: " + size);
+    }
+    evictionLock.lock();
+    try {
+      maximum = size;
+      windowMaximum = Math.max(1, size / 100);
+      protectedMaximum = (int) ((size - windowMaximum) * 0.8);
+      sketch = new FrequencySketch(size);
+      evict(null);
+    } finally {
+      unlockEvictionLock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    Node node = data.get(key);
+    if (node == null) {
+      Node added = new Node(key, value);
+      node = data.putIfAbsent(key, added);
+      if (node == null) {
+        writeBuffer.add(added);
+        scheduleDrain();
+        return;
+      }
+    }
+    // 已有的键只更新值，并当作一次访问
+    node.value = value;
+    recordRead(node);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    recordRead(node);
+    return node.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Node node = data.remove(key);
+    if (node == null) {
+      return null;
+    }
+    writeBuffer.add(node);
+    scheduleDrain();
+    return node.value;
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      data.clear();
+      drainBuffers();
+      // 清除期间同时写入的节点可能已被整理进队列，也要从数据中删除，否则它们不在任何队列中，永远不会被淘汰
+      removeData(window);
+      removeData(probation);
+      removeData(protectedDeque);
+      window.clear();
+      probation.clear();
+      protectedDeque.clear();
+    } finally {
+      unlockEvictionLock();
+    }
+  }
+
+  /**
+   * Sets the listener told the key of every entry evicted to stay within the size, before the entry is removed.
+   *
+   * @param evictionListener the listener, called with the eviction lock held
+   */
+  public void setEvictionListener(Consumer<Object> evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  /**
+   * @return the number of entries evicted to stay within the size
+   */
+  public long getEvictionCount() {
+    evictionLock.lock();
+    try {
+      return evictionCount;
+    } finally {
+      unlockEvictionLock();
+    }
+  }
+
+  /**
+   * Applies the buffered reads and writes now. Eviction otherwise catches up with the buffers on later calls.
+   */
+  public void cleanUp() {
+    evictionLock.lock();
+    try {
+      drainBuffers();
+    } finally {
+      unlockEvictionLock();
+    }
+  }
+
+  private void recordRead(Node node) {
+    ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & (READ_BUFFER_STRIPES - 1)];
+    if (!buffer.offer(node) && evictionLock.tryLock()) {
+      // 缓冲区满时尝试整理，拿不到锁就丢弃这次访问记录
+      try {
+        drainBuffers();
+      } finally {
+        unlockEvictionLock();
+      }
+    }
+  }
+
+  private void scheduleDrain() {
+    drainStatus.set(REQUIRED);
+    drainIfRequired();
+  }
+
+  /**
+   * Drains the buffers while a write asks for it and the eviction lock is free. Every thread releasing the lock
+   * calls this, so a write that could not get the lock is never left in the buffer.
+   */
+  private void drainIfRequired() {
+    while (drainStatus.get() == REQUIRED && evictionLock.tryLock()) {
+      try {
+        drainStatus.set(PROCESSING);
+        drainBuffers();
+        drainStatus.compareAndSet(PROCESSING, IDLE);
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void unlockEvictionLock() {
+    evictionLock.unlock();
+    // 持有锁期间写入的线程拿不到锁，由释放锁的线程代为整理
+    drainIfRequired();
+  }
+
+  private void removeData(AccessOrderDeque deque) {
+    for (Node node = deque.first(); node != null; node = node.next) {
+      data.remove(node.key, node);
+    }
+  }
+
+  private void drainBuffers() {
+    for (ReadBuffer buffer : readBuffers) {
+      buffer.drainTo(this);
+    }
+    Node candidates = null;
+    Node node;
+    while ((node = writeBuffer.poll()) != null) {
+      if (node.queue != NONE) {
+        // 已在队列中的节点出现在写缓冲区中，说明它已被删除
+        if (data.get(node.key) != node) {
+          unlink(node);
+        }
+      } else if (data.get(node.key) == node) {
+        sketch.increment(node.key);
+        window.addLast(node, WINDOW);
+      }
+    }
+    while (window.size > windowMaximum) {
+      // 移出窗口的节点进入试用区的末尾，作为准入的候选者
+      Node first = window.first();
+      window.remove(first);
+      probation.addLast(first, PROBATION);
+      if (candidates == null) {
+        candidates = first;
+      }
+    }
+    evict(candidates);
+  }
+
+  private void onAccess(Node node) {
+    if (data.get(node.key) != node) {
+      return;
+    }
+    sketch.increment(node.key);
+    if (node.queue == WINDOW) {
+      window.moveToBack(node);
+    } else if (node.queue == PROBATION) {
+      probation.remove(node);
+      protectedDeque.addLast(node, PROTECTED);
+      while (protectedDeque.size > protectedMaximum) {
+        Node demoted = protectedDeque.first();
+        protectedDeque.remove(demoted);
+        probation.addLast(demoted, PROBATION);
+      }
+    } else if (node.queue == PROTECTED) {
+      protectedDeque.moveToBack(node);
+    }
+  }
+
+  private void evict(Node candidate) {
+    while (window.size + probation.size + protectedDeque.size > maximum) {
+      Node victim = probation.first();
+      if (victim == null) {
+        victim = protectedDeque.first() != null ? protectedDeque.first() : window.first();
+      } else if (candidate != null && candidate != victim && candidate.queue == PROBATION) {
+        // 候选者比试用区中最久未访问的节点更常用时才被接纳
+        if (sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+          victim = candidate;
+        }
+      }
+      if (victim == candidate) {
+        candidate = candidate.next;
+      }
+      final Consumer<Object> listener = evictionListener;
+      if (listener != null) {
+        listener.accept(victim.key);
+      }
+      data.remove(victim.key, victim);
+      unlink(victim);
+      evictionCount++;
+    }
+  }
+
+  private void unlink(Node node) {
+    if (node.queue == WINDOW) {
+      window.remove(node);
+    } else if (node.queue == PROBATION) {
+      probation.remove(node);
+    } else if (node.queue == PROTECTED) {
+      protectedDeque.remove(node);
+    }
+  }
+
+  private static int stripes() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return Math.min(64, Integer.highestOneBit(Math.max(1, processors - 1) << 1));
+  }
+
+  private static final class Node {
+    private final Object key;
+    private volatile Object value;
+    // 以下字段只在持有淘汰锁时访问
+    private byte queue = NONE;
+    private Node previous;
+    private Node next;
+
+    private Node(Object key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * A doubly linked list of nodes from the least to the most recently used.
+   */
+  private static final class AccessOrderDeque {
+    private Node first;
+    private Node last;
+    private int size;
+
+    Node first() {
+      return first;
+    }
+
+    void addLast(Node node, byte queue) {
+      node.queue = queue;
+      node.previous = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+      size++;
+    }
+
+    void remove(Node node) {
+      if (node.previous == null) {
+        first = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      node.queue = NONE;
+      size--;
+    }
+
+    void moveToBack(Node node) {
+      if (node != last) {
+        byte queue = node.queue;
+        remove(node);
+        addLast(node, queue);
+      }
+    }
+
+    void clear() {
+      for (Node node = first; node != null; ) {
+        Node next = node.next;
+        node.previous = null;
+        node.next = null;
+        node.queue = NONE;
+        node = next;
+      }
+      first = null;
+      last = null;
+      size = 0;
+    }
+  }
+
+  /**
+   * A bounded ring of recent reads that drops reads when it is full.
+   */
+  private static final class ReadBuffer {
+    private final AtomicReferenceArray<Node> slots = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong tail = new AtomicLong();
+    // 只在持有淘汰锁时修改
+    private volatile long head;
+
+    boolean offer(Node node) {
+      long currentTail = tail.get();
+      if (currentTail - head >= READ_BUFFER_SIZE) {
+        return false;
+      }
+      if (tail.compareAndSet(currentTail, currentTail + 1)) {
+        slots.lazySet((int) (currentTail & (READ_BUFFER_SIZE - 1)), node);
+      }
+      return true;
+    }
+
+    void drainTo(TinyLfuCache cache) {
+      long currentHead = head;
+      long currentTail = tail.get();
+      for (; currentHead < currentTail; currentHead++) {
+        int index = (int) (currentHead & (READ_BUFFER_SIZE - 1));
+        Node node = slots.get(index);
+        if (node == null) {
+          // 写入者已占位但尚未写入，留到下次整理
+          break;
+        }
+        slots.lazySet(index, null);
+        cache.onAccess(node);
+      }
+      head = currentHead;
+    }
+  }
+
+  /**
+   * A count-min sketch of 4-bit counters that halves all counters once it has seen ten times as many accesses as
+   * the cache holds entries, so that old popularity fades.
+   */
+  private static final class FrequencySketch {
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximum) {
+      int length = Math.max(8, Integer.highestOneBit(Math.min(maximum, 1 << 30) - 1) << 1);
+      table = new long[length];
+      tableMask = length - 1;
+      sampleSize = (int) Math.min(10L * maximum, Integer.MAX_VALUE);
+    }
+
+    int frequency(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+        int index = indexOf(hash, i);
+        int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    void increment(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        int index = indexOf(hash, i);
+        int offset = (start + i) << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+          table[index] += 1L << offset;
+          added = true;
+        }
+      }
+      if (added && ++additions == sampleSize) {
+        reset();
+      }
+    }
+
+    private void reset() {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x) {
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      return (x >>> 16) ^ x;
+    }
+  }
+
+}
@@ -47,12 +47,15 @@ public class TransactionalCache implements Cache {
   private final Map<Object, Object> entriesToAddOnCommit;
   // 缓存查询未命中的数据
   private final Set<Object> entriesMissedInCache;
+  // 事务提交时需要写入缓存的数据的存活时间和空闲时间
+  private final Map<Object, long[]> expiriesToAddOnCommit;
 
   public TransactionalCache(Cache delegate) {
     this.delegate = delegate;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<>();
     this.entriesMissedInCache = new HashSet<>();
+    this.expiriesToAddOnCommit = new HashMap<>();
   }
 
   @Override
@@ -97,6 +100,27 @@ public class TransactionalCache implements Cache {
   public void putObject(Object key, Object object) {
     // 先放入到entriesToAddOnCommit列表中暂存
     entriesToAddOnCommit.put(key, object);
+    expiriesToAddOnCommit.remove(key);
+  }
+
+  @Override
+  public void putObject(Object key, Object object, long timeToLive, long timeToIdle) {
+    entriesToAddOnCommit.put(key, object);
+    if (timeToLive >= 0 || timeToIdle >= 0) {
+      expiriesToAddOnCommit.put(key, new long[] { timeToLive, timeToIdle });
+    } else {
+      expiriesToAddOnCommit.remove(key);
+    }
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return delegate.supportsExpiry();
   }
 
   @Override
@@ -108,6 +132,7 @@ public class TransactionalCache implements Cache {
   public void clear() {
     clearOnCommit = true;
     entriesToAddOnCommit.clear();
+    expiriesToAddOnCommit.clear();
   }
 
   /**
@@ -140,6 +165,7 @@ public class TransactionalCache implements Cache {
     clearOnCommit = false;
     entriesToAddOnCommit.clear();
     entriesMissedInCache.clear();
+    expiriesToAddOnCommit.clear();
   }
 
 
@@ -149,7 +175,12 @@ public class TransactionalCache implements Cache {
   private void flushPendingEntries() {
     // 将entriesToAddOnCommit中的数据写入缓存
     for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
-      delegate.putObject(entry.getKey(), entry.getValue());
+      long[] expiry = expiriesToAddOnCommit.get(entry.getKey());
+      if (expiry == null) {
+        delegate.putObject(entry.getKey(), entry.getValue());
+      } else {
+        delegate.putObject(entry.getKey(), entry.getValue(), expiry[0], expiry[1]);
+      }
     }
     // 将entriesMissedInCache中的数据写入缓存
     for (Object entry : entriesMissedInCache) {
@@ -77,6 +77,22 @@ public class WeakCache implements Cache {
     delegate.putObject(key, new WeakEntry(key, value, queueOfGarbageCollectedEntries));
   }
 
+  @Override
+  public void putObject(Object key, Object value, long timeToLive, long timeToIdle) {
+    removeGarbageCollectedItems();
+    delegate.putObject(key, new WeakEntry(key, value, queueOfGarbageCollectedEntries), timeToLive, timeToIdle);
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return delegate.supportsExpiry();
+  }
+
   /**
    * 从缓存中读取一条信息
    * @param key 信息的键
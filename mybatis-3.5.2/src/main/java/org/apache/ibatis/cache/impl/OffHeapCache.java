@@ -0,0 +1,464 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+
+/**
+ * A cache that keeps serialized entries in direct memory, {@code <cache type="OFFHEAP"/>}.
+ * <p>
+ * Entries are appended to direct {@link ByteBuffer} slabs of {@link #setSlabSize(int) slabSize} bytes, allocated as
+ * they are needed until {@link #setCapacity(long) capacity} bytes are in use. The heap only holds an open addressing
+ * index of the key hashes and entry addresses, twelve bytes per entry. When the last slab is full, the oldest slab is
+ * emptied and reused, so eviction drops a slab worth of the oldest writes at once. Removed and replaced entries keep
+ * their space until their slab is reused.
+ * <p>
+ * Keys and values must be serializable. Every read returns a new copy, as with a read-write cache. The cache is
+ * thread safe: reads share a lock and only copy bytes under it, writes take it exclusively. The direct memory in use
+ * counts against {@code -XX:MaxDirectMemorySize}.
+ *
+ * @since 3.5.2
+ */
+public class OffHeapCache implements Cache {
+
+  private static final int HEADER = 12;
+  private static final int NULL_VALUE = -1;
+
+  private final String id;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private long capacity = 64L * 1024 * 1024;
+  private int slabSize = 4 * 1024 * 1024;
+
+  // 以下字段在锁的保护下访问
+  private ByteBuffer[] slabs;
+  private int[] writeOffsets;
+  private int currentSlab;
+  private final Index index = new Index();
+  private long evictedSlabCount;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets how many bytes of direct memory the cache may use, 64 MiB by default.
+   *
+   * @param capacity the capacity in bytes
+   */
+  public void setCapacity(long capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The off-heap cache capacity must be positive: " + capacity);
+    }
+    lock.writeLock().lock();
+    try {
+      this.capacity = capacity;
+      reset();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Sets the size of the slabs, 4 MiB by default. Entries larger than a slab are not cached.
+   *
+   * @param slabSize the slab size in bytes
+   */
+  public void setSlabSize(int slabSize) {
+    if (slabSize <= HEADER) {
+      throw new IllegalArgumentException("The off-heap cache slab size must be larger than " + HEADER + ": " + slabSize);
+    }
+    lock.writeLock().lock();
+    try {
+      this.slabSize = slabSize;
+      reset();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  @Override
+  public int getSize() {
+    lock.readLock().lock();
+    try {
+      return index.size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the bytes of direct memory allocated for slabs
+   */
+  public long getAllocatedBytes() {
+    lock.readLock().lock();
+    try {
+      long allocated = 0;
+      if (slabs != null) {
+        for (ByteBuffer slab : slabs) {
+          allocated += slab == null ? 0 : slab.capacity();
+        }
+      }
+      return allocated;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return how many times a full slab was emptied to make room
+   */
+  public long getEvictedSlabCount() {
+    lock.readLock().lock();
+    try {
+      return evictedSlabCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    final byte[] keyBytes = serialize(key);
+    final byte[] valueBytes = value == null ? null : serialize(value);
+    final int hash = key.hashCode();
+    final int length = HEADER + keyBytes.length + (valueBytes == null ? 0 : valueBytes.length);
+    lock.writeLock().lock();
+    try {
+      ensureSlabs();
+      int existing = index.find(hash, keyBytes, this);
+      if (existing >= 0) {
+        index.removeAt(existing);
+      }
+      if (length > slabSize) {
+        // 超过分片大小的条目不缓存
+        return;
+      }
+      if (writeOffsets[currentSlab] + length > slabSize) {
+        nextSlab();
+      }
+      ByteBuffer slab = slabs[currentSlab];
+      int offset = writeOffsets[currentSlab];
+      slab.putInt(offset, hash);
+      slab.putInt(offset + 4, keyBytes.length);
+      slab.putInt(offset + 8, valueBytes == null ? NULL_VALUE : valueBytes.length);
+      write(slab, offset + HEADER, keyBytes);
+      if (valueBytes != null) {
+        write(slab, offset + HEADER + keyBytes.length, valueBytes);
+      }
+      writeOffsets[currentSlab] = offset + length;
+      index.insert(hash, address(currentSlab, offset));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    final byte[] keyBytes = serialize(key);
+    final byte[] valueBytes;
+    lock.readLock().lock();
+    try {
+      if (slabs == null) {
+        return null;
+      }
+      int slot = index.find(key.hashCode(), keyBytes, this);
+      if (slot < 0) {
+        return null;
+      }
+      long address = index.addresses[slot];
+      ByteBuffer slab = slabs[slabOf(address)];
+      int offset = offsetOf(address);
+      int valueLength = slab.getInt(offset + 8);
+      if (valueLength == NULL_VALUE) {
+        return null;
+      }
+      // 只在锁内复制字节，反序列化在锁外进行
+      valueBytes = read(slab, offset + HEADER + slab.getInt(offset + 4), valueLength);
+    } finally {
+      lock.readLock().unlock();
+    }
+    return deserialize(valueBytes);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    final byte[] keyBytes = serialize(key);
+    lock.writeLock().lock();
+    try {
+      if (slabs != null) {
+        int slot = index.find(key.hashCode(), keyBytes, this);
+        if (slot >= 0) {
+          index.removeAt(slot);
+        }
+      }
+      return null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      index.clear();
+      if (writeOffsets != null) {
+        Arrays.fill(writeOffsets, 0);
+      }
+      currentSlab = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+    return getId().equals(((Cache) o).getId());
+  }
+
+  @Override
+  public int hashCode() {
+    return getId().hashCode();
+  }
+
+  private void reset() {
+    index.clear();
+    slabs = null;
+    writeOffsets = null;
+    currentSlab = 0;
+  }
+
+  private void ensureSlabs() {
+    if (slabs == null) {
+      int count = (int) Math.max(1, Math.min(Integer.MAX_VALUE, capacity / slabSize));
+      slabs = new ByteBuffer[count];
+      writeOffsets = new int[count];
+      // 只有一个分片时按容量分配，避免超过容量
+      slabs[0] = ByteBuffer.allocateDirect((int) Math.min(slabSize, capacity));
+      slabSize = slabs[0].capacity();
+    }
+  }
+
+  private void nextSlab() {
+    currentSlab = (currentSlab + 1) % slabs.length;
+    if (slabs[currentSlab] == null) {
+      slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+    } else {
+      // 分片已用完，清空最早写入的分片以便复用
+      evictSlab(currentSlab);
+    }
+  }
+
+  private void evictSlab(int slabIndex) {
+    ByteBuffer slab = slabs[slabIndex];
+    int end = writeOffsets[slabIndex];
+    for (int offset = 0; offset < end; ) {
+      int hash = slab.getInt(offset);
+      int keyLength = slab.getInt(offset + 4);
+      int valueLength = slab.getInt(offset + 8);
+      index.removeAddress(hash, address(slabIndex, offset));
+      offset += HEADER + keyLength + Math.max(0, valueLength);
+    }
+    writeOffsets[slabIndex] = 0;
+    evictedSlabCount++;
+  }
+
+  private boolean keyMatches(long address, byte[] keyBytes) {
+    ByteBuffer slab = slabs[slabOf(address)];
+    int offset = offsetOf(address);
+    if (slab.getInt(offset + 4) != keyBytes.length) {
+      return false;
+    }
+    int start = offset + HEADER;
+    for (int i = 0; i < keyBytes.length; i++) {
+      if (slab.get(start + i) != keyBytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long address(int slab, int offset) {
+    // 分片序号加一，保证地址不为0
+    return ((long) (slab + 1) << 32) | offset;
+  }
+
+  private static int slabOf(long address) {
+    return (int) (address >>> 32) - 1;
+  }
+
+  private static int offsetOf(long address) {
+    return (int) address;
+  }
+
+  private static void write(ByteBuffer slab, int offset, byte[] bytes) {
+    ByteBuffer view = slab.duplicate();
+    view.position(offset);
+    view.put(bytes);
+  }
+
+  private static byte[] read(ByteBuffer slab, int offset, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer view = slab.duplicate();
+    view.position(offset);
+    view.get(bytes);
+    return bytes;
+  }
+
+  private static byte[] serialize(Object object) {
+    if (!(object instanceof Serializable)) {
+      throw new CacheException("OffHeapCache failed to store a non-serializable object: " + object);
+    }
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(object);
+      oos.flush();
+      return bos.toByteArray();
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  private static Object deserialize(byte[] bytes) {
+    try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
+         ObjectInputStream ois = new SerializedCache.CustomObjectInputStream(bis)) {
+      return ois.readObject();
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * An open addressing table of key hashes and entry addresses. Equal hashes may occupy several slots, the key bytes
+   * in the slab tell them apart. Removal shifts the following slots back, so there are no tombstones.
+   */
+  private static final class Index {
+    private int[] hashes;
+    private long[] addresses;
+    private int mask;
+    private int size;
+
+    Index() {
+      clear();
+    }
+
+    void clear() {
+      hashes = new int[16];
+      addresses = new long[16];
+      mask = 15;
+      size = 0;
+    }
+
+    int find(int hash, byte[] keyBytes, OffHeapCache cache) {
+      for (int i = slotOf(hash); addresses[i] != 0; i = (i + 1) & mask) {
+        if (hashes[i] == hash && cache.keyMatches(addresses[i], keyBytes)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    void insert(int hash, long address) {
+      if ((size + 1) * 4L > addresses.length * 3L) {
+        grow();
+      }
+      int i = slotOf(hash);
+      while (addresses[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      hashes[i] = hash;
+      addresses[i] = address;
+      size++;
+    }
+
+    void removeAddress(int hash, long address) {
+      for (int i = slotOf(hash); addresses[i] != 0; i = (i + 1) & mask) {
+        if (addresses[i] == address) {
+          removeAt(i);
+          return;
+        }
+      }
+    }
+
+    void removeAt(int slot) {
+      int hole = slot;
+      addresses[hole] = 0;
+      size--;
+      for (int i = (hole + 1) & mask; addresses[i] != 0; i = (i + 1) & mask) {
+        int ideal = slotOf(hashes[i]);
+        // 理想位置不在(hole, i]区间内的条目可以前移到空位上
+        boolean stays = hole <= i ? (ideal > hole && ideal <= i) : (ideal > hole || ideal <= i);
+        if (!stays) {
+          hashes[hole] = hashes[i];
+          addresses[hole] = addresses[i];
+          addresses[i] = 0;
+          hole = i;
+        }
+      }
+    }
+
+    private void grow() {
+      int[] oldHashes = hashes;
+      long[] oldAddresses = addresses;
+      hashes = new int[oldHashes.length << 1];
+      addresses = new long[oldAddresses.length << 1];
+      mask = addresses.length - 1;
+      size = 0;
+      for (int i = 0; i < oldAddresses.length; i++) {
+        if (oldAddresses[i] != 0) {
+          insert(oldHashes[i], oldAddresses[i]);
+        }
+      }
+    }
+
+    private int slotOf(int hash) {
+      int h = hash * 0x9e3779b9;
+      return (h ^ (h >>> 16)) & mask;
+    }
+  }
+
+}
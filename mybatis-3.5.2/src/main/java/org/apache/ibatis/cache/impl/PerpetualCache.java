@@ -30,10 +30,20 @@ public class PerpetualCache implements Cache {
   private final String id;
 
   // 用来存储要缓存的数据
-  private Map<Object, Object> cache = new HashMap<>();
+  private final Map<Object, Object> cache;
 
   public PerpetualCache(String id) {
+    this(id, new HashMap<>());
+  }
+
+  /**
+   * @param id the cache id
+   * @param cache the map that holds the entries, subclasses pass a map that orders or bounds them
+   * @since 3.5.2
+   */
+  protected PerpetualCache(String id, Map<Object, Object> cache) {
     this.id = id;
+    this.cache = cache;
   }
 
   @Override
@@ -17,6 +17,7 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author Clinton Begin
@@ -54,6 +55,12 @@ public class PoolState {
   protected long hadToWaitCount = 0;
   // 坏连接的数目
   protected long badConnectionCount = 0;
+  // 语句缓存命中次数，语句预编译不经过连接池的锁，因此使用LongAdder计数
+  protected final LongAdder statementCacheHitCount = new LongAdder();
+  // 语句缓存未命中次数
+  protected final LongAdder statementCacheMissCount = new LongAdder();
+  // 语句缓存因容量不足而淘汰的语句数
+  protected final LongAdder statementCacheEvictionCount = new LongAdder();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
@@ -93,6 +100,24 @@ public class PoolState {
   }
 
 
+  public long getStatementCacheHitCount() {
+    return statementCacheHitCount.sum();
+  }
+
+  public long getStatementCacheMissCount() {
+    return statementCacheMissCount.sum();
+  }
+
+  public long getStatementCacheEvictionCount() {
+    return statementCacheEvictionCount.sum();
+  }
+
+  public double getStatementCacheHitRatio() {
+    long hits = getStatementCacheHitCount();
+    long requests = hits + getStatementCacheMissCount();
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+
   public synchronized int getIdleConnectionCount() {
     return idleConnections.size();
   }
@@ -116,6 +141,7 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolMaxCachedStatements        ").append(dataSource.poolMaximumCachedStatements);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -127,6 +153,9 @@ public class PoolState {
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n statementCacheHits             ").append(getStatementCacheHitCount());
+    builder.append("\n statementCacheMisses           ").append(getStatementCacheMissCount());
+    builder.append("\n statementCacheEvictions        ").append(getStatementCacheEvictionCount());
     builder.append("\n===============================================================");
     return builder.toString();
   }
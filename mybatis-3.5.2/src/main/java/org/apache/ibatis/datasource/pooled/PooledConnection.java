@@ -47,6 +47,8 @@ class PooledConnection implements InvocationHandler {
   private long lastUsedTimestamp;
   private int connectionTypeCode;
   private boolean valid;
+  // 物理连接级别的语句缓存，随物理连接在各个PooledConnection之间传递
+  private PooledStatementCache statementCache;
 
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -207,6 +209,27 @@ class PooledConnection implements InvocationHandler {
     return System.currentTimeMillis() - checkoutTimestamp;
   }
 
+  /**
+   * Takes over the statement cache of the previous wrapper of the same physical connection.
+   *
+   * @param previous the previous wrapper
+   */
+  void inheritStatementCache(PooledConnection previous) {
+    this.statementCache = previous.statementCache;
+  }
+
+  /**
+   * Getter for the statement cache of the physical connection, created on first use.
+   *
+   * @return the statement cache or null if statement caching is disabled
+   */
+  PooledStatementCache getStatementCache() {
+    if (statementCache == null && dataSource.poolMaximumCachedStatements > 0) {
+      statementCache = new PooledStatementCache(dataSource.poolMaximumCachedStatements, dataSource.getPoolState());
+    }
+    return statementCache;
+  }
+
   @Override
   public int hashCode() {
     return hashCode;
@@ -261,6 +284,13 @@ class PooledConnection implements InvocationHandler {
         // throw an SQLException instead of a Runtime
         checkConnection();
       }
+      if (PooledStatementCache.isPrepareMethod(methodName)) {
+        // 启用语句缓存时，优先复用物理连接上已预编译的语句
+        PooledStatementCache cache = getStatementCache();
+        if (cache != null) {
+          return cache.prepare(proxyConnection, realConnection, method, args);
+        }
+      }
       // 用真正的连接去执行操作
       return method.invoke(realConnection, args);
     } catch (Throwable t) {
@@ -56,6 +56,8 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  // 每个物理连接最多缓存的预编译语句数量，0表示不缓存
+  protected int poolMaximumCachedStatements;
 
   // 存储池子中的连接的编码，编码用("" + url + username + password).hashCode()算出来
   // 因此，整个池子中的所有连接的编码必须是一致的，里面的连接是等价的
@@ -256,6 +258,17 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The maximum number of prepared statements cached per physical connection (0 disables the cache).
+   *
+   * @param poolMaximumCachedStatements the maximum number of cached statements per connection
+   * @since 3.5.2
+   */
+  public void setPoolMaximumCachedStatements(int poolMaximumCachedStatements) {
+    this.poolMaximumCachedStatements = poolMaximumCachedStatements;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -323,6 +336,13 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public int getPoolMaximumCachedStatements() {
+    return poolMaximumCachedStatements;
+  }
+
   /**
    * Closes all active and idle connections in the pool.
    */
@@ -404,6 +424,7 @@ public class PooledDataSource implements DataSource {
 
           // 重新整理连接
           PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          newConn.inheritStatementCache(conn);
           // 将连接放入空闲连接池
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
@@ -504,6 +525,7 @@ public class PooledDataSource implements DataSource {
 
               // 新建一个连接替代超期不还连接的位置
               conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+              conn.inheritStatementCache(oldestActiveConnection);
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
               conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
               oldestActiveConnection.invalidate();
@@ -0,0 +1,375 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * A bounded LRU cache of prepared statements owned by one physical connection.
+ * <p>
+ * Only idle statements are held: a statement is removed while it is checked out and goes back
+ * into the cache when its proxy is closed. The cache is handed from one {@link PooledConnection}
+ * to the next so that prepares are amortized over the whole life of the physical connection.
+ */
+class PooledStatementCache {
+
+  private static final String PREPARE_STATEMENT = "prepareStatement";
+  private static final String PREPARE_CALL = "prepareCall";
+  private static final Class<?>[] PREPARED_IFACES = new Class<?>[] { PreparedStatement.class };
+  private static final Class<?>[] CALLABLE_IFACES = new Class<?>[] { CallableStatement.class };
+  // 放回缓存前最多丢弃的未读结果数，超过时认为驱动行为异常，直接关闭语句
+  private static final int MAX_PENDING_RESULTS = 1000;
+
+  private final int maximumSize;
+  private final PoolState state;
+  private final LinkedHashMap<StatementKey, CachedStatement> idleStatements = new LinkedHashMap<>(16, 0.75f, true);
+
+  PooledStatementCache(int maximumSize, PoolState state) {
+    this.maximumSize = maximumSize;
+    this.state = state;
+  }
+
+  static boolean isPrepareMethod(String methodName) {
+    return PREPARE_STATEMENT.equals(methodName) || PREPARE_CALL.equals(methodName);
+  }
+
+  /**
+   * Returns a statement proxy for the given prepare call, reusing an idle statement when one exists.
+   *
+   * @param proxyConnection the connection handed to the caller, returned from {@code getConnection()}
+   * @param realConnection the physical connection
+   * @param method either {@code prepareStatement} or {@code prepareCall}
+   * @param args the arguments of the prepare call
+   * @return the statement proxy
+   * @throws Throwable if the statement cannot be prepared
+   */
+  Object prepare(Connection proxyConnection, Connection realConnection, Method method, Object[] args) throws Throwable {
+    StatementKey key = new StatementKey(method.getName(), args);
+    CachedStatement cached = checkout(key);
+    if (cached == null) {
+      state.statementCacheMissCount.increment();
+      PreparedStatement statement;
+      try {
+        statement = (PreparedStatement) method.invoke(realConnection, args);
+      } catch (Exception e) {
+        throw unwrap(e);
+      }
+      cached = new CachedStatement(key, statement);
+    } else {
+      state.statementCacheHitCount.increment();
+    }
+    Class<?>[] ifaces = PREPARE_CALL.equals(key.methodName) ? CALLABLE_IFACES : PREPARED_IFACES;
+    return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), ifaces,
+        new StatementHandler(cached, proxyConnection));
+  }
+
+  synchronized int size() {
+    return idleStatements.size();
+  }
+
+  private synchronized CachedStatement checkout(StatementKey key) {
+    CachedStatement cached = idleStatements.remove(key);
+    if (cached != null && cached.isClosed()) {
+      // 物理连接上的语句已被驱动关闭，按未命中处理
+      return null;
+    }
+    return cached;
+  }
+
+  private void checkin(CachedStatement cached) {
+    if (!cached.reset()) {
+      cached.closeQuietly();
+      return;
+    }
+    CachedStatement evicted = null;
+    CachedStatement duplicate = null;
+    synchronized (this) {
+      if (idleStatements.containsKey(cached.key)) {
+        // 同一SQL已经有空闲语句，多余的直接关闭
+        duplicate = cached;
+      } else {
+        idleStatements.put(cached.key, cached);
+        if (idleStatements.size() > maximumSize) {
+          Iterator<CachedStatement> eldest = idleStatements.values().iterator();
+          evicted = eldest.next();
+          eldest.remove();
+        }
+      }
+    }
+    if (duplicate != null) {
+      duplicate.closeQuietly();
+    }
+    if (evicted != null) {
+      state.statementCacheEvictionCount.increment();
+      evicted.closeQuietly();
+    }
+  }
+
+  private static Throwable unwrap(Throwable t) {
+    return ExceptionUtil.unwrapThrowable(t);
+  }
+
+  private static final class StatementKey {
+
+    private final String methodName;
+    private final Object[] args;
+    private final int hashCode;
+
+    StatementKey(String methodName, Object[] args) {
+      this.methodName = methodName;
+      this.args = args == null ? new Object[0] : args.clone();
+      this.hashCode = 31 * methodName.hashCode() + Arrays.deepHashCode(this.args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof StatementKey)) {
+        return false;
+      }
+      StatementKey other = (StatementKey) obj;
+      return hashCode == other.hashCode && methodName.equals(other.methodName) && Arrays.deepEquals(args, other.args);
+    }
+  }
+
+  /**
+   * A physical statement together with the defaults it was prepared with.
+   */
+  private static final class CachedStatement {
+
+    private final StatementKey key;
+    private final PreparedStatement statement;
+    private final int queryTimeout;
+    private final int fetchSize;
+    private final int maxRows;
+    private final int maxFieldSize;
+    private final int fetchDirection;
+
+    CachedStatement(StatementKey key, PreparedStatement statement) throws SQLException {
+      this.key = key;
+      this.statement = statement;
+      try {
+        this.queryTimeout = statement.getQueryTimeout();
+        this.fetchSize = statement.getFetchSize();
+        this.maxRows = statement.getMaxRows();
+        this.maxFieldSize = statement.getMaxFieldSize();
+        this.fetchDirection = statement.getFetchDirection();
+      } catch (SQLException e) {
+        closeQuietly();
+        throw e;
+      }
+    }
+
+    boolean isClosed() {
+      try {
+        return statement.isClosed();
+      } catch (SQLException e) {
+        return true;
+      }
+    }
+
+    /**
+     * Restores the statement to the state it was prepared in.
+     *
+     * @return false if the statement cannot be reused
+     */
+    boolean reset() {
+      if (isClosed()) {
+        return false;
+      }
+      try {
+        // 与Statement.close()一致，关闭当前结果集并丢弃尚未读取的结果，避免游标累积或流式结果占用连接
+        ResultSet resultSet = statement.getResultSet();
+        if (resultSet != null) {
+          resultSet.close();
+        }
+        int results = 0;
+        while (statement.getMoreResults(Statement.CLOSE_ALL_RESULTS) || statement.getUpdateCount() != -1) {
+          if (++results > MAX_PENDING_RESULTS) {
+            return false;
+          }
+        }
+        statement.clearParameters();
+        statement.clearBatch();
+        statement.clearWarnings();
+        return true;
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+
+    void restoreDefaults() throws SQLException {
+      statement.setQueryTimeout(queryTimeout);
+      statement.setFetchSize(fetchSize);
+      statement.setMaxRows(maxRows);
+      statement.setMaxFieldSize(maxFieldSize);
+      statement.setFetchDirection(fetchDirection);
+    }
+
+    void closeQuietly() {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+    }
+  }
+
+  /**
+   * Handler of the statement proxy handed to one caller between prepare and close.
+   */
+  private final class StatementHandler implements InvocationHandler {
+
+    private final CachedStatement cached;
+    private final Connection proxyConnection;
+    // 调用者得到的当前结果集和生成键的结果集，与Statement一样在下次执行时被替换
+    private ResultSet resultSet;
+    private ResultSet generatedKeys;
+    private boolean closed;
+    private boolean reusable = true;
+    private boolean defaultsChanged;
+
+    StatementHandler(CachedStatement cached, Connection proxyConnection) {
+      this.cached = cached;
+      this.proxyConnection = proxyConnection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if (Object.class.equals(method.getDeclaringClass())) {
+        switch (methodName) {
+          case "equals":
+            return proxy == args[0];
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          default:
+            return cached.statement.toString();
+        }
+      }
+      switch (methodName) {
+        case "close":
+          close();
+          return null;
+        case "isClosed":
+          return closed || cached.isClosed();
+        case "getConnection":
+          return proxyConnection;
+        case "setQueryTimeout":
+        case "setFetchSize":
+        case "setMaxRows":
+        case "setMaxFieldSize":
+        case "setFetchDirection":
+          defaultsChanged = true;
+          break;
+        case "closeOnCompletion":
+        case "setCursorName":
+        case "setEscapeProcessing":
+        case "setPoolable":
+        case "setLargeMaxRows":
+          // 无法可靠还原的属性，该语句不再放回缓存
+          reusable = false;
+          break;
+        default:
+          break;
+      }
+      if (closed) {
+        throw new SQLException("Statement is closed.");
+      }
+      if (methodName.startsWith("execute")) {
+        // 与Statement一样，再次执行时关闭上次执行的结果集
+        closeResultSets();
+      }
+      try {
+        Object result = method.invoke(cached.statement, args);
+        if (result instanceof ResultSet) {
+          // 语句放回缓存前关闭
+          synchronized (this) {
+            if ("getGeneratedKeys".equals(methodName)) {
+              generatedKeys = (ResultSet) result;
+            } else {
+              resultSet = (ResultSet) result;
+            }
+          }
+        }
+        return result;
+      } catch (Throwable t) {
+        throw unwrap(t);
+      }
+    }
+
+    private synchronized void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      closeResultSets();
+      if (!reusable) {
+        cached.closeQuietly();
+        return;
+      }
+      if (defaultsChanged) {
+        try {
+          cached.restoreDefaults();
+        } catch (SQLException e) {
+          cached.closeQuietly();
+          return;
+        }
+      }
+      checkin(cached);
+    }
+
+    private synchronized void closeResultSets() {
+      boolean resultSetClosed = closeQuietly(resultSet);
+      boolean generatedKeysClosed = closeQuietly(generatedKeys);
+      if (!resultSetClosed || !generatedKeysClosed) {
+        reusable = false;
+      }
+      resultSet = null;
+      generatedKeys = null;
+    }
+
+    private boolean closeQuietly(ResultSet resultSet) {
+      if (resultSet == null) {
+        return true;
+      }
+      try {
+        resultSet.close();
+        return true;
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+  }
+
+}
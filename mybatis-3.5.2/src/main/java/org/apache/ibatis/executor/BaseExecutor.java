@@ -67,8 +67,14 @@ public abstract class BaseExecutor implements Executor {
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<>();
-    this.localCache = new PerpetualCache("LocalCache");
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
+    // 配置了条目数或估算大小的上限时，一级缓存按LRU淘汰结果
+    if (configuration != null && (configuration.getLocalCacheMaxEntries() > 0 || configuration.getLocalCacheMaxBytes() > 0)) {
+      this.localCache = new BoundedLocalCache("LocalCache", configuration.getLocalCacheMaxEntries(),
+          configuration.getLocalCacheMaxBytes(), localOutputParameterCache);
+    } else {
+      this.localCache = new PerpetualCache("LocalCache");
+    }
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
@@ -206,6 +212,9 @@ public abstract class BaseExecutor implements Executor {
       }
       // issue #601
       deferredLoads.clear();
+      if (localCache instanceof BoundedLocalCache) {
+        ((BoundedLocalCache) localCache).unpinAll();
+      }
       // 如果本地缓存的作用域为STATEMENT，则立刻清除本地缓存
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
@@ -231,6 +240,10 @@ public abstract class BaseExecutor implements Executor {
       deferredLoad.load();
     } else {
       deferredLoads.add(new DeferredLoad(resultObject, property, key, localCache, configuration, targetType));
+      if (localCache instanceof BoundedLocalCache) {
+        // 延迟加载在最外层查询结束时读取该结果，在此之前不能被淘汰
+        ((BoundedLocalCache) localCache).pin(key);
+      }
     }
   }
 
@@ -391,11 +404,12 @@ public abstract class BaseExecutor implements Executor {
       // 删除占位符
       localCache.removeObject(key);
     }
-    // 将查询结果写入缓存
-    localCache.putObject(key, list);
+    // 先缓存输出参数，结果被淘汰时会一并删除输出参数
     if (ms.getStatementType() == StatementType.CALLABLE) {
       localOutputParameterCache.putObject(key, parameter);
     }
+    // 将查询结果写入缓存
+    localCache.putObject(key, list);
     return list;
   }
 
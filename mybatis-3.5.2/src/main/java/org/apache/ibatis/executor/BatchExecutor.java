@@ -15,13 +15,21 @@
  */
 package org.apache.ibatis.executor;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -30,10 +38,16 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
  * @author Jeff Butler
@@ -44,11 +58,25 @@ public class BatchExecutor extends BaseExecutor {
 
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
+  // 改写为多行插入的批次，其余批次对应的元素为null（此时statementList中对应的元素为null）
+  private final List<MultiRowInsert> multiRowInsertList = new ArrayList<>();
   private String currentSql;
   private MappedStatement currentStatement;
+  // 按语句和SQL分组批处理时，各批次在statementList中的位置
+  private final Map<BatchKey, Integer> batchIndexes;
+  // 自动刷新后尚未返回给调用者的批处理结果
+  private final List<BatchResult> flushedResults = new ArrayList<>();
+  // 所有批次中尚未执行的行数以及参数的估计大小
+  private int pendingRows;
+  private long pendingBytes;
+  // 多行插入语句可绑定的参数个数，首次使用时确定
+  private int multiRowInsertMaxParameters;
+  // 数据库是否支持多行插入，首次使用时确定
+  private Boolean multiRowInsertSupported;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.batchIndexes = configuration.isGroupBatchStatements() ? new HashMap<>() : null;
   }
 
   @Override
@@ -58,26 +86,150 @@ public class BatchExecutor extends BaseExecutor {
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
-      applyTransactionTimeout(stmt);
-      handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+    final BatchResult batchResult;
+    final int index = findBatch(ms, sql);
+    if (index >= 0) {
+      stmt = statementList.get(index);
+      final MultiRowInsert multiRowInsert = multiRowInsertList.get(index);
+      if (multiRowInsert != null) {
+        multiRowInsert.addRow(boundSql);
+      } else {
+        applyTransactionTimeout(stmt);
+        handler.parameterize(stmt);//fix Issues 322
+      }
+      batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
     } else {
-      Connection connection = getConnection(ms.getStatementLog());
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      handler.parameterize(stmt);    //fix Issues 322
+      final MultiRowInsert multiRowInsert = isMultiRowInsertEnabled(ms) && isMultiRowInsertSupported(ms)
+          ? MultiRowInsert.parse(sql, boundSql.getParameterMappings().size()) : null;
+      if (multiRowInsert != null) {
+        // 参数在刷新时才绑定到多行插入语句上
+        multiRowInsert.addRow(boundSql);
+        stmt = null;
+      } else {
+        Connection connection = getConnection(ms.getStatementLog());
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        handler.parameterize(stmt);    //fix Issues 322
+      }
+      multiRowInsertList.add(multiRowInsert);
       currentSql = sql;
       currentStatement = ms;
+      if (batchIndexes != null) {
+        batchIndexes.put(new BatchKey(ms, sql), statementList.size());
+      }
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      batchResult = new BatchResult(ms, sql, parameterObject);
+      batchResultList.add(batchResult);
+    }
+    if (stmt != null) {
+      handler.batch(stmt);
+    }
+    pendingRows++;
+    if (configuration.getBatchMaxBytes() > 0) {
+      pendingBytes += estimateParameterSize(boundSql, parameterObject);
+    }
+    if (isFlushRequired(batchResult)) {
+      autoFlush();
     }
-    handler.batch(stmt);
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  private boolean isMultiRowInsertEnabled(MappedStatement ms) {
+    return ms.getSqlCommandType() == SqlCommandType.INSERT && ms.getStatementType() == StatementType.PREPARED
+        && (configuration.isRewriteBatchedInserts() || configuration.getRewriteBatchedInsertStatements().contains(ms.getId()));
+  }
+
+  private boolean isMultiRowInsertSupported(MappedStatement ms) throws SQLException {
+    if (multiRowInsertSupported == null) {
+      final DatabaseMetaData metaData = getConnection(ms.getStatementLog()).getMetaData();
+      int majorVersion;
+      try {
+        majorVersion = metaData.getDatabaseMajorVersion();
+      } catch (SQLException e) {
+        // 无法得知版本时按最早的版本处理
+        majorVersion = 0;
+      }
+      multiRowInsertSupported = MultiRowInsert.isSupported(metaData.getDatabaseProductName(), majorVersion);
+    }
+    return multiRowInsertSupported;
+  }
+
+  private boolean isFlushRequired(BatchResult batchResult) {
+    final int maxSize = configuration.getBatchMaxSize();
+    final int maxRows = configuration.getBatchMaxRows();
+    final long maxBytes = configuration.getBatchMaxBytes();
+    return (maxSize > 0 && batchResult.getParameterObjects().size() >= maxSize)
+        || (maxRows > 0 && pendingRows >= maxRows)
+        || (maxBytes > 0 && pendingBytes >= maxBytes);
+  }
+
+  /**
+   * 达到上限时执行所有批次，结果保留到下次调用flushStatements时一并返回，除非设置了discardBatchParameters
+   */
+  private void autoFlush() throws SQLException {
+    List<BatchResult> results = doFlushStatements(false);
+    if (!configuration.isDiscardBatchParameters()) {
+      flushedResults.addAll(results);
+    }
+  }
+
+  /**
+   * 估计一行绑定到语句上的参数大小，参数值的取法与DefaultParameterHandler相同
+   */
+  private long estimateParameterSize(BoundSql boundSql, Object parameterObject) {
+    final TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    long size = 16;
+    MetaObject metaObject = null;
+    for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      final String propertyName = parameterMapping.getProperty();
+      final Object value;
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      size += estimateValueSize(value);
+    }
+    return size;
+  }
+
+  private static long estimateValueSize(Object value) {
+    if (value == null) {
+      return 8;
+    } else if (value instanceof CharSequence) {
+      return 40 + 2L * ((CharSequence) value).length();
+    } else if (value instanceof byte[]) {
+      return 16 + ((byte[]) value).length;
+    } else if (value instanceof char[]) {
+      return 16 + 2L * ((char[]) value).length;
+    } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+      return 40;
+    } else {
+      return 24;
+    }
+  }
+
+  /**
+   * 查找可以加入当前参数的批次：分组时为同一语句和SQL的任一批次，否则只能是最后一个批次
+   */
+  private int findBatch(MappedStatement ms, String sql) {
+    if (batchIndexes != null) {
+      Integer index = batchIndexes.get(new BatchKey(ms, sql));
+      return index == null ? -1 : index;
+    }
+    return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -110,29 +262,32 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
+      // 先前自动刷新的结果排在前面
+      List<BatchResult> results = new ArrayList<>(flushedResults);
+      flushedResults.clear();
       if (isRollback) {
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
-        BatchResult batchResult = batchResultList.get(i);
+      final int[] executionOrder = executionOrder();
+      for (int i = 0, n = executionOrder.length; i < n; i++) {
+        Statement stmt = statementList.get(executionOrder[i]);
+        MultiRowInsert multiRowInsert = multiRowInsertList.get(executionOrder[i]);
+        BatchResult batchResult = batchResultList.get(executionOrder[i]);
         try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
           MappedStatement ms = batchResult.getMappedStatement();
           List<Object> parameterObjects = batchResult.getParameterObjects();
-          KeyGenerator keyGenerator = ms.getKeyGenerator();
-          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
-            for (Object parameter : parameterObjects) {
-              keyGenerator.processAfter(this, ms, stmt, parameter);
-            }
+          if (multiRowInsert != null) {
+            batchResult.setUpdateCounts(executeMultiRowInsert(ms, multiRowInsert, parameterObjects));
+          } else {
+            applyTransactionTimeout(stmt);
+            batchResult.setUpdateCounts(stmt.executeBatch());
+            processGeneratedKeys(ms, stmt, parameterObjects);
+            // Close statement to close cursor #1109
+            closeStatement(stmt);
+          }
+          if (configuration.isDiscardBatchParameters()) {
+            parameterObjects.clear();
           }
-          // Close statement to close cursor #1109
-          closeStatement(stmt);
         } catch (BatchUpdateException e) {
           StringBuilder message = new StringBuilder();
           message.append(batchResult.getMappedStatement().getId())
@@ -157,6 +312,124 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = null;
       statementList.clear();
       batchResultList.clear();
+      multiRowInsertList.clear();
+      pendingRows = 0;
+      pendingBytes = 0;
+      if (batchIndexes != null) {
+        batchIndexes.clear();
+      }
+    }
+  }
+
+  private void processGeneratedKeys(MappedStatement ms, Statement stmt, List<Object> parameterObjects) {
+    KeyGenerator keyGenerator = ms.getKeyGenerator();
+    if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+      Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+      jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+    } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+      for (Object parameter : parameterObjects) {
+        keyGenerator.processAfter(this, ms, stmt, parameter);
+      }
+    }
+  }
+
+  /**
+   * 将一批单行插入按参数个数上限分成若干条多行插入语句执行，返回各行的更新计数
+   */
+  private int[] executeMultiRowInsert(MappedStatement ms, MultiRowInsert multiRowInsert, List<Object> parameterObjects)
+      throws SQLException {
+    final List<BoundSql> rows = multiRowInsert.getRows();
+    final int[] updateCounts = new int[rows.size()];
+    final Connection connection = getConnection(ms.getStatementLog());
+    final int rowsPerStatement = multiRowInsert.getRowsPerStatement(getMultiRowInsertMaxParameters(connection));
+    for (int start = 0; start < rows.size(); start += rowsPerStatement) {
+      final int end = Math.min(rows.size(), start + rowsPerStatement);
+      final Object firstParameter = parameterObjects.get(start);
+      final BoundSql boundSql = new BoundSql(configuration, multiRowInsert.getSql(end - start),
+          Collections.emptyList(), firstParameter);
+      final StatementHandler handler = configuration.newStatementHandler(this, ms, firstParameter, RowBounds.DEFAULT, null, boundSql);
+      Statement stmt = null;
+      try {
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        final PreparedStatement ps = (PreparedStatement) stmt;
+        for (int row = start; row < end; row++) {
+          final int offset = (row - start) * multiRowInsert.getParametersPerRow();
+          configuration.newParameterHandler(ms, parameterObjects.get(row), rows.get(row)).setParameters(ps, offset);
+        }
+        final int updateCount = ps.executeUpdate();
+        Arrays.fill(updateCounts, start, end, updateCount == end - start ? 1 : Statement.SUCCESS_NO_INFO);
+        processGeneratedKeys(ms, stmt, new ArrayList<>(parameterObjects.subList(start, end)));
+      } catch (SQLException e) {
+        // 与JDBC批处理一样报告失败，之前的行已经执行成功
+        throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(),
+            Arrays.copyOf(updateCounts, start), e);
+      } finally {
+        closeStatement(stmt);
+      }
+    }
+    return updateCounts;
+  }
+
+  private int getMultiRowInsertMaxParameters(Connection connection) throws SQLException {
+    if (multiRowInsertMaxParameters == 0) {
+      multiRowInsertMaxParameters = configuration.getMultiRowInsertMaxParameters() > 0
+          ? configuration.getMultiRowInsertMaxParameters()
+          : MultiRowInsert.maxParameters(connection.getMetaData().getDatabaseProductName());
+    }
+    return multiRowInsertMaxParameters;
+  }
+
+  /**
+   * 批次的执行顺序：分组时batchStatementOrder中的语句按其顺序先执行，其余批次按创建顺序执行
+   */
+  private int[] executionOrder() {
+    final int size = statementList.size();
+    final List<String> statementOrder = configuration.getBatchStatementOrder();
+    final Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    if (batchIndexes != null && !statementOrder.isEmpty() && size > 1) {
+      final int[] ranks = new int[size];
+      for (int i = 0; i < size; i++) {
+        final int rank = statementOrder.indexOf(batchResultList.get(i).getMappedStatement().getId());
+        ranks[i] = rank < 0 ? statementOrder.size() : rank;
+      }
+      // 稳定排序，相同优先级的批次保持创建顺序
+      Arrays.sort(order, Comparator.comparingInt(i -> ranks[i]));
+    }
+    final int[] result = new int[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = order[i];
+    }
+    return result;
+  }
+
+  private static final class BatchKey {
+
+    private final MappedStatement ms;
+    private final String sql;
+
+    BatchKey(MappedStatement ms, String sql) {
+      this.ms = ms;
+      this.sql = sql;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof BatchKey)) {
+        return false;
+      }
+      BatchKey other = (BatchKey) o;
+      return ms.equals(other.ms) && sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * ms.hashCode() + sql.hashCode();
     }
   }
 
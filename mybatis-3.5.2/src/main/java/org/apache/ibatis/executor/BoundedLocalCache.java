@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+
+/**
+ * A session local cache that evicts the least recently used results once it holds too many entries or too many
+ * estimated bytes.
+ * <p>
+ * Entries of queries that are still running and entries pinned for deferred loads are never evicted, so nested
+ * queries and circular references resolve as they do with an unbounded cache. Evicting an entry also removes it from
+ * the companion cache that keeps the output parameters of callable statements.
+ *
+ * @since 3.5.2
+ * @see ResultSizeEstimator
+ */
+class BoundedLocalCache extends PerpetualCache {
+
+  private final Map<Object, Object> entries;
+  private final Map<Object, Long> sizes = new HashMap<>();
+  private final Set<Object> pinned = new HashSet<>();
+  private final int maxEntries;
+  private final long maxBytes;
+  private final Cache companion;
+  private long estimatedBytes;
+  private long evictionCount;
+
+  BoundedLocalCache(String id, int maxEntries, long maxBytes, Cache companion) {
+    this(id, new LinkedHashMap<>(16, .75F, true), maxEntries, maxBytes, companion);
+  }
+
+  private BoundedLocalCache(String id, Map<Object, Object> entries, int maxEntries, long maxBytes, Cache companion) {
+    super(id, entries);
+    this.entries = entries;
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.companion = companion;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    forget(key);
+    super.putObject(key, value);
+    if (value != EXECUTION_PLACEHOLDER) {
+      long size = ResultSizeEstimator.estimate(value);
+      sizes.put(key, size);
+      estimatedBytes += size;
+    }
+    evict();
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    forget(key);
+    return super.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    sizes.clear();
+    pinned.clear();
+    estimatedBytes = 0;
+  }
+
+  /**
+   * Keeps an entry until {@link #unpinAll()} because a deferred load will read it.
+   */
+  void pin(Object key) {
+    pinned.add(key);
+  }
+
+  void unpinAll() {
+    pinned.clear();
+    evict();
+  }
+
+  long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  long getEvictionCount() {
+    return evictionCount;
+  }
+
+  private void forget(Object key) {
+    Long size = sizes.remove(key);
+    if (size != null) {
+      estimatedBytes -= size;
+    }
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Object, Object>> iterator = entries.entrySet().iterator();
+    while (isOverLimit() && iterator.hasNext()) {
+      Map.Entry<Object, Object> eldest = iterator.next();
+      Object key = eldest.getKey();
+      // 正在执行的查询和等待延迟加载的结果不能淘汰
+      if (eldest.getValue() == EXECUTION_PLACEHOLDER || pinned.contains(key)) {
+        continue;
+      }
+      iterator.remove();
+      forget(key);
+      companion.removeObject(key);
+      evictionCount++;
+    }
+  }
+
+  private boolean isOverLimit() {
+    return (maxEntries > 0 && entries.size() > maxEntries) || (maxBytes > 0 && estimatedBytes > maxBytes);
+  }
+
+}
@@ -16,18 +16,28 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.TableVersions;
 import org.apache.ibatis.cache.TransactionalCacheManager;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -41,10 +51,26 @@ public class CachingExecutor implements Executor {
   // 被装饰的执行器
   private final Executor delegate;
   // 事务缓存管理器
-  private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+  private final TransactionalCacheManager tcm;
+  // 表的版本，为null时写操作清除整个命名空间的缓存
+  private final TableVersions tableVersions;
+  // 当前事务是否执行过更新，有未提交修改的会话不参与查询合并
+  private boolean dirty;
 
   public CachingExecutor(Executor delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * @param delegate the executor that runs the statements
+   * @param tableVersions the table versions to invalidate cache entries by table with, or {@code null} to clear
+   *        the cache of the namespace on writes
+   * @since 3.5.2
+   */
+  public CachingExecutor(Executor delegate, TableVersions tableVersions) {
     this.delegate = delegate;
+    this.tableVersions = tableVersions;
+    this.tcm = new TransactionalCacheManager(tableVersions);
     delegate.setExecutorWrapper(this);
   }
 
@@ -81,8 +107,14 @@ public class CachingExecutor implements Executor {
    */
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    // 根据要求判断语句执行前是否要清除二级缓存，如果需要，清除二级缓存
-    flushCacheIfRequired(ms);
+    dirty = true;
+    if (tableVersions != null && ms.isFlushCacheRequired()) {
+      // 只使依赖于所写的表的缓存项失效
+      invalidateTables(ms, parameterObject);
+    } else {
+      // 根据要求判断语句执行前是否要清除二级缓存，如果需要，清除二级缓存
+      flushCacheIfRequired(ms);
+    }
     return delegate.update(ms, parameterObject);
   }
 
@@ -127,10 +159,27 @@ public class CachingExecutor implements Executor {
         // 从缓存中读取结果
         List<E> list = (List<E>) tcm.getObject(cache, key);
         if (list == null) { // 缓存中没有结果
+          final boolean fromReplica = delegate instanceof ReadWriteRoutingExecutor
+              && ((ReadWriteRoutingExecutor) delegate).routesToReplica(ms, boundSql);
+          String[] tables = null;
+          long[] versions = null;
+          if (tableVersions != null) {
+            tables = dependentTables(ms, boundSql, cache);
+            // 在查询之前记录表的版本，查询期间提交的写操作也会使结果失效
+            versions = tableVersions.snapshot(tables);
+          }
           // 交给被包装的执行器执行
-          list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          // 缓存被包装执行器返回的结果
-          tcm.putObject(cache, key, list); // issue #578 and #116
+          if (!dirty && ms.getConfiguration().isCoalesceCacheMisses()) {
+            // 与其他会话同时未命中的相同查询只执行一次，共享结果时使用主查询记录的表版本
+            list = ms.getConfiguration().getQueryCoalescer().query(cache, key, versions,
+                () -> delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql));
+          } else {
+            list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+          }
+          // 缓存被包装执行器返回的结果，从只读副本读取的结果可能落后于主库，除非配置了cacheReplicaReads，否则不放入共享的二级缓存
+          if (!fromReplica || ms.getConfiguration().isCacheReplicaReads()) {
+            tcm.putObject(cache, key, list, tables, versions, ms.getCacheTimeToLive(), ms.getCacheTimeToIdle()); // issue #578 and #116
+          }
         }
         return list;
       }
@@ -148,6 +197,7 @@ public class CachingExecutor implements Executor {
   public void commit(boolean required) throws SQLException {
     delegate.commit(required);
     tcm.commit();
+    dirty = false;
   }
 
   @Override
@@ -158,6 +208,7 @@ public class CachingExecutor implements Executor {
       if (required) {
         tcm.rollback();
       }
+      dirty = false;
     }
   }
 
@@ -205,6 +256,91 @@ public class CachingExecutor implements Executor {
     }
   }
 
+  /**
+   * 使依赖于写操作所写的表的缓存项在事务提交时失效，无法确定所写的表时清除命名空间的缓存
+   * @param ms MappedStatement
+   * @param parameterObject 参数对象
+   */
+  private void invalidateTables(MappedStatement ms, Object parameterObject) {
+    Cache cache = ms.getCache();
+    String[] tables = ms.getTables() != null ? ms.getTables() : ms.getTables(ms.getBoundSql(parameterObject));
+    if (tables.length == 0) {
+      if (cache != null) {
+        tcm.clear(cache);
+      }
+      return;
+    }
+    tcm.invalidate(tables);
+    if (cache != null) {
+      tcm.invalidate(new String[] { namespaceTable(cache) });
+    }
+  }
+
+  /**
+   * 查询结果所依赖的表：语句自身读取的表，加上结果映射中的嵌套查询递归读取的表
+   * @param ms MappedStatement
+   * @param boundSql 查询语句
+   * @param cache 二级缓存
+   * @return 依赖的表
+   */
+  private static String[] dependentTables(MappedStatement ms, BoundSql boundSql, Cache cache) {
+    Set<String> tables = new LinkedHashSet<>();
+    // 与按命名空间失效一样，结果随命名空间中的任何写操作失效，SQL中看不到的视图背后的表、触发器和级联修改的表也被覆盖
+    tables.add(namespaceTable(cache));
+    tables.addAll(Arrays.asList(ms.getTables(boundSql)));
+    Set<String> visited = new HashSet<>();
+    for (ResultMap resultMap : ms.getResultMaps()) {
+      addNestedQueryTables(ms.getConfiguration(), resultMap, cache, tables, visited);
+    }
+    return tables.toArray(new String[0]);
+  }
+
+  /**
+   * 加入结果映射中的嵌套查询读取的表，嵌套结果映射和鉴别器引用的结果映射也会被递归检查
+   */
+  private static void addNestedQueryTables(Configuration configuration, ResultMap resultMap, Cache cache, Set<String> tables, Set<String> visited) {
+    if (!visited.add(resultMap.getId())) {
+      return;
+    }
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      if (resultMapping.getNestedQueryId() != null && visited.add(resultMapping.getNestedQueryId())) {
+        MappedStatement nested = configuration.getMappedStatement(resultMapping.getNestedQueryId());
+        String[] nestedTables = nested.getTables();
+        if (nestedTables == null && (nested.getSqlSource() instanceof RawSqlSource || nested.getSqlSource() instanceof StaticSqlSource)) {
+          // 静态SQL不依赖参数，可以直接解析
+          nestedTables = nested.getTables(nested.getSqlSource().getBoundSql(null));
+        }
+        if (nestedTables == null || nestedTables.length == 0) {
+          // 无法确定嵌套查询读取的表时，随两个命名空间中的任何写操作失效
+          tables.add(namespaceTable(cache));
+          if (nested.getCache() != null) {
+            tables.add(namespaceTable(nested.getCache()));
+          }
+        } else {
+          tables.addAll(Arrays.asList(nestedTables));
+        }
+        for (ResultMap nestedResultMap : nested.getResultMaps()) {
+          addNestedQueryTables(configuration, nestedResultMap, cache, tables, visited);
+        }
+      }
+      if (resultMapping.getNestedResultMapId() != null) {
+        addNestedQueryTables(configuration, configuration.getResultMap(resultMapping.getNestedResultMapId()), cache, tables, visited);
+      }
+    }
+    if (resultMap.getDiscriminator() != null) {
+      for (String resultMapId : resultMap.getDiscriminator().getDiscriminatorMap().values()) {
+        addNestedQueryTables(configuration, configuration.getResultMap(resultMapId), cache, tables, visited);
+      }
+    }
+  }
+
+  /**
+   * 无法确定依赖的表的缓存项所依赖的表，命名空间中的写操作都会使其失效
+   */
+  private static String namespaceTable(Cache cache) {
+    return "#" + cache.getId();
+  }
+
   @Override
   public void setExecutorWrapper(Executor executor) {
     throw new UnsupportedOperationException("This method should not be called");
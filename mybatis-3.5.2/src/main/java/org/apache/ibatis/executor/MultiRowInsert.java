@@ -0,0 +1,165 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.ibatis.mapping.BoundSql;
+
+/**
+ * A batch of single row inserts that the {@link BatchExecutor} sends as multi-row
+ * {@code INSERT ... VALUES (...), (...), ...} statements instead of a JDBC batch.
+ * <p>
+ * Only an insert whose placeholders all are in its single {@code VALUES} group can be rewritten: the group is
+ * repeated once per row and the parameter handler of each row binds its parameters with their indexes shifted past
+ * the rows before it.
+ *
+ * @since 3.5.2
+ */
+final class MultiRowInsert {
+
+  // SQL Server limits a VALUES list to 1000 rows
+  private static final int MAX_ROWS = 1000;
+  private static final int DEFAULT_MAX_PARAMETERS = 2000;
+
+  private final String head;
+  private final String valuesGroup;
+  private final String tail;
+  private final int parametersPerRow;
+  private final List<BoundSql> rows = new ArrayList<>();
+
+  private MultiRowInsert(String head, String valuesGroup, String tail, int parametersPerRow) {
+    this.head = head;
+    this.valuesGroup = valuesGroup;
+    this.tail = tail;
+    this.parametersPerRow = parametersPerRow;
+  }
+
+  /**
+   * Splits the insert around its {@code VALUES} group, or returns {@code null} if it cannot be rewritten.
+   */
+  static MultiRowInsert parse(String sql, int parameterCount) {
+    if (!sql.trim().regionMatches(true, 0, "insert", 0, 6)) {
+      return null;
+    }
+    int valuesStart = -1;
+    int valuesEnd = -1;
+    int depth = 0;
+    int placeholders = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      final char c = sql.charAt(i);
+      if (c == '\'' || c == '"' || c == '`') {
+        i = sql.indexOf(c, i + 1);
+        if (i < 0) {
+          return null;
+        }
+      } else if (c == '?') {
+        if (valuesStart < 0 || valuesEnd >= 0) {
+          // a placeholder outside of the values group would not repeat with the rows
+          return null;
+        }
+        placeholders++;
+      } else if (c == '(' && valuesStart >= 0 && valuesEnd < 0) {
+        depth++;
+      } else if (c == ')' && valuesStart >= 0 && valuesEnd < 0) {
+        if (--depth == 0) {
+          valuesEnd = i + 1;
+        }
+      } else if (valuesStart < 0 && isValuesKeyword(sql, i)) {
+        i += 6;
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+          i++;
+        }
+        if (i == sql.length() || sql.charAt(i) != '(') {
+          return null;
+        }
+        valuesStart = i;
+        depth = 1;
+      } else if (valuesEnd >= 0 && c == ',' && sql.substring(valuesEnd, i).trim().isEmpty()) {
+        // already a multi-row insert
+        return null;
+      }
+    }
+    if (valuesEnd < 0 || placeholders != parameterCount) {
+      return null;
+    }
+    return new MultiRowInsert(sql.substring(0, valuesStart), sql.substring(valuesStart, valuesEnd),
+        sql.substring(valuesEnd), parameterCount);
+  }
+
+  private static boolean isValuesKeyword(String sql, int i) {
+    return sql.regionMatches(true, i, "values", 0, 6)
+        && (i == 0 || !Character.isJavaIdentifierPart(sql.charAt(i - 1)))
+        && (i + 6 == sql.length() || !Character.isJavaIdentifierPart(sql.charAt(i + 6)));
+  }
+
+  /**
+   * Returns whether the database accepts several rows in the {@code VALUES} clause of an insert, as far as it is
+   * known. Oracle only does since 23ai.
+   */
+  static boolean isSupported(String databaseProductName, int databaseMajorVersion) {
+    final String name = databaseProductName == null ? "" : databaseProductName.toLowerCase(Locale.ENGLISH);
+    return !name.contains("oracle") || databaseMajorVersion >= 23;
+  }
+
+  /**
+   * Returns how many parameters a statement may bind on the database, as far as it is known.
+   */
+  static int maxParameters(String databaseProductName) {
+    final String name = databaseProductName == null ? "" : databaseProductName.toLowerCase(Locale.ENGLISH);
+    if (name.contains("sql server")) {
+      return 2100;
+    } else if (name.contains("sqlite")) {
+      return 999;
+    } else if (name.contains("postgres")) {
+      return 32767;
+    } else if (name.contains("mysql") || name.contains("mariadb") || name.contains("oracle")) {
+      return 65535;
+    }
+    return DEFAULT_MAX_PARAMETERS;
+  }
+
+  void addRow(BoundSql boundSql) {
+    rows.add(boundSql);
+  }
+
+  List<BoundSql> getRows() {
+    return rows;
+  }
+
+  int getParametersPerRow() {
+    return parametersPerRow;
+  }
+
+  int getRowsPerStatement(int maxParameters) {
+    return parametersPerRow == 0 ? MAX_ROWS : Math.max(1, Math.min(MAX_ROWS, maxParameters / parametersPerRow));
+  }
+
+  String getSql(int rowCount) {
+    final StringBuilder sql = new StringBuilder(head.length() + tail.length() + rowCount * (valuesGroup.length() + 2));
+    sql.append(head);
+    for (int i = 0; i < rowCount; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(valuesGroup);
+    }
+    return sql.append(tail).toString();
+  }
+
+}
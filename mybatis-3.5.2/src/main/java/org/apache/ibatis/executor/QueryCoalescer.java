@@ -0,0 +1,228 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+
+/**
+ * Coalesces concurrent second level cache misses for the same {@link CacheKey}.
+ * <p>
+ * The first session that misses runs the query while the sessions that miss the same key in the meantime wait for
+ * its result instead of querying the database again. Waiters receive the very same list when the cache is read-only
+ * and a serialized copy otherwise, just as if they had read the result from the cache. A waiter whose leader fails,
+ * or whose result cannot be copied, runs the query itself.
+ * <p>
+ * A thread that is running a coalesced query never waits for another one, so nested selects cannot deadlock.
+ * <p>
+ * Sessions that validate cache entries by table versions pass the versions they took before querying. A waiter that
+ * receives the leader's result gets the leader's versions in their place, since the result was read after those were
+ * taken and not after its own.
+ *
+ * @since 3.5.2
+ */
+public class QueryCoalescer {
+
+  private final ConcurrentMap<FlightKey, Flight> flights = new ConcurrentHashMap<>();
+  private final Set<String> readOnlyCaches = ConcurrentHashMap.newKeySet();
+  private final ThreadLocal<int[]> leadingDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+  /**
+   * Marks a cache whose entries are shared rather than copied, so that waiters share the leader's result too.
+   *
+   * @param cacheId the id of the cache
+   * @param readOnly true if the cache hands out the cached objects themselves
+   */
+  public void setReadOnly(String cacheId, boolean readOnly) {
+    if (readOnly) {
+      readOnlyCaches.add(cacheId);
+    } else {
+      readOnlyCaches.remove(cacheId);
+    }
+  }
+
+  /**
+   * Runs the query unless the same key is already being queried, in which case its result is awaited.
+   *
+   * @param cache the second level cache that missed
+   * @param key the cache key of the query
+   * @param query the query to run on the database
+   * @param <E> the element type
+   * @return the result of the query
+   * @throws SQLException if the query fails
+   */
+  public <E> List<E> query(Cache cache, CacheKey key, Query<E> query) throws SQLException {
+    return query(cache, key, null, query);
+  }
+
+  /**
+   * Runs the query unless the same key is already being queried, in which case its result is awaited.
+   *
+   * @param cache the second level cache that missed
+   * @param key the cache key of the query
+   * @param versions the table versions taken before the query, overwritten with the leader's when its result is
+   *        shared; {@code null} if the cache does not track them
+   * @param query the query to run on the database
+   * @param <E> the element type
+   * @return the result of the query
+   * @throws SQLException if the query fails
+   */
+  public <E> List<E> query(Cache cache, CacheKey key, long[] versions, Query<E> query) throws SQLException {
+    final FlightKey flightKey = new FlightKey(cache.getId(), key);
+    final int[] depth = leadingDepth.get();
+    if (depth[0] > 0) {
+      // 已经在执行合并查询的线程不再等待其他线程，避免嵌套查询互相等待
+      return query.execute();
+    }
+    final Flight flight = new Flight(!readOnlyCaches.contains(cache.getId()), versions == null ? null : versions.clone());
+    final Flight inFlight = flights.putIfAbsent(flightKey, flight);
+    if (inFlight != null) {
+      List<E> result = inFlight.await();
+      if (result != null && versions != null) {
+        if (inFlight.versions == null || inFlight.versions.length != versions.length) {
+          // 无法得知主查询开始前的表版本，自行查询
+          result = null;
+        } else {
+          // 结果是在主查询记录的版本之后读取的，以其为准
+          System.arraycopy(inFlight.versions, 0, versions, 0, versions.length);
+        }
+      }
+      return result != null ? result : query.execute();
+    }
+    depth[0]++;
+    boolean completed = false;
+    try {
+      List<E> result = query.execute();
+      flights.remove(flightKey, flight);
+      flight.complete(result);
+      completed = true;
+      return result;
+    } finally {
+      depth[0]--;
+      if (!completed) {
+        flights.remove(flightKey, flight);
+        flight.complete(null);
+      }
+    }
+  }
+
+  /**
+   * A query run on behalf of the waiting sessions.
+   */
+  @FunctionalInterface
+  public interface Query<E> {
+    List<E> execute() throws SQLException;
+  }
+
+  private static final class FlightKey {
+
+    private final String cacheId;
+    private final CacheKey key;
+
+    FlightKey(String cacheId, CacheKey key) {
+      this.cacheId = cacheId;
+      this.key = key;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * cacheId.hashCode() + key.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof FlightKey)) {
+        return false;
+      }
+      FlightKey other = (FlightKey) obj;
+      return cacheId.equals(other.cacheId) && key.equals(other.key);
+    }
+  }
+
+  /**
+   * A query in progress. Its future completes with the cache holding the result for the waiters, or with null when
+   * the waiters have to query themselves.
+   */
+  private static final class Flight {
+
+    private final boolean copyResult;
+    private final long[] versions;
+    private final CompletableFuture<Cache> result = new CompletableFuture<>();
+    private int waiters;
+
+    Flight(boolean copyResult, long[] versions) {
+      this.copyResult = copyResult;
+      this.versions = versions;
+    }
+
+    void complete(List<?> list) {
+      Cache holder = null;
+      synchronized (this) {
+        if (list != null && waiters > 0) {
+          // 与二级缓存一致：只读缓存共享同一结果，读写缓存给每个等待者一份序列化副本
+          holder = copyResult ? new SerializedCache(new PerpetualCache("flight")) : new PerpetualCache("flight");
+          try {
+            holder.putObject(this, list);
+          } catch (CacheException e) {
+            holder = null;
+          }
+        }
+        waiters = -1;
+      }
+      result.complete(holder);
+    }
+
+    @SuppressWarnings("unchecked")
+    <E> List<E> await() throws SQLException {
+      synchronized (this) {
+        if (waiters < 0) {
+          // 查询已经结束，结果未保留
+          return null;
+        }
+        waiters++;
+      }
+      final Cache holder;
+      try {
+        holder = result.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted while waiting for a coalesced query", e);
+      } catch (ExecutionException e) {
+        return null;
+      }
+      if (holder == null) {
+        return null;
+      }
+      try {
+        return (List<E>) holder.getObject(this);
+      } catch (CacheException e) {
+        return null;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,254 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ReplicaSet;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Sends the selects of a session to the replica data sources of the environment and everything else to the primary.
+ * <p>
+ * Only auto-commit sessions opened on the data source of the environment route their reads, a session running a
+ * transaction or given a connection reads everything from the primary. Once the session has written, every later
+ * statement goes to the primary so that the session reads its own writes. Statements marked with {@code usePrimary}
+ * and locking reads such as {@code SELECT ... FOR UPDATE} always go to the primary. Each replica gets its own
+ * auto-commit transaction, opened the first time the session reads from it.
+ * <p>
+ * The results read from a replica are not put into the second level cache unless
+ * {@link Configuration#setCacheReplicaReads(boolean) cacheReplicaReads} is on, since a replica may lag behind the
+ * primary. Cached results are still returned to every session.
+ *
+ * @since 3.5.2
+ */
+public class ReadWriteRoutingExecutor implements Executor {
+
+  // 加锁读取只有在主库上执行才有意义
+  private static final Pattern LOCKING_READ = Pattern.compile(
+      "\\bfor\\s+(update|share|no\\s+key\\s+update|key\\s+share)\\b|\\block\\s+in\\s+share\\s+mode\\b|\\b(updlock|xlock|holdlock)\\b",
+      Pattern.CASE_INSENSITIVE);
+
+  private final Configuration configuration;
+  private final Executor primary;
+  private final ReplicaSet replicaSet;
+  private final ExecutorType replicaExecutorType;
+  private final Executor[] replicas;
+  private Executor wrapper;
+  private boolean sticky;
+  private boolean closed;
+
+  public ReadWriteRoutingExecutor(Configuration configuration, Executor primary, ReplicaSet replicaSet, ExecutorType executorType) {
+    this.configuration = configuration;
+    this.primary = primary;
+    this.replicaSet = replicaSet;
+    // 批量执行器的查询不会复用语句，副本上使用简单执行器即可
+    this.replicaExecutorType = executorType == ExecutorType.REUSE ? ExecutorType.REUSE : ExecutorType.SIMPLE;
+    this.replicas = new Executor[replicaSet.size()];
+    this.wrapper = this;
+    primary.setExecutorWrapper(this);
+  }
+
+  @Override
+  public int update(MappedStatement ms, Object parameter) throws SQLException {
+    sticky = true;
+    return primary.update(ms, parameter);
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey cacheKey, BoundSql boundSql) throws SQLException {
+    if (!routesToReplica(ms, boundSql)) {
+      return primary.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    }
+    int index = replicaSet.select();
+    replicaSet.begin(index);
+    try {
+      return replica(index).query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    } finally {
+      replicaSet.end(index);
+    }
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+    BoundSql boundSql = ms.getBoundSql(parameter);
+    CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+    return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+  }
+
+  @Override
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    if (!routesToReplica(ms, ms.getBoundSql(parameter))) {
+      return primary.queryCursor(ms, parameter, rowBounds);
+    }
+    int index = replicaSet.select();
+    replicaSet.begin(index);
+    try {
+      return replica(index).queryCursor(ms, parameter, rowBounds);
+    } finally {
+      replicaSet.end(index);
+    }
+  }
+
+  @Override
+  public List<BatchResult> flushStatements() throws SQLException {
+    return primary.flushStatements();
+  }
+
+  @Override
+  public void commit(boolean required) throws SQLException {
+    primary.commit(required);
+    for (Executor replica : replicas) {
+      if (replica != null) {
+        replica.commit(false);
+      }
+    }
+  }
+
+  @Override
+  public void rollback(boolean required) throws SQLException {
+    primary.rollback(required);
+    for (Executor replica : replicas) {
+      if (replica != null) {
+        replica.rollback(false);
+      }
+    }
+  }
+
+  @Override
+  public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+    return primary.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+  }
+
+  @Override
+  public boolean isCached(MappedStatement ms, CacheKey key) {
+    return cachedBy(ms, key) != null;
+  }
+
+  @Override
+  public void clearLocalCache() {
+    primary.clearLocalCache();
+    for (Executor replica : replicas) {
+      if (replica != null) {
+        replica.clearLocalCache();
+      }
+    }
+  }
+
+  @Override
+  public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+    // 延迟加载只能由缓存了该结果的执行器完成，否则会等待一个永远不会结束的查询
+    Executor executor = cachedBy(ms, key);
+    (executor == null ? primary : executor).deferLoad(ms, resultObject, property, key, targetType);
+  }
+
+  @Override
+  public Transaction getTransaction() {
+    return primary.getTransaction();
+  }
+
+  @Override
+  public void close(boolean forceRollback) {
+    try {
+      for (int i = 0; i < replicas.length; i++) {
+        if (replicas[i] != null) {
+          replicas[i].close(false);
+          replicas[i] = null;
+        }
+      }
+    } finally {
+      closed = true;
+      primary.close(forceRollback);
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    return closed || primary.isClosed();
+  }
+
+  @Override
+  public void setExecutorWrapper(Executor executor) {
+    this.wrapper = executor;
+    primary.setExecutorWrapper(executor);
+    for (Executor replica : replicas) {
+      if (replica != null) {
+        replica.setExecutorWrapper(executor);
+      }
+    }
+  }
+
+  /**
+   * @return whether the session has written and now sends every statement to the primary
+   */
+  public boolean isSticky() {
+    return sticky;
+  }
+
+  /**
+   * @param ms the statement to run
+   * @param boundSql the SQL it runs
+   * @return whether the statement would read from a replica, which may lag behind the primary
+   */
+  public boolean routesToReplica(MappedStatement ms, BoundSql boundSql) {
+    return !sticky && !ms.isUsePrimary() && ms.getSqlCommandType() == SqlCommandType.SELECT
+        && !LOCKING_READ.matcher(boundSql.getSql()).find();
+  }
+
+  private Executor cachedBy(MappedStatement ms, CacheKey key) {
+    if (primary.isCached(ms, key)) {
+      return primary;
+    }
+    for (Executor replica : replicas) {
+      if (replica != null && replica.isCached(ms, key)) {
+        return replica;
+      }
+    }
+    return null;
+  }
+
+  private Executor replica(int index) {
+    Executor replica = replicas[index];
+    if (replica == null) {
+      if (closed) {
+        throw new ExecutorException("Executor was closed.");
+      }
+      DataSource dataSource = replicaSet.getDataSources().get(index);
+      Transaction transaction = configuration.getEnvironment().getTransactionFactory().newTransaction(dataSource, null, true);
+      replica = replicaExecutorType == ExecutorType.REUSE
+          ? new ReuseExecutor(configuration, transaction)
+          : new SimpleExecutor(configuration, transaction);
+      replica.setExecutorWrapper(wrapper);
+      replicas[index] = replica;
+    }
+    return replica;
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * Estimates the heap retained by a query result without walking all of it.
+ * <p>
+ * Large collections are sampled and the average of the samples is scaled to the collection size. Objects of the JDK
+ * are not looked into, and the walk stops at a fixed depth, so the estimate is cheap and only roughly right.
+ *
+ * @since 3.5.2
+ */
+final class ResultSizeEstimator {
+
+  private static final int OBJECT_HEADER = 16;
+  private static final int REFERENCE = 8;
+  private static final int OPAQUE_OBJECT = 32;
+  private static final int SAMPLES = 8;
+  private static final int MAX_DEPTH = 4;
+  // 字段缓存在各个类自身上，不会阻止结果类及其类加载器被卸载
+  private static final ClassValue<Field[]> FIELDS = new ClassValue<Field[]>() {
+    @Override
+    protected Field[] computeValue(Class<?> type) {
+      return resolveFields(type);
+    }
+  };
+
+  private ResultSizeEstimator() {
+    // Prevent Instantiation of Static Class
+  }
+
+  static long estimate(Object value) {
+    return estimate(value, 0, new IdentityHashMap<>());
+  }
+
+  private static long estimate(Object value, int depth, IdentityHashMap<Object, Boolean> visited) {
+    if (value == null || depth > MAX_DEPTH || value instanceof Enum || visited.put(value, Boolean.TRUE) != null) {
+      return 0;
+    }
+    Class<?> type = value.getClass();
+    if (value instanceof String) {
+      return OBJECT_HEADER + 24 + 2L * ((String) value).length();
+    } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+      return OBJECT_HEADER + REFERENCE;
+    } else if (type.isArray()) {
+      int length = Array.getLength(value);
+      Class<?> componentType = type.getComponentType();
+      if (componentType.isPrimitive()) {
+        return OBJECT_HEADER + (long) length * primitiveSize(componentType);
+      }
+      return OBJECT_HEADER + (long) length * REFERENCE + sample(Arrays.asList((Object[]) value), depth, visited);
+    } else if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      return OBJECT_HEADER * 3 + (long) collection.size() * REFERENCE * 2 + sample(collection, depth, visited);
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      return OBJECT_HEADER * 3 + (long) map.size() * (OBJECT_HEADER + REFERENCE * 4)
+          + sample(map.keySet(), depth, visited) + sample(map.values(), depth, visited);
+    } else if (isOpaque(type)) {
+      return OPAQUE_OBJECT;
+    }
+    long size = OBJECT_HEADER;
+    for (Field field : fieldsOf(type)) {
+      Class<?> fieldType = field.getType();
+      if (fieldType.isPrimitive()) {
+        size += primitiveSize(fieldType);
+        continue;
+      }
+      size += REFERENCE;
+      try {
+        size += estimate(field.get(value), depth + 1, visited);
+      } catch (IllegalAccessException | RuntimeException e) {
+        // 无法读取的字段只计算引用本身
+      }
+    }
+    return size;
+  }
+
+  private static long sample(Collection<?> elements, int depth, IdentityHashMap<Object, Boolean> visited) {
+    int size = elements.size();
+    if (size == 0) {
+      return 0;
+    }
+    long sampled = 0;
+    int count = 0;
+    if (elements instanceof List && elements instanceof RandomAccess) {
+      // 均匀抽样，避免只看到结果开头的行
+      List<?> list = (List<?>) elements;
+      int step = Math.max(1, size / SAMPLES);
+      for (int i = 0; i < size && count < SAMPLES; i += step, count++) {
+        sampled += estimate(list.get(i), depth + 1, visited);
+      }
+    } else {
+      Iterator<?> iterator = elements.iterator();
+      while (iterator.hasNext() && count < SAMPLES) {
+        sampled += estimate(iterator.next(), depth + 1, visited);
+        count++;
+      }
+    }
+    return count == size ? sampled : sampled * size / count;
+  }
+
+  private static boolean isOpaque(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.");
+  }
+
+  private static Field[] fieldsOf(Class<?> type) {
+    return FIELDS.get(type);
+  }
+
+  private static Field[] resolveFields(Class<?> type) {
+    List<Field> fields = new ArrayList<>();
+    if (Reflector.canControlMemberAccessible()) {
+      for (Class<?> current = type; current != null && !isOpaque(current); current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          try {
+            field.setAccessible(true);
+            fields.add(field);
+          } catch (RuntimeException e) {
+            // 无法访问的字段不参与估算
+          }
+        }
+      }
+    }
+    return fields.toArray(new Field[0]);
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+}
@@ -0,0 +1,229 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap;
+
+/**
+ * Loads the nested select of one parent object together with the pending loads of other parents.
+ * <p>
+ * All loaders created by the same {@link Batch} share one nested select. When any of them is loaded,
+ * up to {@code fetchBatchSize} distinct parent keys are passed to the select as a list
+ * (available as {@code list} and {@code collection}) and the returned objects are distributed to the
+ * parents by comparing their {@code fetchKeyProperty} values with the parent keys.
+ */
+public class BatchResultLoader extends ResultLoader {
+
+  private final Batch batch;
+  private final MetaObject target;
+  private final Object key;
+
+  private BatchResultLoader(Batch batch, MetaObject target, Object parameterObject, Object key) {
+    super(batch.configuration, batch.executor, batch.mappedStatement, parameterObject, batch.propertyMapping.getJavaType(), null, null);
+    this.batch = batch;
+    this.target = target;
+    this.key = key;
+  }
+
+  @Override
+  public Object loadResult() throws SQLException {
+    final List<BatchResultLoader> loaded;
+    synchronized (batch) {
+      if (this.loaded) {
+        return resultObject;
+      }
+      loaded = batch.load(this);
+    }
+    // 触发者的值由ResultLoaderMap设置，其余父对象在锁外赋值，避免与延迟加载代理的锁互相等待
+    batch.assign(loaded, this);
+    return resultObject;
+  }
+
+  /**
+   * The pending loads of one nested select mapping.
+   */
+  public static class Batch {
+
+    private final Configuration configuration;
+    private final Executor executor;
+    private final MappedStatement mappedStatement;
+    private final ResultMapping propertyMapping;
+    private final String[] keyProperties;
+    private final List<BatchResultLoader> pending = new ArrayList<>();
+
+    public Batch(Configuration configuration, Executor executor, MappedStatement mappedStatement, ResultMapping propertyMapping) {
+      this.configuration = configuration;
+      this.executor = executor;
+      this.mappedStatement = mappedStatement;
+      this.propertyMapping = propertyMapping;
+      this.keyProperties = propertyMapping.getFetchKeyProperty().split(",");
+      for (int i = 0; i < keyProperties.length; i++) {
+        keyProperties[i] = keyProperties[i].trim();
+      }
+    }
+
+    /**
+     * Registers the load of a parent object.
+     *
+     * @param target the parent object
+     * @param parameterObject the parameter the nested select would be called with for this parent
+     * @return the loader of the parent
+     */
+    public synchronized BatchResultLoader add(MetaObject target, Object parameterObject) {
+      BatchResultLoader loader = new BatchResultLoader(this, target, parameterObject, parentKey(parameterObject));
+      pending.add(loader);
+      return loader;
+    }
+
+    /**
+     * Loads every pending parent and sets the loaded values on them.
+     *
+     * @throws SQLException if a nested select fails
+     */
+    public void loadAll() throws SQLException {
+      while (true) {
+        final List<BatchResultLoader> loaded;
+        synchronized (this) {
+          if (pending.isEmpty()) {
+            return;
+          }
+          loaded = load(pending.get(0));
+        }
+        assign(loaded, null);
+      }
+    }
+
+    private List<BatchResultLoader> load(BatchResultLoader trigger) throws SQLException {
+      // 以触发加载的父对象为首，凑齐一批不重复的父键
+      final int batchSize = propertyMapping.getFetchBatchSize();
+      final Set<Object> keys = new LinkedHashSet<>();
+      final List<Object> parameters = new ArrayList<>();
+      keys.add(trigger.key);
+      parameters.add(trigger.parameterObject);
+      for (int i = 0; i < pending.size() && keys.size() < batchSize; i++) {
+        BatchResultLoader loader = pending.get(i);
+        if (keys.add(loader.key)) {
+          parameters.add(loader.parameterObject);
+        }
+      }
+
+      // 一次查询出所有子对象，再按键值分组
+      final Map<Object, List<Object>> children = new HashMap<>();
+      for (Object child : selectList(trigger, parameters)) {
+        children.computeIfAbsent(childKey(child), k -> new ArrayList<>()).add(child);
+      }
+
+      final List<BatchResultLoader> loaded = new ArrayList<>();
+      for (BatchResultLoader loader : pending) {
+        if (keys.contains(loader.key)) {
+          List<Object> list = children.get(loader.key);
+          loader.resultObject = loader.resultExtractor.extractObjectFromList(list == null ? new ArrayList<>() : new ArrayList<>(list), loader.targetType);
+          loader.loaded = true;
+          loaded.add(loader);
+        }
+      }
+      pending.removeIf(loader -> loader.loaded);
+      return loaded;
+    }
+
+    private void assign(List<BatchResultLoader> loaded, BatchResultLoader skip) {
+      // 延迟加载的代理会因为setter调用而移除对应的加载器
+      final String property = propertyMapping.getProperty();
+      for (BatchResultLoader loader : loaded) {
+        if (loader != skip && loader.resultObject != null) {
+          loader.target.setValue(property, loader.resultObject);
+        }
+      }
+    }
+
+    private List<Object> selectList(BatchResultLoader trigger, List<Object> parameters) throws SQLException {
+      final StrictMap<Object> parameterObject = new StrictMap<>();
+      parameterObject.put("collection", parameters);
+      parameterObject.put("list", parameters);
+      Executor localExecutor = executor;
+      if (Thread.currentThread().getId() != trigger.creatorThreadId || localExecutor.isClosed()) {
+        localExecutor = trigger.newExecutor();
+      }
+      try {
+        return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      } finally {
+        if (localExecutor != executor) {
+          localExecutor.close(false);
+        }
+      }
+    }
+
+    private Object parentKey(Object parameterObject) {
+      if (!propertyMapping.isCompositeResult()) {
+        return normalize(parameterObject);
+      }
+      final MetaObject metaParameter = configuration.newMetaObject(parameterObject);
+      final List<ResultMapping> composites = propertyMapping.getComposites();
+      final Object[] values = new Object[composites.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = normalize(metaParameter.getValue(composites.get(i).getProperty()));
+      }
+      return Arrays.asList(values);
+    }
+
+    private Object childKey(Object child) {
+      final MetaObject metaChild = configuration.newMetaObject(child);
+      if (keyProperties.length == 1) {
+        return normalize(metaChild.getValue(keyProperties[0]));
+      }
+      final Object[] values = new Object[keyProperties.length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = normalize(metaChild.getValue(keyProperties[i]));
+      }
+      return Arrays.asList(values);
+    }
+
+    /**
+     * Parent keys are read with the column's type handler while child keys come from properties,
+     * so numbers of different types are compared by value.
+     */
+    private static Object normalize(Object value) {
+      if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+        return ((Number) value).longValue();
+      } else if (value instanceof BigInteger) {
+        BigInteger bigInteger = (BigInteger) value;
+        return bigInteger.bitLength() < 64 ? (Object) bigInteger.longValue() : bigInteger;
+      } else if (value instanceof BigDecimal) {
+        BigDecimal bigDecimal = ((BigDecimal) value).stripTrailingZeros();
+        return bigDecimal.scale() <= 0 ? normalize(bigDecimal.toBigInteger()) : bigDecimal;
+      }
+      return value;
+    }
+  }
+
+}
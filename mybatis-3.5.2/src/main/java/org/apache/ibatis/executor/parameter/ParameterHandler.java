@@ -39,4 +39,20 @@ public interface ParameterHandler {
   void setParameters(PreparedStatement ps)
       throws SQLException;
 
+  /**
+   * 完成 SQL语句中的变量赋值，参数下标都加上偏移量，批处理执行器借此把多行的参数绑定到同一条多行插入语句上。
+   * 默认实现只支持偏移量为0
+   * @param ps
+   * @param parameterIndexOffset 语句中位于这些参数之前的参数个数
+   * @throws SQLException
+   * @since 3.5.2
+   */
+  default void setParameters(PreparedStatement ps, int parameterIndexOffset)
+      throws SQLException {
+    if (parameterIndexOffset != 0) {
+      throw new UnsupportedOperationException(getClass().getName() + " does not support parameter index offsets.");
+    }
+    setParameters(ps);
+  }
+
 }
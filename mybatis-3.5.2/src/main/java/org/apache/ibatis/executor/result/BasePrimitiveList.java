@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Base class of the growable lists of primitive values, which collect the rows of a single column query without
+ * boxing them. Subclasses own the typed array; this class tracks its size, grows it and adds the column values.
+ *
+ * @since 3.5.2
+ */
+public abstract class BasePrimitiveList implements ColumnResultHandler {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final Class<?>[] readableTypeHandlers;
+  private int size;
+
+  protected BasePrimitiveList(Class<?>... readableTypeHandlers) {
+    this.readableTypeHandlers = readableTypeHandlers;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the index of the value being added, growing the array first if it is full.
+   */
+  protected final int nextIndex() {
+    if (size == capacity()) {
+      resize(Math.max(DEFAULT_CAPACITY, size + (size >> 1)));
+    }
+    return size++;
+  }
+
+  protected final void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  protected abstract int capacity();
+
+  protected abstract void resize(int capacity);
+
+  /**
+   * Reads the value of the column in the current row and adds it, or returns {@code false} if it is SQL NULL.
+   */
+  protected abstract boolean addColumnValue(ResultSet rs, int columnIndex) throws SQLException;
+
+  protected abstract void addNumber(Number value);
+
+  protected abstract boolean valueEquals(BasePrimitiveList other, int index);
+
+  protected abstract int valueHashCode(int index);
+
+  @Override
+  public boolean canReadColumn(TypeHandler<?> typeHandler) {
+    for (Class<?> readableTypeHandler : readableTypeHandlers) {
+      if (typeHandler.getClass() == readableTypeHandler) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void readColumn(ResultContext<?> context, ResultSet rs, int columnIndex) throws SQLException {
+    if (!addColumnValue(rs, columnIndex)) {
+      throw new ExecutorException("Column " + columnIndex + " is null, which cannot be added to a "
+          + getClass().getSimpleName() + ".");
+    }
+  }
+
+  @Override
+  public void handleResult(ResultContext<?> context) {
+    final Object value = context.getResultObject();
+    if (!(value instanceof Number)) {
+      throw new ExecutorException("Result " + value + " is not a number, which cannot be added to a "
+          + getClass().getSimpleName() + ".");
+    }
+    addNumber((Number) value);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final BasePrimitiveList other = (BasePrimitiveList) o;
+    if (size != other.size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (!valueEquals(other, i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 1;
+    for (int i = 0; i < size; i++) {
+      hash = 31 * hash + valueHashCode(i);
+    }
+    return hash;
+  }
+
+}
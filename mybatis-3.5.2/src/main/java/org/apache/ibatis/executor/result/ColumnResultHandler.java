@@ -0,0 +1,47 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * A result handler that collects the values of a single column and can read them straight from the result set.
+ * <p>
+ * When a statement maps each row to the value of one column and the type handler of that column is one the
+ * handler accepts, the rows are passed to {@link #readColumn(ResultContext, ResultSet, int)} without creating a
+ * result object. The context counts these rows like mapped ones and the handler may stop it.
+ * Otherwise the mapped values are passed to {@link #handleResult(org.apache.ibatis.session.ResultContext)} as usual.
+ *
+ * @since 3.5.2
+ */
+public interface ColumnResultHandler extends ResultHandler<Object> {
+
+  /**
+   * Returns whether the values the type handler would return can be read by {@link #readColumn(ResultContext, ResultSet, int)}.
+   */
+  boolean canReadColumn(TypeHandler<?> typeHandler);
+
+  /**
+   * Reads the value of the column in the current row. The result object of the context is {@code null}.
+   */
+  void readColumn(ResultContext<?> context, ResultSet rs, int columnIndex) throws SQLException;
+
+}
@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+import org.apache.ibatis.type.ByteTypeHandler;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.LongTypeHandler;
+import org.apache.ibatis.type.ShortTypeHandler;
+
+/**
+ * A growable list of long values, which collects the rows of a single column query without boxing them.
+ *
+ * @since 3.5.2
+ */
+public class LongList extends BasePrimitiveList {
+
+  private long[] values;
+
+  public LongList() {
+    this(16);
+  }
+
+  public LongList(int initialCapacity) {
+    super(LongTypeHandler.class, IntegerTypeHandler.class, ShortTypeHandler.class, ByteTypeHandler.class);
+    values = new long[initialCapacity];
+  }
+
+  public void add(long value) {
+    final int index = nextIndex();
+    values[index] = value;
+  }
+
+  public long get(int index) {
+    checkIndex(index);
+    return values[index];
+  }
+
+  public long[] toArray() {
+    return Arrays.copyOf(values, size());
+  }
+
+  public LongStream stream() {
+    return Arrays.stream(values, 0, size());
+  }
+
+  @Override
+  protected int capacity() {
+    return values.length;
+  }
+
+  @Override
+  protected void resize(int capacity) {
+    values = Arrays.copyOf(values, capacity);
+  }
+
+  @Override
+  protected boolean addColumnValue(ResultSet rs, int columnIndex) throws SQLException {
+    final long value = rs.getLong(columnIndex);
+    if (value == 0 && rs.wasNull()) {
+      return false;
+    }
+    add(value);
+    return true;
+  }
+
+  @Override
+  protected void addNumber(Number value) {
+    add(value.longValue());
+  }
+
+  @Override
+  protected boolean valueEquals(BasePrimitiveList other, int index) {
+    return values[index] == ((LongList) other).values[index];
+  }
+
+  @Override
+  protected int valueHashCode(int index) {
+    return Long.hashCode(values[index]);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+
+}
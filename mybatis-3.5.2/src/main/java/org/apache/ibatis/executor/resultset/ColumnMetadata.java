@@ -0,0 +1,334 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.ObjectTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
+
+/**
+ * What is derived from the meta data of a result set: the columns, the type handler of each column,
+ * the mapped and unmapped columns of each result map and the compiled row mapping and row key plans.
+ * <p>
+ * Nothing here depends on the rows, so one instance can serve every result set with the same columns,
+ * possibly from several threads at once (see {@link ResultSetMetadataCache}).
+ */
+final class ColumnMetadata {
+
+  private static final String TYPE_HANDLER_PACKAGE = TypeHandler.class.getPackage().getName() + ".";
+  // marks a column class that has not been loaded yet, the class itself may be null
+  private static final Object NOT_LOADED = new Object();
+
+  private final TypeHandlerRegistry typeHandlerRegistry;
+  private final boolean useColumnLabel;
+  private final List<String> columnNames;
+  private final List<String> classNames;
+  private final List<JdbcType> jdbcTypes;
+  // name as is and upper-cased to 1-based index, only the first column of names that are equal ignoring case
+  private final Map<String, Integer> columnIndexes = new HashMap<>();
+  // loaded on first use, racing threads load the same class
+  private final Object[] columnClasses;
+  private final ConcurrentMap<Class<?>, TypeHandler<?>>[] typeHandlers;
+  private final ConcurrentMap<String, List<String>> mappedColumnNamesMap = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, List<String>> unMappedColumnNamesMap = new ConcurrentHashMap<>();
+  private volatile RowMappingPlan[] rowMappingPlans = new RowMappingPlan[0];
+  private volatile ConstructorMappingPlan[] constructorMappingPlans = new ConstructorMappingPlan[0];
+  private volatile RowKeyPlan[] rowKeyPlans = new RowKeyPlan[0];
+
+  @SuppressWarnings("unchecked")
+  ColumnMetadata(String[] columnNames, int[] columnTypes, String[] classNames, Configuration configuration) {
+    this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    this.useColumnLabel = configuration.isUseColumnLabel();
+    final int columnCount = columnNames.length;
+    final List<JdbcType> jdbcTypes = new ArrayList<>(columnCount);
+    for (int i = 0; i < columnCount; i++) {
+      jdbcTypes.add(JdbcType.forCode(columnTypes[i]));
+      final String columnName = columnNames[i];
+      if (columnName != null) {
+        final Integer index = i + 1;
+        // the name as is is only recorded for the first column that matches it ignoring case
+        if (columnIndexes.putIfAbsent(columnName.toUpperCase(Locale.ENGLISH), index) == null) {
+          columnIndexes.putIfAbsent(columnName, index);
+        }
+      }
+    }
+    this.columnNames = Collections.unmodifiableList(Arrays.asList(columnNames));
+    this.classNames = Collections.unmodifiableList(Arrays.asList(classNames));
+    this.jdbcTypes = Collections.unmodifiableList(jdbcTypes);
+    this.columnClasses = new Object[columnCount];
+    Arrays.fill(columnClasses, NOT_LOADED);
+    this.typeHandlers = new ConcurrentMap[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      typeHandlers[i] = new ConcurrentHashMap<>();
+    }
+  }
+
+  static ColumnMetadata read(ResultSetMetaData metaData, Configuration configuration) throws SQLException {
+    final int columnCount = metaData.getColumnCount();
+    final String[] columnNames = new String[columnCount];
+    final int[] columnTypes = new int[columnCount];
+    final String[] classNames = new String[columnCount];
+    readColumns(metaData, configuration.isUseColumnLabel(), columnNames, columnTypes, classNames);
+    return new ColumnMetadata(columnNames, columnTypes, classNames, configuration);
+  }
+
+  static void readColumns(ResultSetMetaData metaData, boolean useColumnLabel, String[] columnNames, int[] columnTypes,
+      String[] classNames) throws SQLException {
+    for (int i = 1; i <= columnNames.length; i++) {
+      columnNames[i - 1] = useColumnLabel ? metaData.getColumnLabel(i) : metaData.getColumnName(i);
+      columnTypes[i - 1] = metaData.getColumnType(i);
+      classNames[i - 1] = metaData.getColumnClassName(i);
+    }
+  }
+
+  List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  List<String> getClassNames() {
+    return classNames;
+  }
+
+  List<JdbcType> getJdbcTypes() {
+    return jdbcTypes;
+  }
+
+  JdbcType getJdbcType(int columnIndex) {
+    return columnIndex > 0 && columnIndex <= jdbcTypes.size() ? jdbcTypes.get(columnIndex - 1) : null;
+  }
+
+  int findColumnIndex(String columnName) {
+    if (columnName == null) {
+      return 0;
+    }
+    Integer index = columnIndexes.get(columnName);
+    if (index == null) {
+      index = columnIndexes.get(columnName.toUpperCase(Locale.ENGLISH));
+    }
+    return index == null ? 0 : index;
+  }
+
+  TypeHandler<?> getTypeHandler(Class<?> propertyType, int columnIndex) {
+    if (columnIndex == 0) {
+      // not a column of this result set, there is nothing to learn from the meta data
+      return resolveTypeHandler(propertyType, null, null);
+    }
+    final ConcurrentMap<Class<?>, TypeHandler<?>> columnHandlers = typeHandlers[columnIndex - 1];
+    TypeHandler<?> handler = columnHandlers.get(propertyType);
+    if (handler == null) {
+      handler = resolveTypeHandler(propertyType, getJdbcType(columnIndex), columnIndex);
+      final TypeHandler<?> existing = columnHandlers.putIfAbsent(propertyType, handler);
+      if (existing != null) {
+        handler = existing;
+      }
+    }
+    return handler;
+  }
+
+  private TypeHandler<?> resolveTypeHandler(Class<?> propertyType, JdbcType jdbcType, Integer columnIndex) {
+    TypeHandler<?> handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
+    // Replicate logic of UnknownTypeHandler#resolveTypeHandler
+    // See issue #59 comment 10
+    if ((handler == null || handler instanceof UnknownTypeHandler) && columnIndex != null) {
+      final Class<?> javaType = getColumnClass(columnIndex);
+      if (javaType != null && jdbcType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
+      } else if (javaType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(javaType);
+      } else if (jdbcType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(jdbcType);
+      }
+    }
+    if (handler == null || handler instanceof UnknownTypeHandler) {
+      handler = new ObjectTypeHandler();
+    }
+    return handler;
+  }
+
+  private Class<?> getColumnClass(int columnIndex) {
+    Object columnClass = columnClasses[columnIndex - 1];
+    if (columnClass == NOT_LOADED) {
+      columnClass = resolveClass(classNames.get(columnIndex - 1));
+      columnClasses[columnIndex - 1] = columnClass;
+    }
+    return (Class<?>) columnClass;
+  }
+
+  private Class<?> resolveClass(String className) {
+    try {
+      // #699 className could be null
+      if (className != null) {
+        return Resources.classForName(className);
+      }
+    } catch (ClassNotFoundException e) {
+      // ignore
+    }
+    return null;
+  }
+
+  boolean canReadByIndex(TypeHandler<?> typeHandler) {
+    // Custom type handlers may implement the label variant only, so only the bundled ones are read by index.
+    // The index is only known for labels when the columns were read from the column labels.
+    return useColumnLabel && typeHandler.getClass().getName().startsWith(TYPE_HANDLER_PACKAGE);
+  }
+
+  List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    List<String> mappedColumnNames = mappedColumnNamesMap.get(mapKey);
+    if (mappedColumnNames == null) {
+      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix, mapKey);
+      mappedColumnNames = mappedColumnNamesMap.get(mapKey);
+    }
+    return mappedColumnNames;
+  }
+
+  List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(mapKey);
+    if (unMappedColumnNames == null) {
+      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix, mapKey);
+      unMappedColumnNames = unMappedColumnNamesMap.get(mapKey);
+    }
+    return unMappedColumnNames;
+  }
+
+  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix, String mapKey) {
+    List<String> mappedColumnNames = new ArrayList<>();
+    List<String> unmappedColumnNames = new ArrayList<>();
+    final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
+    final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
+    for (String columnName : columnNames) {
+      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+      if (mappedColumns.contains(upperColumnName)) {
+        mappedColumnNames.add(upperColumnName);
+      } else {
+        unmappedColumnNames.add(columnName);
+      }
+    }
+    unMappedColumnNamesMap.putIfAbsent(mapKey, Collections.unmodifiableList(unmappedColumnNames));
+    mappedColumnNamesMap.putIfAbsent(mapKey, Collections.unmodifiableList(mappedColumnNames));
+  }
+
+  RowMappingPlan getRowMappingPlan(ResultMap resultMap, String columnPrefix, boolean autoMapping) {
+    for (RowMappingPlan plan : rowMappingPlans) {
+      if (plan.isFor(resultMap, columnPrefix, autoMapping)) {
+        return plan;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds a plan unless another thread added one for the same result map first.
+   *
+   * @return the plan to use
+   */
+  synchronized RowMappingPlan addRowMappingPlan(RowMappingPlan plan) {
+    final RowMappingPlan existing = getRowMappingPlan(plan.getResultMap(), plan.getColumnPrefix(), plan.isAutoMapping());
+    if (existing != null) {
+      return existing;
+    }
+    final RowMappingPlan[] plans = Arrays.copyOf(rowMappingPlans, rowMappingPlans.length + 1);
+    plans[plans.length - 1] = plan;
+    rowMappingPlans = plans;
+    return plan;
+  }
+
+  ConstructorMappingPlan getConstructorMappingPlan(ResultMap resultMap, String columnPrefix) {
+    for (ConstructorMappingPlan plan : constructorMappingPlans) {
+      if (plan.isFor(resultMap, columnPrefix)) {
+        return plan;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds a plan unless another thread added one for the same result map first.
+   *
+   * @return the plan to use
+   */
+  synchronized ConstructorMappingPlan addConstructorMappingPlan(ConstructorMappingPlan plan) {
+    final ConstructorMappingPlan existing = getConstructorMappingPlan(plan.getResultMap(), plan.getColumnPrefix());
+    if (existing != null) {
+      return existing;
+    }
+    final ConstructorMappingPlan[] plans = Arrays.copyOf(constructorMappingPlans, constructorMappingPlans.length + 1);
+    plans[plans.length - 1] = plan;
+    constructorMappingPlans = plans;
+    return plan;
+  }
+
+  RowKeyPlan getRowKeyPlan(ResultMap resultMap, String columnPrefix) {
+    for (RowKeyPlan plan : rowKeyPlans) {
+      if (plan.isFor(resultMap, columnPrefix)) {
+        return plan;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds a plan unless another thread added one for the same result map first.
+   *
+   * @return the plan to use
+   */
+  synchronized RowKeyPlan addRowKeyPlan(RowKeyPlan plan) {
+    final RowKeyPlan existing = getRowKeyPlan(plan.getResultMap(), plan.getColumnPrefix());
+    if (existing != null) {
+      return existing;
+    }
+    final RowKeyPlan[] plans = Arrays.copyOf(rowKeyPlans, rowKeyPlans.length + 1);
+    plans[plans.length - 1] = plan;
+    rowKeyPlans = plans;
+    return plan;
+  }
+
+  private String getMapKey(ResultMap resultMap, String columnPrefix) {
+    return resultMap.getId() + ":" + columnPrefix;
+  }
+
+  private Set<String> prependPrefixes(Set<String> columnNames, String prefix) {
+    if (columnNames == null || columnNames.isEmpty() || prefix == null || prefix.length() == 0) {
+      return columnNames;
+    }
+    final Set<String> prefixed = new HashSet<>();
+    for (String columnName : columnNames) {
+      prefixed.add(prefix + columnName);
+    }
+    return prefixed;
+  }
+
+}
@@ -0,0 +1,223 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.executor.resultset.RowMappingPlan.ColumnMapping;
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * The constructor a result map creates its result objects with, resolved once for the columns of one result set.
+ * <p>
+ * The argument types, the column reads and the constructor itself are looked up on the first row. With the
+ * {@link DefaultObjectFactory} the constructor is bound as a {@link MethodHandle} and called with the arguments
+ * of the row as they are; any other object factory is called with the resolved argument types.
+ */
+final class ConstructorMappingPlan {
+
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+  private final ResultMap resultMap;
+  private final String columnPrefix;
+  private final Class<?> resultType;
+  // null when the result objects are not created with constructor arguments
+  private final List<Class<?>> argTypes;
+  // the explicit constructor mappings, null when the arguments are the columns of the result set in order
+  private final ResultMapping[] mappings;
+  // direct column reads of the arguments, null where the mapping is a nested query or a nested result map
+  private final ColumnMapping[] columns;
+  private final MethodHandle constructor;
+  // the boxed argument types, the only types passed to the handle as they are
+  private final Class<?>[] exactArgTypes;
+  private final boolean[] primitiveArgs;
+
+  private ConstructorMappingPlan(ResultMap resultMap, String columnPrefix, List<Class<?>> argTypes,
+      ResultMapping[] mappings, ColumnMapping[] columns, ObjectFactory objectFactory) {
+    this.resultMap = resultMap;
+    this.columnPrefix = columnPrefix;
+    this.resultType = resultMap.getType();
+    this.argTypes = argTypes;
+    this.mappings = mappings;
+    this.columns = columns;
+    this.constructor = argTypes == null ? null : bindConstructor(resultType, argTypes, objectFactory);
+    if (constructor != null) {
+      this.exactArgTypes = new Class<?>[argTypes.size()];
+      this.primitiveArgs = new boolean[argTypes.size()];
+      for (int i = 0; i < exactArgTypes.length; i++) {
+        exactArgTypes[i] = MethodType.methodType(argTypes.get(i)).wrap().returnType();
+        primitiveArgs[i] = argTypes.get(i).isPrimitive();
+      }
+    } else {
+      this.exactArgTypes = null;
+      this.primitiveArgs = null;
+    }
+  }
+
+  /**
+   * A plan for result maps whose objects are not created with constructor arguments.
+   */
+  static ConstructorMappingPlan notApplicable(ResultMap resultMap, String columnPrefix) {
+    return new ConstructorMappingPlan(resultMap, columnPrefix, null, null, null, null);
+  }
+
+  /**
+   * A plan for the {@code <constructor>} mappings of a result map.
+   */
+  static ConstructorMappingPlan forConstructorMappings(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix,
+      ObjectFactory objectFactory) {
+    final List<ResultMapping> constructorMappings = resultMap.getConstructorResultMappings();
+    final Class<?>[] argTypes = new Class<?>[constructorMappings.size()];
+    final ResultMapping[] mappings = constructorMappings.toArray(new ResultMapping[0]);
+    final ColumnMapping[] columns = new ColumnMapping[mappings.length];
+    for (int i = 0; i < mappings.length; i++) {
+      argTypes[i] = mappings[i].getJavaType();
+      if (mappings[i].getNestedQueryId() == null && mappings[i].getNestedResultMapId() == null) {
+        columns[i] = new ColumnMapping(rsw, prependPrefix(mappings[i].getColumn(), columnPrefix), null,
+            mappings[i].getTypeHandler(), false);
+      }
+    }
+    return new ConstructorMappingPlan(resultMap, columnPrefix, Collections.unmodifiableList(Arrays.asList(argTypes)),
+        mappings, columns, objectFactory);
+  }
+
+  /**
+   * A plan for a constructor that takes the columns of the result set in order.
+   */
+  static ConstructorMappingPlan forConstructor(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix,
+      Constructor<?> constructor, ObjectFactory objectFactory) {
+    final Class<?>[] argTypes = constructor.getParameterTypes();
+    final ColumnMapping[] columns = new ColumnMapping[argTypes.length];
+    for (int i = 0; i < argTypes.length; i++) {
+      final String columnName = rsw.getColumnNames().get(i);
+      final TypeHandler<?> typeHandler = rsw.getTypeHandler(argTypes[i], rsw.findColumnIndex(columnName));
+      columns[i] = new ColumnMapping(rsw, columnName, null, typeHandler, false);
+    }
+    return new ConstructorMappingPlan(resultMap, columnPrefix, Collections.unmodifiableList(Arrays.asList(argTypes)),
+        null, columns, objectFactory);
+  }
+
+  boolean isFor(ResultMap resultMap, String columnPrefix) {
+    return this.resultMap == resultMap
+        && (this.columnPrefix == null ? columnPrefix == null : this.columnPrefix.equals(columnPrefix));
+  }
+
+  ResultMap getResultMap() {
+    return resultMap;
+  }
+
+  String getColumnPrefix() {
+    return columnPrefix;
+  }
+
+  /**
+   * Returns whether the result objects are created with constructor arguments.
+   */
+  boolean isApplicable() {
+    return argTypes != null;
+  }
+
+  int getArgCount() {
+    return argTypes.size();
+  }
+
+  /**
+   * Returns the {@code <constructor>} mapping of an argument, or null when the arguments are the columns in order.
+   */
+  ResultMapping getMapping(int index) {
+    return mappings == null ? null : mappings[index];
+  }
+
+  /**
+   * Returns the column read of an argument, or null when it is a nested query or a nested result map.
+   */
+  ColumnMapping getColumn(int index) {
+    return columns[index];
+  }
+
+  /**
+   * Creates a result object with the arguments of the current row.
+   */
+  @UsesJava7
+  Object newInstance(ObjectFactory objectFactory, Object[] args) {
+    if (constructor == null || !areExactArguments(args)) {
+      // the factory may keep the list, so it must not see the reused array
+      return objectFactory.create(resultType, argTypes, Arrays.asList(args.clone()));
+    }
+    try {
+      return (Object) constructor.invokeExact(args);
+    } catch (Throwable t) {
+      // same failure as the reflective constructor call of the object factory
+      final InvocationTargetException e = new InvocationTargetException(t);
+      final String types = argTypes.stream().map(Class::getSimpleName).collect(Collectors.joining(","));
+      final String values = Arrays.stream(args).map(String::valueOf).collect(Collectors.joining(","));
+      throw new ReflectionException("Error instantiating " + resultType + " with invalid types (" + types + ") or values (" + values + "). Cause: " + e, e);
+    }
+  }
+
+  private boolean areExactArguments(Object[] args) {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i] == null ? primitiveArgs[i] : !exactArgTypes[i].isInstance(args[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static MethodHandle bindConstructor(Class<?> resultType, List<Class<?>> argTypes, ObjectFactory objectFactory) {
+    // other factories may create something else than the result type itself
+    if (objectFactory == null || objectFactory.getClass() != DefaultObjectFactory.class
+        || resultType.isInterface() || Modifier.isAbstract(resultType.getModifiers())) {
+      return null;
+    }
+    try {
+      final Constructor<?> constructor = resultType.getDeclaredConstructor(argTypes.toArray(new Class<?>[0]));
+      if (Reflector.canControlMemberAccessible()) {
+        constructor.setAccessible(true);
+      }
+      return MethodHandles.lookup().unreflectConstructor(constructor)
+          .asSpreader(Object[].class, argTypes.size())
+          .asType(CONSTRUCTOR_TYPE);
+    } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+      // the object factory reports the problem when it is called
+      return null;
+    }
+  }
+
+  private static String prependPrefix(String columnName, String prefix) {
+    if (columnName == null || columnName.length() == 0 || prefix == null || prefix.length() == 0) {
+      return columnName;
+    }
+    return prefix + columnName;
+  }
+
+}
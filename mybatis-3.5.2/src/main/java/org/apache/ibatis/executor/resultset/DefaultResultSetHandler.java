@@ -21,12 +21,15 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.ibatis.annotations.AutomapConstructor;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
@@ -36,12 +39,15 @@ import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ColumnResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
 import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.executor.resultset.RowMappingPlan.ColumnMapping;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -84,38 +90,29 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final ReflectorFactory reflectorFactory;
 
   // nested resultmaps
-  private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
+  private final Map<RowKey, Object> nestedResultObjects = new HashMap<>();
+  private final RowKey.Builder rowKeyBuilder = new RowKey.Builder();
   private final Map<String, Object> ancestorObjects = new HashMap<>();
   private Object previousRowValue;
 
   // multiple resultsets
-  private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
-  private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
+  private final Map<String, ResultSetJoin> resultSetJoins = new HashMap<>();
 
-  // Cached Automappings
-  private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
+  // row mapping plan used for the previous row
+  private RowMappingPlan lastRowMappingPlan;
+  private ResultSetWrapper lastRowMappingPlanWrapper;
+
+  // constructor mapping plan used for the previous row, and the argument array reused for each plan
+  private ConstructorMappingPlan lastConstructorMappingPlan;
+  private ResultSetWrapper lastConstructorMappingPlanWrapper;
+  private final Map<ConstructorMappingPlan, Object[]> constructorArgBuffers = new IdentityHashMap<>();
 
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
-  private static class PendingRelation {
-    public MetaObject metaObject;
-    public ResultMapping propertyMapping;
-  }
-
-  private static class UnMappedColumnAutoMapping {
-    private final String column;
-    private final String property;
-    private final TypeHandler<?> typeHandler;
-    private final boolean primitive;
-
-    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
-      this.column = column;
-      this.property = property;
-      this.typeHandler = typeHandler;
-      this.primitive = primitive;
-    }
-  }
+  // nested selects loaded in batches, and whether eager loads may wait until all result sets are handled
+  private final Map<ResultMapping, BatchResultLoader.Batch> nestedQueryBatches = new IdentityHashMap<>();
+  private boolean deferEagerNestedQueries;
 
   public DefaultResultSetHandler(Executor executor, MappedStatement mappedStatement, ParameterHandler parameterHandler, ResultHandler<?> resultHandler, BoundSql boundSql,
                                  RowBounds rowBounds) {
@@ -160,7 +157,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     try {
       final String resultMapId = parameterMapping.getResultMapId();
       final ResultMap resultMap = configuration.getResultMap(resultMapId);
-      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration, mappedStatement.getId());
       if (this.resultHandler == null) {
         final DefaultResultHandler resultHandler = new DefaultResultHandler(objectFactory);
         handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
@@ -192,6 +189,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
     // 用以存储处理结果的列表
     final List<Object> multipleResults = new ArrayList<>();
+    // 结果全部收集完才返回时，批量嵌套查询的立即加载可以推迟到所有结果集处理完毕
+    deferEagerNestedQueries = resultHandler == null;
 
     // 可能会有多个结果集，该变量用来对结果集进行计数
     int resultSetCount = 0;
@@ -222,8 +221,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       // 循环遍历每一个设置resultMap的结果集
       while (rsw != null && resultSetCount < resultSets.length) {
         // 获取该结果集对应的父级resultMap中的resultMapping(注：resultMapping用来描述对象属性的映射关系)
-        ResultMapping parentMapping = nextResultMaps.get(resultSets[resultSetCount]);
-        if (parentMapping != null) {
+        ResultSetJoin resultSetJoin = resultSetJoins.get(resultSets[resultSetCount]);
+        if (resultSetJoin != null) {
+          ResultMapping parentMapping = resultSetJoin.getParentMapping();
           // 获取被嵌套的resultMap编号
           String nestedResultMapId = parentMapping.getNestedResultMapId();
           ResultMap resultMap = configuration.getResultMap(nestedResultMapId);
@@ -236,6 +236,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    // 批量执行推迟的嵌套查询
+    loadEagerNestedQueryBatches();
     // 判断是否为单结果集：如果是，则返回结果列表；如果不是则返回结果集列表
     return collapseSingleResultList(multipleResults);
   }
@@ -272,7 +274,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    return rs != null ? new ResultSetWrapper(rs, configuration) : null;
+    return rs != null ? new ResultSetWrapper(rs, configuration, mappedStatement.getId()) : null;
   }
 
   private ResultSetWrapper getNextResultSet(Statement stmt) {
@@ -285,7 +287,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           if (rs == null) {
             return getNextResultSet(stmt);
           } else {
-            return new ResultSetWrapper(rs, configuration);
+            return new ResultSetWrapper(rs, configuration, mappedStatement.getId());
           }
         }
       }
@@ -307,6 +309,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private void cleanUpAfterHandlingResultSet() {
     nestedResultObjects.clear();
+    lastRowMappingPlan = null;
+    lastRowMappingPlanWrapper = null;
+    lastConstructorMappingPlan = null;
+    lastConstructorMappingPlanWrapper = null;
   }
 
   private void validateResultMapsCount(ResultSetWrapper rsw, int resultMapCount) {
@@ -404,11 +410,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    */
   private void handleRowValuesForSimpleResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
       throws SQLException {
+    if (resultHandler instanceof ColumnResultHandler && parentMapping == null) {
+      final int columnIndex = findColumnForColumnResultHandler(rsw, resultMap, (ColumnResultHandler) resultHandler);
+      if (columnIndex > 0) {
+        // 每行只取一列，直接从结果集读取该列的值，不创建结果对象
+        handleColumnValues(rsw, (ColumnResultHandler) resultHandler, rowBounds, columnIndex);
+        return;
+      }
+    }
     DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
     // 当前要处理的结果集
     ResultSet resultSet = rsw.getResultSet();
     // 根据翻页配置，跳过指定的行
     skipRows(resultSet, rowBounds);
+    // 达到该行数后，剩余的行交给工作线程并行映射；-1表示不并行映射
+    final int parallelThreshold = parentMapping == null ? getParallelMappingThreshold(rsw, resultMap) : -1;
     // 持续处理下一条结果，判断条件为；还有结果需要处理 && 结果集没有关闭 && 还有下一条结果
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
       // 经过鉴别器鉴别，确定经过鉴别器分析的最终要使用resultMap
@@ -417,7 +433,77 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
       // 把这一行记录转化出的对象存起来
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
+      if (resultContext.getResultCount() == parallelThreshold) {
+        final ParallelRowMapper parallelRowMapper = newParallelRowMapper(rsw, resultMap);
+        if (parallelRowMapper != null) {
+          // 剩余的行由工作线程映射，结果仍按读取顺序交给resultHandler
+          parallelRowMapper.mapRows(resultSet, resultContext, resultHandler, rowBounds);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * 获取可以由ColumnResultHandler直接读取的列
+   * @param rsw 结果集包装
+   * @param resultMap 结果映射
+   * @param resultHandler 结果处理器
+   * @return 列的序号，0表示只能逐行映射后交给结果处理器
+   */
+  private int findColumnForColumnResultHandler(ResultSetWrapper rsw, ResultMap resultMap, ColumnResultHandler resultHandler) {
+    final Class<?> resultType = resultMap.getType();
+    if (resultMap.getDiscriminator() != null || !hasTypeHandlerForResultObject(rsw, resultType)) {
+      return 0;
+    }
+    // 与createPrimitiveResultObject读取同一列
+    final String columnName = resultMap.getResultMappings().isEmpty()
+        ? rsw.getColumnNames().get(0) : resultMap.getResultMappings().get(0).getColumn();
+    final int columnIndex = rsw.findColumnIndex(columnName);
+    if (columnIndex == 0 || !resultHandler.canReadColumn(rsw.getTypeHandler(resultType, columnIndex))) {
+      return 0;
+    }
+    return columnIndex;
+  }
+
+  private void handleColumnValues(ResultSetWrapper rsw, ColumnResultHandler resultHandler, RowBounds rowBounds, int columnIndex)
+      throws SQLException {
+    final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
+    final ResultSet resultSet = rsw.getResultSet();
+    skipRows(resultSet, rowBounds);
+    while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+      // 不创建结果对象，结果上下文只计数，结果处理器仍可以停止读取
+      resultContext.nextResultObject(null);
+      resultHandler.readColumn(resultContext, resultSet, columnIndex);
+    }
+  }
+
+  /**
+   * 获取开始并行映射前要逐行映射的行数
+   * @param rsw 结果集包装
+   * @param resultMap 结果映射
+   * @return 行数，-1表示该结果映射不能并行映射
+   */
+  private int getParallelMappingThreshold(ResultSetWrapper rsw, ResultMap resultMap) {
+    if (configuration.getResultMappingParallelism() <= 0 || resultMap.getDiscriminator() != null
+        || !resultMap.getConstructorResultMappings().isEmpty() || hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+      return -1;
+    }
+    return Math.max(1, configuration.getResultMappingParallelThreshold());
+  }
+
+  private ParallelRowMapper newParallelRowMapper(ResultSetWrapper rsw, ResultMap resultMap) {
+    final Class<?> resultType = resultMap.getType();
+    if (!resultType.isInterface() && !MetaClass.forClass(resultType, reflectorFactory).hasDefaultConstructor()) {
+      return null;
+    }
+    // 嵌套查询、嵌套映射和多结果集需要执行器或结果集，只能逐行映射
+    final RowMappingPlan plan = rsw.getRowMappingPlan(resultMap, null, shouldApplyAutomaticMappings(resultMap, false));
+    final ExecutorService executor = configuration.getResultMappingExecutor();
+    if (plan == null || plan.hasComplexMappings() || executor == null) {
+      return null;
     }
+    return new ParallelRowMapper(configuration, objectFactory, rsw, plan, executor, configuration.getResultMappingParallelism());
   }
 
   /**
@@ -489,16 +575,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // 创建这一行记录对应的对象
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
-      // 根据对象得到其MetaObject
-      final MetaObject metaObject = configuration.newMetaObject(rowValue);
-      boolean foundValues = this.useConstructorMappings;
       // 是否允许自动映射未明示的字段
-      if (shouldApplyAutomaticMappings(resultMap, false)) {
+      final boolean autoMapping = shouldApplyAutomaticMappings(resultMap, false);
+      // 取得该resultMap针对当前结果集的映射计划
+      final RowMappingPlan plan = getRowMappingPlan(rsw, resultMap, rowValue, columnPrefix, autoMapping);
+      final boolean directSetters = plan.canUseDirectSetters(rowValue);
+      // 只有在需要时才根据对象得到其MetaObject
+      final MetaObject metaObject = plan.hasComplexMappings() || !directSetters ? configuration.newMetaObject(rowValue) : null;
+      boolean foundValues = this.useConstructorMappings;
+      if (autoMapping) {
         // 自动映射未明示的字段
-        foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+        foundValues = applyAutomaticMappings(rsw, plan, rowValue, metaObject, directSetters) || foundValues;
       }
       // 按照明示的字段进行重新映射
-      foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
+      foundValues = applyPropertyMappings(rsw, plan, rowValue, metaObject, directSetters, lazyLoader, columnPrefix) || foundValues;
       foundValues = lazyLoader.size() > 0 || foundValues;
       rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
     }
@@ -521,36 +611,54 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // PROPERTY MAPPINGS
   //
 
-  private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
+  private RowMappingPlan getRowMappingPlan(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue, String columnPrefix, boolean autoMapping)
       throws SQLException {
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    RowMappingPlan plan = lastRowMappingPlan;
+    if (plan != null && lastRowMappingPlanWrapper == rsw && plan.isFor(resultMap, columnPrefix, autoMapping)) {
+      return plan;
+    }
+    plan = rsw.getRowMappingPlan(resultMap, columnPrefix, autoMapping);
+    if (plan == null) {
+      final MetaObject metaObject = configuration.newMetaObject(rowValue);
+      final List<ColumnMapping> autoMappings = autoMapping
+          ? createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) : Collections.emptyList();
+      plan = new RowMappingPlan(rsw, resultMap, columnPrefix, autoMapping, autoMappings, metaObject, configuration);
+      plan = rsw.addRowMappingPlan(plan);
+    }
+    lastRowMappingPlan = plan;
+    lastRowMappingPlanWrapper = rsw;
+    return plan;
+  }
+
+  private boolean applyPropertyMappings(ResultSetWrapper rsw, RowMappingPlan plan, Object rowValue, MetaObject metaObject, boolean directSetters,
+      ResultLoaderMap lazyLoader, String columnPrefix) throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
+    final ResultMapping[] propertyMappings = plan.getPropertyMappings();
+    final ColumnMapping[] propertyColumns = plan.getPropertyColumns();
     boolean foundValues = false;
-    final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
-      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      if (propertyMapping.getNestedResultMapId() != null) {
-        // the user added a column attribute to a nested result map, ignore it
-        column = null;
+    for (int i = 0; i < propertyMappings.length; i++) {
+      final ColumnMapping columnMapping = propertyColumns[i];
+      final Object value = columnMapping != null
+          ? columnMapping.getResult(rs)
+          : getPropertyMappingValue(rs, metaObject, propertyMappings[i], lazyLoader, columnPrefix);
+      // issue #541 make property optional
+      final String property = propertyMappings[i].getProperty();
+      if (property == null) {
+        continue;
+      } else if (value == DEFERRED) {
+        foundValues = true;
+        continue;
       }
-      if (propertyMapping.isCompositeResult()
-          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
-          || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
-        // issue #541 make property optional
-        final String property = propertyMapping.getProperty();
-        if (property == null) {
-          continue;
-        } else if (value == DEFERRED) {
-          foundValues = true;
-          continue;
-        }
-        if (value != null) {
-          foundValues = true;
-        }
-        if (value != null || (configuration.isCallSettersOnNulls() && !metaObject.getSetterType(property).isPrimitive())) {
+      if (value != null) {
+        foundValues = true;
+      }
+      if (columnMapping != null) {
+        if (value != null || (configuration.isCallSettersOnNulls() && !columnMapping.primitive)) {
           // gcode issue #377, call setter on nulls (value is not 'found')
-          metaObject.setValue(property, value);
+          plan.setPropertyValue(i, rowValue, directSetters ? null : metaObject, value);
         }
+      } else if (value != null || (configuration.isCallSettersOnNulls() && !metaObject.getSetterType(property).isPrimitive())) {
+        metaObject.setValue(property, value);
       }
     }
     return foundValues;
@@ -570,59 +678,56 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
-  private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
-    final String mapKey = resultMap.getId() + ":" + columnPrefix;
-    List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
-    if (autoMapping == null) {
-      autoMapping = new ArrayList<>();
-      final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
-      for (String columnName : unmappedColumnNames) {
-        String propertyName = columnName;
-        if (columnPrefix != null && !columnPrefix.isEmpty()) {
-          // When columnPrefix is specified,
-          // ignore columns without the prefix.
-          if (columnName.toUpperCase(Locale.ENGLISH).startsWith(columnPrefix)) {
-            propertyName = columnName.substring(columnPrefix.length());
-          } else {
-            continue;
-          }
+  private List<ColumnMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
+    final List<ColumnMapping> autoMapping = new ArrayList<>();
+    final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
+    for (String columnName : unmappedColumnNames) {
+      String propertyName = columnName;
+      if (columnPrefix != null && !columnPrefix.isEmpty()) {
+        // When columnPrefix is specified,
+        // ignore columns without the prefix.
+        if (columnName.toUpperCase(Locale.ENGLISH).startsWith(columnPrefix)) {
+          propertyName = columnName.substring(columnPrefix.length());
+        } else {
+          continue;
         }
-        final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
-        if (property != null && metaObject.hasSetter(property)) {
-          if (resultMap.getMappedProperties().contains(property)) {
-            continue;
-          }
-          final Class<?> propertyType = metaObject.getSetterType(property);
-          if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
-            final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
-          } else {
-            configuration.getAutoMappingUnknownColumnBehavior()
-                .doAction(mappedStatement, columnName, property, propertyType);
-          }
+      }
+      final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
+      if (property != null && metaObject.hasSetter(property)) {
+        if (resultMap.getMappedProperties().contains(property)) {
+          continue;
+        }
+        final Class<?> propertyType = metaObject.getSetterType(property);
+        final int columnIndex = rsw.findColumnIndex(columnName);
+        if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnIndex))) {
+          final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnIndex);
+          autoMapping.add(new ColumnMapping(rsw, columnName, property, typeHandler, propertyType.isPrimitive()));
         } else {
           configuration.getAutoMappingUnknownColumnBehavior()
-              .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
+              .doAction(mappedStatement, columnName, property, propertyType);
         }
+      } else {
+        configuration.getAutoMappingUnknownColumnBehavior()
+            .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
       }
-      autoMappingsCache.put(mapKey, autoMapping);
     }
     return autoMapping;
   }
 
-  private boolean applyAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
-    List<UnMappedColumnAutoMapping> autoMapping = createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix);
+  private boolean applyAutomaticMappings(ResultSetWrapper rsw, RowMappingPlan plan, Object rowValue, MetaObject metaObject, boolean directSetters)
+      throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
+    final ColumnMapping[] autoMappings = plan.getAutoMappings();
     boolean foundValues = false;
-    if (!autoMapping.isEmpty()) {
-      for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
-        if (value != null) {
-          foundValues = true;
-        }
-        if (value != null || (configuration.isCallSettersOnNulls() && !mapping.primitive)) {
-          // gcode issue #377, call setter on nulls (value is not 'found')
-          metaObject.setValue(mapping.property, value);
-        }
+    for (int i = 0; i < autoMappings.length; i++) {
+      final ColumnMapping mapping = autoMappings[i];
+      final Object value = mapping.getResult(rs);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || (configuration.isCallSettersOnNulls() && !mapping.primitive)) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        plan.setAutoMappingValue(i, rowValue, directSetters ? null : metaObject, value);
       }
     }
     return foundValues;
@@ -631,50 +736,25 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // MULTIPLE RESULT SETS
 
   private void linkToParents(ResultSet rs, ResultMapping parentMapping, Object rowValue) throws SQLException {
-    CacheKey parentKey = createKeyForMultipleResults(rs, parentMapping, parentMapping.getColumn(), parentMapping.getForeignColumn());
-    List<PendingRelation> parents = pendingRelations.get(parentKey);
-    if (parents != null) {
-      for (PendingRelation parent : parents) {
-        if (parent != null && rowValue != null) {
-          linkObjects(parent.metaObject, parent.propertyMapping, rowValue);
-        }
-      }
+    final ResultSetJoin resultSetJoin = resultSetJoins.get(parentMapping.getResultSet());
+    if (resultSetJoin == null || rowValue == null) {
+      return;
     }
-  }
-
-  private void addPendingChildRelation(ResultSet rs, MetaObject metaResultObject, ResultMapping parentMapping) throws SQLException {
-    CacheKey cacheKey = createKeyForMultipleResults(rs, parentMapping, parentMapping.getColumn(), parentMapping.getColumn());
-    PendingRelation deferLoad = new PendingRelation();
-    deferLoad.metaObject = metaResultObject;
-    deferLoad.propertyMapping = parentMapping;
-    List<PendingRelation> relations = pendingRelations.computeIfAbsent(cacheKey, k -> new ArrayList<>());
-    // issue #255
-    relations.add(deferLoad);
-    ResultMapping previous = nextResultMaps.get(parentMapping.getResultSet());
-    if (previous == null) {
-      nextResultMaps.put(parentMapping.getResultSet(), parentMapping);
-    } else {
-      if (!previous.equals(parentMapping)) {
-        throw new ExecutorException("Two different properties are mapped to the same resultSet");
-      }
+    for (ResultSetJoin.Parent parent = resultSetJoin.findParents(rs); parent != null; parent = parent.next) {
+      linkObjects(parent.metaObject, parentMapping, rowValue);
     }
   }
 
-  private CacheKey createKeyForMultipleResults(ResultSet rs, ResultMapping resultMapping, String names, String columns) throws SQLException {
-    CacheKey cacheKey = new CacheKey();
-    cacheKey.update(resultMapping);
-    if (columns != null && names != null) {
-      String[] columnsArray = columns.split(",");
-      String[] namesArray = names.split(",");
-      for (int i = 0; i < columnsArray.length; i++) {
-        Object value = rs.getString(columnsArray[i]);
-        if (value != null) {
-          cacheKey.update(namesArray[i]);
-          cacheKey.update(value);
-        }
-      }
+  private void addPendingChildRelation(ResultSet rs, MetaObject metaResultObject, ResultMapping parentMapping) throws SQLException {
+    ResultSetJoin resultSetJoin = resultSetJoins.get(parentMapping.getResultSet());
+    if (resultSetJoin == null) {
+      resultSetJoin = new ResultSetJoin(parentMapping);
+      resultSetJoins.put(parentMapping.getResultSet(), resultSetJoin);
+    } else if (!resultSetJoin.getParentMapping().equals(parentMapping)) {
+      throw new ExecutorException("Two different properties are mapped to the same resultSet");
     }
-    return cacheKey;
+    // issue #255
+    resultSetJoin.addParent(rs, metaResultObject);
   }
 
   //
@@ -683,6 +763,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private Object createResultObject(ResultSetWrapper rsw, ResultMap resultMap, ResultLoaderMap lazyLoader, String columnPrefix) throws SQLException {
     this.useConstructorMappings = false; // reset previous mapping result
+    final ConstructorMappingPlan constructorPlan = getConstructorMappingPlan(rsw, resultMap, columnPrefix);
+    if (constructorPlan.isApplicable()) {
+      // 构造方法和参数的读取方式已经预先解析，直接按计划创建对象
+      final Object resultObject = createResultObject(rsw, constructorPlan, columnPrefix);
+      this.useConstructorMappings = resultObject != null; // set current mapping result
+      return resultObject;
+    }
     final List<Class<?>> constructorArgTypes = new ArrayList<>();
     final List<Object> constructorArgs = new ArrayList<>();
     Object resultObject = createResultObject(rsw, resultMap, constructorArgTypes, constructorArgs, columnPrefix);
@@ -709,6 +796,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       return createPrimitiveResultObject(rsw, resultMap, columnPrefix);
     } else if (!constructorMappings.isEmpty()) {
       return createParameterizedResultObject(rsw, resultType, constructorMappings, constructorArgTypes, constructorArgs, columnPrefix);
+    } else if (RowMap.appliesTo(resultType, objectFactory)) {
+      // resultType="map"：各行共享列名索引，只保存各列的值
+      return rsw.newRowMap();
     } else if (resultType.isInterface() || metaType.hasDefaultConstructor()) {
       return objectFactory.create(resultType);
     } else if (shouldApplyAutomaticMappings(resultMap, false)) {
@@ -717,6 +807,79 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     throw new ExecutorException("Do not know how to create an instance of " + resultType);
   }
 
+  private ConstructorMappingPlan getConstructorMappingPlan(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) {
+    ConstructorMappingPlan plan = lastConstructorMappingPlan;
+    if (plan != null && lastConstructorMappingPlanWrapper == rsw && plan.isFor(resultMap, columnPrefix)) {
+      return plan;
+    }
+    plan = rsw.getConstructorMappingPlan(resultMap, columnPrefix);
+    if (plan == null) {
+      plan = rsw.addConstructorMappingPlan(newConstructorMappingPlan(rsw, resultMap, columnPrefix));
+    }
+    lastConstructorMappingPlan = plan;
+    lastConstructorMappingPlanWrapper = rsw;
+    return plan;
+  }
+
+  private ConstructorMappingPlan newConstructorMappingPlan(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) {
+    final Class<?> resultType = resultMap.getType();
+    // 懒加载代理需要参数列表，仍然走原有的创建流程
+    if (hasTypeHandlerForResultObject(rsw, resultType) || hasLazyNestedQuery(resultMap)) {
+      return ConstructorMappingPlan.notApplicable(resultMap, columnPrefix);
+    }
+    if (!resultMap.getConstructorResultMappings().isEmpty()) {
+      return ConstructorMappingPlan.forConstructorMappings(rsw, resultMap, columnPrefix, objectFactory);
+    }
+    if (!resultType.isInterface() && !MetaClass.forClass(resultType, reflectorFactory).hasDefaultConstructor()
+        && shouldApplyAutomaticMappings(resultMap, false)) {
+      final Constructor<?> constructor = findConstructorForColumns(rsw, resultType);
+      if (constructor != null) {
+        return ConstructorMappingPlan.forConstructor(rsw, resultMap, columnPrefix, constructor, objectFactory);
+      }
+    }
+    return ConstructorMappingPlan.notApplicable(resultMap, columnPrefix);
+  }
+
+  private boolean hasLazyNestedQuery(ResultMap resultMap) {
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.getNestedQueryId() != null && propertyMapping.isLazy()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Object createResultObject(ResultSetWrapper rsw, ConstructorMappingPlan plan, String columnPrefix) throws SQLException {
+    final Object[] args = constructorArgBuffers.computeIfAbsent(plan, p -> new Object[p.getArgCount()]);
+    boolean foundValues = false;
+    for (int i = 0; i < args.length; i++) {
+      final Object value = getConstructorArgValue(rsw, plan, i, columnPrefix);
+      args[i] = value;
+      foundValues = value != null || foundValues;
+    }
+    return foundValues ? plan.newInstance(objectFactory, args) : null;
+  }
+
+  private Object getConstructorArgValue(ResultSetWrapper rsw, ConstructorMappingPlan plan, int index, String columnPrefix) throws SQLException {
+    final ColumnMapping column = plan.getColumn(index);
+    final ResultMapping constructorMapping = plan.getMapping(index);
+    if (constructorMapping == null) {
+      return column.getResult(rsw.getResultSet());
+    }
+    try {
+      if (column != null) {
+        return column.getResult(rsw.getResultSet());
+      } else if (constructorMapping.getNestedQueryId() != null) {
+        return getNestedQueryConstructorValue(rsw.getResultSet(), constructorMapping, columnPrefix);
+      } else {
+        final ResultMap resultMap = configuration.getResultMap(constructorMapping.getNestedResultMapId());
+        return getRowValue(rsw, resultMap, getColumnPrefix(columnPrefix, constructorMapping));
+      }
+    } catch (ResultMapException | SQLException e) {
+      throw new ExecutorException("Could not process result for mapping: " + constructorMapping, e);
+    }
+  }
+
   Object createParameterizedResultObject(ResultSetWrapper rsw, Class<?> resultType, List<ResultMapping> constructorMappings,
                                          List<Class<?>> constructorArgTypes, List<Object> constructorArgs, String columnPrefix) {
     boolean foundValues = false;
@@ -745,18 +908,25 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   private Object createByConstructorSignature(ResultSetWrapper rsw, Class<?> resultType, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) throws SQLException {
+    final Constructor<?> constructor = findConstructorForColumns(rsw, resultType);
+    if (constructor != null) {
+      return createUsingConstructor(rsw, resultType, constructorArgTypes, constructorArgs, constructor);
+    }
+    throw new ExecutorException("No constructor found in " + resultType.getName() + " matching " + rsw.getClassNames());
+  }
+
+  private Constructor<?> findConstructorForColumns(ResultSetWrapper rsw, Class<?> resultType) {
     final Constructor<?>[] constructors = resultType.getDeclaredConstructors();
     final Constructor<?> defaultConstructor = findDefaultConstructor(constructors);
     if (defaultConstructor != null) {
-      return createUsingConstructor(rsw, resultType, constructorArgTypes, constructorArgs, defaultConstructor);
-    } else {
-      for (Constructor<?> constructor : constructors) {
-        if (allowedConstructorUsingTypeHandlers(constructor, rsw.getJdbcTypes())) {
-          return createUsingConstructor(rsw, resultType, constructorArgTypes, constructorArgs, constructor);
-        }
+      return defaultConstructor;
+    }
+    for (Constructor<?> constructor : constructors) {
+      if (allowedConstructorUsingTypeHandlers(constructor, rsw.getJdbcTypes())) {
+        return constructor;
       }
     }
-    throw new ExecutorException("No constructor found in " + resultType.getName() + " matching " + rsw.getClassNames());
+    return null;
   }
 
   private Object createUsingConstructor(ResultSetWrapper rsw, Class<?> resultType, List<Class<?>> constructorArgTypes, List<Object> constructorArgs, Constructor<?> constructor) throws SQLException {
@@ -764,8 +934,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     for (int i = 0; i < constructor.getParameterTypes().length; i++) {
       Class<?> parameterType = constructor.getParameterTypes()[i];
       String columnName = rsw.getColumnNames().get(i);
-      TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnName);
-      Object value = typeHandler.getResult(rsw.getResultSet(), columnName);
+      int columnIndex = rsw.findColumnIndex(columnName);
+      TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnIndex);
+      Object value = rsw.getResult(typeHandler, columnIndex, columnName);
       constructorArgTypes.add(parameterType);
       constructorArgs.add(value);
       foundValues = value != null || foundValues;
@@ -809,8 +980,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     } else {
       columnName = rsw.getColumnNames().get(0);
     }
-    final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
-    return typeHandler.getResult(rsw.getResultSet(), columnName);
+    final int columnIndex = rsw.findColumnIndex(columnName);
+    final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnIndex);
+    return rsw.getResult(typeHandler, columnIndex, columnName);
   }
 
   //
@@ -841,7 +1013,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
     final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
     Object value = null;
-    if (nestedQueryParameterObject != null) {
+    if (nestedQueryParameterObject != null && isBatchedNestedQuery(propertyMapping)) {
+      // 批量嵌套查询：登记父对象，之后用一条IN查询加载一批父对象的结果
+      final ResultLoader resultLoader = nestedQueryBatches
+          .computeIfAbsent(propertyMapping, k -> new BatchResultLoader.Batch(configuration, executor, nestedQuery, propertyMapping))
+          .add(metaResultObject, nestedQueryParameterObject);
+      if (propertyMapping.isLazy()) {
+        lazyLoader.addLoader(property, metaResultObject, resultLoader);
+      }
+      value = DEFERRED;
+    } else if (nestedQueryParameterObject != null) {
       final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
       final CacheKey key = executor.createCacheKey(nestedQuery, nestedQueryParameterObject, RowBounds.DEFAULT, nestedBoundSql);
       final Class<?> targetType = propertyMapping.getJavaType();
@@ -861,6 +1042,19 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  private boolean isBatchedNestedQuery(ResultMapping propertyMapping) {
+    return propertyMapping.getFetchBatchSize() > 1 && (propertyMapping.isLazy() || deferEagerNestedQueries);
+  }
+
+  private void loadEagerNestedQueryBatches() throws SQLException {
+    for (Map.Entry<ResultMapping, BatchResultLoader.Batch> entry : nestedQueryBatches.entrySet()) {
+      if (!entry.getKey().isLazy()) {
+        entry.getValue().loadAll();
+      }
+    }
+    nestedQueryBatches.clear();
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -981,7 +1175,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     Object rowValue = previousRowValue;
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-      final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
+      final RowKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
       Object partialObject = nestedResultObjects.get(rowKey);
       // issue #577 && #542
       if (mappedStatement.isResultOrdered()) {
@@ -1009,7 +1203,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // GET VALUE FROM ROW FOR NESTED RESULT MAP
   //
 
-  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, CacheKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
+  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, RowKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
     final String resultMapId = resultMap.getId();
     Object rowValue = partialObject;
     if (rowValue != null) {
@@ -1022,18 +1216,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
       if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
         final MetaObject metaObject = configuration.newMetaObject(rowValue);
+        final boolean autoMapping = shouldApplyAutomaticMappings(resultMap, true);
+        final RowMappingPlan plan = getRowMappingPlan(rsw, resultMap, rowValue, columnPrefix, autoMapping);
+        final boolean directSetters = plan.canUseDirectSetters(rowValue);
         boolean foundValues = this.useConstructorMappings;
-        if (shouldApplyAutomaticMappings(resultMap, true)) {
-          foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+        if (autoMapping) {
+          foundValues = applyAutomaticMappings(rsw, plan, rowValue, metaObject, directSetters) || foundValues;
         }
-        foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
+        foundValues = applyPropertyMappings(rsw, plan, rowValue, metaObject, directSetters, lazyLoader, columnPrefix) || foundValues;
         putAncestor(rowValue, resultMapId);
         foundValues = applyNestedResultMappings(rsw, resultMap, metaObject, columnPrefix, combinedKey, true) || foundValues;
         ancestorObjects.remove(resultMapId);
         foundValues = lazyLoader.size() > 0 || foundValues;
         rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
       }
-      if (combinedKey != CacheKey.NULL_CACHE_KEY) {
+      if (combinedKey != RowKey.NULL_ROW_KEY) {
         nestedResultObjects.put(combinedKey, rowValue);
       }
     }
@@ -1048,7 +1245,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // NESTED RESULT MAP (JOIN MAPPING)
   //
 
-  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, CacheKey parentRowKey, boolean newObject) {
+  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, RowKey parentRowKey, boolean newObject) {
     boolean foundValues = false;
     for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
       final String nestedResultMapId = resultMapping.getNestedResultMapId();
@@ -1067,8 +1264,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
               continue;
             }
           }
-          final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-          final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
+          final RowKey combinedKey = createRowKey(nestedResultMap, rsw, columnPrefix).combine(parentRowKey);
           Object rowValue = nestedResultObjects.get(combinedKey);
           boolean knownValue = rowValue != null;
           instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject); // mandatory
@@ -1129,37 +1325,34 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // UNIQUE RESULT KEY
   //
 
-  private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
-    cacheKey.update(resultMap.getId());
-    List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
-    if (resultMappings.isEmpty()) {
-      if (Map.class.isAssignableFrom(resultMap.getType())) {
-        createRowKeyForMap(rsw, cacheKey);
-      } else {
-        createRowKeyForUnmappedProperties(resultMap, rsw, cacheKey, columnPrefix);
-      }
-    } else {
-      createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
-    }
-    if (cacheKey.getUpdateCount() < 2) {
-      return CacheKey.NULL_CACHE_KEY;
+  private RowKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+    final RowKey.Builder rowKey = rowKeyBuilder;
+    rowKey.reset();
+    getRowKeyPlan(rsw, resultMap, columnPrefix).addColumns(rsw.getResultSet(), rowKey);
+    return rowKey.build(resultMap.getId(), columnPrefix);
+  }
+
+  private RowKeyPlan getRowKeyPlan(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    RowKeyPlan plan = rsw.getRowKeyPlan(resultMap, columnPrefix);
+    if (plan == null) {
+      // 键列只在第一行按名称查找一次，之后每行按序号读取
+      plan = rsw.addRowKeyPlan(newRowKeyPlan(rsw, resultMap, columnPrefix));
     }
-    return cacheKey;
+    return plan;
   }
 
-  private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
-    if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-      CacheKey combinedKey;
-      try {
-        combinedKey = rowKey.clone();
-      } catch (CloneNotSupportedException e) {
-        throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
+  private RowKeyPlan newRowKeyPlan(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+    if (resultMappings.isEmpty()) {
+      if (Map.class.isAssignableFrom(resultMap.getType())) {
+        return RowKeyPlan.forStringColumns(resultMap, columnPrefix, getRowKeyColumnsForMap(rsw));
       }
-      combinedKey.update(parentRowKey);
-      return combinedKey;
+      return RowKeyPlan.forStringColumns(resultMap, columnPrefix,
+          getRowKeyColumnsForUnmappedProperties(resultMap, rsw, columnPrefix));
     }
-    return CacheKey.NULL_CACHE_KEY;
+    final List<ColumnMapping> columns = new ArrayList<>();
+    addRowKeyColumnsForMappedProperties(resultMap, rsw, columns, resultMappings, columnPrefix);
+    return RowKeyPlan.forColumns(resultMap, columnPrefix, columns, configuration.isReturnInstanceForEmptyRow());
   }
 
   private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
@@ -1170,31 +1363,27 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return resultMappings;
   }
 
-  private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+  private void addRowKeyColumnsForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<ColumnMapping> columns, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
     for (ResultMapping resultMapping : resultMappings) {
       if (resultMapping.getNestedResultMapId() != null && resultMapping.getResultSet() == null) {
         // Issue #392
         final ResultMap nestedResultMap = configuration.getResultMap(resultMapping.getNestedResultMapId());
-        createRowKeyForMappedProperties(nestedResultMap, rsw, cacheKey, nestedResultMap.getConstructorResultMappings(),
+        addRowKeyColumnsForMappedProperties(nestedResultMap, rsw, columns, nestedResultMap.getConstructorResultMappings(),
             prependPrefix(resultMapping.getColumnPrefix(), columnPrefix));
       } else if (resultMapping.getNestedQueryId() == null) {
         final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
-        final TypeHandler<?> th = resultMapping.getTypeHandler();
         List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
         if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
-          if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-            cacheKey.update(column);
-            cacheKey.update(value);
-          }
+          columns.add(new ColumnMapping(rsw, column, null, resultMapping.getTypeHandler(), false));
         }
       }
     }
   }
 
-  private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
+  private List<Integer> getRowKeyColumnsForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
     final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
+    final List<Integer> columnIndexes = new ArrayList<>();
     List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
     for (String column : unmappedColumnNames) {
       String property = column;
@@ -1207,24 +1396,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
-        if (value != null) {
-          cacheKey.update(column);
-          cacheKey.update(value);
-        }
+        columnIndexes.add(rsw.findColumnIndex(column));
       }
     }
+    return columnIndexes;
   }
 
-  private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
-    List<String> columnNames = rsw.getColumnNames();
-    for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
-      if (value != null) {
-        cacheKey.update(columnName);
-        cacheKey.update(value);
-      }
+  private List<Integer> getRowKeyColumnsForMap(ResultSetWrapper rsw) {
+    final List<Integer> columnIndexes = new ArrayList<>();
+    for (String columnName : rsw.getColumnNames()) {
+      columnIndexes.add(rsw.findColumnIndex(columnName));
     }
+    return columnIndexes;
   }
 
   private void linkObjects(MetaObject metaObject, ResultMapping resultMapping, Object rowValue) {
@@ -0,0 +1,221 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.executor.resultset.RowMappingPlan.ColumnMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.ParallelResultTypeHandler;
+
+/**
+ * Maps the remaining rows of a result set on a worker pool while the calling thread keeps reading from the cursor.
+ * <p>
+ * The calling thread reads the columns of each row into a reusable buffer, so that every type handler sees the real
+ * result set. A {@link ParallelResultTypeHandler}, like the bundled enum handlers, only reads the raw value there and
+ * converts it on a worker; other type handlers read and convert on the calling thread. The workers convert those raw
+ * values, create the result objects through the object factory and set their properties, so a custom object factory
+ * is called concurrently. Rows are handed to the workers in chunks, and the chunks are passed to the result handler
+ * on the calling thread in the order they were read.
+ * <p>
+ * Only plans without nested queries, nested result maps or result sets are mapped this way, so the workers never
+ * touch the executor or the result set.
+ */
+final class ParallelRowMapper {
+
+  private static final int CHUNK_SIZE = 64;
+
+  private final Configuration configuration;
+  private final ObjectFactory objectFactory;
+  private final ResultSetWrapper rsw;
+  private final RowMappingPlan plan;
+  private final Class<?> resultType;
+  private final boolean rowMaps;
+  private final ExecutorService executor;
+  private final int maxChunksInFlight;
+
+  // the automatic mappings followed by the property mappings of the plan
+  private final ColumnMapping[] columns;
+
+  private final Deque<Chunk> freeChunks = new ArrayDeque<>();
+
+  ParallelRowMapper(Configuration configuration, ObjectFactory objectFactory, ResultSetWrapper rsw, RowMappingPlan plan,
+      ExecutorService executor, int parallelism) {
+    this.configuration = configuration;
+    this.objectFactory = objectFactory;
+    this.rsw = rsw;
+    this.plan = plan;
+    this.resultType = plan.getResultMap().getType();
+    this.rowMaps = RowMap.appliesTo(resultType, objectFactory);
+    this.executor = executor;
+    this.maxChunksInFlight = Math.max(2, parallelism * 2);
+
+    final ColumnMapping[] autoMappings = plan.getAutoMappings();
+    final ColumnMapping[] propertyColumns = plan.getPropertyColumns();
+    this.columns = Arrays.copyOf(autoMappings, autoMappings.length + propertyColumns.length);
+    System.arraycopy(propertyColumns, 0, columns, autoMappings.length, propertyColumns.length);
+  }
+
+  /**
+   * Maps the rows after the current one until the result set, the row bounds or the result handler stops.
+   */
+  @SuppressWarnings("unchecked" /* because ResultHandler<?> is always ResultHandler<Object>*/)
+  void mapRows(ResultSet rs, DefaultResultContext<Object> resultContext, ResultHandler<?> resultHandler, RowBounds rowBounds)
+      throws SQLException {
+    final ResultHandler<Object> handler = (ResultHandler<Object>) resultHandler;
+    final Deque<Chunk> inFlight = new ArrayDeque<>();
+    int pendingRows = 0;
+    Chunk chunk = null;
+    try {
+      while (!resultContext.isStopped() && resultContext.getResultCount() + pendingRows < rowBounds.getLimit()
+          && !rs.isClosed() && rs.next()) {
+        if (chunk == null) {
+          chunk = freeChunks.isEmpty() ? new Chunk() : freeChunks.pop();
+        }
+        readRow(rs, chunk.rows[chunk.size++]);
+        pendingRows++;
+        if (chunk.size == CHUNK_SIZE) {
+          submit(chunk, inFlight);
+          chunk = null;
+          while (!inFlight.isEmpty() && (inFlight.size() >= maxChunksInFlight || inFlight.peek().future.isDone())) {
+            pendingRows -= store(inFlight.poll(), resultContext, handler);
+          }
+        }
+      }
+      if (chunk != null) {
+        submit(chunk, inFlight);
+      }
+      while (!inFlight.isEmpty() && !resultContext.isStopped()) {
+        store(inFlight.poll(), resultContext, handler);
+      }
+    } finally {
+      for (Chunk abandoned : inFlight) {
+        abandoned.future.cancel(false);
+      }
+    }
+  }
+
+  private void readRow(ResultSet rs, Object[] row) throws SQLException {
+    for (int i = 0; i < columns.length; i++) {
+      final ColumnMapping column = columns[i];
+      row[i] = column.converter != null ? column.getRawResult(rs) : column.getResult(rs);
+    }
+  }
+
+  private void submit(Chunk chunk, Deque<Chunk> inFlight) {
+    chunk.future = executor.submit(chunk);
+    inFlight.add(chunk);
+  }
+
+  private int store(Chunk chunk, DefaultResultContext<Object> resultContext, ResultHandler<Object> handler) throws SQLException {
+    await(chunk.future);
+    for (int i = 0; i < chunk.size && !resultContext.isStopped(); i++) {
+      resultContext.nextResultObject(chunk.results[i]);
+      handler.handleResult(resultContext);
+    }
+    final int size = chunk.size;
+    chunk.reset();
+    freeChunks.push(chunk);
+    return size;
+  }
+
+  private static void await(Future<?> future) throws SQLException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while waiting for rows mapped in parallel.", e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error mapping rows in parallel. Cause: " + cause, cause);
+    }
+  }
+
+  private Object mapRow(Object[] row) {
+    final Object rowValue = rowMaps ? rsw.newRowMap() : objectFactory.create(resultType);
+    final boolean directSetters = plan.canUseDirectSetters(rowValue);
+    final MetaObject metaObject = directSetters ? null : configuration.newMetaObject(rowValue);
+    final boolean callSettersOnNulls = configuration.isCallSettersOnNulls();
+    final int autoMappingCount = plan.getAutoMappings().length;
+    boolean foundValues = false;
+    for (int i = 0; i < columns.length; i++) {
+      final ColumnMapping mapping = columns[i];
+      // issue #541 make property optional
+      if (mapping.property == null) {
+        continue;
+      }
+      final Object value = mapping.converter != null ? mapping.convert(row[i]) : row[i];
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || (callSettersOnNulls && !mapping.primitive)) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        if (i < autoMappingCount) {
+          plan.setAutoMappingValue(i, rowValue, metaObject, value);
+        } else {
+          plan.setPropertyValue(i - autoMappingCount, rowValue, metaObject, value);
+        }
+      }
+    }
+    return foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+  }
+
+  /**
+   * Row buffers handed to a worker at once, reused once their results have been passed on.
+   */
+  private final class Chunk implements Callable<Void> {
+    private final Object[][] rows = new Object[CHUNK_SIZE][columns.length];
+    private final Object[] results = new Object[CHUNK_SIZE];
+    private int size;
+    private Future<Void> future;
+
+    @Override
+    public Void call() {
+      for (int i = 0; i < size; i++) {
+        results[i] = mapRow(rows[i]);
+      }
+      return null;
+    }
+
+    void reset() {
+      Arrays.fill(results, 0, size, null);
+      size = 0;
+      future = null;
+    }
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaObject;
+
+/**
+ * Hash join of the rows of a named result set ({@code resultSet="..."}) to the parent objects that wait for them.
+ * <p>
+ * The parent rows build the hash table from the {@code column} attribute of the mapping, and each row of the
+ * named result set probes it once with its {@code foreignColumn} values. The key columns are split once and their
+ * indexes are looked up once per result set. Key values keep their types, except that integral numbers are all
+ * compared as longs so that keys of different integer column types still match.
+ */
+final class ResultSetJoin {
+
+  private final ResultMapping parentMapping;
+  private final String[] parentColumns;
+  private final String[] childColumns;
+  private final Map<RowKey, Parent> parents = new HashMap<>();
+  private final RowKey.Builder keyBuilder = new RowKey.Builder();
+
+  // key column indexes in the last result set read on each side
+  private ResultSet parentResultSet;
+  private int[] parentColumnIndexes;
+  private ResultSet childResultSet;
+  private int[] childColumnIndexes;
+
+  ResultSetJoin(ResultMapping parentMapping) {
+    this.parentMapping = parentMapping;
+    final String column = parentMapping.getColumn();
+    final String foreignColumn = parentMapping.getForeignColumn();
+    this.parentColumns = column == null ? new String[0] : column.split(",");
+    this.childColumns = column == null || foreignColumn == null ? new String[0] : foreignColumn.split(",");
+  }
+
+  ResultMapping getParentMapping() {
+    return parentMapping;
+  }
+
+  /**
+   * Adds the parent object of the current row of a parent result set.
+   */
+  void addParent(ResultSet rs, MetaObject metaObject) throws SQLException {
+    if (rs != parentResultSet) {
+      parentColumnIndexes = findColumns(rs, parentColumns);
+      parentResultSet = rs;
+    }
+    final Parent parent = new Parent(metaObject);
+    final Parent first = parents.putIfAbsent(readKey(rs, parentColumnIndexes), parent);
+    if (first != null) {
+      first.last.next = parent;
+      first.last = parent;
+    }
+  }
+
+  /**
+   * Returns the first of the parents the current row of the named result set belongs to, in the order they were added.
+   */
+  Parent findParents(ResultSet rs) throws SQLException {
+    if (rs != childResultSet) {
+      childColumnIndexes = findColumns(rs, childColumns);
+      childResultSet = rs;
+    }
+    return parents.get(readKey(rs, childColumnIndexes));
+  }
+
+  private RowKey readKey(ResultSet rs, int[] columnIndexes) throws SQLException {
+    keyBuilder.reset();
+    for (int columnIndex : columnIndexes) {
+      final Object value = rs.getObject(columnIndex);
+      if (value == null) {
+        keyBuilder.skip();
+      } else {
+        keyBuilder.add(keyValue(value));
+      }
+    }
+    return keyBuilder.build(parentMapping.getResultSet(), null);
+  }
+
+  private static Object keyValue(Object value) {
+    if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE) {
+      return ((BigInteger) value).longValue();
+    } else if (value instanceof BigDecimal) {
+      final BigDecimal decimal = (BigDecimal) value;
+      try {
+        return decimal.longValueExact();
+      } catch (ArithmeticException e) {
+        return decimal.stripTrailingZeros();
+      }
+    }
+    return value;
+  }
+
+  private static int[] findColumns(ResultSet rs, String[] columns) throws SQLException {
+    final int[] columnIndexes = new int[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      columnIndexes[i] = rs.findColumn(columns[i]);
+    }
+    return columnIndexes;
+  }
+
+  /**
+   * A parent object waiting for rows of the named result set, chained to the next parent with the same key.
+   */
+  static final class Parent {
+    final MetaObject metaObject;
+    Parent next;
+    private Parent last = this;
+
+    private Parent(MetaObject metaObject) {
+      this.metaObject = metaObject;
+    }
+  }
+
+}
@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Keeps what {@link ResultSetWrapper} derives from the result set meta data (column lookups, type handlers,
+ * mapped and unmapped columns, row mapping plans) across executions, so that a statement that keeps returning
+ * the same columns does not derive it again for every query.
+ * <p>
+ * Entries are keyed by the mapped statement id and the name, JDBC type and class name of every column. The cache
+ * holds at most {@link #getMaxSize()} entries, an arbitrary one is dropped to make room for a new one. It is
+ * cleared by the {@link Configuration} when a setting that affects result mapping changes; type handlers are
+ * expected to be registered before the first query, like for the result maps.
+ *
+ * @since 3.5.2
+ */
+public class ResultSetMetadataCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  private final ConcurrentMap<Key, ColumnMetadata> entries = new ConcurrentHashMap<>();
+  private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+  /**
+   * Gets the maximum number of cached result set layouts, 0 means nothing is cached.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(int maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("The maximum size of the result set meta data cache cannot be negative.");
+    }
+    this.maxSize = maxSize;
+    clear();
+  }
+
+  public int getSize() {
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  ColumnMetadata getColumnMetadata(String statementId, ResultSetMetaData metaData, Configuration configuration)
+      throws SQLException {
+    final int maxSize = this.maxSize;
+    if (maxSize == 0 || statementId == null) {
+      return ColumnMetadata.read(metaData, configuration);
+    }
+    final int columnCount = metaData.getColumnCount();
+    final String[] columnNames = new String[columnCount];
+    final int[] columnTypes = new int[columnCount];
+    final String[] classNames = new String[columnCount];
+    ColumnMetadata.readColumns(metaData, configuration.isUseColumnLabel(), columnNames, columnTypes, classNames);
+    final Key key = new Key(statementId, columnNames, columnTypes, classNames);
+    ColumnMetadata columnMetadata = entries.get(key);
+    if (columnMetadata == null) {
+      columnMetadata = new ColumnMetadata(key.columnNames, key.columnTypes, key.classNames, configuration);
+      evictIfFull(maxSize);
+      final ColumnMetadata existing = entries.putIfAbsent(key, columnMetadata);
+      if (existing != null) {
+        columnMetadata = existing;
+      }
+    }
+    return columnMetadata;
+  }
+
+  private void evictIfFull(int maxSize) {
+    final Iterator<Key> keys = entries.keySet().iterator();
+    while (entries.size() >= maxSize && keys.hasNext()) {
+      keys.next();
+      keys.remove();
+    }
+  }
+
+  private static final class Key {
+    private final String statementId;
+    private final String[] columnNames;
+    private final int[] columnTypes;
+    private final String[] classNames;
+    private final int hashCode;
+
+    Key(String statementId, String[] columnNames, int[] columnTypes, String[] classNames) {
+      this.statementId = statementId;
+      this.columnNames = columnNames;
+      this.columnTypes = columnTypes;
+      this.classNames = classNames;
+      int result = statementId.hashCode();
+      result = 31 * result + Arrays.hashCode(columnNames);
+      result = 31 * result + Arrays.hashCode(columnTypes);
+      this.hashCode = 31 * result + Arrays.hashCode(classNames);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return hashCode == other.hashCode && statementId.equals(other.statementId)
+          && Arrays.equals(columnNames, other.columnNames) && Arrays.equals(columnTypes, other.columnTypes)
+          && Arrays.equals(classNames, other.classNames);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
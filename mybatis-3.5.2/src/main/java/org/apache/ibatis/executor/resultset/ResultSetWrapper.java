@@ -16,24 +16,14 @@
 package org.apache.ibatis.executor.resultset;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.Set;
-import org.apache.ibatis.io.Resources;
+
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.ObjectTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
-import org.apache.ibatis.type.TypeHandlerRegistry;
-import org.apache.ibatis.type.UnknownTypeHandler;
 
 /**
  * @author Iwao AVE!
@@ -48,32 +38,29 @@ public class ResultSetWrapper {
 
   // 被装饰的resultSet对象
   private final ResultSet resultSet;
-  // 类型处理器注册表
-  private final TypeHandlerRegistry typeHandlerRegistry;
-  // resultSet中各个列对应的列名列表
-  private final List<String> columnNames = new ArrayList<>();
-  // resultSet中各个列对应的Java类型列表
-  private final List<String> classNames = new ArrayList<>();
-  // resultSet中各个列对应的JDBC类型列表
-  private final List<JdbcType> jdbcTypes = new ArrayList<>();
-  // 类型与类型处理器的映射表，结构为：Map<列名，Map<Java类型，类型处理器>>
-  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
-  // 记录了所有的有映射关系的列。结构为：Map<resultMap的id，List<对象映射的列表>>
-  private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
-  // 记录了所有的无映射关系的列。结构为：Map<resultMap的id，List<对象映射的列表>>
-  private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  // 从resultSet的元数据推导出的信息：列名、列类型、类型处理器、有无映射关系的列以及行映射计划，可以在多次查询间共享
+  private final ColumnMetadata columnMetadata;
+  // 该resultSet映射出的所有RowMap共享的键索引，首次使用时创建
+  private volatile RowMap.Schema rowMapSchema;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
+    this(rs, configuration, null);
+  }
+
+  /**
+   * ResultSetWrapper 构造方法，列信息从 Configuration 级别的缓存中获取
+   *
+   * @param rs 被装饰的resultSet对象
+   * @param configuration 配置信息
+   * @param statementId 产生该resultSet的语句id，为null时不使用缓存
+   * @since 3.5.2
+   * @see ResultSetMetadataCache
+   */
+  public ResultSetWrapper(ResultSet rs, Configuration configuration, String statementId) throws SQLException {
     super();
-    this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.resultSet = rs;
-    final ResultSetMetaData metaData = rs.getMetaData();
-    final int columnCount = metaData.getColumnCount();
-    for (int i = 1; i <= columnCount; i++) {
-      columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
-      jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
-      classNames.add(metaData.getColumnClassName(i));
-    }
+    this.columnMetadata = configuration.getResultSetMetadataCache()
+        .getColumnMetadata(statementId, rs.getMetaData(), configuration);
   }
 
   public ResultSet getResultSet() {
@@ -81,24 +68,41 @@ public class ResultSetWrapper {
   }
 
   public List<String> getColumnNames() {
-    return this.columnNames;
+    return columnMetadata.getColumnNames();
   }
 
   public List<String> getClassNames() {
-    return Collections.unmodifiableList(classNames);
+    return columnMetadata.getClassNames();
   }
 
   public List<JdbcType> getJdbcTypes() {
-    return jdbcTypes;
+    return columnMetadata.getJdbcTypes();
   }
 
   public JdbcType getJdbcType(String columnName) {
-    for (int i = 0 ; i < columnNames.size(); i++) {
-      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-        return jdbcTypes.get(i);
-      }
-    }
-    return null;
+    return getJdbcType(findColumnIndex(columnName));
+  }
+
+  /**
+   * Gets the JDBC type of a column.
+   *
+   * @param columnIndex the 1-based column index
+   * @return the JDBC type, or null when the result set has no such column
+   * @since 3.5.2
+   */
+  public JdbcType getJdbcType(int columnIndex) {
+    return columnMetadata.getJdbcType(columnIndex);
+  }
+
+  /**
+   * Gets the 1-based index of the first column whose name matches the given one, ignoring case,
+   * which is the column a JDBC driver reads for that label.
+   *
+   * @param columnName the column name
+   * @return the column index, or 0 when the result set has no such column
+   */
+  public int findColumnIndex(String columnName) {
+    return columnMetadata.findColumnIndex(columnName);
   }
 
   /**
@@ -111,98 +115,87 @@ public class ResultSetWrapper {
    * @return
    */
   public TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
-    TypeHandler<?> handler = null;
-    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(columnName);
-    if (columnHandlers == null) {
-      columnHandlers = new HashMap<>();
-      typeHandlerMap.put(columnName, columnHandlers);
-    } else {
-      handler = columnHandlers.get(propertyType);
-    }
-    if (handler == null) {
-      JdbcType jdbcType = getJdbcType(columnName);
-      handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
-      // Replicate logic of UnknownTypeHandler#resolveTypeHandler
-      // See issue #59 comment 10
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        final int index = columnNames.indexOf(columnName);
-        final Class<?> javaType = resolveClass(classNames.get(index));
-        if (javaType != null && jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
-        } else if (javaType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType);
-        } else if (jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(jdbcType);
-        }
-      }
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        handler = new ObjectTypeHandler();
-      }
-      columnHandlers.put(propertyType, handler);
-    }
-    return handler;
+    return getTypeHandler(propertyType, findColumnIndex(columnName));
   }
 
-  private Class<?> resolveClass(String className) {
-    try {
-      // #699 className could be null
-      if (className != null) {
-        return Resources.classForName(className);
-      }
-    } catch (ClassNotFoundException e) {
-      // ignore
-    }
-    return null;
-  }
-
-  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = new ArrayList<>();
-    List<String> unmappedColumnNames = new ArrayList<>();
-    final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
-    final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
-    for (String columnName : columnNames) {
-      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
-      if (mappedColumns.contains(upperColumnName)) {
-        mappedColumnNames.add(upperColumnName);
-      } else {
-        unmappedColumnNames.add(columnName);
-      }
-    }
-    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
-    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+  /**
+   * Gets the type handler to use when reading a column of the result set.
+   *
+   * @param propertyType the java type the column is read into
+   * @param columnIndex the 1-based column index, or 0 if the column is not part of the result set
+   * @return the type handler, an {@link ObjectTypeHandler} if none matches
+   * @since 3.5.2
+   * @see #getTypeHandler(Class, String)
+   */
+  public TypeHandler<?> getTypeHandler(Class<?> propertyType, int columnIndex) {
+    return columnMetadata.getTypeHandler(propertyType, columnIndex);
+  }
+
+  /**
+   * Reads a column with a type handler, by index for the bundled type handlers and by label otherwise.
+   * Custom type handlers may implement the label variant only, and the index is only known for labels
+   * when the wrapper was built from column labels.
+   *
+   * @param typeHandler the type handler of the column
+   * @param columnIndex the 1-based column index, or 0 if unknown
+   * @param columnName the column name
+   * @return the column value
+   * @throws SQLException if the column cannot be read
+   * @since 3.5.2
+   */
+  public Object getResult(TypeHandler<?> typeHandler, int columnIndex, String columnName) throws SQLException {
+    return columnIndex > 0 && canReadByIndex(typeHandler)
+        ? typeHandler.getResult(resultSet, columnIndex) : typeHandler.getResult(resultSet, columnName);
+  }
+
+  boolean canReadByIndex(TypeHandler<?> typeHandler) {
+    return columnMetadata.canReadByIndex(typeHandler);
   }
 
   public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (mappedColumnNames == null) {
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return mappedColumnNames;
+    return columnMetadata.getMappedColumnNames(resultMap, columnPrefix);
   }
 
   public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (unMappedColumnNames == null) {
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return unMappedColumnNames;
+    return columnMetadata.getUnmappedColumnNames(resultMap, columnPrefix);
   }
 
-  private String getMapKey(ResultMap resultMap, String columnPrefix) {
-    return resultMap.getId() + ":" + columnPrefix;
+  RowMappingPlan getRowMappingPlan(ResultMap resultMap, String columnPrefix, boolean autoMapping) {
+    return columnMetadata.getRowMappingPlan(resultMap, columnPrefix, autoMapping);
   }
 
-  private Set<String> prependPrefixes(Set<String> columnNames, String prefix) {
-    if (columnNames == null || columnNames.isEmpty() || prefix == null || prefix.length() == 0) {
-      return columnNames;
-    }
-    final Set<String> prefixed = new HashSet<>();
-    for (String columnName : columnNames) {
-      prefixed.add(prefix + columnName);
+  RowMappingPlan addRowMappingPlan(RowMappingPlan plan) {
+    return columnMetadata.addRowMappingPlan(plan);
+  }
+
+  ConstructorMappingPlan getConstructorMappingPlan(ResultMap resultMap, String columnPrefix) {
+    return columnMetadata.getConstructorMappingPlan(resultMap, columnPrefix);
+  }
+
+  ConstructorMappingPlan addConstructorMappingPlan(ConstructorMappingPlan plan) {
+    return columnMetadata.addConstructorMappingPlan(plan);
+  }
+
+  RowKeyPlan getRowKeyPlan(ResultMap resultMap, String columnPrefix) {
+    return columnMetadata.getRowKeyPlan(resultMap, columnPrefix);
+  }
+
+  RowKeyPlan addRowKeyPlan(RowKeyPlan plan) {
+    return columnMetadata.addRowKeyPlan(plan);
+  }
+
+  RowMap newRowMap() {
+    RowMap.Schema schema = rowMapSchema;
+    if (schema == null) {
+      synchronized (this) {
+        schema = rowMapSchema;
+        if (schema == null) {
+          schema = new RowMap.Schema();
+          rowMapSchema = schema;
+        }
+      }
     }
-    return prefixed;
+    return schema.newRow();
   }
 
 }
@@ -0,0 +1,205 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Arrays;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * Identifies the object a row maps to when nested result maps collapse several rows into one object.
+ * <p>
+ * This is what a {@link org.apache.ibatis.cache.CacheKey} built from the id columns used to hold, without the
+ * column names and the list of boxed values: within one result set a result map and a column prefix always read
+ * the same key columns in the same order, so the values alone are enough. Keys made of int and long columns only,
+ * by far the most common ones, keep them in a {@code long[]}. The hash code is computed once and the values are only
+ * compared when the hash codes are equal.
+ */
+final class RowKey {
+
+  static final RowKey NULL_ROW_KEY = new RowKey(null, null, null, null, 0, null);
+
+  // a key column that was skipped because it was null
+  private static final Object ABSENT = new Object() {
+    @Override
+    public String toString() {
+      return "ABSENT";
+    }
+  };
+
+  private final String resultMapId;
+  private final String columnPrefix;
+  // the values when they are all Integer or Long, which are told apart by integerMask
+  private final long[] numbers;
+  private final int integerMask;
+  // the values otherwise, ABSENT where a column was skipped
+  private final Object[] values;
+  private final RowKey parent;
+  private final int hashCode;
+
+  private RowKey(String resultMapId, String columnPrefix, long[] numbers, Object[] values, int integerMask, RowKey parent) {
+    this.resultMapId = resultMapId;
+    this.columnPrefix = columnPrefix;
+    this.numbers = numbers;
+    this.values = values;
+    this.integerMask = integerMask;
+    this.parent = parent;
+    int hash = resultMapId == null ? 0 : resultMapId.hashCode();
+    hash = 31 * hash + (columnPrefix == null ? 0 : columnPrefix.hashCode());
+    if (numbers != null) {
+      hash = 31 * hash + Arrays.hashCode(numbers);
+      hash = 31 * hash + integerMask;
+    } else if (values != null) {
+      for (Object value : values) {
+        hash = 31 * hash + (value == null ? 1 : ArrayUtil.hashCode(value));
+      }
+    }
+    this.hashCode = 31 * hash + (parent == null ? 0 : parent.hashCode);
+  }
+
+  /**
+   * Returns this key within a parent object, or {@link #NULL_ROW_KEY} if either key is the null key.
+   */
+  RowKey combine(RowKey parentKey) {
+    if (this == NULL_ROW_KEY || parentKey == NULL_ROW_KEY) {
+      return NULL_ROW_KEY;
+    }
+    return new RowKey(resultMapId, columnPrefix, numbers, values, integerMask, parentKey);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof RowKey)) {
+      return false;
+    }
+    final RowKey other = (RowKey) object;
+    if (hashCode != other.hashCode || this == NULL_ROW_KEY || other == NULL_ROW_KEY) {
+      return false;
+    }
+    return resultMapId.equals(other.resultMapId)
+        && (columnPrefix == null ? other.columnPrefix == null : columnPrefix.equals(other.columnPrefix))
+        && integerMask == other.integerMask
+        && Arrays.equals(numbers, other.numbers)
+        && valuesEqual(values, other.values)
+        && (parent == null ? other.parent == null : parent.equals(other.parent));
+  }
+
+  private static boolean valuesEqual(Object[] values, Object[] others) {
+    if (values == null || others == null) {
+      return values == others;
+    }
+    if (values.length != others.length) {
+      return false;
+    }
+    for (int i = 0; i < values.length; i++) {
+      if (!ArrayUtil.equals(values[i], others[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    if (this == NULL_ROW_KEY) {
+      return "NULL_ROW_KEY";
+    }
+    final StringBuilder sb = new StringBuilder(resultMapId);
+    if (columnPrefix != null) {
+      sb.append('[').append(columnPrefix).append(']');
+    }
+    sb.append(':').append(numbers != null ? Arrays.toString(numbers) : ArrayUtil.toString(values));
+    if (parent != null) {
+      sb.append(" in ").append(parent);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Collects the key columns of one row, in the order the key columns are read. It is reused from row to row.
+   */
+  static final class Builder {
+    private Object[] buffer = new Object[8];
+    private int size;
+    private boolean found;
+
+    void reset() {
+      size = 0;
+      found = false;
+    }
+
+    /**
+     * Adds the value of a key column, which may be null if empty rows return an instance.
+     */
+    void add(Object value) {
+      append(value);
+      found = true;
+    }
+
+    /**
+     * Records that a key column was skipped.
+     */
+    void skip() {
+      append(ABSENT);
+    }
+
+    private void append(Object value) {
+      if (size == buffer.length) {
+        buffer = Arrays.copyOf(buffer, size * 2);
+      }
+      buffer[size++] = value;
+    }
+
+    /**
+     * Builds the key, {@link #NULL_ROW_KEY} when no key column was added.
+     */
+    RowKey build(String resultMapId, String columnPrefix) {
+      if (!found) {
+        return NULL_ROW_KEY;
+      }
+      int integerMask = 0;
+      boolean integral = size <= Integer.SIZE;
+      for (int i = 0; integral && i < size; i++) {
+        final Object value = buffer[i];
+        if (value instanceof Integer) {
+          integerMask |= 1 << i;
+        } else if (!(value instanceof Long)) {
+          integral = false;
+        }
+      }
+      final RowKey rowKey;
+      if (integral) {
+        final long[] numbers = new long[size];
+        for (int i = 0; i < size; i++) {
+          numbers[i] = ((Number) buffer[i]).longValue();
+        }
+        rowKey = new RowKey(resultMapId, columnPrefix, numbers, null, integerMask, null);
+      } else {
+        rowKey = new RowKey(resultMapId, columnPrefix, null, Arrays.copyOf(buffer, size), 0, null);
+      }
+      Arrays.fill(buffer, 0, size, null);
+      return rowKey;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.ibatis.executor.resultset.RowMappingPlan.ColumnMapping;
+import org.apache.ibatis.mapping.ResultMap;
+
+/**
+ * The columns a result map builds its {@link RowKey row keys} from, resolved once for the columns of one result set.
+ * <p>
+ * A key is built for every row a nested result map reads, so the key columns are looked up by name only when the
+ * plan is created. The rows then read the columns of the id (or property) mappings with their type handlers, or,
+ * when the result map has no mappings, the columns as strings, both by index.
+ */
+final class RowKeyPlan {
+
+  private final ResultMap resultMap;
+  private final String columnPrefix;
+  // the mapped key columns, null when the key is made of the string values of columns
+  private final ColumnMapping[] columns;
+  // 1-based indexes of the columns read as strings
+  private final int[] stringColumns;
+  private final boolean returnInstanceForEmptyRow;
+
+  private RowKeyPlan(ResultMap resultMap, String columnPrefix, ColumnMapping[] columns, int[] stringColumns,
+      boolean returnInstanceForEmptyRow) {
+    this.resultMap = resultMap;
+    this.columnPrefix = columnPrefix;
+    this.columns = columns;
+    this.stringColumns = stringColumns;
+    this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+  }
+
+  static RowKeyPlan forColumns(ResultMap resultMap, String columnPrefix, List<ColumnMapping> columns,
+      boolean returnInstanceForEmptyRow) {
+    return new RowKeyPlan(resultMap, columnPrefix, columns.toArray(new ColumnMapping[0]), null,
+        returnInstanceForEmptyRow);
+  }
+
+  static RowKeyPlan forStringColumns(ResultMap resultMap, String columnPrefix, List<Integer> columnIndexes) {
+    final int[] stringColumns = new int[columnIndexes.size()];
+    for (int i = 0; i < stringColumns.length; i++) {
+      stringColumns[i] = columnIndexes.get(i);
+    }
+    return new RowKeyPlan(resultMap, columnPrefix, null, stringColumns, false);
+  }
+
+  boolean isFor(ResultMap resultMap, String columnPrefix) {
+    return this.resultMap == resultMap
+        && (this.columnPrefix == null ? columnPrefix == null : this.columnPrefix.equals(columnPrefix));
+  }
+
+  ResultMap getResultMap() {
+    return resultMap;
+  }
+
+  String getColumnPrefix() {
+    return columnPrefix;
+  }
+
+  /**
+   * Adds the key columns of the current row, skipping the null ones.
+   */
+  void addColumns(ResultSet rs, RowKey.Builder rowKey) throws SQLException {
+    if (columns != null) {
+      for (ColumnMapping column : columns) {
+        final Object value = column.getResult(rs);
+        if (value != null || returnInstanceForEmptyRow) {
+          rowKey.add(value);
+        } else {
+          rowKey.skip();
+        }
+      }
+    } else {
+      for (int columnIndex : stringColumns) {
+        final String value = rs.getString(columnIndex);
+        if (value != null) {
+          rowKey.add(value);
+        } else {
+          rowKey.skip();
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,288 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+
+/**
+ * The {@link Map} a row is mapped to when a statement returns {@code resultType="map"}.
+ * <p>
+ * Every row of a {@link HashMap} holds its own hash table and an entry per column, repeating the same column names
+ * row after row. A row map only holds the values, in an array indexed by a {@link Schema} that all the rows of one
+ * result set share and that assigns a slot to each key the first time it is put. Keys added to a single row later
+ * on also get a slot in the shared schema, so a row map accepts any key and behaves like any other mutable map.
+ */
+final class RowMap extends AbstractMap<String, Object> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  // a slot without a mapping; an enum so that it stays the same instance when the row is deserialized
+  private enum Absent {
+    VALUE
+  }
+
+  private final Schema schema;
+  private Object[] values;
+  private int size;
+
+  private RowMap(Schema schema) {
+    this.schema = schema;
+    this.values = new Object[schema.slots.keys.length];
+    Arrays.fill(values, Absent.VALUE);
+  }
+
+  /**
+   * Returns whether the rows mapped to the result type can be row maps instead of the objects the object factory
+   * would create.
+   */
+  static boolean appliesTo(Class<?> resultType, ObjectFactory objectFactory) {
+    return Map.class.equals(resultType) && objectFactory.getClass() == DefaultObjectFactory.class;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    final int slot = schema.slotOf(key);
+    return slot >= 0 && slot < values.length && values[slot] != Absent.VALUE;
+  }
+
+  @Override
+  public Object get(Object key) {
+    final int slot = schema.slotOf(key);
+    if (slot < 0 || slot >= values.length) {
+      return null;
+    }
+    final Object value = values[slot];
+    return value == Absent.VALUE ? null : value;
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int slot = schema.slotOf(key);
+    if (slot < 0) {
+      slot = schema.add(key);
+    }
+    if (slot >= values.length) {
+      final int length = values.length;
+      values = Arrays.copyOf(values, Math.max(slot + 1, schema.slots.keys.length));
+      Arrays.fill(values, length, values.length, Absent.VALUE);
+    }
+    final Object previous = values[slot];
+    values[slot] = value;
+    if (previous == Absent.VALUE) {
+      size++;
+      return null;
+    }
+    return previous;
+  }
+
+  @Override
+  public Object remove(Object key) {
+    final int slot = schema.slotOf(key);
+    if (slot < 0 || slot >= values.length || values[slot] == Absent.VALUE) {
+      return null;
+    }
+    return removeSlot(slot);
+  }
+
+  private Object removeSlot(int slot) {
+    final Object previous = values[slot];
+    values[slot] = Absent.VALUE;
+    size--;
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(values, Absent.VALUE);
+    size = 0;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public void clear() {
+        RowMap.this.clear();
+      }
+    };
+  }
+
+  private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+    private int next = -1;
+    private int current = -1;
+
+    EntryIterator() {
+      advance();
+    }
+
+    private void advance() {
+      do {
+        next++;
+      } while (next < values.length && values[next] == Absent.VALUE);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < values.length;
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      current = next;
+      advance();
+      return new SlotEntry(current);
+    }
+
+    @Override
+    public void remove() {
+      if (current < 0 || values[current] == Absent.VALUE) {
+        throw new IllegalStateException();
+      }
+      removeSlot(current);
+    }
+  }
+
+  // reads and writes through to the slot, like the entries of a HashMap
+  private final class SlotEntry implements Entry<String, Object> {
+
+    private final int slot;
+
+    SlotEntry(int slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public String getKey() {
+      return schema.slots.keys[slot];
+    }
+
+    @Override
+    public Object getValue() {
+      final Object value = values[slot];
+      return value == Absent.VALUE ? null : value;
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      final Object previous = getValue();
+      if (values[slot] == Absent.VALUE) {
+        size++;
+      }
+      values[slot] = value;
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      final Entry<?, ?> other = (Entry<?, ?>) o;
+      return Objects.equals(getKey(), other.getKey()) && Objects.equals(getValue(), other.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + getValue();
+    }
+  }
+
+  /**
+   * The slots of the keys of the row maps mapped from one result set. Slots are only ever added, so a slot once
+   * assigned to a key never changes and rows created before a key was added simply have no value for it.
+   */
+  static final class Schema implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private volatile Slots slots = new Slots(new String[0], new HashMap<>());
+
+    RowMap newRow() {
+      return new RowMap(this);
+    }
+
+    int slotOf(Object key) {
+      final Integer slot = slots.index.get(key);
+      return slot == null ? -1 : slot;
+    }
+
+    synchronized int add(String key) {
+      final Slots current = slots;
+      final Integer existing = current.index.get(key);
+      if (existing != null) {
+        return existing;
+      }
+      final int slot = current.keys.length;
+      final String[] keys = Arrays.copyOf(current.keys, slot + 1);
+      keys[slot] = key;
+      final HashMap<Object, Integer> index = new HashMap<>(current.index);
+      index.put(key, slot);
+      slots = new Slots(keys, index);
+      return slot;
+    }
+  }
+
+  // never modified once published, so readers need no lock
+  private static final class Slots implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String[] keys;
+    private final HashMap<Object, Integer> index;
+
+    Slots(String[] keys, HashMap<Object, Integer> index) {
+      this.keys = keys;
+      this.index = index;
+    }
+  }
+
+}
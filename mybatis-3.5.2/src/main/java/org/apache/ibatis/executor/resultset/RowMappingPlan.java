@@ -0,0 +1,282 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.ParallelResultTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * The compiled form of a result map for the columns of one result set.
+ * <p>
+ * Everything that does not change from one row to the next (which mappings apply, the column index and
+ * type handler of each mapped column and the setter of each property) is resolved once, so that mapping a row
+ * is a loop over arrays without any column name handling.
+ */
+final class RowMappingPlan {
+
+  private final ResultMap resultMap;
+  private final String columnPrefix;
+  private final boolean autoMapping;
+
+  private final ColumnMapping[] autoMappings;
+  private final ResultMapping[] propertyMappings;
+  // direct column reads of propertyMappings, null where the mapping is a nested query, a composite or a resultSet
+  private final ColumnMapping[] propertyColumns;
+  private final boolean hasComplexMappings;
+
+  // the row type the setters below have been bound to
+  private final Class<?> targetType;
+  private final boolean mapTarget;
+  private final Invoker[] autoSetters;
+  private final Invoker[] propertySetters;
+  private final boolean directSetters;
+  private final ObjectWrapperFactory objectWrapperFactory;
+
+  RowMappingPlan(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix, boolean autoMapping,
+      List<ColumnMapping> autoMappings, MetaObject metaObject, Configuration configuration) throws SQLException {
+    this.resultMap = resultMap;
+    this.columnPrefix = columnPrefix;
+    this.autoMapping = autoMapping;
+    this.autoMappings = autoMappings.toArray(new ColumnMapping[0]);
+    this.objectWrapperFactory = configuration.getObjectWrapperFactory();
+
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    final List<ResultMapping> applicableMappings = new ArrayList<>();
+    final List<ColumnMapping> applicableColumns = new ArrayList<>();
+    boolean complex = false;
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      if (propertyMapping.getNestedResultMapId() != null) {
+        // the user added a column attribute to a nested result map, ignore it
+        column = null;
+      }
+      if (propertyMapping.isCompositeResult()
+          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || propertyMapping.getResultSet() != null) {
+        applicableMappings.add(propertyMapping);
+        if (propertyMapping.getNestedQueryId() == null && propertyMapping.getResultSet() == null
+            && !propertyMapping.isCompositeResult()) {
+          final String property = propertyMapping.getProperty();
+          final boolean primitive = property != null && isPrimitiveSetter(metaObject, property);
+          applicableColumns.add(new ColumnMapping(rsw, column, property, propertyMapping.getTypeHandler(), primitive));
+        } else {
+          applicableColumns.add(null);
+          complex = true;
+        }
+      }
+    }
+    this.propertyMappings = applicableMappings.toArray(new ResultMapping[0]);
+    this.propertyColumns = applicableColumns.toArray(new ColumnMapping[0]);
+    this.hasComplexMappings = complex;
+
+    // bind setters to the type of the first row
+    final Object rowValue = metaObject.getOriginalObject();
+    this.targetType = rowValue.getClass();
+    this.mapTarget = rowValue instanceof Map;
+    this.autoSetters = new Invoker[this.autoMappings.length];
+    this.propertySetters = new Invoker[this.propertyColumns.length];
+    boolean direct = canSetDirectly(rowValue);
+    if (direct && !mapTarget) {
+      final Reflector reflector = configuration.getReflectorFactory().findForClass(targetType);
+      for (int i = 0; i < this.autoMappings.length; i++) {
+        autoSetters[i] = findSetter(reflector, this.autoMappings[i].property);
+        direct = direct && autoSetters[i] != null;
+      }
+      for (int i = 0; i < this.propertyColumns.length; i++) {
+        if (this.propertyColumns[i] != null && this.propertyColumns[i].property != null) {
+          propertySetters[i] = findSetter(reflector, this.propertyColumns[i].property);
+          direct = direct && propertySetters[i] != null;
+        }
+      }
+    } else if (direct) {
+      for (ColumnMapping mapping : this.autoMappings) {
+        direct = direct && isSimpleProperty(mapping.property);
+      }
+      for (ColumnMapping mapping : this.propertyColumns) {
+        direct = direct && (mapping == null || mapping.property == null || isSimpleProperty(mapping.property));
+      }
+    }
+    this.directSetters = direct;
+  }
+
+  boolean isFor(ResultMap resultMap, String columnPrefix, boolean autoMapping) {
+    return this.resultMap == resultMap && this.autoMapping == autoMapping
+        && (this.columnPrefix == null ? columnPrefix == null : this.columnPrefix.equals(columnPrefix));
+  }
+
+  ResultMap getResultMap() {
+    return resultMap;
+  }
+
+  String getColumnPrefix() {
+    return columnPrefix;
+  }
+
+  boolean isAutoMapping() {
+    return autoMapping;
+  }
+
+  ColumnMapping[] getAutoMappings() {
+    return autoMappings;
+  }
+
+  ResultMapping[] getPropertyMappings() {
+    return propertyMappings;
+  }
+
+  ColumnMapping[] getPropertyColumns() {
+    return propertyColumns;
+  }
+
+  /**
+   * Returns whether some of the mappings (nested queries, composites or resultSets) need a {@link MetaObject}.
+   */
+  boolean hasComplexMappings() {
+    return hasComplexMappings;
+  }
+
+  /**
+   * Returns whether the values of the row can be assigned with the bound setters instead of a {@link MetaObject}.
+   */
+  boolean canUseDirectSetters(Object rowValue) {
+    return directSetters && rowValue.getClass() == targetType && !objectWrapperFactory.hasWrapperFor(rowValue);
+  }
+
+  /**
+   * Sets the value of an automatic mapping, through the {@link MetaObject} if there is one or with the bound setter.
+   */
+  void setAutoMappingValue(int index, Object rowValue, MetaObject metaObject, Object value) {
+    setValue(autoSetters[index], autoMappings[index].property, rowValue, metaObject, value);
+  }
+
+  /**
+   * Sets the value of a column property mapping, through the {@link MetaObject} if there is one or with the bound setter.
+   */
+  void setPropertyValue(int index, Object rowValue, MetaObject metaObject, Object value) {
+    setValue(propertySetters[index], propertyColumns[index].property, rowValue, metaObject, value);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void setValue(Invoker setter, String property, Object rowValue, MetaObject metaObject, Object value) {
+    if (metaObject != null) {
+      metaObject.setValue(property, value);
+    } else if (mapTarget) {
+      ((Map<String, Object>) rowValue).put(property, value);
+    } else {
+      try {
+        try {
+          setter.invoke(rowValue, new Object[] {value});
+        } catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not set property '" + property + "' of '" + rowValue.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+      }
+    }
+  }
+
+  private boolean canSetDirectly(Object rowValue) {
+    return !(rowValue instanceof ObjectWrapper) && !(rowValue instanceof Collection)
+        && !objectWrapperFactory.hasWrapperFor(rowValue);
+  }
+
+  private static Invoker findSetter(Reflector reflector, String property) {
+    return isSimpleProperty(property) && reflector.hasSetter(property) ? reflector.getSetInvoker(property) : null;
+  }
+
+  private static boolean isSimpleProperty(String property) {
+    return property.indexOf('.') < 0 && property.indexOf('[') < 0;
+  }
+
+  private static boolean isPrimitiveSetter(MetaObject metaObject, String property) {
+    try {
+      return metaObject.getSetterType(property).isPrimitive();
+    } catch (ReflectionException e) {
+      // no setter, setting the value will fail the same way as it always did
+      return false;
+    }
+  }
+
+  private static String prependPrefix(String columnName, String prefix) {
+    if (columnName == null || columnName.length() == 0 || prefix == null || prefix.length() == 0) {
+      return columnName;
+    }
+    return prefix + columnName;
+  }
+
+  /**
+   * A column that is read with its type handler and assigned to a property as is.
+   */
+  static final class ColumnMapping {
+    final String column;
+    final String property;
+    final TypeHandler<?> typeHandler;
+    final boolean primitive;
+    // the type handler when it converts its results apart from reading them, so that workers can convert them
+    final ParallelResultTypeHandler<?> converter;
+    // 1-based index of the column, or 0 when the type handler has to be called with the column label
+    private final int columnIndex;
+
+    ColumnMapping(ResultSetWrapper rsw, String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+      this.column = column;
+      this.property = property;
+      this.typeHandler = typeHandler;
+      this.primitive = primitive;
+      this.converter = typeHandler instanceof ParallelResultTypeHandler ? (ParallelResultTypeHandler<?>) typeHandler : null;
+      this.columnIndex = rsw.canReadByIndex(typeHandler) ? rsw.findColumnIndex(column) : 0;
+    }
+
+    Object getResult(ResultSet rs) throws SQLException {
+      return columnIndex > 0 ? typeHandler.getResult(rs, columnIndex) : typeHandler.getResult(rs, column);
+    }
+
+    Object getRawResult(ResultSet rs) throws SQLException {
+      try {
+        return columnIndex > 0 ? converter.getRawResult(rs, columnIndex) : converter.getRawResult(rs, column);
+      } catch (SQLException | RuntimeException e) {
+        throw new ResultMapException("Error attempting to get column '" + column + "' from result set.  Cause: " + e, e);
+      }
+    }
+
+    Object convert(Object rawValue) {
+      try {
+        return converter.convertResult(rawValue);
+      } catch (Exception e) {
+        throw new ResultMapException("Error attempting to convert column '" + column + "' of the result set.  Cause: " + e, e);
+      }
+    }
+  }
+
+}
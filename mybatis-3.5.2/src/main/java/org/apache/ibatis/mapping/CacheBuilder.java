@@ -24,12 +24,15 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.codec.CacheCodec;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
@@ -58,6 +61,11 @@ public class CacheBuilder {
   private Properties properties;
   // Cache是否阻塞
   private boolean blocking;
+  // 可读写缓存使用的编解码器
+  private CacheCodec codec;
+  // 缓存条目默认的存活时间和空闲时间
+  private Long timeToLive;
+  private Long timeToIdle;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -96,6 +104,30 @@ public class CacheBuilder {
     return this;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public CacheBuilder timeToLive(Long timeToLive) {
+    this.timeToLive = timeToLive;
+    return this;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public CacheBuilder timeToIdle(Long timeToIdle) {
+    this.timeToIdle = timeToIdle;
+    return this;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public CacheBuilder codec(CacheCodec codec) {
+    this.codec = codec;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -124,17 +156,33 @@ public class CacheBuilder {
     setCacheProperties(cache);
     // issue #352, do not apply decorators to custom caches
     if (PerpetualCache.class.equals(cache.getClass())) {  // 缓存实现是PerpetualCache，即不是用户自定义的缓存实现
+      ExpiringCache expiringCache = null;
+      if (isExpiring() && !decorators.contains(TinyLfuCache.class)) {
+        // 过期装饰器直接包装存放条目的缓存，淘汰策略删除条目时会经过它
+        expiringCache = newExpiringCache(cache);
+        cache = expiringCache;
+      }
+      TinyLfuCache tinyLfuCache = null;
       for (Class<? extends Cache> decorator : decorators) {
         // 为缓存逐级嵌套自定义的装饰器
         cache = newCacheDecoratorInstance(decorator, cache);
         // 为装饰器设置属性
         setCacheProperties(cache);
+        if (cache instanceof TinyLfuCache) {
+          tinyLfuCache = (TinyLfuCache) cache;
+        }
       }
       // 为缓存增加标准的装饰器
-      cache = setStandardDecorators(cache);
-    } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-      // 增加日志装饰器
-      cache = new LoggingCache(cache);
+      cache = setStandardDecorators(cache, isExpiring() && expiringCache == null ? tinyLfuCache : null);
+    } else {
+      if ((positive(timeToLive) || positive(timeToIdle)) && !cache.supportsExpiry()) {
+        throw new CacheException("Cache '" + id + "' of type " + cache.getClass().getName()
+          + " does not expire entries individually, so it cannot have a time to live or a time to idle.");
+      }
+      if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
+        // 增加日志装饰器
+        cache = new LoggingCache(cache);
+      }
     }
     // 返回被包装好的缓存
     return cache;
@@ -155,15 +203,24 @@ public class CacheBuilder {
   /**
    * 为缓存增加标准的装饰器
    * @param cache 被装饰的缓存
+   * @param evictionPolicy 自己存放条目的淘汰策略，不为null时在外层增加过期装饰器
    * @return 装饰结束的缓存
    */
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, TinyLfuCache evictionPolicy) {
     try {
+      // 可以并发访问的淘汰策略不需要同步装饰器
+      boolean synchronize = !(cache instanceof TinyLfuCache);
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       // 设置缓存大小
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
+      if (evictionPolicy != null) {
+        // 淘汰策略自己存放条目时过期装饰器只能包装在外层，由淘汰策略通知被淘汰的条目
+        ExpiringCache expiringCache = newExpiringCache(cache);
+        evictionPolicy.setEvictionListener(expiringCache::forget);
+        cache = expiringCache;
+      }
       // 如果定义了清理间隔，则使用定时清理装饰器装饰缓存
       if (clearInterval != null) {
         cache = new ScheduledCache(cache);
@@ -171,12 +228,14 @@ public class CacheBuilder {
       }
       // 如果允许读写，则使用序列化装饰器装饰缓存
       if (readWrite) {
-        cache = new SerializedCache(cache);
+        cache = codec == null ? new SerializedCache(cache) : new SerializedCache(cache, codec);
       }
       // 使用日志装饰器装饰缓存
       cache = new LoggingCache(cache);
       // 使用同步装饰器装饰缓存
-      cache = new SynchronizedCache(cache);
+      if (synchronize) {
+        cache = new SynchronizedCache(cache);
+      }
       // 如果启用了阻塞功能，则使用阻塞装饰器装饰缓存
       if (blocking) {
         cache = new BlockingCache(cache);
@@ -188,6 +247,31 @@ public class CacheBuilder {
     }
   }
 
+  /**
+   * 缓存或其中的语句设置了存活时间或空闲时间时才需要过期装饰器
+   */
+  private boolean isExpiring() {
+    return timeToLive != null || timeToIdle != null;
+  }
+
+  /**
+   * 创建过期装饰器，使条目按各自的存活时间和空闲时间逐个过期
+   */
+  private ExpiringCache newExpiringCache(Cache cache) {
+    ExpiringCache expiringCache = new ExpiringCache(cache);
+    if (timeToLive != null) {
+      expiringCache.setTimeToLive(timeToLive);
+    }
+    if (timeToIdle != null) {
+      expiringCache.setTimeToIdle(timeToIdle);
+    }
+    return expiringCache;
+  }
+
+  private static boolean positive(Long time) {
+    return time != null && time > 0;
+  }
+
   private void setCacheProperties(Cache cache) {
     if (properties != null) {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
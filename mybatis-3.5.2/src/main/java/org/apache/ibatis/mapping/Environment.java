@@ -15,6 +15,9 @@
  */
 package org.apache.ibatis.mapping;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.sql.DataSource;
 
 import org.apache.ibatis.transaction.TransactionFactory;
@@ -33,8 +36,17 @@ public final class Environment {
   private final TransactionFactory transactionFactory;
   // 数据源信息
   private final DataSource dataSource;
+  // 只读副本数据源，没有配置时为null
+  private final ReplicaSet replicaSet;
 
   public Environment(String id, TransactionFactory transactionFactory, DataSource dataSource) {
+    this(id, transactionFactory, dataSource, null);
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public Environment(String id, TransactionFactory transactionFactory, DataSource dataSource, ReplicaSet replicaSet) {
     if (id == null) {
       throw new IllegalArgumentException("Parameter 'id' must not be null");
     }
@@ -47,12 +59,15 @@ public final class Environment {
     }
     this.transactionFactory = transactionFactory;
     this.dataSource = dataSource;
+    this.replicaSet = replicaSet;
   }
 
   public static class Builder {
     private String id;
     private TransactionFactory transactionFactory;
     private DataSource dataSource;
+    private final List<DataSource> replicaDataSources = new ArrayList<>();
+    private ReplicaSelection replicaSelection;
 
     public Builder(String id) {
       this.id = id;
@@ -68,12 +83,29 @@ public final class Environment {
       return this;
     }
 
+    /**
+     * @since 3.5.2
+     */
+    public Builder replicaDataSource(DataSource replicaDataSource) {
+      this.replicaDataSources.add(replicaDataSource);
+      return this;
+    }
+
+    /**
+     * @since 3.5.2
+     */
+    public Builder replicaSelection(ReplicaSelection replicaSelection) {
+      this.replicaSelection = replicaSelection;
+      return this;
+    }
+
     public String id() {
       return this.id;
     }
 
     public Environment build() {
-      return new Environment(this.id, this.transactionFactory, this.dataSource);
+      ReplicaSet replicaSet = replicaDataSources.isEmpty() ? null : new ReplicaSet(replicaDataSources, replicaSelection);
+      return new Environment(this.id, this.transactionFactory, this.dataSource, replicaSet);
     }
 
   }
@@ -90,4 +122,12 @@ public final class Environment {
     return this.dataSource;
   }
 
+  /**
+   * @return the replica data sources that serve reads, or null if there are none
+   * @since 3.5.2
+   */
+  public ReplicaSet getReplicaSet() {
+    return this.replicaSet;
+  }
+
 }
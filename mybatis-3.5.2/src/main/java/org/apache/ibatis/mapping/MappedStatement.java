@@ -46,6 +46,14 @@ public final class MappedStatement {
   private List<ResultMap> resultMaps;
   private boolean flushCacheRequired;
   private boolean useCache;
+  private boolean usePrimary;
+  // 声明的语句读写的表，为null时从SQL中解析
+  private String[] tables;
+  // 最近一次从SQL中解析出的表
+  private volatile ParsedTables parsedTables;
+  // 结果在二级缓存中的存活时间和空闲时间，-1表示使用缓存的设置
+  private long cacheTimeToLive = -1;
+  private long cacheTimeToIdle = -1;
   private boolean resultOrdered;
   private SqlCommandType sqlCommandType;
   private KeyGenerator keyGenerator;
@@ -139,6 +147,41 @@ public final class MappedStatement {
       return this;
     }
 
+    public Builder usePrimary(boolean usePrimary) {
+      mappedStatement.usePrimary = usePrimary;
+      return this;
+    }
+
+    /**
+     * @since 3.5.2
+     */
+    public Builder tables(String tables) {
+      String[] names = delimitedStringToArray(tables);
+      if (names != null) {
+        for (int i = 0; i < names.length; i++) {
+          names[i] = SqlTables.normalize(names[i]);
+        }
+      }
+      mappedStatement.tables = names;
+      return this;
+    }
+
+    /**
+     * @since 3.5.2
+     */
+    public Builder cacheTimeToLive(Long cacheTimeToLive) {
+      mappedStatement.cacheTimeToLive = cacheTimeToLive == null ? -1 : cacheTimeToLive;
+      return this;
+    }
+
+    /**
+     * @since 3.5.2
+     */
+    public Builder cacheTimeToIdle(Long cacheTimeToIdle) {
+      mappedStatement.cacheTimeToIdle = cacheTimeToIdle == null ? -1 : cacheTimeToIdle;
+      return this;
+    }
+
     public Builder resultOrdered(boolean resultOrdered) {
       mappedStatement.resultOrdered = resultOrdered;
       return this;
@@ -257,6 +300,63 @@ public final class MappedStatement {
     return useCache;
   }
 
+  /**
+   * @return true if the statement always runs on the primary data source, even when replicas are configured
+   * @since 3.5.2
+   */
+  public boolean isUsePrimary() {
+    return usePrimary;
+  }
+
+  /**
+   * @return the tables declared for the statement, or {@code null} if they are found in its SQL
+   * @since 3.5.2
+   */
+  public String[] getTables() {
+    return tables;
+  }
+
+  /**
+   * Returns the tables the statement reads or writes, for the table-level invalidation of second level caches:
+   * the declared ones, else the ones its SQL names. Tables behind a view, or changed by triggers or cascades, are
+   * not named in the SQL and must be declared.
+   *
+   * @param boundSql the SQL the statement runs
+   * @return the tables, empty if they cannot be told from the SQL
+   * @since 3.5.2
+   */
+  public String[] getTables(BoundSql boundSql) {
+    if (tables != null) {
+      return tables;
+    }
+    final String sql = boundSql.getSql();
+    ParsedTables parsed = parsedTables;
+    if (parsed == null || !parsed.sql.equals(sql)) {
+      // 静态SQL只解析一次，动态SQL在生成的语句变化时重新解析
+      parsed = new ParsedTables(sql, SqlTables.extract(sql));
+      parsedTables = parsed;
+    }
+    return parsed.tables;
+  }
+
+  /**
+   * @return how long the results live in the second level cache in milliseconds, 0 for no limit, or -1 for the
+   *         time to live of the cache
+   * @since 3.5.2
+   */
+  public long getCacheTimeToLive() {
+    return cacheTimeToLive;
+  }
+
+  /**
+   * @return how long the results live in the second level cache after they were last read in milliseconds, 0 for
+   *         no limit, or -1 for the time to idle of the cache
+   * @since 3.5.2
+   */
+  public long getCacheTimeToIdle() {
+    return cacheTimeToIdle;
+  }
+
   public boolean isResultOrdered() {
     return resultOrdered;
   }
@@ -314,6 +414,16 @@ public final class MappedStatement {
     return boundSql;
   }
 
+  private static final class ParsedTables {
+    private final String sql;
+    private final String[] tables;
+
+    ParsedTables(String sql, String[] tables) {
+      this.sql = sql;
+      this.tables = tables;
+    }
+  }
+
   private static String[] delimitedStringToArray(String in) {
     if (in == null || in.trim().length() == 0) {
       return null;
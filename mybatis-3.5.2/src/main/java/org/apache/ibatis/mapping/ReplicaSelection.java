@@ -0,0 +1,28 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+/**
+ * How a read is assigned to one of the replica data sources of an {@link Environment}.
+ *
+ * @since 3.5.2
+ */
+public enum ReplicaSelection {
+  /** The replicas take turns. */
+  ROUND_ROBIN,
+  /** The replica running the fewest statements is used, ties going to the next one in turn. */
+  LEAST_IN_FLIGHT
+}
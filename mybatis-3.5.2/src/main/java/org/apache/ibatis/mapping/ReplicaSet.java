@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.sql.DataSource;
+
+/**
+ * The replica data sources of an {@link Environment} that serve reads on behalf of the primary data source.
+ * It is shared by all sessions so that the replicas are chosen and counted across them.
+ *
+ * @since 3.5.2
+ */
+public final class ReplicaSet {
+
+  private final List<DataSource> dataSources;
+  private final ReplicaSelection selection;
+  private final AtomicInteger turn = new AtomicInteger();
+  private final AtomicIntegerArray inFlight;
+
+  public ReplicaSet(List<DataSource> dataSources, ReplicaSelection selection) {
+    if (dataSources == null || dataSources.isEmpty()) {
+      throw new IllegalArgumentException("Parameter 'dataSources' must not be empty");
+    }
+    this.dataSources = Collections.unmodifiableList(new ArrayList<>(dataSources));
+    this.selection = selection == null ? ReplicaSelection.ROUND_ROBIN : selection;
+    this.inFlight = new AtomicIntegerArray(dataSources.size());
+  }
+
+  public List<DataSource> getDataSources() {
+    return dataSources;
+  }
+
+  public ReplicaSelection getSelection() {
+    return selection;
+  }
+
+  public int size() {
+    return dataSources.size();
+  }
+
+  /**
+   * Chooses the replica for the next read.
+   *
+   * @return the index of the replica
+   */
+  public int select() {
+    final int size = dataSources.size();
+    final int first = Math.floorMod(turn.getAndIncrement(), size);
+    if (selection == ReplicaSelection.ROUND_ROBIN) {
+      return first;
+    }
+    int selected = first;
+    int fewest = inFlight.get(first);
+    for (int i = 1; i < size && fewest > 0; i++) {
+      int index = (first + i) % size;
+      int count = inFlight.get(index);
+      if (count < fewest) {
+        selected = index;
+        fewest = count;
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Records that a statement started on a replica.
+   *
+   * @param index the index of the replica
+   */
+  public void begin(int index) {
+    inFlight.incrementAndGet(index);
+  }
+
+  /**
+   * Records that a statement ended on a replica.
+   *
+   * @param index the index of the replica
+   */
+  public void end(int index) {
+    inFlight.decrementAndGet(index);
+  }
+
+  /**
+   * @param index the index of the replica
+   * @return the number of statements running on the replica
+   */
+  public int getInFlight(int index) {
+    return inFlight.get(index);
+  }
+
+}
@@ -45,6 +45,8 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
   private boolean lazy;
+  private int fetchBatchSize;
+  private String fetchKeyProperty;
 
   ResultMapping() {
   }
@@ -132,6 +134,16 @@ public class ResultMapping {
       return this;
     }
 
+    public Builder fetchBatchSize(int fetchBatchSize) {
+      resultMapping.fetchBatchSize = fetchBatchSize;
+      return this;
+    }
+
+    public Builder fetchKeyProperty(String fetchKeyProperty) {
+      resultMapping.fetchKeyProperty = fetchKeyProperty;
+      return this;
+    }
+
     public ResultMapping build() {
       // lock down collections
       resultMapping.flags = Collections.unmodifiableList(resultMapping.flags);
@@ -167,6 +179,15 @@ public class ResultMapping {
           throw new IllegalStateException("There should be the same number of columns and foreignColumns in property " + resultMapping.property);
         }
       }
+      if (resultMapping.fetchBatchSize > 0) {
+        if (resultMapping.nestedQueryId == null) {
+          throw new IllegalStateException("fetchBatchSize requires a nested select in property " + resultMapping.property);
+        }
+        int numKeys = resultMapping.composites.isEmpty() ? 1 : resultMapping.composites.size();
+        if (resultMapping.fetchKeyProperty == null || resultMapping.fetchKeyProperty.split(",").length != numKeys) {
+          throw new IllegalStateException("There should be one fetchKeyProperty for each column in property " + resultMapping.property);
+        }
+      }
     }
 
     private void resolveTypeHandler() {
@@ -251,6 +272,20 @@ public class ResultMapping {
     this.lazy = lazy;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public int getFetchBatchSize() {
+    return fetchBatchSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public String getFetchKeyProperty() {
+    return fetchKeyProperty;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -298,6 +333,8 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", fetchBatchSize=").append(fetchBatchSize);
+    sb.append(", fetchKeyProperty='").append(fetchKeyProperty).append('\'');
     sb.append('}');
     return sb.toString();
   }
@@ -0,0 +1,208 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the tables a SQL statement names, for the table-level invalidation of second level caches.
+ * <p>
+ * The tables are the names following {@code FROM}, {@code JOIN}, {@code UPDATE}, {@code INTO} and {@code USING}
+ * anywhere in the statement, subqueries included. Names are unquoted, stripped of their schema and lower-cased.
+ * When the statement reads from something that is not a plain table name, such as a table function or a stored
+ * procedure call, no tables are returned, since the statement may depend on tables it does not name. A view is taken
+ * for a table, and tables changed by triggers or cascades are not seen.
+ *
+ * @since 3.5.2
+ */
+final class SqlTables {
+
+  static final String[] NONE = new String[0];
+
+  private static final Set<String> TABLE_KEYWORDS = new HashSet<>(Arrays.asList(
+      "from", "join", "update", "into", "using"));
+  private static final Set<String> LIST_KEYWORDS = new HashSet<>(Arrays.asList("from", "update"));
+  // SELECT ... FOR UPDATE和ON DUPLICATE KEY UPDATE中的UPDATE之后不是表名
+  private static final Set<String> AFTER_UPDATE = new HashSet<>(Arrays.asList("for", "key"));
+  private static final Set<String> SKIPPED_KEYWORDS = new HashSet<>(Arrays.asList("only", "lateral", "ignore", "low_priority"));
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+      "select", "from", "join", "update", "into", "using", "where", "on", "set", "values", "value", "left", "right",
+      "inner", "outer", "full", "cross", "natural", "straight_join", "group", "order", "having", "limit", "offset",
+      "fetch", "union", "except", "intersect", "minus", "window", "for", "returning", "as", "with", "when", "then",
+      "partition", "default", "output", "lateral", "only"));
+
+  private SqlTables() {
+  }
+
+  /**
+   * Returns the tables the statement names, or no tables if they cannot be told reliably.
+   */
+  static String[] extract(String sql) {
+    final List<String> tokens = tokenize(sql);
+    if (tokens == null || tokens.isEmpty() || !isStatement(tokens.get(0))) {
+      return NONE;
+    }
+    final Set<String> tables = new LinkedHashSet<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      final String keyword = tokens.get(i);
+      if (!TABLE_KEYWORDS.contains(keyword) || (i > 0 && AFTER_UPDATE.contains(tokens.get(i - 1)) && "update".equals(keyword))) {
+        continue;
+      }
+      int next = i + 1;
+      while (next < tokens.size() && SKIPPED_KEYWORDS.contains(tokens.get(next))) {
+        next++;
+      }
+      while (next < tokens.size()) {
+        final String name = tokens.get(next);
+        if ("(".equals(name) && LIST_KEYWORDS.contains(keyword)) {
+          if (next + 1 < tokens.size() && isName(tokens.get(next + 1))) {
+            // 括号中的连接无法可靠地解析
+            return NONE;
+          }
+          // 子查询中的表由其中的关键字处理，这里只跳过子查询继续解析后面的表
+          next = skipParentheses(tokens, next);
+        } else if (isName(name)) {
+          if (next + 1 < tokens.size() && "(".equals(tokens.get(next + 1)) && !"into".equals(keyword)) {
+            // 表函数等无法确定依赖的表
+            return NONE;
+          }
+          tables.add(normalize(name));
+          next++;
+        } else {
+          // USING后的列清单等
+          break;
+        }
+        // 跳过表的别名
+        if (next < tokens.size() && "as".equals(tokens.get(next))) {
+          next++;
+        }
+        if (next < tokens.size() && isName(tokens.get(next))) {
+          next++;
+        }
+        if (next < tokens.size() && ",".equals(tokens.get(next)) && LIST_KEYWORDS.contains(keyword)) {
+          next++;
+        } else {
+          break;
+        }
+      }
+    }
+    return tables.toArray(NONE);
+  }
+
+  /**
+   * Returns the table name as it is matched: without quotes or schema, in lower case.
+   */
+  static String normalize(String name) {
+    String table = name.trim();
+    final int dot = table.lastIndexOf('.');
+    if (dot >= 0) {
+      table = table.substring(dot + 1);
+    }
+    if (table.length() > 1 && isQuote(table.charAt(0))) {
+      table = table.substring(1, table.length() - 1);
+    }
+    return table.toLowerCase(Locale.ENGLISH);
+  }
+
+  private static int skipParentheses(List<String> tokens, int open) {
+    int depth = 0;
+    for (int i = open; i < tokens.size(); i++) {
+      if ("(".equals(tokens.get(i))) {
+        depth++;
+      } else if (")".equals(tokens.get(i)) && --depth == 0) {
+        return i + 1;
+      }
+    }
+    return tokens.size();
+  }
+
+  private static boolean isStatement(String firstWord) {
+    return "select".equals(firstWord) || "insert".equals(firstWord) || "update".equals(firstWord)
+        || "delete".equals(firstWord) || "with".equals(firstWord) || "merge".equals(firstWord)
+        || "replace".equals(firstWord) || "(".equals(firstWord);
+  }
+
+  private static boolean isName(String token) {
+    final char c = token.charAt(0);
+    return (Character.isJavaIdentifierStart(c) || isQuote(c)) && !KEYWORDS.contains(token);
+  }
+
+  private static boolean isQuote(char c) {
+    return c == '"' || c == '`' || c == '[';
+  }
+
+  /**
+   * Splits the statement into lower-cased words, which keep their qualifiers and quotes, and punctuation. String
+   * literals and comments are dropped. Returns {@code null} for JDBC escapes such as <code>{call ...}</code>.
+   */
+  private static List<String> tokenize(String sql) {
+    final List<String> tokens = new ArrayList<>();
+    final int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      final char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\'') {
+        i = skipQuoted(sql, i, '\'');
+      } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        final int end = sql.indexOf('\n', i);
+        i = end < 0 ? length : end + 1;
+      } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        final int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else if (c == '{') {
+        return null;
+      } else if (Character.isJavaIdentifierStart(c) || isQuote(c)) {
+        final int start = i;
+        i = skipName(sql, i);
+        while (i < length && sql.charAt(i) == '.' && i + 1 < length
+            && (Character.isJavaIdentifierStart(sql.charAt(i + 1)) || isQuote(sql.charAt(i + 1)))) {
+          i = skipName(sql, i + 1);
+        }
+        tokens.add(sql.substring(start, Math.min(i, length)).toLowerCase(Locale.ENGLISH));
+      } else {
+        tokens.add(String.valueOf(c));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  private static int skipName(String sql, int start) {
+    final char c = sql.charAt(start);
+    if (isQuote(c)) {
+      return skipQuoted(sql, start, c == '[' ? ']' : c);
+    }
+    int i = start + 1;
+    while (i < sql.length() && (Character.isJavaIdentifierPart(sql.charAt(i)))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipQuoted(String sql, int start, char quote) {
+    final int end = sql.indexOf(quote, start + 1);
+    return end < 0 ? sql.length() : end + 1;
+  }
+
+}
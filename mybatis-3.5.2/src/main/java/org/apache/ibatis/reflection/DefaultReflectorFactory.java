@@ -23,6 +23,7 @@ import java.util.concurrent.ConcurrentMap;
  */
 public class DefaultReflectorFactory implements ReflectorFactory {
   private boolean classCacheEnabled = true;
+  private boolean methodHandleEnabled = true;
   private final ConcurrentMap<Class<?>, Reflector> reflectorMap = new ConcurrentHashMap<>();
 
   public DefaultReflectorFactory() {
@@ -38,15 +39,32 @@ public class DefaultReflectorFactory implements ReflectorFactory {
     this.classCacheEnabled = classCacheEnabled;
   }
 
+  /**
+   * 是否通过 MethodHandle 调用 getter/setter，关闭后使用反射调用
+   *
+   * @since 3.5.2
+   */
+  public boolean isMethodHandleEnabled() {
+    return methodHandleEnabled;
+  }
+
+  /**
+   * 设置是否通过 MethodHandle 调用 getter/setter，只影响之后创建的 Reflector
+   *
+   * @since 3.5.2
+   */
+  public void setMethodHandleEnabled(boolean methodHandleEnabled) {
+    this.methodHandleEnabled = methodHandleEnabled;
+  }
 
   @Override
   public Reflector findForClass(Class<?> type) {
     if (classCacheEnabled) { // 允许缓存
       // synchronized (type) removed see issue #461
       // 生产入参type的反射器对象，并放入缓存
-      return reflectorMap.computeIfAbsent(type, Reflector::new);
+      return reflectorMap.computeIfAbsent(type, t -> new Reflector(t, methodHandleEnabled));
     } else {
-      return new Reflector(type);
+      return new Reflector(type, methodHandleEnabled);
     }
   }
 
@@ -33,9 +33,12 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.ibatis.reflection.invoker.GetFieldHandleInvoker;
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodHandleInvoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldHandleInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
 
@@ -51,6 +54,8 @@ public class Reflector {
 
   // 要被反射解析的类
   private final Class<?> type;
+  // 是否优先使用 MethodHandle 实现的 Invoker，无法绑定时退回到反射实现
+  private final boolean methodHandleEnabled;
   // 能够读的属性列表，即有get方法的属性列表
   private final String[] readablePropertyNames;
   // 能够写的属性列表，即有set方法的属性列表
@@ -75,8 +80,20 @@ public class Reflector {
    * @param clazz 需要被反射处理的目标类
    */
   public Reflector(Class<?> clazz) {
+    this(clazz, true);
+  }
+
+  /**
+   * Reflector 构造方法
+   *
+   * @param clazz 需要被反射处理的目标类
+   * @param methodHandleEnabled 为 true 时 getter/setter 通过 MethodHandle 调用，否则通过反射调用
+   * @since 3.5.2
+   */
+  public Reflector(Class<?> clazz, boolean methodHandleEnabled) {
     // 要被反射解析的类
     type = clazz;
+    this.methodHandleEnabled = methodHandleEnabled;
     // 设置默认构造器属性
     addDefaultConstructor(clazz);
     // 解析所有的getter
@@ -170,7 +187,7 @@ public class Reflector {
 
   private void addGetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
-      getMethods.put(name, new MethodInvoker(method));
+      getMethods.put(name, newMethodInvoker(method));
       Type returnType = TypeParameterResolver.resolveReturnType(method, type);
       getTypes.put(name, typeToClass(returnType));
     }
@@ -255,7 +272,7 @@ public class Reflector {
 
   private void addSetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
-      setMethods.put(name, new MethodInvoker(method));
+      setMethods.put(name, newMethodInvoker(method));
       Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
       setTypes.put(name, typeToClass(paramTypes[0]));
     }
@@ -306,7 +323,7 @@ public class Reflector {
 
   private void addSetField(Field field) {
     if (isValidPropertyName(field.getName())) {
-      setMethods.put(field.getName(), new SetFieldInvoker(field));
+      setMethods.put(field.getName(), newSetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       setTypes.put(field.getName(), typeToClass(fieldType));
     }
@@ -314,12 +331,46 @@ public class Reflector {
 
   private void addGetField(Field field) {
     if (isValidPropertyName(field.getName())) {
-      getMethods.put(field.getName(), new GetFieldInvoker(field));
+      getMethods.put(field.getName(), newGetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       getTypes.put(field.getName(), typeToClass(fieldType));
     }
   }
 
+  // 以下三个方法优先创建 MethodHandle 实现的 Invoker，成员无法访问（如模块未开放、final 字段）时退回到反射实现
+  private Invoker newMethodInvoker(Method method) {
+    if (methodHandleEnabled) {
+      try {
+        return new MethodHandleInvoker(method);
+      } catch (IllegalAccessException | RuntimeException e) {
+        // fall back to core reflection
+      }
+    }
+    return new MethodInvoker(method);
+  }
+
+  private Invoker newSetFieldInvoker(Field field) {
+    if (methodHandleEnabled) {
+      try {
+        return new SetFieldHandleInvoker(field);
+      } catch (IllegalAccessException | RuntimeException e) {
+        // fall back to core reflection
+      }
+    }
+    return new SetFieldInvoker(field);
+  }
+
+  private Invoker newGetFieldInvoker(Field field) {
+    if (methodHandleEnabled) {
+      try {
+        return new GetFieldHandleInvoker(field);
+      } catch (IllegalAccessException | RuntimeException e) {
+        // fall back to core reflection
+      }
+    }
+    return new GetFieldInvoker(field);
+  }
+
   private boolean isValidPropertyName(String name) {
     return !(name.startsWith("$") || "serialVersionUID".equals(name) || "class".equals(name));
   }
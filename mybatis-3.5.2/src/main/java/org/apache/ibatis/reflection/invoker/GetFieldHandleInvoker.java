@@ -0,0 +1,70 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.ReflectionException;
+
+/**
+ * A {@link GetFieldInvoker} that reads the field through a {@link MethodHandle} instead of {@link Field#get(Object)}.
+ *
+ * @since 3.5.2
+ */
+public class GetFieldHandleInvoker extends GetFieldInvoker {
+
+  private final Field field;
+  private final Class<?> declaringClass;
+  private final MethodHandle getter;
+
+  /**
+   * Binds the getter of an instance field.
+   *
+   * @param field the field to read
+   * @throws IllegalAccessException if the field cannot be accessed, callers should use a {@link GetFieldInvoker}
+   */
+  public GetFieldHandleInvoker(Field field) throws IllegalAccessException {
+    super(field);
+    if (Modifier.isStatic(field.getModifiers())) {
+      throw new IllegalArgumentException("Static field " + field + " cannot be bound to a property.");
+    }
+    MethodHandleInvoker.makeAccessible(field);
+    this.field = field;
+    this.declaringClass = field.getDeclaringClass();
+    this.getter = MethodHandles.lookup().unreflectGetter(field)
+      .asType(MethodType.methodType(Object.class, Object.class));
+  }
+
+  @UsesJava7
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException {
+    if (!declaringClass.isInstance(target)) {
+      return super.invoke(target, args);
+    }
+    try {
+      return (Object) getter.invokeExact(target);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not read field '" + field.getName() + "'. Cause: " + t, t);
+    }
+  }
+}
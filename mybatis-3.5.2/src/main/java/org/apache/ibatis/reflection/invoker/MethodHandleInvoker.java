@@ -0,0 +1,116 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * A {@link MethodInvoker} that calls the getter or setter through a {@link MethodHandle}
+ * instead of {@link Method#invoke(Object, Object...)}.
+ * <p>
+ * Arguments the handle cannot take as they are (null for a primitive, a type that needs a widening conversion or
+ * is not assignable at all) are handed to the reflective path, so that the outcome stays exactly the same.
+ *
+ * @since 3.5.2
+ */
+public class MethodHandleInvoker extends MethodInvoker {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final Class<?> declaringClass;
+  private final MethodHandle getter;
+  private final MethodHandle setter;
+  // the boxed type of the setter parameter, the only type passed to the handle as is
+  private final Class<?> argumentType;
+  private final boolean primitiveArgument;
+
+  /**
+   * Binds a getter (no parameter) or a setter (one parameter).
+   *
+   * @param method the getter or setter
+   * @throws IllegalAccessException if the method cannot be accessed, callers should use a {@link MethodInvoker}
+   */
+  public MethodHandleInvoker(Method method) throws IllegalAccessException {
+    super(method);
+    if (Modifier.isStatic(method.getModifiers())) {
+      throw new IllegalArgumentException("Static method " + method + " cannot be bound to a property.");
+    }
+    MethodHandle handle = unreflect(method);
+    this.declaringClass = method.getDeclaringClass();
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    if (parameterTypes.length == 1) {
+      this.getter = null;
+      this.setter = handle.asType(SETTER_TYPE);
+      this.argumentType = MethodType.methodType(parameterTypes[0]).wrap().returnType();
+      this.primitiveArgument = parameterTypes[0].isPrimitive();
+    } else {
+      this.getter = handle.asType(GETTER_TYPE);
+      this.setter = null;
+      this.argumentType = null;
+      this.primitiveArgument = false;
+    }
+  }
+
+  @UsesJava7
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    if (!declaringClass.isInstance(target)) {
+      return super.invoke(target, args);
+    }
+    if (getter != null) {
+      try {
+        return (Object) getter.invokeExact(target);
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    }
+    Object arg = args[0];
+    if (!isExactArgument(arg)) {
+      return super.invoke(target, args);
+    }
+    try {
+      setter.invokeExact(target, arg);
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+    return null;
+  }
+
+  private boolean isExactArgument(Object arg) {
+    return arg == null ? !primitiveArgument : argumentType.isInstance(arg);
+  }
+
+  static MethodHandle unreflect(Method method) throws IllegalAccessException {
+    makeAccessible(method);
+    return MethodHandles.lookup().unreflect(method);
+  }
+
+  static void makeAccessible(AccessibleObject member) {
+    if (Reflector.canControlMemberAccessible()) {
+      member.setAccessible(true);
+    }
+  }
+}
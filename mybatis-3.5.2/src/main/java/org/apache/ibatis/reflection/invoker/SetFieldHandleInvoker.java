@@ -0,0 +1,82 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.ReflectionException;
+
+/**
+ * A {@link SetFieldInvoker} that writes the field through a {@link MethodHandle} instead of
+ * {@link Field#set(Object, Object)}.
+ * <p>
+ * Values the handle cannot take as they are (null for a primitive, a type that needs a widening conversion or
+ * is not assignable at all) are handed to the reflective path, so that the outcome stays exactly the same.
+ *
+ * @since 3.5.2
+ */
+public class SetFieldHandleInvoker extends SetFieldInvoker {
+
+  private final Field field;
+  private final Class<?> declaringClass;
+  private final MethodHandle setter;
+  // the boxed type of the field, the only type passed to the handle as is
+  private final Class<?> argumentType;
+  private final boolean primitiveArgument;
+
+  /**
+   * Binds the setter of a non final instance field.
+   *
+   * @param field the field to write
+   * @throws IllegalAccessException if the field cannot be written, callers should use a {@link SetFieldInvoker}
+   */
+  public SetFieldHandleInvoker(Field field) throws IllegalAccessException {
+    super(field);
+    int modifiers = field.getModifiers();
+    if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+      throw new IllegalArgumentException("Field " + field + " cannot be written through a method handle.");
+    }
+    MethodHandleInvoker.makeAccessible(field);
+    this.field = field;
+    this.declaringClass = field.getDeclaringClass();
+    this.setter = MethodHandles.lookup().unreflectSetter(field)
+      .asType(MethodType.methodType(void.class, Object.class, Object.class));
+    this.argumentType = MethodType.methodType(field.getType()).wrap().returnType();
+    this.primitiveArgument = field.getType().isPrimitive();
+  }
+
+  @UsesJava7
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException {
+    Object arg = args[0];
+    if (!declaringClass.isInstance(target) || (arg == null ? primitiveArgument : !argumentType.isInstance(arg))) {
+      return super.invoke(target, args);
+    }
+    try {
+      setter.invokeExact(target, arg);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not write field '" + field.getName() + "'. Cause: " + t, t);
+    }
+    return null;
+  }
+}
@@ -70,6 +70,16 @@ public class DefaultParameterHandler implements ParameterHandler {
    */
   @Override
   public void setParameters(PreparedStatement ps) {
+    setParameters(ps, 0);
+  }
+
+  /**
+   * 为语句设置参数，参数下标都加上偏移量
+   * @param ps 语句
+   * @param parameterIndexOffset 语句中位于这些参数之前的参数个数
+   */
+  @Override
+  public void setParameters(PreparedStatement ps, int parameterIndexOffset) {
     ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
     // 取出参数列表
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
@@ -102,7 +112,7 @@ public class DefaultParameterHandler implements ParameterHandler {
           }
           try {
             // 此方法最终根据参数类型，调用java.sql.PreparedStatement类中的参数赋值方法，对SQL语句中的参数赋值
-            typeHandler.setParameter(ps, i + 1, value, jdbcType);
+            typeHandler.setParameter(ps, parameterIndexOffset + i + 1, value, jdbcType);
           } catch (TypeException | SQLException e) {
             throw new TypeException("Could not set parameters for mapping: " + parameterMapping + ". Cause: " + e, e);
           }
@@ -0,0 +1,39 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * How writes invalidate the second level caches.
+ *
+ * @since 3.5.2
+ */
+public enum CacheInvalidation {
+  /**
+   * A write clears the whole cache of its namespace.
+   */
+  NAMESPACE,
+  /**
+   * A write invalidates the entries of its own namespace, as with {@link #NAMESPACE}, and also the entries of other
+   * caches that were read from the tables it writes. The tables of a statement are declared with its {@code tables}
+   * attribute or found in its SQL; a write whose tables are unknown clears the cache of its namespace.
+   * <p>
+   * Only the tables a statement names count. A write from another namespace does not invalidate an entry read
+   * through a view of the written table, or from a table the write changes through a trigger or an
+   * {@code ON DELETE/UPDATE CASCADE} foreign key. Declare such tables with the {@code tables} attribute of the
+   * reading or the writing statement, or those entries stay stale until their namespace is written or they expire.
+   */
+  TABLE
+}
@@ -17,6 +17,7 @@ package org.apache.ibatis.session;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -25,6 +26,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
@@ -34,10 +39,16 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.TableVersions;
+import org.apache.ibatis.cache.codec.BinaryCacheCodec;
+import org.apache.ibatis.cache.codec.CacheCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
@@ -45,6 +56,8 @@ import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.QueryCoalescer;
+import org.apache.ibatis.executor.ReadWriteRoutingExecutor;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -54,6 +67,7 @@ import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.resultset.ResultSetMetadataCache;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.io.VFS;
@@ -136,6 +150,24 @@ public class Configuration {
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
   protected AutoMappingUnknownColumnBehavior autoMappingUnknownColumnBehavior = AutoMappingUnknownColumnBehavior.NONE;
+  protected int resultMappingParallelism;
+  protected int resultMappingParallelThreshold = 1000;
+  protected int asyncPoolSize;
+  protected boolean groupBatchStatements;
+  protected List<String> batchStatementOrder = Collections.emptyList();
+  protected int batchMaxSize;
+  protected int batchMaxRows;
+  protected long batchMaxBytes;
+  protected boolean discardBatchParameters;
+  protected boolean rewriteBatchedInserts;
+  protected Set<String> rewriteBatchedInsertStatements = Collections.emptySet();
+  protected int multiRowInsertMaxParameters;
+  protected boolean coalesceCacheMisses;
+  protected boolean cacheReplicaReads;
+  protected int localCacheMaxEntries;
+  protected long localCacheMaxBytes;
+  protected CacheCodec cacheCodec = new JavaSerializationCodec();
+  protected CacheInvalidation cacheInvalidation = CacheInvalidation.NAMESPACE;
   // 以上为<settings>节点中的配置信息
 
 
@@ -147,6 +179,19 @@ public class Configuration {
   protected ObjectFactory objectFactory = new DefaultObjectFactory();
   // 对象包装工厂
   protected ObjectWrapperFactory objectWrapperFactory = new DefaultObjectWrapperFactory();
+  // 结果集元数据缓存，保存由结果集的列推导出的映射信息，配置变化时清空
+  protected final ResultSetMetadataCache resultSetMetadataCache = new ResultSetMetadataCache();
+  // 并行映射结果行的线程池，未指定时按resultMappingParallelism在首次使用时创建
+  protected ExecutorService resultMappingExecutor;
+  // 结果映射线程池是否由配置自己创建，自己创建的线程池由shutdown关闭
+  private boolean resultMappingExecutorCreated;
+  // 执行异步调用的线程池，未指定时在首次使用时创建
+  protected ExecutorService asyncExecutor;
+  // 异步调用线程池是否由配置自己创建，自己创建的线程池由shutdown关闭
+  private boolean asyncExecutorCreated;
+  // 合并各会话同时发生的相同二级缓存未命中查询
+  protected final QueryCoalescer queryCoalescer = new QueryCoalescer();
+  protected final TableVersions tableVersions = new TableVersions();
 
   // 是否启用懒加载，该配置来自<settings>节点
   protected boolean lazyLoadingEnabled = false;
@@ -221,10 +266,15 @@ public class Configuration {
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+
+    typeAliasRegistry.registerAlias("JAVA", JavaSerializationCodec.class);
+    typeAliasRegistry.registerAlias("BINARY", BinaryCacheCodec.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -338,6 +388,7 @@ public class Configuration {
 
   public void setMapUnderscoreToCamelCase(boolean mapUnderscoreToCamelCase) {
     this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+    resultSetMetadataCache.clear();
   }
 
   public void addLoadedResource(String resource) {
@@ -376,6 +427,7 @@ public class Configuration {
    */
   public void setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior autoMappingUnknownColumnBehavior) {
     this.autoMappingUnknownColumnBehavior = autoMappingUnknownColumnBehavior;
+    resultSetMetadataCache.clear();
   }
 
   public boolean isLazyLoadingEnabled() {
@@ -487,6 +539,7 @@ public class Configuration {
 
   public void setUseColumnLabel(boolean useColumnLabel) {
     this.useColumnLabel = useColumnLabel;
+    resultSetMetadataCache.clear();
   }
 
   public LocalCacheScope getLocalCacheScope() {
@@ -546,6 +599,7 @@ public class Configuration {
 
   public void setReflectorFactory(ReflectorFactory reflectorFactory) {
     this.reflectorFactory = reflectorFactory;
+    resultSetMetadataCache.clear();
   }
 
   public ObjectFactory getObjectFactory() {
@@ -554,6 +608,7 @@ public class Configuration {
 
   public void setObjectFactory(ObjectFactory objectFactory) {
     this.objectFactory = objectFactory;
+    resultSetMetadataCache.clear();
   }
 
   public ObjectWrapperFactory getObjectWrapperFactory() {
@@ -562,6 +617,470 @@ public class Configuration {
 
   public void setObjectWrapperFactory(ObjectWrapperFactory objectWrapperFactory) {
     this.objectWrapperFactory = objectWrapperFactory;
+    resultSetMetadataCache.clear();
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public ResultSetMetadataCache getResultSetMetadataCache() {
+    return resultSetMetadataCache;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getResultSetMetadataCacheSize() {
+    return resultSetMetadataCache.getMaxSize();
+  }
+
+  /**
+   * Sets how many result set layouts keep the mapping state derived from their meta data, 0 disables the cache.
+   *
+   * @since 3.5.2
+   */
+  public void setResultSetMetadataCacheSize(int resultSetMetadataCacheSize) {
+    resultSetMetadataCache.setMaxSize(resultSetMetadataCacheSize);
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getResultMappingParallelism() {
+    return resultMappingParallelism;
+  }
+
+  /**
+   * Sets how many worker threads map the rows of large result sets, 0 (the default) maps every row on the calling thread.
+   * <p>
+   * The workers create the result objects, set their properties and run the conversions of the type handlers that
+   * implement {@link org.apache.ibatis.type.ParallelResultTypeHandler}. The {@link ObjectFactory} and those
+   * conversions are therefore called concurrently and must be thread-safe. Other type handlers run on the calling
+   * thread.
+   *
+   * @since 3.5.2
+   */
+  public void setResultMappingParallelism(int resultMappingParallelism) {
+    if (resultMappingParallelism < 0) {
+      throw new IllegalArgumentException("The result mapping parallelism must not be negative: " + resultMappingParallelism);
+    }
+    this.resultMappingParallelism = resultMappingParallelism;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getResultMappingParallelThreshold() {
+    return resultMappingParallelThreshold;
+  }
+
+  /**
+   * Sets after how many rows of a result set the remaining rows are mapped in parallel.
+   *
+   * @since 3.5.2
+   */
+  public void setResultMappingParallelThreshold(int resultMappingParallelThreshold) {
+    this.resultMappingParallelThreshold = resultMappingParallelThreshold;
+  }
+
+  /**
+   * Returns the pool that maps rows in parallel, a {@link ForkJoinPool} of {@link #getResultMappingParallelism()}
+   * threads is created on first use unless one has been set. A created pool is closed by {@link #shutdown()}.
+   *
+   * @since 3.5.2
+   */
+  public synchronized ExecutorService getResultMappingExecutor() {
+    if (resultMappingExecutor == null && resultMappingParallelism > 0) {
+      resultMappingExecutor = new ForkJoinPool(resultMappingParallelism);
+      resultMappingExecutorCreated = true;
+    }
+    return resultMappingExecutor;
+  }
+
+  /**
+   * Sets the pool that maps rows in parallel. The application manages the pool it sets and shuts it down itself.
+   *
+   * @since 3.5.2
+   */
+  public synchronized void setResultMappingExecutor(ExecutorService resultMappingExecutor) {
+    if (resultMappingExecutorCreated) {
+      this.resultMappingExecutor.shutdown();
+      resultMappingExecutorCreated = false;
+    }
+    this.resultMappingExecutor = resultMappingExecutor;
+  }
+
+  /**
+   * Shuts down the thread pools this configuration created on first use, so that an application that stops using it,
+   * for example on redeploy, does not leave them behind. Pools set by the application are left to the application.
+   * A pool needed again later is created anew.
+   *
+   * @since 3.5.2
+   */
+  public synchronized void shutdown() {
+    if (resultMappingExecutorCreated) {
+      resultMappingExecutor.shutdown();
+      resultMappingExecutor = null;
+      resultMappingExecutorCreated = false;
+    }
+    if (asyncExecutorCreated) {
+      // 已提交的异步调用会执行完，之后不再接受新的调用
+      asyncExecutor.shutdown();
+      asyncExecutor = null;
+      asyncExecutorCreated = false;
+    }
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isGroupBatchStatements() {
+    return groupBatchStatements;
+  }
+
+  /**
+   * Sets whether the batch executor keeps one JDBC batch per distinct statement and SQL until the statements are
+   * flushed, instead of starting a new batch whenever the SQL differs from the previous one. The batches are then
+   * executed in the order of {@link #getBatchStatementOrder()}, followed by the others in the order they were started.
+   *
+   * @since 3.5.2
+   */
+  public void setGroupBatchStatements(boolean groupBatchStatements) {
+    this.groupBatchStatements = groupBatchStatements;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public List<String> getBatchStatementOrder() {
+    return batchStatementOrder;
+  }
+
+  /**
+   * Sets the ids of the statements whose grouped batches are executed first, in this order, e.g. the inserts of
+   * parent rows before the inserts of the rows referencing them.
+   *
+   * @since 3.5.2
+   */
+  public void setBatchStatementOrder(List<String> batchStatementOrder) {
+    this.batchStatementOrder = batchStatementOrder == null ? Collections.emptyList() : batchStatementOrder;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getBatchMaxSize() {
+    return batchMaxSize;
+  }
+
+  /**
+   * Sets how many rows a single batched statement may hold before the batch executor flushes its statements,
+   * 0 (the default) for no limit.
+   *
+   * @since 3.5.2
+   */
+  public void setBatchMaxSize(int batchMaxSize) {
+    this.batchMaxSize = batchMaxSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getBatchMaxRows() {
+    return batchMaxRows;
+  }
+
+  /**
+   * Sets how many rows all the batched statements may hold together before the batch executor flushes them,
+   * 0 (the default) for no limit.
+   *
+   * @since 3.5.2
+   */
+  public void setBatchMaxRows(int batchMaxRows) {
+    this.batchMaxRows = batchMaxRows;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public long getBatchMaxBytes() {
+    return batchMaxBytes;
+  }
+
+  /**
+   * Sets the estimated size in bytes the parameters bound to the batched statements may reach before the batch
+   * executor flushes them, 0 (the default) for no limit.
+   *
+   * @since 3.5.2
+   */
+  public void setBatchMaxBytes(long batchMaxBytes) {
+    this.batchMaxBytes = batchMaxBytes;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isDiscardBatchParameters() {
+    return discardBatchParameters;
+  }
+
+  /**
+   * Sets whether the batch executor drops the parameter objects of its batch results once they have been
+   * executed successfully, and does not keep the results of automatic flushes, so that a long batch session
+   * holds no more than one flush worth of rows.
+   *
+   * @since 3.5.2
+   */
+  public void setDiscardBatchParameters(boolean discardBatchParameters) {
+    this.discardBatchParameters = discardBatchParameters;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isRewriteBatchedInserts() {
+    return rewriteBatchedInserts;
+  }
+
+  /**
+   * Sets whether the batch executor sends the batched executions of an insert as multi-row
+   * {@code INSERT ... VALUES (...), (...)} statements, when all the placeholders of the insert are in its single
+   * {@code VALUES} group. Generated keys are still assigned to the parameter objects. Inserts are never rewritten
+   * on Oracle before 23ai, which does not accept several rows in a {@code VALUES} clause. A language driver with its
+   * own parameter handler must implement {@code ParameterHandler#setParameters(PreparedStatement, int)} for its
+   * inserts to be rewritten.
+   *
+   * @since 3.5.2
+   */
+  public void setRewriteBatchedInserts(boolean rewriteBatchedInserts) {
+    this.rewriteBatchedInserts = rewriteBatchedInserts;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public Set<String> getRewriteBatchedInsertStatements() {
+    return rewriteBatchedInsertStatements;
+  }
+
+  /**
+   * Sets the ids of the insert statements rewritten as multi-row inserts when {@link #isRewriteBatchedInserts()}
+   * is off.
+   *
+   * @since 3.5.2
+   */
+  public void setRewriteBatchedInsertStatements(Set<String> rewriteBatchedInsertStatements) {
+    this.rewriteBatchedInsertStatements = rewriteBatchedInsertStatements == null ? Collections.emptySet() : rewriteBatchedInsertStatements;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getMultiRowInsertMaxParameters() {
+    return multiRowInsertMaxParameters;
+  }
+
+  /**
+   * Sets how many parameters a multi-row insert may bind, 0 (the default) uses the limit of the database product
+   * reported by the driver.
+   *
+   * @since 3.5.2
+   */
+  public void setMultiRowInsertMaxParameters(int multiRowInsertMaxParameters) {
+    this.multiRowInsertMaxParameters = multiRowInsertMaxParameters;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isCoalesceCacheMisses() {
+    return coalesceCacheMisses;
+  }
+
+  /**
+   * Sets whether concurrent second level cache misses for the same key run the query only once. Sessions that
+   * miss while the query is running wait for its result.
+   *
+   * @since 3.5.2
+   * @see QueryCoalescer
+   */
+  public void setCoalesceCacheMisses(boolean coalesceCacheMisses) {
+    this.coalesceCacheMisses = coalesceCacheMisses;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isCacheReplicaReads() {
+    return cacheReplicaReads;
+  }
+
+  /**
+   * Sets whether the results of selects routed to a replica data source are put into the second level cache.
+   * <p>
+   * Every auto-commit session reads from the replicas until it writes, so when this is off (the default) the second
+   * level cache is only filled by sessions that run transactions, have written or read from the primary, and is
+   * read-only for the rest of the traffic. Turning it on fills the cache from the replicas too, but a replica that
+   * lags behind the primary may then cache results older than the last write, until the entry is flushed or
+   * expires.
+   *
+   * @since 3.5.2
+   * @see org.apache.ibatis.executor.ReadWriteRoutingExecutor
+   */
+  public void setCacheReplicaReads(boolean cacheReplicaReads) {
+    this.cacheReplicaReads = cacheReplicaReads;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getLocalCacheMaxEntries() {
+    return localCacheMaxEntries;
+  }
+
+  /**
+   * Sets how many results the local cache of a session keeps before it evicts the least recently used one,
+   * 0 (the default) for no limit.
+   *
+   * @since 3.5.2
+   */
+  public void setLocalCacheMaxEntries(int localCacheMaxEntries) {
+    if (localCacheMaxEntries < 0) {
+      throw new IllegalArgumentException("The local cache max entries must not be negative: " + localCacheMaxEntries);
+    }
+    this.localCacheMaxEntries = localCacheMaxEntries;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public long getLocalCacheMaxBytes() {
+    return localCacheMaxBytes;
+  }
+
+  /**
+   * Sets the estimated size in bytes the results in the local cache of a session may reach before the least recently
+   * used ones are evicted, 0 (the default) for no limit.
+   *
+   * @since 3.5.2
+   */
+  public void setLocalCacheMaxBytes(long localCacheMaxBytes) {
+    if (localCacheMaxBytes < 0) {
+      throw new IllegalArgumentException("The local cache max bytes must not be negative: " + localCacheMaxBytes);
+    }
+    this.localCacheMaxBytes = localCacheMaxBytes;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public CacheCodec getCacheCodec() {
+    return cacheCodec;
+  }
+
+  /**
+   * Sets the codec read-write second level caches copy their values with, Java serialization by default.
+   *
+   * @since 3.5.2
+   */
+  public void setCacheCodec(CacheCodec cacheCodec) {
+    if (cacheCodec == null) {
+      throw new IllegalArgumentException("The cache codec must not be null.");
+    }
+    this.cacheCodec = cacheCodec;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public CacheInvalidation getCacheInvalidation() {
+    return cacheInvalidation;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    this.cacheInvalidation = cacheInvalidation;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public TableVersions getTableVersions() {
+    return tableVersions;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public QueryCoalescer getQueryCoalescer() {
+    return queryCoalescer;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getAsyncPoolSize() {
+    return asyncPoolSize;
+  }
+
+  /**
+   * Sets how many threads run the asynchronous calls when virtual threads are not available, 0 (the default)
+   * uses twice the number of processors.
+   *
+   * @since 3.5.2
+   */
+  public void setAsyncPoolSize(int asyncPoolSize) {
+    if (asyncPoolSize < 0) {
+      throw new IllegalArgumentException("The async pool size must not be negative: " + asyncPoolSize);
+    }
+    this.asyncPoolSize = asyncPoolSize;
+  }
+
+  /**
+   * Returns the executor that runs the asynchronous calls of the sessions. Unless one has been set, a virtual thread
+   * per task executor is created on first use when the JVM provides one (JDK 21+), and a pool of
+   * {@link #getAsyncPoolSize()} daemon threads otherwise. A created executor is closed by {@link #shutdown()}.
+   *
+   * @since 3.5.2
+   * @see SqlSession#executeAsync(java.util.function.Function)
+   */
+  public synchronized ExecutorService getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      asyncExecutor = newAsyncExecutor();
+      asyncExecutorCreated = true;
+    }
+    return asyncExecutor;
+  }
+
+  /**
+   * Sets the executor that runs the asynchronous calls. The application manages the executor it sets and shuts it
+   * down itself.
+   *
+   * @since 3.5.2
+   */
+  public synchronized void setAsyncExecutor(ExecutorService asyncExecutor) {
+    if (asyncExecutorCreated) {
+      this.asyncExecutor.shutdown();
+      asyncExecutorCreated = false;
+    }
+    this.asyncExecutor = asyncExecutor;
+  }
+
+  private ExecutorService newAsyncExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      // 不支持虚拟线程，使用固定大小的线程池
+      final int poolSize = asyncPoolSize > 0 ? asyncPoolSize : Runtime.getRuntime().availableProcessors() * 2;
+      final AtomicInteger threadCount = new AtomicInteger();
+      return Executors.newFixedThreadPool(poolSize, runnable -> {
+        Thread thread = new Thread(runnable, "mybatis-async-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
   }
 
   /**
@@ -652,6 +1171,18 @@ public class Configuration {
    * @return 执行器
    */
   public Executor newExecutor(Transaction transaction, ExecutorType executorType) {
+    return newExecutor(transaction, executorType, false);
+  }
+
+  /**
+   * 创建一个执行器
+   * @param transaction 事务
+   * @param executorType 数据库操作类型
+   * @param readFromReplicas 是否可以从只读副本读取，只适用于从数据源打开的自动提交事务
+   * @return 执行器
+   * @since 3.5.2
+   */
+  public Executor newExecutor(Transaction transaction, ExecutorType executorType, boolean readFromReplicas) {
     executorType = executorType == null ? defaultExecutorType : executorType;
     executorType = executorType == null ? ExecutorType.SIMPLE : executorType;
     Executor executor;
@@ -663,10 +1194,14 @@ public class Configuration {
     } else {
       executor = new SimpleExecutor(this, transaction);
     }
+    // 环境配置了只读副本时，查询语句路由到副本上执行
+    if (readFromReplicas && environment != null && environment.getReplicaSet() != null) {
+      executor = new ReadWriteRoutingExecutor(this, executor, environment.getReplicaSet(), executorType);
+    }
     // 根据配置文件中的 settings 节点cacheEnabled配置项确定是否启用缓存
     if (cacheEnabled) { // 如果配置启用该缓存
       // 使用CachingExecutor装饰实际的执行器
-      executor = new CachingExecutor(executor);
+      executor = new CachingExecutor(executor, cacheInvalidation == CacheInvalidation.TABLE ? tableVersions : null);
     }
     // 为执行器增加拦截器（插件），以启用各个拦截器的功能
     executor = (Executor) interceptorChain.pluginAll(executor);
@@ -715,6 +1250,7 @@ public class Configuration {
 
   public void addResultMap(ResultMap rm) {
     resultMaps.put(rm.getId(), rm);
+    resultSetMetadataCache.clear();
     checkLocallyForDiscriminatedNestedResultMaps(rm);
     checkGloballyForDiscriminatedNestedResultMaps(rm);
   }
@@ -757,6 +1293,7 @@ public class Configuration {
 
   public void addMappedStatement(MappedStatement ms) {
     mappedStatements.put(ms.getId(), ms);
+    resultSetMetadataCache.clear();
   }
 
   public Collection<String> getMappedStatementNames() {
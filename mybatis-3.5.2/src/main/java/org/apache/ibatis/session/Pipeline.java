@@ -0,0 +1,101 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Independent reads of a session that are queued and then run together.
+ * <p>
+ * {@link org.apache.ibatis.session.defaults.DefaultSqlSession} runs the reads concurrently when it was opened with
+ * auto-commit, without a transaction isolation level, on the data source of an environment using the {@code JDBC}
+ * transaction manager: the first one on the session itself, the others on the
+ * {@link Configuration#getAsyncExecutor() async executor}, each with an auto-commit connection of its own taken from
+ * the data source. Those reads see committed data only. Any other session, such as one running a transaction, one
+ * given a connection or one whose transactions are managed by a container, and other {@link SqlSession}
+ * implementations run the reads one after the other on the session, so that they share its snapshot.
+ *
+ * <pre>
+ * List&lt;Object&gt; results = sqlSession.pipeline()
+ *     .selectOne("selectBlog", 1)
+ *     .selectList("selectPostsOfBlog", 1)
+ *     .select(session -&gt; session.getMapper(AuthorMapper.class).selectAuthor(101))
+ *     .execute();
+ * </pre>
+ *
+ * @since 3.5.2
+ * @see SqlSession#pipeline()
+ */
+public interface Pipeline {
+
+  /**
+   * Queues the retrieval of a single row mapped from the statement key.
+   * @param statement Unique identifier matching the statement to use.
+   * @return this pipeline
+   */
+  Pipeline selectOne(String statement);
+
+  /**
+   * Queues the retrieval of a single row mapped from the statement key and parameter.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return this pipeline
+   */
+  Pipeline selectOne(String statement, Object parameter);
+
+  /**
+   * Queues the retrieval of a list of mapped objects from the statement key.
+   * @param statement Unique identifier matching the statement to use.
+   * @return this pipeline
+   */
+  Pipeline selectList(String statement);
+
+  /**
+   * Queues the retrieval of a list of mapped objects from the statement key and parameter.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return this pipeline
+   */
+  Pipeline selectList(String statement, Object parameter);
+
+  /**
+   * Queues the retrieval of a list of mapped objects from the statement key and parameter,
+   * within the specified row bounds.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return this pipeline
+   */
+  Pipeline selectList(String statement, Object parameter, RowBounds rowBounds);
+
+  /**
+   * Queues a read made through a session, for example by a mapper. The call may get another session than the one
+   * the pipeline belongs to, so it must not write or depend on state kept by the session.
+   * @param call the read to run with a session
+   * @return this pipeline
+   */
+  Pipeline select(Function<SqlSession, ?> call);
+
+  /**
+   * Runs the queued reads and waits for all of them. The pipeline is empty afterwards and may be reused.
+   * @return the results of the reads in the order they were queued
+   * @throws org.apache.ibatis.exceptions.PersistenceException the exception of the first failed read, in queue
+   *     order, thrown once all the reads have finished
+   */
+  List<Object> execute();
+
+}
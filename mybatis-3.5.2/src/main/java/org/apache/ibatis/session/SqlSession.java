@@ -19,9 +19,15 @@ import java.io.Closeable;
 import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.result.DoubleList;
+import org.apache.ibatis.executor.result.IntList;
+import org.apache.ibatis.executor.result.LongList;
+import org.apache.ibatis.session.defaults.DefaultPipeline;
 
 /**
  * The primary Java interface for working with MyBatis.
@@ -169,6 +175,123 @@ public interface SqlSession extends Closeable {
    */
   void select(String statement, Object parameter, RowBounds rowBounds, ResultHandler handler);
 
+  /**
+   * Retrieve the values of the single column the statement maps its rows to, without boxing them.
+   * Like {@link #select(String, ResultHandler)}, it does not use the second level cache.
+   * @param statement Unique identifier matching the statement to use.
+   * @return the values, in the order of the rows
+   * @since 3.5.2
+   */
+  default long[] selectLongs(String statement) {
+    return selectLongs(statement, null);
+  }
+
+  /**
+   * Retrieve the values of the single column the statement maps its rows to, without boxing them.
+   * Like {@link #select(String, Object, ResultHandler)}, it does not use the second level cache.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return the values, in the order of the rows
+   * @since 3.5.2
+   */
+  default long[] selectLongs(String statement, Object parameter) {
+    return selectLongs(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * Retrieve the values of the single column the statement maps its rows to, without boxing them,
+   * within the specified row bounds.
+   * Like {@link #select(String, Object, RowBounds, ResultHandler)}, it does not use the second level cache.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return the values, in the order of the rows
+   * @since 3.5.2
+   */
+  default long[] selectLongs(String statement, Object parameter, RowBounds rowBounds) {
+    LongList values = new LongList();
+    select(statement, parameter, rowBounds, values);
+    return values.toArray();
+  }
+
+  /**
+   * Retrieve the values of the single column the statement maps its rows to, without boxing them.
+   * Like {@link #select(String, ResultHandler)}, it does not use the second level cache.
+   * @param statement Unique identifier matching the statement to use.
+   * @return the values, in the order of the rows
+   * @since 3.5.2
+   */
+  default int[] selectInts(String statement) {
+    return selectInts(statement, null);
+  }
+
+  /**
+   * Retrieve the values of the single column the statement maps its rows to, without boxing them.
+   * Like {@link #select(String, Object, ResultHandler)}, it does not use the second level cache.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return the values, in the order of the rows
+   * @since 3.5.2
+   */
+  default int[] selectInts(String statement, Object parameter) {
+    return selectInts(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * Retrieve the values of the single column the statement maps its rows to, without boxing them,
+   * within the specified row bounds.
+   * Like {@link #select(String, Object, RowBounds, ResultHandler)}, it does not use the second level cache.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return the values, in the order of the rows
+   * @since 3.5.2
+   */
+  default int[] selectInts(String statement, Object parameter, RowBounds rowBounds) {
+    IntList values = new IntList();
+    select(statement, parameter, rowBounds, values);
+    return values.toArray();
+  }
+
+  /**
+   * Retrieve the values of the single column the statement maps its rows to, without boxing them.
+   * Like {@link #select(String, ResultHandler)}, it does not use the second level cache.
+   * @param statement Unique identifier matching the statement to use.
+   * @return the values, in the order of the rows
+   * @since 3.5.2
+   */
+  default double[] selectDoubles(String statement) {
+    return selectDoubles(statement, null);
+  }
+
+  /**
+   * Retrieve the values of the single column the statement maps its rows to, without boxing them.
+   * Like {@link #select(String, Object, ResultHandler)}, it does not use the second level cache.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return the values, in the order of the rows
+   * @since 3.5.2
+   */
+  default double[] selectDoubles(String statement, Object parameter) {
+    return selectDoubles(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * Retrieve the values of the single column the statement maps its rows to, without boxing them,
+   * within the specified row bounds.
+   * Like {@link #select(String, Object, RowBounds, ResultHandler)}, it does not use the second level cache.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return the values, in the order of the rows
+   * @since 3.5.2
+   */
+  default double[] selectDoubles(String statement, Object parameter, RowBounds rowBounds) {
+    DoubleList values = new DoubleList();
+    select(statement, parameter, rowBounds, values);
+    return values.toArray();
+  }
+
   /**
    * Execute an insert statement.
    * @param statement Unique identifier matching the statement to execute.
@@ -216,6 +339,124 @@ public interface SqlSession extends Closeable {
    */
   int delete(String statement, Object parameter);
 
+  /**
+   * Starts a pipeline of independent reads that run together, concurrently where the session allows it.
+   * @return a new empty pipeline of this session
+   * @see Pipeline
+   * @since 3.5.2
+   */
+  default Pipeline pipeline() {
+    // 没有自己的实现时依次在本会话上执行
+    return new DefaultPipeline(this);
+  }
+
+  /**
+   * Runs a call against this session on the {@link Configuration#getAsyncExecutor() async executor}.
+   * The calls of one session never run concurrently and run in the order they were submitted, so they all
+   * share the session's connection and transaction. Wait for the returned futures before calling the blocking
+   * methods of the session, committing or closing it.
+   * @param <T> the result type
+   * @param call the call to run with this session
+   * @return a future completed with the result of the call, or exceptionally with its exception
+   * @since 3.5.2
+   */
+  default <T> CompletableFuture<T> executeAsync(Function<SqlSession, T> call) {
+    // implementations without a queue of their own serialize the calls on the session, in no particular order
+    return CompletableFuture.supplyAsync(() -> {
+      synchronized (this) {
+        return call.apply(this);
+      }
+    }, getConfiguration().getAsyncExecutor());
+  }
+
+  /**
+   * Retrieve a single row mapped from the statement key without blocking the caller.
+   * @param <T> the returned object type
+   * @param statement Unique identifier matching the statement to use.
+   * @return a future of the mapped object
+   * @see #executeAsync(Function)
+   * @since 3.5.2
+   */
+  default <T> CompletableFuture<T> selectOneAsync(String statement) {
+    return selectOneAsync(statement, null);
+  }
+
+  /**
+   * Retrieve a single row mapped from the statement key and parameter without blocking the caller.
+   * @param <T> the returned object type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return a future of the mapped object
+   * @see #executeAsync(Function)
+   * @since 3.5.2
+   */
+  default <T> CompletableFuture<T> selectOneAsync(String statement, Object parameter) {
+    return executeAsync(session -> session.<T>selectOne(statement, parameter));
+  }
+
+  /**
+   * Retrieve a list of mapped objects from the statement key without blocking the caller.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @return a future of the list of mapped objects
+   * @see #executeAsync(Function)
+   * @since 3.5.2
+   */
+  default <E> CompletableFuture<List<E>> selectListAsync(String statement) {
+    return selectListAsync(statement, null);
+  }
+
+  /**
+   * Retrieve a list of mapped objects from the statement key and parameter without blocking the caller.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return a future of the list of mapped objects
+   * @see #executeAsync(Function)
+   * @since 3.5.2
+   */
+  default <E> CompletableFuture<List<E>> selectListAsync(String statement, Object parameter) {
+    return selectListAsync(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * Retrieve a list of mapped objects from the statement key and parameter, within the specified row bounds,
+   * without blocking the caller.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return a future of the list of mapped objects
+   * @see #executeAsync(Function)
+   * @since 3.5.2
+   */
+  default <E> CompletableFuture<List<E>> selectListAsync(String statement, Object parameter, RowBounds rowBounds) {
+    return executeAsync(session -> session.<E>selectList(statement, parameter, rowBounds));
+  }
+
+  /**
+   * Execute an update statement without blocking the caller.
+   * @param statement Unique identifier matching the statement to execute.
+   * @return a future of the number of rows affected by the update
+   * @see #executeAsync(Function)
+   * @since 3.5.2
+   */
+  default CompletableFuture<Integer> updateAsync(String statement) {
+    return updateAsync(statement, null);
+  }
+
+  /**
+   * Execute an update statement without blocking the caller.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return a future of the number of rows affected by the update
+   * @see #executeAsync(Function)
+   * @since 3.5.2
+   */
+  default CompletableFuture<Integer> updateAsync(String statement, Object parameter) {
+    return executeAsync(session -> session.update(statement, parameter));
+  }
+
   /**
    * Flushes batch statements and commits database connection.
    * Note that database connection will not be committed if no updates/deletes/inserts were called.
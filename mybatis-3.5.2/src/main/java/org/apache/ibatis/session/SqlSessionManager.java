@@ -24,10 +24,13 @@ import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.defaults.DefaultPipeline;
 
 /**
  * @author Larry Meadors
@@ -166,6 +169,27 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionFactory.getConfiguration();
   }
 
+  @Override
+  public <T> CompletableFuture<T> executeAsync(Function<SqlSession, T> call) {
+    final SqlSession sqlSession = localSqlSession.get();
+    if (sqlSession != null) {
+      // 管理的会话在当前线程上，异步调用交给它排队执行
+      return sqlSession.executeAsync(call);
+    }
+    // 没有管理的会话时，每次调用都会打开自己的会话，无需串行执行
+    return CompletableFuture.supplyAsync(() -> call.apply(this), getConfiguration().getAsyncExecutor());
+  }
+
+  @Override
+  public Pipeline pipeline() {
+    final SqlSession sqlSession = localSqlSession.get();
+    if (sqlSession != null) {
+      return sqlSession.pipeline();
+    }
+    // 没有管理的会话时，每个查询都可以在自己的会话上并发执行
+    return new DefaultPipeline(this, () -> sqlSessionFactory.openSession(true), getConfiguration().getAsyncExecutor());
+  }
+
   @Override
   public <T> T selectOne(String statement) {
     return sqlSessionProxy.selectOne(statement);
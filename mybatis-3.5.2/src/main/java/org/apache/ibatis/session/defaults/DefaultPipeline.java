@@ -0,0 +1,174 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.ibatis.session.Pipeline;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * The {@link Pipeline} of a session.
+ * <p>
+ * Without a supplier of worker sessions the reads run one after the other on the session. With one, every read but
+ * the first is handed to the async executor and runs on a worker session that is closed afterwards. Once the caller
+ * has finished the first read, it runs the reads that no worker has started yet on its own session, so a saturated
+ * async executor cannot stall the pipeline.
+ *
+ * @since 3.5.2
+ */
+public class DefaultPipeline implements Pipeline {
+
+  private final SqlSession sqlSession;
+  private final Supplier<SqlSession> workerSessions;
+  private final Executor asyncExecutor;
+  private final List<Function<SqlSession, ?>> calls = new ArrayList<>();
+
+  public DefaultPipeline(SqlSession sqlSession) {
+    this(sqlSession, null, null);
+  }
+
+  public DefaultPipeline(SqlSession sqlSession, Supplier<SqlSession> workerSessions, Executor asyncExecutor) {
+    this.sqlSession = sqlSession;
+    this.workerSessions = workerSessions;
+    this.asyncExecutor = asyncExecutor;
+  }
+
+  @Override
+  public Pipeline selectOne(String statement) {
+    return select(session -> session.selectOne(statement));
+  }
+
+  @Override
+  public Pipeline selectOne(String statement, Object parameter) {
+    return select(session -> session.selectOne(statement, parameter));
+  }
+
+  @Override
+  public Pipeline selectList(String statement) {
+    return select(session -> session.selectList(statement));
+  }
+
+  @Override
+  public Pipeline selectList(String statement, Object parameter) {
+    return select(session -> session.selectList(statement, parameter));
+  }
+
+  @Override
+  public Pipeline selectList(String statement, Object parameter, RowBounds rowBounds) {
+    return select(session -> session.selectList(statement, parameter, rowBounds));
+  }
+
+  @Override
+  public Pipeline select(Function<SqlSession, ?> call) {
+    calls.add(call);
+    return this;
+  }
+
+  @Override
+  public List<Object> execute() {
+    final List<Function<SqlSession, ?>> queued = new ArrayList<>(calls);
+    calls.clear();
+    final List<Object> results = new ArrayList<>(queued.size());
+    if (workerSessions == null || queued.size() < 2) {
+      for (Function<SqlSession, ?> call : queued) {
+        results.add(call.apply(sqlSession));
+      }
+      return results;
+    }
+    final List<Read> reads = new ArrayList<>(queued.size() - 1);
+    for (int i = 1; i < queued.size(); i++) {
+      Read read = new Read(queued.get(i));
+      reads.add(read);
+      asyncExecutor.execute(read);
+    }
+    RuntimeException failure = null;
+    try {
+      results.add(queued.get(0).apply(sqlSession));
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+    // 还没有被工作线程领取的查询由调用线程在自己的会话上执行
+    for (Read read : reads) {
+      read.runOn(sqlSession);
+    }
+    for (Read read : reads) {
+      try {
+        results.add(read.result.join());
+      } catch (CompletionException e) {
+        if (failure == null) {
+          failure = unwrap(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return results;
+  }
+
+  private static RuntimeException unwrap(CompletionException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return e;
+  }
+
+  private final class Read implements Runnable {
+
+    private final Function<SqlSession, ?> call;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    private Read(Function<SqlSession, ?> call) {
+      this.call = call;
+    }
+
+    @Override
+    public void run() {
+      if (claimed.compareAndSet(false, true)) {
+        try (SqlSession workerSession = workerSessions.get()) {
+          result.complete(call.apply(workerSession));
+        } catch (Throwable t) {
+          result.completeExceptionally(t);
+        }
+      }
+    }
+
+    private void runOn(SqlSession session) {
+      if (claimed.compareAndSet(false, true)) {
+        try {
+          result.complete(call.apply(session));
+        } catch (Throwable t) {
+          result.completeExceptionally(t);
+        }
+      }
+    }
+
+  }
+
+}
@@ -23,6 +23,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import org.apache.ibatis.binding.BindingException;
 import org.apache.ibatis.cursor.Cursor;
@@ -33,11 +35,15 @@ import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.Pipeline;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.transaction.Transaction;
 
 /**
  * The default implementation for {@link SqlSession}.
@@ -54,16 +60,32 @@ public class DefaultSqlSession implements SqlSession {
 
   // 是否自动提交
   private final boolean autoCommit;
+  // 流水线中的查询能否在其他连接上并发执行
+  private final boolean concurrentPipeline;
   // 缓存是否已经被污染
   private boolean dirty;
   // 游标列表
   private List<Cursor<?>> cursorList;
+  // 最近一次提交的异步调用，后续的异步调用在它完成后才执行，保证同一会话的调用依次使用同一个连接
+  private CompletableFuture<?> lastAsyncCall;
+  // 会话是否执行过更新，配置了只读副本时用于保证读到自己的写入
+  private boolean written;
 
   public DefaultSqlSession(Configuration configuration, Executor executor, boolean autoCommit) {
+    this(configuration, executor, autoCommit, false);
+  }
+
+  /**
+   * @param concurrentPipeline whether the reads of a pipeline may run on other connections of the data source, which
+   *          only holds for an auto-commit session that manages its own connection
+   * @since 3.5.2
+   */
+  public DefaultSqlSession(Configuration configuration, Executor executor, boolean autoCommit, boolean concurrentPipeline) {
     this.configuration = configuration;
     this.executor = executor;
     this.dirty = false;
     this.autoCommit = autoCommit;
+    this.concurrentPipeline = concurrentPipeline;
   }
 
   public DefaultSqlSession(Configuration configuration, Executor executor) {
@@ -209,6 +231,7 @@ public class DefaultSqlSession implements SqlSession {
   public int update(String statement, Object parameter) {
     try {
       dirty = true;
+      written = true;
       MappedStatement ms = configuration.getMappedStatement(statement);
       return executor.update(ms, wrapCollection(parameter));
     } catch (Exception e) {
@@ -297,6 +320,35 @@ public class DefaultSqlSession implements SqlSession {
     }
   }
 
+  @Override
+  public synchronized <T> CompletableFuture<T> executeAsync(Function<SqlSession, T> call) {
+    final CompletableFuture<?> previous = lastAsyncCall == null ? CompletableFuture.completedFuture(null)
+        // 前一次调用失败不影响后续调用
+        : lastAsyncCall.handle((result, e) -> null);
+    final CompletableFuture<T> future = previous.thenApplyAsync(ignored -> call.apply(this), configuration.getAsyncExecutor());
+    lastAsyncCall = future;
+    return future;
+  }
+
+  @Override
+  public Pipeline pipeline() {
+    final Environment environment = configuration.getEnvironment();
+    // 事务中的会话只能在自己的连接上读到同一快照和未提交的修改，配置了只读副本时写过的会话也要留在主库上
+    if (!concurrentPipeline || environment == null || dirty || (written && environment.getReplicaSet() != null)) {
+      return new DefaultPipeline(this);
+    }
+    return new DefaultPipeline(this, this::openPipelineSession, configuration.getAsyncExecutor());
+  }
+
+  /**
+   * 为流水线中并发执行的查询打开一个自动提交的会话，它使用数据源中的另一个连接
+   */
+  private SqlSession openPipelineSession() {
+    final Environment environment = configuration.getEnvironment();
+    final Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, true);
+    return new DefaultSqlSession(configuration, configuration.newExecutor(tx, ExecutorType.SIMPLE, true), true, true);
+  }
+
   @Override
   public Configuration getConfiguration() {
     return configuration;
@@ -29,6 +29,7 @@ import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.TransactionIsolationLevel;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
 
 /**
@@ -103,10 +104,12 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
       final TransactionFactory transactionFactory = getTransactionFactoryFromEnvironment(environment);
       // 从事务工厂中生产事务
       tx = transactionFactory.newTransaction(environment.getDataSource(), level, autoCommit);
-      // 创建执行器
-      final Executor executor = configuration.newExecutor(tx, execType);
+      // 创建执行器，只有自动提交的会话可以从只读副本读取
+      final Executor executor = configuration.newExecutor(tx, execType, autoCommit);
+      // 只有未指定隔离级别、自己管理连接的自动提交会话才能在其他连接上并发执行流水线中的查询
+      final boolean concurrentPipeline = autoCommit && level == null && transactionFactory instanceof JdbcTransactionFactory;
       // 创建DefaultSqlSession对象
-      return new DefaultSqlSession(configuration, executor, autoCommit);
+      return new DefaultSqlSession(configuration, executor, autoCommit, concurrentPipeline);
     } catch (Exception e) {
       closeTransaction(tx); // may have fetched a connection so lets call close()
       throw ExceptionFactory.wrapException("Error opening session.  Cause: " + e, e);
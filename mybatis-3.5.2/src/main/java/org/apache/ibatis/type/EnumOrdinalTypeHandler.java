@@ -23,7 +23,7 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class EnumOrdinalTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E> {
+public class EnumOrdinalTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E> implements ParallelResultTypeHandler<E> {
 
   private final Class<E> type;
   private final E[] enums;
@@ -71,6 +71,24 @@ public class EnumOrdinalTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E
     return toOrdinalEnum(ordinal);
   }
 
+  @Override
+  public Object getRawResult(ResultSet rs, int columnIndex) throws SQLException {
+    int ordinal = rs.getInt(columnIndex);
+    return ordinal == 0 && rs.wasNull() ? null : ordinal;
+  }
+
+  @Override
+  public Object getRawResult(ResultSet rs, String columnName) throws SQLException {
+    int ordinal = rs.getInt(columnName);
+    return ordinal == 0 && rs.wasNull() ? null : ordinal;
+  }
+
+  @Override
+  public E convertResult(Object rawValue) {
+    // 按序号查找枚举值可以在工作线程上进行
+    return rawValue == null ? null : toOrdinalEnum((Integer) rawValue);
+  }
+
   private E toOrdinalEnum(int ordinal) {
     try {
       return enums[ordinal];
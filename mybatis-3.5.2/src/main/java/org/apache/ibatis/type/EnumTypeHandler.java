@@ -23,7 +23,7 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class EnumTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E> {
+public class EnumTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E> implements ParallelResultTypeHandler<E> {
 
   private final Class<E> type;
 
@@ -60,4 +60,20 @@ public class EnumTypeHandler<E extends Enum<E>> extends BaseTypeHandler<E> {
     String s = cs.getString(columnIndex);
     return s == null ? null : Enum.valueOf(type, s);
   }
+
+  @Override
+  public Object getRawResult(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getString(columnIndex);
+  }
+
+  @Override
+  public Object getRawResult(ResultSet rs, String columnName) throws SQLException {
+    return rs.getString(columnName);
+  }
+
+  @Override
+  public E convertResult(Object rawValue) {
+    // 按名称查找枚举值可以在工作线程上进行
+    return rawValue == null ? null : Enum.valueOf(type, (String) rawValue);
+  }
 }
\ No newline at end of file
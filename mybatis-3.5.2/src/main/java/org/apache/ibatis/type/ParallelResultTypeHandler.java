@@ -0,0 +1,61 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A {@link TypeHandler} whose conversion of results may run on another thread than the one reading the result set,
+ * so that parallel result mapping spreads the conversion over its workers.
+ * <p>
+ * The reading thread only calls {@link #getRawResult(ResultSet, int)} on the real result set; a worker then calls
+ * {@link #convertResult(Object)} with the value read. The conversion must be thread-safe and must not use the result
+ * set. Type handlers not implementing this interface are always called on the reading thread.
+ *
+ * @param <T> the type of the converted results
+ * @since 3.5.2
+ * @see org.apache.ibatis.session.Configuration#setResultMappingParallelism(int)
+ */
+public interface ParallelResultTypeHandler<T> extends TypeHandler<T> {
+
+  /**
+   * Reads the raw value of a column on the thread reading the result set.
+   *
+   * @return the value to convert, {@code null} for SQL {@code NULL}
+   */
+  default Object getRawResult(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getObject(columnIndex);
+  }
+
+  /**
+   * Reads the raw value of a column on the thread reading the result set.
+   *
+   * @return the value to convert, {@code null} for SQL {@code NULL}
+   */
+  default Object getRawResult(ResultSet rs, String columnName) throws SQLException {
+    return rs.getObject(columnName);
+  }
+
+  /**
+   * Converts a raw value read by this handler, possibly on a worker thread and concurrently with other conversions.
+   *
+   * @param rawValue the value returned by {@code getRawResult}
+   * @return the result
+   */
+  T convertResult(Object rawValue) throws SQLException;
+
+}
@@ -29,6 +29,8 @@ import java.util.Properties;
 import org.apache.ibatis.builder.mapper.CustomMapper;
 import org.apache.ibatis.builder.typehandler.CustomIntegerTypeHandler;
 import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.cache.codec.BinaryCacheCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.domain.blog.Blog;
@@ -37,6 +39,7 @@ import org.apache.ibatis.domain.blog.mappers.NestedBlogMapper;
 import org.apache.ibatis.domain.jpetstore.Cart;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
+import org.apache.ibatis.executor.resultset.ResultSetMetadataCache;
 import org.apache.ibatis.io.JBoss6VFS;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
@@ -46,6 +49,7 @@ import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.CacheInvalidation;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
@@ -99,6 +103,25 @@ class XmlConfigBuilderTest {
       assertNull(config.getLogPrefix());
       assertNull(config.getLogImpl());
       assertNull(config.getConfigurationFactory());
+      assertThat(config.getResultSetMetadataCacheSize()).isEqualTo(ResultSetMetadataCache.DEFAULT_MAX_SIZE);
+      assertThat(config.getResultMappingParallelism()).isEqualTo(0);
+      assertThat(config.getResultMappingParallelThreshold()).isEqualTo(1000);
+      assertThat(config.getAsyncPoolSize()).isEqualTo(0);
+      assertThat(config.isGroupBatchStatements()).isFalse();
+      assertThat(config.getBatchStatementOrder()).isEmpty();
+      assertThat(config.getBatchMaxSize()).isEqualTo(0);
+      assertThat(config.getBatchMaxRows()).isEqualTo(0);
+      assertThat(config.getBatchMaxBytes()).isEqualTo(0L);
+      assertThat(config.isDiscardBatchParameters()).isFalse();
+      assertThat(config.isRewriteBatchedInserts()).isFalse();
+      assertThat(config.getRewriteBatchedInsertStatements()).isEmpty();
+      assertThat(config.getMultiRowInsertMaxParameters()).isEqualTo(0);
+      assertThat(config.isCoalesceCacheMisses()).isFalse();
+      assertThat(config.isCacheReplicaReads()).isFalse();
+      assertThat(config.getLocalCacheMaxEntries()).isEqualTo(0);
+      assertThat(config.getLocalCacheMaxBytes()).isEqualTo(0L);
+      assertThat(config.getCacheCodec()).isInstanceOf(JavaSerializationCodec.class);
+      assertThat(config.getCacheInvalidation()).isEqualTo(CacheInvalidation.NAMESPACE);
       assertThat(config.getTypeHandlerRegistry().getTypeHandler(RoundingMode.class)).isInstanceOf(EnumTypeHandler.class);
     }
   }
@@ -194,6 +217,25 @@ class XmlConfigBuilderTest {
       assertThat(config.getLogImpl().getName()).isEqualTo(Slf4jImpl.class.getName());
       assertThat(config.getVfsImpl().getName()).isEqualTo(JBoss6VFS.class.getName());
       assertThat(config.getConfigurationFactory().getName()).isEqualTo(String.class.getName());
+      assertThat(config.getResultSetMetadataCacheSize()).isEqualTo(16);
+      assertThat(config.getResultMappingParallelism()).isEqualTo(4);
+      assertThat(config.getResultMappingParallelThreshold()).isEqualTo(100);
+      assertThat(config.getAsyncPoolSize()).isEqualTo(8);
+      assertThat(config.isGroupBatchStatements()).isTrue();
+      assertThat(config.getBatchStatementOrder()).containsExactly("a.insertParent", "a.insertChild");
+      assertThat(config.getBatchMaxSize()).isEqualTo(500);
+      assertThat(config.getBatchMaxRows()).isEqualTo(5000);
+      assertThat(config.getBatchMaxBytes()).isEqualTo(67108864L);
+      assertThat(config.isDiscardBatchParameters()).isTrue();
+      assertThat(config.isRewriteBatchedInserts()).isTrue();
+      assertThat(config.getRewriteBatchedInsertStatements()).containsExactlyInAnyOrder("a.insertParent", "a.insertChild");
+      assertThat(config.getMultiRowInsertMaxParameters()).isEqualTo(1000);
+      assertThat(config.isCoalesceCacheMisses()).isTrue();
+      assertThat(config.isCacheReplicaReads()).isTrue();
+      assertThat(config.getLocalCacheMaxEntries()).isEqualTo(500);
+      assertThat(config.getLocalCacheMaxBytes()).isEqualTo(67108864L);
+      assertThat(config.getCacheCodec()).isInstanceOf(BinaryCacheCodec.class);
+      assertThat(config.getCacheInvalidation()).isEqualTo(CacheInvalidation.TABLE);
 
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blogauthor")).isEqualTo(Author.class);
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blog")).isEqualTo(Blog.class);
@@ -0,0 +1,227 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.codec.BinaryCacheCodec;
+import org.apache.ibatis.cache.codec.CacheCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class BinaryCacheCodecTest {
+
+  @Test
+  void shouldRoundTripMappedResults() {
+    CacheCodec codec = new BinaryCacheCodec();
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      authors.add(new Author(i, "user" + i, "pass" + i, "user" + i + "@example.com", null, Section.values()[i % Section.values().length]));
+    }
+    @SuppressWarnings("unchecked")
+    List<Author> copy = (List<Author>) codec.decode(codec.encode(authors));
+    assertThat(copy).isEqualTo(authors).isInstanceOf(ArrayList.class);
+    assertThat(copy.get(0)).isNotSameAs(authors.get(0));
+    assertThat(copy.get(3).getBio()).isNull();
+    assertThat(copy.get(3).getFavouriteSection()).isSameAs(authors.get(3).getFavouriteSection());
+  }
+
+  @Test
+  void shouldRoundTripScalarsAndContainers() {
+    CacheCodec codec = new BinaryCacheCodec();
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("int", -42);
+    row.put("long", Long.MIN_VALUE);
+    row.put("short", (short) 7);
+    row.put("byte", (byte) -1);
+    row.put("double", 3.25D);
+    row.put("float", -1.5F);
+    row.put("char", 'x');
+    row.put("bool", Boolean.TRUE);
+    row.put("string", "été");
+    row.put("decimal", new BigDecimal("-12345.6789"));
+    row.put("date", new Date(1234567890123L));
+    Timestamp timestamp = new Timestamp(1234567890000L);
+    timestamp.setNanos(123456789);
+    row.put("timestamp", timestamp);
+    row.put("sqlDate", new java.sql.Date(86400000L));
+    row.put("bytes", new byte[] { 1, 2, 3 });
+    row.put("longs", new long[] { 1L, -2L, Long.MAX_VALUE });
+    row.put("array", new String[] { "a", null, "c" });
+    row.put("null", null);
+    row.put("unmodifiable", Collections.unmodifiableList(Arrays.asList(1, 2)));
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> copy = (Map<String, Object>) codec.decode(codec.encode(row));
+    assertThat(copy).isInstanceOf(LinkedHashMap.class).containsOnlyKeys(row.keySet().toArray(new String[0]));
+    assertThat(new ArrayList<>(copy.keySet())).isEqualTo(new ArrayList<>(row.keySet()));
+    for (Map.Entry<String, Object> entry : row.entrySet()) {
+      assertThat(copy.get(entry.getKey())).as(entry.getKey()).isEqualTo(entry.getValue());
+    }
+    assertThat(copy.get("array")).isInstanceOf(String[].class);
+    assertThat(((Timestamp) copy.get("timestamp")).getNanos()).isEqualTo(123456789);
+  }
+
+  @Test
+  void shouldKeepSharedAndCircularReferences() {
+    CacheCodec codec = new BinaryCacheCodec();
+    Node parent = new Node();
+    parent.setName("parent");
+    Node child = new Node();
+    child.setName("child");
+    child.setParent(parent);
+    parent.getChildren().add(child);
+    parent.getChildren().add(child);
+
+    Node copy = (Node) codec.decode(codec.encode(parent));
+    assertThat(copy.getName()).isEqualTo("parent");
+    assertThat(copy.getChildren()).hasSize(2);
+    assertThat(copy.getChildren().get(0)).isSameAs(copy.getChildren().get(1));
+    assertThat(copy.getChildren().get(0).getParent()).isSameAs(copy);
+  }
+
+  @Test
+  void shouldFallBackToJavaSerializationForOtherClasses() {
+    CacheCodec codec = new BinaryCacheCodec();
+    Map<String, Object> values = new HashMap<>();
+    values.put("immutable", new Money(1250L, "EUR"));
+    values.put("custom", new Node.Guarded("kept"));
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> copy = (Map<String, Object>) codec.decode(codec.encode(values));
+    assertThat(copy.get("immutable")).isEqualTo(new Money(1250L, "EUR"));
+    assertThat(((Node.Guarded) copy.get("custom")).value).isEqualTo("kept");
+  }
+
+  @Test
+  void shouldRejectNonSerializableObjects() {
+    CacheCodec codec = new BinaryCacheCodec();
+    List<Object> values = new ArrayList<>();
+    values.add(new Object());
+    assertThatThrownBy(() -> codec.encode(values)).isInstanceOf(CacheException.class);
+  }
+
+  @Test
+  void shouldBeSmallerThanJavaSerialization() {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "pass" + i, "user" + i + "@example.com", "bio", Section.NEWS));
+    }
+    CacheCodec binary = new BinaryCacheCodec();
+    CacheCodec serialization = new JavaSerializationCodec();
+    assertThat(binary.encode(authors).length).isLessThan(serialization.encode(authors).length);
+    // a single row pays for the class descriptors in full with Java serialization
+    Author author = authors.get(0);
+    assertThat(binary.encode(author).length * 5).isLessThan(serialization.encode(author).length);
+  }
+
+  @Test
+  void shouldCopyThroughSerializedCache() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"), new BinaryCacheCodec());
+    Author author = new Author(1, "jim", "secret", "jim@example.com", "bio", Section.IMAGES);
+    cache.putObject("author", author);
+    Object copy = cache.getObject("author");
+    assertThat(copy).isEqualTo(author).isNotSameAs(author);
+    assertThat(cache.getObject("missing")).isNull();
+    assertThat(cache.getCodec()).isInstanceOf(BinaryCacheCodec.class);
+  }
+
+  public static class Node implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String name;
+    private Node parent;
+    private List<Node> children = new ArrayList<>();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Node getParent() {
+      return parent;
+    }
+
+    public void setParent(Node parent) {
+      this.parent = parent;
+    }
+
+    public List<Node> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Node> children) {
+      this.children = children;
+    }
+
+    public static class Guarded implements Serializable {
+      private static final long serialVersionUID = 1L;
+      private String value;
+
+      public Guarded() {
+      }
+
+      Guarded(String value) {
+        this.value = value;
+      }
+
+      private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        in.defaultReadObject();
+      }
+    }
+  }
+
+  public static final class Money implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final long cents;
+    private final String currency;
+
+    public Money(long cents, String currency) {
+      this.cents = cents;
+      this.currency = currency;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Money && ((Money) o).cents == cents && ((Money) o).currency.equals(currency);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(cents) * 31 + currency.hashCode();
+    }
+  }
+
+}
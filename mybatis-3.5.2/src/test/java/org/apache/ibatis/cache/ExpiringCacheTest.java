@@ -0,0 +1,151 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class ExpiringCacheTest {
+
+  private long now = 1_000_000L;
+
+  private ExpiringCache newCache(Cache delegate) {
+    return new ExpiringCache(delegate) {
+      @Override
+      protected long currentTimeMillis() {
+        return now;
+      }
+    };
+  }
+
+  @Test
+  void shouldExpireEntriesIndividually() {
+    Cache cache = newCache(new PerpetualCache("default"));
+    cache.putObject("a", "A", 1000, 0);
+    now += 500;
+    cache.putObject("b", "B", 5000, 0);
+    assertThat(cache.getTimeToLive("a")).isEqualTo(500);
+    assertThat(cache.getTimeToLive("b")).isEqualTo(5000);
+
+    now += 500;
+    assertThat(cache.getObject("a")).isNull();
+    assertThat(cache.getObject("b")).isEqualTo("B");
+    assertThat(cache.getTimeToLive("b")).isEqualTo(4500);
+    assertThat(cache.getTimeToLive("a")).isEqualTo(-1);
+
+    now += 4500;
+    assertThat(cache.getObject("b")).isNull();
+    assertThat(cache.getSize()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldExpireIdleEntries() {
+    Cache cache = newCache(new PerpetualCache("default"));
+    cache.putObject("a", "A", 0, 1000);
+    now += 800;
+    assertThat(cache.getObject("a")).isEqualTo("A");
+    now += 900;
+    assertThat(cache.getObject("a")).isEqualTo("A");
+    assertThat(cache.getTimeToLive("a")).isEqualTo(1000);
+    now += 1000;
+    assertThat(cache.getObject("a")).isNull();
+  }
+
+  @Test
+  void shouldNotOutliveTimeToLiveWhenRead() {
+    Cache cache = newCache(new PerpetualCache("default"));
+    cache.putObject("a", "A", 1500, 1000);
+    now += 800;
+    assertThat(cache.getObject("a")).isEqualTo("A");
+    now += 800;
+    assertThat(cache.getObject("a")).isNull();
+  }
+
+  @Test
+  void shouldRemoveUnreadEntriesAsTheWheelTurns() {
+    Cache delegate = new PerpetualCache("default");
+    Cache cache = newCache(delegate);
+    for (int i = 1; i <= 100; i++) {
+      cache.putObject(i, i, i * 1000L, 0);
+    }
+    assertThat(delegate.getSize()).isEqualTo(100);
+
+    now += 50_500;
+    assertThat(cache.getSize()).isEqualTo(50);
+    assertThat(delegate.getObject(50)).isNull();
+    assertThat(delegate.getObject(51)).isEqualTo(51);
+
+    now += 150_000;
+    assertThat(cache.getSize()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldExpireFarEntriesAfterMovingDownTheLevels() {
+    Cache delegate = new PerpetualCache("default");
+    Cache cache = newCache(delegate);
+    long day = 24L * 60 * 60 * 1000;
+    cache.putObject("a", "A", 3 * day, 0);
+    for (int hour = 1; hour < 72; hour++) {
+      now += 60 * 60 * 1000;
+      cache.getSize();
+    }
+    assertThat(delegate.getObject("a")).isEqualTo("A");
+    now += 60 * 60 * 1000;
+    cache.getSize();
+    assertThat(delegate.getObject("a")).isNull();
+  }
+
+  @Test
+  void shouldApplyDefaultsUnlessOverridden() {
+    ExpiringCache cache = newCache(new PerpetualCache("default"));
+    cache.setTimeToLive(1000);
+    cache.putObject("default", "D");
+    cache.putObject("statement", "S", 3000, -1);
+    cache.putObject("forever", "F", 0, -1);
+    assertThat(cache.getTimeToLive("forever")).isEqualTo(-1);
+
+    now += 1000;
+    assertThat(cache.getObject("default")).isNull();
+    assertThat(cache.getObject("statement")).isEqualTo("S");
+    now += 100_000;
+    assertThat(cache.getObject("statement")).isNull();
+    assertThat(cache.getObject("forever")).isEqualTo("F");
+  }
+
+  @Test
+  void shouldForgetExpiryOfReplacedAndRemovedEntries() {
+    Cache cache = newCache(new PerpetualCache("default"));
+    cache.putObject("a", "A", 1000, 0);
+    cache.putObject("a", "B");
+    cache.putObject("b", "B", 1000, 0);
+    cache.removeObject("b");
+    cache.putObject("b", "C");
+    now += 5000;
+    assertThat(cache.getObject("a")).isEqualTo("B");
+    assertThat(cache.getObject("b")).isEqualTo("C");
+    assertThat(cache.getTimeToLive("a")).isEqualTo(-1);
+
+    cache.putObject("c", "C", 1000, 0);
+    cache.clear();
+    cache.putObject("c", "D");
+    now += 5000;
+    assertThat(cache.getObject("c")).isEqualTo("D");
+  }
+
+}
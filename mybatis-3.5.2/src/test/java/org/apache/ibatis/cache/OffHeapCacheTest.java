@@ -0,0 +1,162 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldReturnCopiesOfStoredValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    List<String> value = new ArrayList<>();
+    value.add("a");
+    cache.putObject("key", value);
+    Object copy = cache.getObject("key");
+    assertThat(copy).isEqualTo(value).isNotSameAs(value);
+    assertThat(cache.getObject("missing")).isNull();
+    assertThat(cache.getSize()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldReplaceRemoveAndClear() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.putObject(1, "one");
+    cache.putObject(1, "uno");
+    cache.putObject(2, null);
+    assertThat(cache.getObject(1)).isEqualTo("uno");
+    assertThat(cache.getObject(2)).isNull();
+    assertThat(cache.getSize()).isEqualTo(2);
+    cache.removeObject(1);
+    assertThat(cache.getObject(1)).isNull();
+    assertThat(cache.getSize()).isEqualTo(1);
+    cache.clear();
+    assertThat(cache.getSize()).isZero();
+    cache.putObject(3, "three");
+    assertThat(cache.getObject(3)).isEqualTo("three");
+  }
+
+  @Test
+  void shouldTellApartKeysWithEqualHashes() {
+    OffHeapCache cache = new OffHeapCache("default");
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(new CollidingKey(i), i);
+    }
+    for (int i = 0; i < 100; i += 2) {
+      cache.removeObject(new CollidingKey(i));
+    }
+    for (int i = 0; i < 100; i++) {
+      assertThat(cache.getObject(new CollidingKey(i))).isEqualTo(i % 2 == 0 ? null : i);
+    }
+    assertThat(cache.getSize()).isEqualTo(50);
+  }
+
+  @Test
+  void shouldEvictOldestSlabWhenFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(1024);
+    cache.setCapacity(4096);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    assertThat(cache.getAllocatedBytes()).isEqualTo(4096);
+    assertThat(cache.getEvictedSlabCount()).isPositive();
+    assertThat(cache.getObject(0)).isNull();
+    assertThat(cache.getObject(999)).isEqualTo("value999");
+    assertThat(cache.getSize()).isLessThan(1000);
+    int present = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (cache.getObject(i) != null) {
+        present++;
+      }
+    }
+    assertThat(present).isEqualTo(cache.getSize());
+  }
+
+  @Test
+  void shouldSkipEntriesLargerThanSlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(256);
+    cache.putObject("big", new byte[1024]);
+    assertThat(cache.getObject("big")).isNull();
+    assertThat(cache.getSize()).isZero();
+  }
+
+  @Test
+  void shouldRejectNonSerializableValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    assertThrows(CacheException.class, () -> cache.putObject("key", new Object()));
+  }
+
+  @Test
+  void shouldStayConsistentUnderConcurrentAccess() throws Exception {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(4096);
+    cache.setCapacity(16384);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int offset = t * 1000;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 2000; i++) {
+            int key = offset + i % 200;
+            cache.putObject(key, "value" + key);
+            Object value = cache.getObject(key);
+            assertThat(value == null || value.equals("value" + key)).isTrue();
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(cache.getAllocatedBytes()).isLessThanOrEqualTo(16384);
+  }
+
+  private static class CollidingKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final int id;
+
+    CollidingKey(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return id % 3;
+    }
+  }
+
+}
@@ -0,0 +1,185 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.ScheduledCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheTest {
+
+  @Test
+  void shouldPutGetRemoveAndClear() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    assertThat(cache.getId()).isEqualTo("default");
+    cache.putObject(0, "zero");
+    cache.putObject(1, null);
+    assertThat(cache.getObject(0)).isEqualTo("zero");
+    assertThat(cache.getObject(1)).isNull();
+    assertThat(cache.getSize()).isEqualTo(2);
+    cache.putObject(0, "updated");
+    assertThat(cache.getObject(0)).isEqualTo("updated");
+    assertThat(cache.removeObject(0)).isEqualTo("updated");
+    assertThat(cache.getObject(0)).isNull();
+    cache.clear();
+    assertThat(cache.getSize()).isZero();
+  }
+
+  @Test
+  void shouldStayWithinSize() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+    }
+    cache.cleanUp();
+    assertThat(cache.getSize()).isEqualTo(100);
+    assertThat(cache.getEvictionCount()).isEqualTo(900);
+  }
+
+  @Test
+  void shouldKeepFrequentlyUsedEntriesDuringScan() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(100);
+    for (int round = 0; round < 20; round++) {
+      for (int i = 0; i < 50; i++) {
+        if (cache.getObject("hot" + i) == null) {
+          cache.putObject("hot" + i, i);
+        }
+      }
+      cache.cleanUp();
+    }
+    // a scan of entries read only once must not flush the popular ones
+    for (int i = 0; i < 10000; i++) {
+      cache.putObject("cold" + i, i);
+    }
+    cache.cleanUp();
+    int hot = 0;
+    for (int i = 0; i < 50; i++) {
+      if (cache.getObject("hot" + i) != null) {
+        hot++;
+      }
+    }
+    assertThat(hot).isGreaterThanOrEqualTo(45);
+    assertThat(cache.getSize()).isEqualTo(100);
+  }
+
+  @Test
+  void shouldStayConsistentUnderConcurrentAccess() throws Exception {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(64);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int seed = t;
+        futures.add(executor.submit(() -> {
+          Random random = new Random(seed);
+          for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(256);
+            int action = random.nextInt(10);
+            if (action < 6) {
+              Object value = cache.getObject(key);
+              assertThat(value == null || value.equals(key)).isTrue();
+            } else if (action < 9) {
+              cache.putObject(key, key);
+            } else {
+              cache.removeObject(key);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    cache.cleanUp();
+    assertThat(cache.getSize()).isLessThanOrEqualTo(64);
+  }
+
+  @Test
+  void shouldDrainWritesQueuedWhileAnotherCallHeldTheLock() throws Exception {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(4);
+    for (int i = 0; i < 4; i++) {
+      cache.putObject(i, i);
+    }
+    CountDownLatch evicting = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread resizer = new Thread(() -> cache.setSize(2));
+    cache.setEvictionListener(key -> {
+      if (Thread.currentThread() == resizer && evicting.getCount() > 0) {
+        evicting.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    resizer.start();
+    evicting.await();
+    // the resizing thread holds the eviction lock, so these writes stay in the buffer
+    for (int i = 4; i < 20; i++) {
+      cache.putObject(i, i);
+    }
+    release.countDown();
+    resizer.join();
+    assertThat(cache.getSize()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  void shouldCountEveryRequestOfUnsynchronizedChain() throws Exception {
+    TinyLfuCache tinyLfuCache = new TinyLfuCache(new PerpetualCache("default"));
+    ScheduledCache scheduledCache = new ScheduledCache(tinyLfuCache);
+    scheduledCache.setClearInterval(60000);
+    LoggingCache cache = new LoggingCache(scheduledCache);
+    cache.putObject(0, 0);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 10000; i++) {
+            assertThat(cache.getObject(0)).isEqualTo(0);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(cache.getRequestCount()).isEqualTo(80000);
+    assertThat(cache.getHitCount()).isEqualTo(80000);
+  }
+
+}
@@ -0,0 +1,168 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.apache.ibatis.BaseDataTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PooledStatementCacheTest extends BaseDataTest {
+
+  private static final String SQL = "SELECT NAME FROM PRODUCT WHERE PRODUCTID = ?";
+
+  private PooledDataSource ds;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    runScript(ds, JPETSTORE_DDL);
+    runScript(ds, JPETSTORE_DATA);
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolMaximumIdleConnections(1);
+    ds.setPoolMaximumCachedStatements(2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    ds.forceCloseAll();
+  }
+
+  @Test
+  void shouldReuseStatementAcrossConnectionCheckouts() throws Exception {
+    PreparedStatement first;
+    try (Connection connection = ds.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SQL)) {
+      assertThat(ps.getConnection()).isSameAs(connection);
+      assertThat(selectName(ps, "FI-SW-01")).isEqualTo("Angelfish");
+      first = ps.unwrap(PreparedStatement.class);
+    }
+    try (Connection connection = ds.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SQL)) {
+      assertThat(ps.unwrap(PreparedStatement.class)).isSameAs(first);
+      assertThat(selectName(ps, "FI-SW-02")).isEqualTo("Tiger Shark");
+    }
+    PoolState state = ds.getPoolState();
+    assertThat(state.getStatementCacheMissCount()).isEqualTo(1);
+    assertThat(state.getStatementCacheHitCount()).isEqualTo(1);
+    assertThat(state.getStatementCacheHitRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  void shouldCloseResultSetsWhenReturnedToCache() throws Exception {
+    ResultSet rs;
+    ResultSet keys;
+    PreparedStatement first;
+    try (Connection connection = ds.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SQL)) {
+      ps.setString(1, "FI-SW-01");
+      rs = ps.executeQuery();
+      assertThat(rs.next()).isTrue();
+      keys = ps.getGeneratedKeys();
+      first = ps.unwrap(PreparedStatement.class);
+    }
+    assertThat(rs.isClosed()).isTrue();
+    assertThat(keys.isClosed()).isTrue();
+    try (Connection connection = ds.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SQL)) {
+      assertThat(ps.unwrap(PreparedStatement.class)).isSameAs(first);
+      assertThat(selectName(ps, "FI-SW-02")).isEqualTo("Tiger Shark");
+    }
+  }
+
+  @Test
+  void shouldCloseCurrentResultSetOnEachExecute() throws Exception {
+    try (Connection connection = ds.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SQL)) {
+      ps.setString(1, "FI-SW-01");
+      ResultSet previous = ps.executeQuery();
+      for (int i = 0; i < 3; i++) {
+        ResultSet current = ps.executeQuery();
+        assertThat(previous.isClosed()).isTrue();
+        assertThat(current.next()).isTrue();
+        previous = current;
+      }
+      assertThat(previous.isClosed()).isFalse();
+      assertThat(ps.execute()).isTrue();
+      assertThat(previous.isClosed()).isTrue();
+    }
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedStatement() throws Exception {
+    try (Connection connection = ds.getConnection()) {
+      connection.prepareStatement("SELECT 1 FROM PRODUCT").close();
+      connection.prepareStatement("SELECT 2 FROM PRODUCT").close();
+      connection.prepareStatement("SELECT 1 FROM PRODUCT").close();
+      connection.prepareStatement("SELECT 3 FROM PRODUCT").close();
+      connection.prepareStatement("SELECT 1 FROM PRODUCT").close();
+      connection.prepareStatement("SELECT 2 FROM PRODUCT").close();
+    }
+    PoolState state = ds.getPoolState();
+    assertThat(state.getStatementCacheHitCount()).isEqualTo(2);
+    assertThat(state.getStatementCacheMissCount()).isEqualTo(4);
+    assertThat(state.getStatementCacheEvictionCount()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldNotCacheStatementClosingOnCompletion() throws Exception {
+    PreparedStatement real;
+    try (Connection connection = ds.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SQL)) {
+      ps.closeOnCompletion();
+      real = ps.unwrap(PreparedStatement.class);
+    }
+    assertThat(real.isClosed()).isTrue();
+    try (Connection connection = ds.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SQL)) {
+      assertThat(ps.unwrap(PreparedStatement.class)).isNotSameAs(real);
+    }
+    assertThat(ds.getPoolState().getStatementCacheHitCount()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldRestoreStatementDefaultsWhenReturnedToCache() throws Exception {
+    try (Connection connection = ds.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SQL)) {
+      ps.setMaxRows(1);
+      ps.setQueryTimeout(5);
+    }
+    try (Connection connection = ds.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SQL)) {
+      assertThat(ps.getMaxRows()).isEqualTo(0);
+      assertThat(ps.getQueryTimeout()).isEqualTo(0);
+      assertThat(ps.isClosed()).isFalse();
+      ps.close();
+      assertThat(ps.isClosed()).isTrue();
+    }
+    assertThat(ds.getPoolState().getStatementCacheHitCount()).isEqualTo(1);
+  }
+
+  private String selectName(PreparedStatement ps, String productId) throws Exception {
+    ps.setString(1, productId);
+    try (ResultSet rs = ps.executeQuery()) {
+      rs.next();
+      return rs.getString(1);
+    }
+  }
+
+}
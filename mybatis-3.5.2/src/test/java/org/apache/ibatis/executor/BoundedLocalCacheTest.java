@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class BoundedLocalCacheTest {
+
+  private final PerpetualCache outputParameters = new PerpetualCache("LocalOutputParameterCache");
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntry() {
+    BoundedLocalCache cache = new BoundedLocalCache("LocalCache", 2, 0, outputParameters);
+    cache.putObject("a", Collections.singletonList(1));
+    cache.putObject("b", Collections.singletonList(2));
+    cache.getObject("a");
+    cache.putObject("c", Collections.singletonList(3));
+    assertThat(cache.getSize()).isEqualTo(2);
+    assertThat(cache.getObject("a")).isNotNull();
+    assertThat(cache.getObject("b")).isNull();
+    assertThat(cache.getObject("c")).isNotNull();
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldEvictWhenEstimatedBytesExceedLimit() {
+    BoundedLocalCache cache = new BoundedLocalCache("LocalCache", 0, 4096, outputParameters);
+    cache.putObject("small", Collections.singletonList("x"));
+    long small = cache.getEstimatedBytes();
+    assertThat(small).isPositive();
+    cache.putObject("large", authors(100));
+    assertThat(cache.getObject("small")).isNull();
+    assertThat(cache.getObject("large")).isNull();
+    assertThat(cache.getEstimatedBytes()).isZero();
+    cache.putObject("medium", authors(2));
+    assertThat(cache.getObject("medium")).isNotNull();
+    assertThat(cache.getEstimatedBytes()).isBetween(1L, 4096L);
+  }
+
+  @Test
+  void shouldKeepRunningQueriesAndPinnedEntries() {
+    BoundedLocalCache cache = new BoundedLocalCache("LocalCache", 1, 0, outputParameters);
+    cache.putObject("running", EXECUTION_PLACEHOLDER);
+    cache.pin("deferred");
+    cache.putObject("deferred", Collections.singletonList(1));
+    cache.putObject("other", Collections.singletonList(2));
+    assertThat(cache.getObject("running")).isSameAs(EXECUTION_PLACEHOLDER);
+    assertThat(cache.getObject("deferred")).isNotNull();
+    assertThat(cache.getObject("other")).isNull();
+    cache.unpinAll();
+    assertThat(cache.getObject("deferred")).isNull();
+    assertThat(cache.getObject("running")).isSameAs(EXECUTION_PLACEHOLDER);
+  }
+
+  @Test
+  void shouldEvictOutputParametersWithResult() {
+    BoundedLocalCache cache = new BoundedLocalCache("LocalCache", 1, 0, outputParameters);
+    outputParameters.putObject("a", new Object());
+    cache.putObject("a", Collections.singletonList(1));
+    cache.putObject("b", Collections.singletonList(2));
+    assertThat(outputParameters.getObject("a")).isNull();
+  }
+
+  @Test
+  void shouldForgetSizesOnRemoveAndClear() {
+    BoundedLocalCache cache = new BoundedLocalCache("LocalCache", 0, 1 << 20, outputParameters);
+    cache.putObject("a", authors(3));
+    cache.putObject("b", authors(3));
+    cache.removeObject("a");
+    assertThat(cache.getEstimatedBytes()).isEqualTo(ResultSizeEstimator.estimate(authors(3)));
+    cache.clear();
+    assertThat(cache.getEstimatedBytes()).isZero();
+    assertThat(cache.getSize()).isZero();
+  }
+
+  @Test
+  void shouldEstimateLargerResultsAsLarger() {
+    long one = ResultSizeEstimator.estimate(authors(1));
+    long thousand = ResultSizeEstimator.estimate(authors(1000));
+    assertThat(one).isGreaterThan(ResultSizeEstimator.estimate(new ArrayList<>()));
+    assertThat(thousand).isBetween(one * 500, one * 2000);
+    assertThat(ResultSizeEstimator.estimate(Arrays.asList("abc", "abc"))).isPositive();
+  }
+
+  private static List<Author> authors(int count) {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      authors.add(new Author(i, "author" + i, "******", "author" + i + "@apache.org", "biography of author " + i, Section.NEWS));
+    }
+    return authors;
+  }
+
+}
@@ -0,0 +1,82 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class MultiRowInsertTest {
+
+  @Test
+  void shouldRepeatTheValuesGroup() {
+    MultiRowInsert insert = MultiRowInsert.parse("insert into t (a, b) values (?, lower(?))", 2);
+    assertEquals("insert into t (a, b) values (?, lower(?)), (?, lower(?)), (?, lower(?))", insert.getSql(3));
+    assertEquals(2, insert.getParametersPerRow());
+  }
+
+  @Test
+  void shouldKeepTheTextAfterTheValuesGroup() {
+    MultiRowInsert insert = MultiRowInsert.parse("INSERT INTO t (a) VALUES(?) ON CONFLICT DO NOTHING", 1);
+    assertEquals("INSERT INTO t (a) VALUES(?), (?) ON CONFLICT DO NOTHING", insert.getSql(2));
+  }
+
+  @Test
+  void shouldIgnoreQuotedText() {
+    MultiRowInsert insert = MultiRowInsert.parse("insert into \"values\" (a, b) values ('?)', ?)", 1);
+    assertEquals("insert into \"values\" (a, b) values ('?)', ?), ('?)', ?)", insert.getSql(2));
+  }
+
+  @Test
+  void shouldNotRewriteOtherStatements() {
+    assertNull(MultiRowInsert.parse("update t set a = ?", 1));
+    assertNull(MultiRowInsert.parse("insert into t (a) select a from s where b = ?", 1));
+    assertNull(MultiRowInsert.parse("insert into t (a) values (?), (?)", 2));
+    assertNull(MultiRowInsert.parse("insert into t (a) values (?) on duplicate key update a = ?", 2));
+    assertNull(MultiRowInsert.parse("insert into t (a) values (?, '", 1));
+    assertNull(MultiRowInsert.parse("insert into t (a) values (#{a})", 1));
+  }
+
+  @Test
+  void shouldLimitRowsByParameters() {
+    MultiRowInsert insert = MultiRowInsert.parse("insert into t (a, b, c) values (?, ?, ?)", 3);
+    assertEquals(666, insert.getRowsPerStatement(2000));
+    assertEquals(1, insert.getRowsPerStatement(2));
+    assertEquals(1000, insert.getRowsPerStatement(65535));
+    assertEquals(1000, MultiRowInsert.parse("insert into t (a) values (1)", 0).getRowsPerStatement(2000));
+  }
+
+  @Test
+  void shouldKnowTheParameterLimitsOfCommonDatabases() {
+    assertEquals(2100, MultiRowInsert.maxParameters("Microsoft SQL Server"));
+    assertEquals(32767, MultiRowInsert.maxParameters("PostgreSQL"));
+    assertEquals(999, MultiRowInsert.maxParameters("SQLite"));
+    assertEquals(2000, MultiRowInsert.maxParameters("HSQL Database Engine"));
+    assertEquals(2000, MultiRowInsert.maxParameters(null));
+  }
+
+  @Test
+  void shouldNotRewriteForOracleBefore23() {
+    assertFalse(MultiRowInsert.isSupported("Oracle", 19));
+    assertTrue(MultiRowInsert.isSupported("Oracle", 23));
+    assertTrue(MultiRowInsert.isSupported("PostgreSQL", 9));
+    assertTrue(MultiRowInsert.isSupported(null, 0));
+  }
+
+}
@@ -0,0 +1,193 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class QueryCoalescerTest {
+
+  private static final int WAITERS = 4;
+
+  private final QueryCoalescer coalescer = new QueryCoalescer();
+  private final Cache cache = new PerpetualCache("test");
+  private final CacheKey key = new CacheKey(new Object[] { "select", 1 });
+  private final AtomicInteger executions = new AtomicInteger();
+  private final ExecutorService threads = Executors.newFixedThreadPool(WAITERS + 1);
+
+  @AfterEach
+  void tearDown() {
+    threads.shutdownNow();
+  }
+
+  @Test
+  void shouldShareCopiesOfTheLeaderResult() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<List<String>>> results = runConcurrently(() -> {
+      await(release);
+      return new ArrayList<>(Collections.singletonList("row"));
+    }, release);
+
+    List<String> leaderResult = results.get(0).get(10, TimeUnit.SECONDS);
+    assertThat(executions).hasValue(1);
+    for (Future<List<String>> result : results) {
+      assertThat(result.get(10, TimeUnit.SECONDS)).containsExactly("row");
+      if (result != results.get(0)) {
+        assertThat(result.get()).isNotSameAs(leaderResult);
+      }
+    }
+  }
+
+  @Test
+  void shouldShareTheLeaderResultOfReadOnlyCaches() throws Exception {
+    coalescer.setReadOnly(cache.getId(), true);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<List<String>>> results = runConcurrently(() -> {
+      await(release);
+      return new ArrayList<>(Collections.singletonList("row"));
+    }, release);
+
+    List<String> leaderResult = results.get(0).get(10, TimeUnit.SECONDS);
+    assertThat(executions).hasValue(1);
+    for (Future<List<String>> result : results) {
+      assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(leaderResult);
+    }
+  }
+
+  @Test
+  void shouldRunTheQueryWhenTheLeaderFails() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<List<String>>> results = runConcurrently(() -> {
+      if (executions.get() == 1) {
+        await(release);
+        throw new SQLException("leader failed");
+      }
+      return Collections.singletonList("row");
+    }, release);
+
+    for (Future<List<String>> result : results.subList(1, results.size())) {
+      assertThat(result.get(10, TimeUnit.SECONDS)).containsExactly("row");
+    }
+    assertThat(executions).hasValue(WAITERS + 1);
+  }
+
+  @Test
+  void shouldHandTheLeaderVersionsToTheWaiters() throws Exception {
+    CountDownLatch leaderStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<List<String>> leader = threads.submit(() -> coalescer.query(cache, key, new long[] { 1 }, () -> {
+      executions.incrementAndGet();
+      leaderStarted.countDown();
+      await(release);
+      return Collections.singletonList("row");
+    }));
+    assertThat(leaderStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // 主查询开始后表被写过，等待者记录的版本更新
+    long[] waiterVersions = { 2 };
+    Thread[] waiter = new Thread[1];
+    Future<List<String>> waited = threads.submit(() -> {
+      waiter[0] = Thread.currentThread();
+      return coalescer.query(cache, key, waiterVersions, () -> {
+        executions.incrementAndGet();
+        return Collections.singletonList("own");
+      });
+    });
+    long deadline = System.currentTimeMillis() + 10000;
+    while (waiter[0] == null || waiter[0].getState() != Thread.State.WAITING) {
+      assertThat(System.currentTimeMillis()).isLessThan(deadline);
+      Thread.sleep(10);
+    }
+    release.countDown();
+
+    assertThat(leader.get(10, TimeUnit.SECONDS)).containsExactly("row");
+    assertThat(waited.get(10, TimeUnit.SECONDS)).containsExactly("row");
+    assertThat(waiterVersions).containsExactly(1);
+    assertThat(executions).hasValue(1);
+  }
+
+  @Test
+  void shouldNotWaitForItselfOnNestedQueries() throws Exception {
+    List<String> result = coalescer.query(cache, key, () -> {
+      executions.incrementAndGet();
+      return coalescer.query(cache, key, () -> {
+        executions.incrementAndGet();
+        return Collections.singletonList("nested");
+      });
+    });
+    assertThat(result).containsExactly("nested");
+    assertThat(executions).hasValue(2);
+  }
+
+  private List<Future<List<String>>> runConcurrently(Body body, CountDownLatch release) throws Exception {
+    CountDownLatch leaderStarted = new CountDownLatch(1);
+    List<Future<List<String>>> results = new ArrayList<>();
+    results.add(threads.submit(() -> coalescer.query(cache, key, () -> {
+      executions.incrementAndGet();
+      leaderStarted.countDown();
+      return body.run();
+    })));
+    assertThat(leaderStarted.await(10, TimeUnit.SECONDS)).isTrue();
+    List<Thread> waiters = Collections.synchronizedList(new ArrayList<>());
+    for (int i = 0; i < WAITERS; i++) {
+      results.add(threads.submit(() -> {
+        waiters.add(Thread.currentThread());
+        return coalescer.query(cache, key, () -> {
+          executions.incrementAndGet();
+          return body.run();
+        });
+      }));
+    }
+    // 等所有等待者都阻塞在领头查询上再放行
+    long deadline = System.currentTimeMillis() + 10000;
+    while (waiters.size() < WAITERS || waiters.stream().anyMatch(t -> t.getState() != Thread.State.WAITING)) {
+      assertThat(System.currentTimeMillis()).isLessThan(deadline);
+      Thread.sleep(10);
+    }
+    release.countDown();
+    return results;
+  }
+
+  @FunctionalInterface
+  private interface Body {
+    List<String> run() throws SQLException;
+  }
+
+  private static void await(CountDownLatch latch) throws SQLException {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new SQLException(e);
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.mapping.ResultFlag;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class ConstructorMappingPlanTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldCreateObjectsWithTheBoundConstructor() {
+    ConstructorMappingPlan plan = plan(new DefaultObjectFactory());
+    Object[] args = {7L, "seven"};
+    Point point = (Point) plan.newInstance(new DefaultObjectFactory(), args);
+    assertEquals(7L, point.x);
+    assertEquals("seven", point.label);
+    point = (Point) plan.newInstance(new DefaultObjectFactory(), new Object[] {8L, null});
+    assertEquals(8L, point.x);
+    assertEquals(null, point.label);
+  }
+
+  @Test
+  void shouldConvertArgumentsLikeTheObjectFactory() {
+    ConstructorMappingPlan plan = plan(new DefaultObjectFactory());
+    Point point = (Point) plan.newInstance(new DefaultObjectFactory(), new Object[] {7, "seven"});
+    assertEquals(7L, point.x);
+    ReflectionException e = assertThrows(ReflectionException.class,
+        () -> plan.newInstance(new DefaultObjectFactory(), new Object[] {null, "seven"}));
+    assertTrue(e.getMessage().startsWith("Error instantiating class " + Point.class.getName() + " with invalid types (long,String)"));
+  }
+
+  @Test
+  void shouldReportConstructorFailuresLikeTheObjectFactory() {
+    ConstructorMappingPlan plan = plan(new DefaultObjectFactory());
+    ReflectionException e = assertThrows(ReflectionException.class,
+        () -> plan.newInstance(new DefaultObjectFactory(), new Object[] {-1L, "minus one"}));
+    assertEquals("Error instantiating class " + Point.class.getName() + " with invalid types (long,String) or values (-1,minus one)."
+        + " Cause: java.lang.reflect.InvocationTargetException", e.getMessage());
+    assertTrue(e.getCause().getCause() instanceof IllegalArgumentException);
+  }
+
+  @Test
+  void shouldPassACopyOfTheArgumentsToOtherObjectFactories() {
+    List<List<Object>> calls = new ArrayList<>();
+    ObjectFactory objectFactory = new DefaultObjectFactory() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public <T> T create(Class<T> type, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
+        assertEquals(Arrays.asList(long.class, String.class), constructorArgTypes);
+        calls.add(constructorArgs);
+        return super.create(type, constructorArgTypes, constructorArgs);
+      }
+    };
+    ConstructorMappingPlan plan = plan(objectFactory);
+    Object[] args = {1L, "one"};
+    Point first = (Point) plan.newInstance(objectFactory, args);
+    args[0] = 2L;
+    args[1] = "two";
+    Point second = (Point) plan.newInstance(objectFactory, args);
+    assertNotSame(first, second);
+    assertEquals(Arrays.asList(1L, "one"), calls.get(0));
+    assertEquals(Arrays.asList(2L, "two"), calls.get(1));
+    assertEquals(1L, first.x);
+  }
+
+  @Test
+  void shouldMatchResultMapAndPrefix() {
+    ResultMap resultMap = resultMap();
+    ConstructorMappingPlan plan = ConstructorMappingPlan.notApplicable(resultMap, "P_");
+    assertTrue(plan.isFor(resultMap, "P_"));
+    assertTrue(!plan.isFor(resultMap, null));
+    assertTrue(!plan.isApplicable());
+    assertSame(resultMap, plan.getResultMap());
+  }
+
+  private ConstructorMappingPlan plan(ObjectFactory objectFactory) {
+    ResultSetWrapper rsw = mock(ResultSetWrapper.class);
+    return ConstructorMappingPlan.forConstructorMappings(rsw, resultMap(), null, objectFactory);
+  }
+
+  private ResultMap resultMap() {
+    List<ResultMapping> mappings = new ArrayList<>();
+    mappings.add(new ResultMapping.Builder(configuration, null, "x", long.class)
+        .flags(Arrays.asList(ResultFlag.CONSTRUCTOR)).build());
+    mappings.add(new ResultMapping.Builder(configuration, null, "label", String.class)
+        .flags(Arrays.asList(ResultFlag.CONSTRUCTOR)).build());
+    return new ResultMap.Builder(configuration, "point", Point.class, mappings).build();
+  }
+
+  static final class Point {
+    private final long x;
+    private final String label;
+
+    private Point(long x, String label) {
+      if (x < 0) {
+        throw new IllegalArgumentException("negative");
+      }
+      this.x = x;
+      this.label = label;
+    }
+  }
+
+}
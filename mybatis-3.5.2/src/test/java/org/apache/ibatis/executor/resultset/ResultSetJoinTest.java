@@ -0,0 +1,106 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class ResultSetJoinTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldLinkChildrenToParentsWithTheSameKey() throws SQLException {
+    ResultSetJoin join = new ResultSetJoin(mapping("id,kind", "parent_id,parent_kind"));
+    ResultSet parents = resultSet("id", "kind");
+    ResultSet children = resultSet("parent_id", "parent_kind");
+    MetaObject first = configuration.newMetaObject(new Object());
+    MetaObject second = configuration.newMetaObject(new Object());
+    MetaObject other = configuration.newMetaObject(new Object());
+
+    row(parents, 1, "a");
+    join.addParent(parents, first);
+    row(parents, 2, "a");
+    join.addParent(parents, other);
+    row(parents, 1, "a");
+    join.addParent(parents, second);
+
+    row(children, 1L, "a");
+    ResultSetJoin.Parent parent = join.findParents(children);
+    assertSame(first, parent.metaObject);
+    assertSame(second, parent.next.metaObject);
+    assertNull(parent.next.next);
+
+    row(children, new BigDecimal("2.00"), "a");
+    assertSame(other, join.findParents(children).metaObject);
+    row(children, 2, "b");
+    assertNull(join.findParents(children));
+    row(children, 1, null);
+    assertNull(join.findParents(children));
+
+    // column indexes are looked up once per result set
+    verify(parents, times(1)).findColumn("id");
+    verify(children, times(1)).findColumn("parent_id");
+  }
+
+  @Test
+  void shouldMatchRowsWithNullKeyColumnsAtTheSamePositions() throws SQLException {
+    ResultSetJoin join = new ResultSetJoin(mapping("id,kind", "parent_id,parent_kind"));
+    ResultSet parents = resultSet("id", "kind");
+    ResultSet children = resultSet("parent_id", "parent_kind");
+    MetaObject parent = configuration.newMetaObject(new Object());
+
+    row(parents, null, "a");
+    join.addParent(parents, parent);
+    row(children, null, "a");
+    assertSame(parent, join.findParents(children).metaObject);
+    row(children, "a", null);
+    assertNull(join.findParents(children));
+  }
+
+  private ResultMapping mapping(String column, String foreignColumn) {
+    return new ResultMapping.Builder(configuration, "children").column(column).foreignColumn(foreignColumn)
+        .nestedResultMapId("child").resultSet("children").build();
+  }
+
+  private ResultSet resultSet(String... columns) throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    for (int i = 0; i < columns.length; i++) {
+      when(rs.findColumn(columns[i])).thenReturn(i + 1);
+    }
+    return rs;
+  }
+
+  private void row(ResultSet rs, Object... values) throws SQLException {
+    for (int i = 0; i < values.length; i++) {
+      when(rs.getObject(i + 1)).thenReturn(values[i]);
+    }
+  }
+
+}
@@ -0,0 +1,132 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.ObjectTypeHandler;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.junit.jupiter.api.Test;
+
+class ResultSetWrapperTest {
+
+  private ResultSetWrapper createWrapper() throws SQLException {
+    return new ResultSetWrapper(createResultSet(), new Configuration());
+  }
+
+  private ResultSet createResultSet() throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(3);
+    when(rsmd.getColumnLabel(1)).thenReturn("id");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getName());
+    when(rsmd.getColumnLabel(2)).thenReturn("Name");
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(2)).thenReturn(String.class.getName());
+    when(rsmd.getColumnLabel(3)).thenReturn("ID");
+    when(rsmd.getColumnType(3)).thenReturn(Types.BIGINT);
+    when(rsmd.getColumnClassName(3)).thenReturn(Long.class.getName());
+    return rs;
+  }
+
+  @Test
+  void shouldFindFirstColumnIgnoringCase() throws SQLException {
+    ResultSetWrapper rsw = createWrapper();
+    assertEquals(1, rsw.findColumnIndex("id"));
+    assertEquals(1, rsw.findColumnIndex("ID"));
+    assertEquals(2, rsw.findColumnIndex("name"));
+    assertEquals(2, rsw.findColumnIndex("Name"));
+    assertEquals(0, rsw.findColumnIndex("missing"));
+    assertEquals(0, rsw.findColumnIndex(null));
+    assertEquals(JdbcType.INTEGER, rsw.getJdbcType("ID"));
+    assertEquals(JdbcType.BIGINT, rsw.getJdbcType(3));
+    assertNull(rsw.getJdbcType("missing"));
+  }
+
+  @Test
+  void shouldResolveTypeHandlersByIndexOnce() throws SQLException {
+    ResultSetWrapper rsw = createWrapper();
+    TypeHandler<?> handler = rsw.getTypeHandler(Object.class, 2);
+    assertTrue(handler instanceof StringTypeHandler);
+    assertSame(handler, rsw.getTypeHandler(Object.class, "NAME"));
+    assertTrue(rsw.getTypeHandler(Integer.class, "id") instanceof IntegerTypeHandler);
+    assertTrue(rsw.getTypeHandler(Object.class, "missing") instanceof ObjectTypeHandler);
+  }
+
+  @Test
+  void shouldShareColumnMetadataOfTheSameStatementAndColumns() throws SQLException {
+    Configuration configuration = new Configuration();
+    ResultSetWrapper first = new ResultSetWrapper(createResultSet(), configuration, "statement");
+    TypeHandler<?> handler = first.getTypeHandler(Object.class, "id");
+    assertEquals(1, configuration.getResultSetMetadataCache().getSize());
+
+    ResultSetWrapper second = new ResultSetWrapper(createResultSet(), configuration, "statement");
+    assertSame(first.getColumnNames(), second.getColumnNames());
+    assertSame(handler, second.getTypeHandler(Object.class, "id"));
+
+    ResultSetWrapper other = new ResultSetWrapper(createResultSet(), configuration, "other");
+    assertNotSame(first.getColumnNames(), other.getColumnNames());
+    assertEquals(2, configuration.getResultSetMetadataCache().getSize());
+
+    ResultSet changed = createResultSet();
+    when(changed.getMetaData().getColumnType(3)).thenReturn(Types.VARCHAR);
+    assertNotSame(first.getColumnNames(), new ResultSetWrapper(changed, configuration, "statement").getColumnNames());
+    assertEquals(3, configuration.getResultSetMetadataCache().getSize());
+  }
+
+  @Test
+  void shouldClearColumnMetadataWhenConfigurationChanges() throws SQLException {
+    Configuration configuration = new Configuration();
+    new ResultSetWrapper(createResultSet(), configuration, "statement");
+    assertEquals(1, configuration.getResultSetMetadataCache().getSize());
+    configuration.setMapUnderscoreToCamelCase(true);
+    assertEquals(0, configuration.getResultSetMetadataCache().getSize());
+  }
+
+  @Test
+  void shouldBoundColumnMetadataCache() throws SQLException {
+    Configuration configuration = new Configuration();
+    configuration.setResultSetMetadataCacheSize(2);
+    for (int i = 0; i < 5; i++) {
+      new ResultSetWrapper(createResultSet(), configuration, "statement" + i);
+    }
+    assertEquals(2, configuration.getResultSetMetadataCache().getSize());
+
+    configuration.setResultSetMetadataCacheSize(0);
+    ResultSetWrapper first = new ResultSetWrapper(createResultSet(), configuration, "statement");
+    ResultSetWrapper second = new ResultSetWrapper(createResultSet(), configuration, "statement");
+    assertNotSame(first.getColumnNames(), second.getColumnNames());
+    assertEquals(0, configuration.getResultSetMetadataCache().getSize());
+  }
+
+}
@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.executor.resultset.RowMappingPlan.ColumnMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.LongTypeHandler;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.junit.jupiter.api.Test;
+
+class RowKeyPlanTest {
+
+  private final Configuration configuration = new Configuration();
+  private final ResultMap resultMap = new ResultMap.Builder(configuration, "map", Object.class, Collections.emptyList()).build();
+  private final RowKey.Builder builder = new RowKey.Builder();
+
+  @Test
+  void shouldReadMappedKeyColumnsByIndex() throws Exception {
+    ResultSetWrapper rsw = mock(ResultSetWrapper.class);
+    when(rsw.canReadByIndex(any())).thenReturn(true);
+    when(rsw.findColumnIndex("P_ID")).thenReturn(3);
+    when(rsw.findColumnIndex("P_NAME")).thenReturn(1);
+    List<ColumnMapping> columns = new ArrayList<>();
+    columns.add(new ColumnMapping(rsw, "P_ID", null, new LongTypeHandler(), false));
+    columns.add(new ColumnMapping(rsw, "P_NAME", null, new StringTypeHandler(), false));
+    RowKeyPlan plan = RowKeyPlan.forColumns(resultMap, "P_", columns, false);
+
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getLong(3)).thenReturn(7L);
+    when(rs.getString(1)).thenReturn(null);
+    when(rs.wasNull()).thenReturn(true);
+    builder.reset();
+    plan.addColumns(rs, builder);
+
+    assertEquals(key("P_", 7L, null), builder.build("map", "P_"));
+    verify(rs, never()).getLong(anyString());
+    verify(rs, never()).getString(anyString());
+  }
+
+  @Test
+  void shouldReadStringKeyColumnsByIndex() throws Exception {
+    RowKeyPlan plan = RowKeyPlan.forStringColumns(resultMap, null, Arrays.asList(2, 1));
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getString(2)).thenReturn("b");
+    when(rs.getString(1)).thenReturn("a");
+    builder.reset();
+    plan.addColumns(rs, builder);
+
+    assertEquals(key(null, "b", "a"), builder.build("map", null));
+    verify(rs, never()).getString(anyString());
+  }
+
+  @Test
+  void shouldMatchResultMapAndPrefix() {
+    RowKeyPlan plan = RowKeyPlan.forStringColumns(resultMap, "P_", Collections.emptyList());
+    assertTrue(plan.isFor(resultMap, "P_"));
+    assertFalse(plan.isFor(resultMap, null));
+    assertFalse(plan.isFor(new ResultMap.Builder(configuration, "map", Object.class, Collections.emptyList()).build(), "P_"));
+  }
+
+  private RowKey key(String columnPrefix, Object... values) {
+    final RowKey.Builder expected = new RowKey.Builder();
+    expected.reset();
+    for (Object value : values) {
+      if (value == null) {
+        expected.skip();
+      } else {
+        expected.add(value);
+      }
+    }
+    return expected.build("map", columnPrefix);
+  }
+
+}
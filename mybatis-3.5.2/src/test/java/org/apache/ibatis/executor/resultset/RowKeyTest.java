@@ -0,0 +1,77 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class RowKeyTest {
+
+  private final RowKey.Builder builder = new RowKey.Builder();
+
+  private RowKey key(String resultMapId, String columnPrefix, Object... values) {
+    builder.reset();
+    for (Object value : values) {
+      if (value == null) {
+        builder.skip();
+      } else {
+        builder.add(value);
+      }
+    }
+    return builder.build(resultMapId, columnPrefix);
+  }
+
+  @Test
+  void shouldCompareNumericKeys() {
+    assertEquals(key("map", null, 1L, 2), key("map", null, 1L, 2));
+    assertEquals(key("map", null, 1L, 2).hashCode(), key("map", null, 1L, 2).hashCode());
+    assertNotEquals(key("map", null, 1L, 2), key("map", null, 1L, 2L));
+    assertNotEquals(key("map", null, 1L), key("other", null, 1L));
+    assertNotEquals(key("map", null, 1L), key("map", "P_", 1L));
+  }
+
+  @Test
+  void shouldCompareOtherKeys() {
+    assertEquals(key("map", null, "a", new byte[] {1, 2}), key("map", null, "a", new byte[] {1, 2}));
+    assertNotEquals(key("map", null, "a", new byte[] {1, 2}), key("map", null, "a", new byte[] {1, 3}));
+    assertNotEquals(key("map", null, "1", null), key("map", null, null, "1"));
+    assertNotEquals(key("map", null, 1L, null), key("map", null, null, 1L));
+  }
+
+  @Test
+  void shouldReturnNullKeyWhenNoColumnHasAValue() {
+    assertSame(RowKey.NULL_ROW_KEY, key("map", null));
+    assertSame(RowKey.NULL_ROW_KEY, key("map", null, (Object) null));
+    builder.reset();
+    builder.add(null);
+    assertNotEquals(RowKey.NULL_ROW_KEY, builder.build("map", null));
+  }
+
+  @Test
+  void shouldCombineWithParentKey() {
+    RowKey parent = key("parent", null, 1L);
+    RowKey child = key("child", null, 10L);
+    assertEquals(child.combine(parent), key("child", null, 10L).combine(key("parent", null, 1L)));
+    assertNotEquals(child.combine(parent), child);
+    assertNotEquals(child.combine(parent), child.combine(key("parent", null, 2L)));
+    assertSame(RowKey.NULL_ROW_KEY, child.combine(RowKey.NULL_ROW_KEY));
+    assertSame(RowKey.NULL_ROW_KEY, RowKey.NULL_ROW_KEY.combine(parent));
+  }
+
+}
@@ -0,0 +1,157 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.junit.jupiter.api.Test;
+
+class RowMapTest {
+
+  @Test
+  void shouldBehaveLikeHashMap() {
+    RowMap.Schema schema = new RowMap.Schema();
+    Map<String, Object> row = schema.newRow();
+    Map<String, Object> expected = new HashMap<>();
+    for (Map<String, Object> map : Arrays.asList(row, expected)) {
+      assertNull(map.put("id", 1));
+      assertNull(map.put("name", null));
+      assertEquals(1, map.put("id", 2));
+      map.put("code", "c");
+      assertEquals("c", map.remove("code"));
+      assertNull(map.remove("code"));
+    }
+    assertEquals(expected, row);
+    assertEquals(row, expected);
+    assertEquals(expected.hashCode(), row.hashCode());
+    assertEquals(2, row.size());
+    assertTrue(row.containsKey("name"));
+    assertFalse(row.containsKey("code"));
+    assertFalse(row.containsKey("missing"));
+    assertThat(row.keySet()).containsExactly("id", "name");
+    assertThat(row.values()).containsExactly(2, null);
+  }
+
+  @Test
+  void shouldShareSlotsAcrossRows() {
+    RowMap.Schema schema = new RowMap.Schema();
+    Map<String, Object> first = schema.newRow();
+    first.put("id", 1);
+    first.put("name", "a");
+    Map<String, Object> second = schema.newRow();
+    second.put("name", "b");
+    second.put("extra", true);
+    assertEquals(0, schema.slotOf("id"));
+    assertEquals(1, schema.slotOf("name"));
+    assertEquals(2, schema.slotOf("extra"));
+    assertThat(second.keySet()).containsExactly("name", "extra");
+    assertFalse(first.containsKey("extra"));
+    assertNull(first.get("extra"));
+    first.put("extra", false);
+    assertEquals(false, first.get("extra"));
+  }
+
+  @Test
+  void shouldWriteThroughEntriesAndIterator() {
+    Map<String, Object> row = new RowMap.Schema().newRow();
+    row.put("a", 1);
+    row.put("b", 2);
+    row.put("c", 3);
+    for (Map.Entry<String, Object> entry : row.entrySet()) {
+      entry.setValue((Integer) entry.getValue() * 10);
+    }
+    Iterator<String> keys = row.keySet().iterator();
+    while (keys.hasNext()) {
+      if (keys.next().equals("b")) {
+        keys.remove();
+      }
+    }
+    assertEquals(2, row.size());
+    assertEquals(10, row.get("a"));
+    assertEquals(30, row.get("c"));
+    row.clear();
+    assertTrue(row.isEmpty());
+    assertFalse(row.entrySet().iterator().hasNext());
+  }
+
+  @Test
+  void shouldWorkThroughMapWrapper() {
+    Map<String, Object> row = new RowMap.Schema().newRow();
+    MetaObject metaObject = SystemMetaObject.forObject(row);
+    metaObject.setValue("id", 1);
+    metaObject.setValue("address.city", "Tokyo");
+    assertEquals(1, metaObject.getValue("id"));
+    assertEquals("Tokyo", metaObject.getValue("address.city"));
+    assertTrue(metaObject.hasGetter("id"));
+    assertThat(metaObject.getGetterNames()).containsExactly("id", "address");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldKeepSharedSchemaWhenSerialized() throws Exception {
+    RowMap.Schema schema = new RowMap.Schema();
+    Map<String, Object> first = schema.newRow();
+    first.put("id", 1);
+    Map<String, Object> second = schema.newRow();
+    second.put("id", 2);
+    second.put("name", null);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(Arrays.asList(first, second));
+    }
+    List<Map<String, Object>> rows;
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      rows = (List<Map<String, Object>>) in.readObject();
+    }
+    assertEquals(first, rows.get(0));
+    assertEquals(second, rows.get(1));
+    assertFalse(rows.get(0).containsKey("name"));
+    rows.get(0).put("added", "x");
+    assertThat(rows.get(1).keySet()).containsExactly("id", "name");
+    assertSame(rows.get(0).getClass(), RowMap.class);
+  }
+
+  @Test
+  void shouldOnlyReplaceMapsOfTheDefaultObjectFactory() {
+    ObjectFactory custom = new DefaultObjectFactory() {
+      private static final long serialVersionUID = 1L;
+    };
+    assertTrue(RowMap.appliesTo(Map.class, new DefaultObjectFactory()));
+    assertFalse(RowMap.appliesTo(HashMap.class, new DefaultObjectFactory()));
+    assertFalse(RowMap.appliesTo(Map.class, custom));
+  }
+
+}
@@ -18,11 +18,18 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
+import java.util.Properties;
 
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
 import static org.assertj.core.api.BDDAssertions.then;
@@ -43,6 +50,95 @@ class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  void testConcurrentEvictionIsNotSynchronized() {
+    Cache cache = new CacheBuilder("test").addDecorator(TinyLfuCache.class).size(10).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(cache)).isInstanceOf(TinyLfuCache.class);
+  }
+
+  @Test
+  void testExpiryIsBeneathEvictionPolicy() {
+    Cache cache = new CacheBuilder("test").timeToLive(60000L).size(2).build();
+    Cache lruCache = unwrap(unwrap(cache));
+    Assertions.assertThat(lruCache).isInstanceOf(LruCache.class);
+    Assertions.assertThat((Cache) unwrap(lruCache)).isInstanceOf(ExpiringCache.class);
+
+    cache.putObject("a", "value");
+    cache.putObject("b", "value");
+    cache.putObject("c", "value");
+
+    Assertions.assertThat(cache.getObject("a")).isNull();
+    Assertions.assertThat(cache.getTimeToLive("a")).isEqualTo(-1L);
+    Assertions.assertThat(cache.getTimeToLive("c")).isBetween(59000L, 60000L);
+  }
+
+  @Test
+  void testConcurrentEvictionForgetsExpiry() {
+    Cache cache = new CacheBuilder("test").addDecorator(TinyLfuCache.class).timeToLive(60000L).size(10).build();
+    Cache expiringCache = unwrap(cache);
+    Assertions.assertThat(expiringCache).isInstanceOf(ExpiringCache.class);
+
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, "value");
+    }
+
+    int expiring = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (cache.getTimeToLive(i) >= 0) {
+        expiring++;
+      }
+    }
+    Assertions.assertThat(expiring).isLessThanOrEqualTo(cache.getSize());
+  }
+
+  @Test
+  void testNoExpiryWithoutTimeToLive() {
+    Cache cache = new CacheBuilder("test").build();
+
+    Assertions.assertThat((Cache) unwrap(unwrap(unwrap(cache)))).isInstanceOf(PerpetualCache.class);
+  }
+
+  @Test
+  void testTimeToLiveOnCustomCacheWithoutExpiry() {
+    when(new CacheBuilder("test").implementation(InitializingCache.class).timeToLive(1000L)).build();
+    then(caughtException()).isInstanceOf(CacheException.class)
+      .hasMessageContaining("does not expire entries individually");
+  }
+
+  @Test
+  void testTimeToLive() {
+    Cache cache = new CacheBuilder("test").timeToLive(60000L).readWrite(true).build();
+    cache.putObject("default", "value");
+    cache.putObject("statement", "value", 1000, -1);
+    cache.putObject("forever", "value", 0, -1);
+
+    Assertions.assertThat(cache.getTimeToLive("default")).isBetween(59000L, 60000L);
+    Assertions.assertThat(cache.getTimeToLive("statement")).isBetween(0L, 1000L);
+    Assertions.assertThat(cache.getTimeToLive("forever")).isEqualTo(-1L);
+  }
+
+  @Test
+  void testEvictionIsSynchronized() {
+    Cache cache = new CacheBuilder("test").addDecorator(LruCache.class).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
+  @Test
+  void testOffHeapCacheProperties() {
+    Properties properties = new Properties();
+    properties.setProperty("capacity", "1048576");
+    properties.setProperty("slabSize", "65536");
+    Cache cache = new CacheBuilder("test").implementation(OffHeapCache.class).properties(properties).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    OffHeapCache offHeapCache = unwrap(cache);
+    Assertions.assertThat(offHeapCache.getCapacity()).isEqualTo(1048576L);
+    Assertions.assertThat(offHeapCache.getSlabSize()).isEqualTo(65536);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache) {
     Field field;
@@ -0,0 +1,80 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.junit.jupiter.api.Test;
+
+class ReplicaSetTest {
+
+  private final DataSource first = new UnpooledDataSource();
+  private final DataSource second = new UnpooledDataSource();
+  private final DataSource third = new UnpooledDataSource();
+
+  @Test
+  void shouldSelectInTurn() {
+    ReplicaSet replicaSet = new ReplicaSet(Arrays.asList(first, second, third), ReplicaSelection.ROUND_ROBIN);
+    assertThat(replicaSet.select()).isEqualTo(0);
+    assertThat(replicaSet.select()).isEqualTo(1);
+    assertThat(replicaSet.select()).isEqualTo(2);
+    assertThat(replicaSet.select()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldIgnoreInFlightWhenSelectingInTurn() {
+    ReplicaSet replicaSet = new ReplicaSet(Arrays.asList(first, second), null);
+    replicaSet.begin(0);
+    assertThat(replicaSet.getSelection()).isEqualTo(ReplicaSelection.ROUND_ROBIN);
+    assertThat(replicaSet.select()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldSelectLeastInFlight() {
+    ReplicaSet replicaSet = new ReplicaSet(Arrays.asList(first, second, third), ReplicaSelection.LEAST_IN_FLIGHT);
+    replicaSet.begin(0);
+    replicaSet.begin(0);
+    replicaSet.begin(1);
+    assertThat(replicaSet.select()).isEqualTo(2);
+    replicaSet.begin(2);
+    replicaSet.begin(2);
+    assertThat(replicaSet.select()).isEqualTo(1);
+    replicaSet.end(0);
+    replicaSet.end(0);
+    assertThat(replicaSet.getInFlight(0)).isZero();
+    assertThat(replicaSet.select()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldSpreadTiesOverAllReplicas() {
+    ReplicaSet replicaSet = new ReplicaSet(Arrays.asList(first, second), ReplicaSelection.LEAST_IN_FLIGHT);
+    assertThat(replicaSet.select()).isEqualTo(0);
+    assertThat(replicaSet.select()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRejectEmptyReplicas() {
+    assertThrows(IllegalArgumentException.class, () -> new ReplicaSet(Collections.emptyList(), null));
+  }
+
+}
@@ -0,0 +1,67 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SqlTablesTest {
+
+  @Test
+  void shouldFindTablesOfSelects() {
+    assertThat(SqlTables.extract("select * from users where id = ?")).containsExactly("users");
+    assertThat(SqlTables.extract("SELECT u.name, r.name FROM app.Users u, \"Roles\" AS r WHERE u.role_id = r.id"))
+        .containsExactly("users", "roles");
+    assertThat(SqlTables.extract("select * from users u left outer join orders o on o.user_id = u.id"
+        + " join [items] i using (order_id) where exists (select 1 from audit a where a.id = u.id) for update"))
+        .containsExactly("users", "orders", "items", "audit");
+    assertThat(SqlTables.extract("select * from (select * from users) x, roles r where x.role = r.id"))
+        .containsExactlyInAnyOrder("users", "roles");
+  }
+
+  @Test
+  void shouldFindTablesOfWrites() {
+    assertThat(SqlTables.extract("insert into users (id, name) values (?, ?)")).containsExactly("users");
+    assertThat(SqlTables.extract("INSERT INTO archive SELECT * FROM orders WHERE status = 'from x'"))
+        .containsExactly("archive", "orders");
+    assertThat(SqlTables.extract("update users set name = ? where id = ?")).containsExactly("users");
+    assertThat(SqlTables.extract("delete from `users` where id = ?")).containsExactly("users");
+    assertThat(SqlTables.extract("insert into counters (id, hits) values (?, 1) on duplicate key update hits = hits + 1"))
+        .containsExactly("counters");
+  }
+
+  @Test
+  void shouldIgnoreLiteralsAndComments() {
+    assertThat(SqlTables.extract("select 'from secrets' as s /* from hidden */ from users -- from other\n where 1 = 1"))
+        .containsExactly("users");
+  }
+
+  @Test
+  void shouldGiveUpWhenTablesAreNotNamed() {
+    assertThat(SqlTables.extract("select * from table_function(?)")).isEmpty();
+    assertThat(SqlTables.extract("select * from (users u join roles r on u.role_id = r.id)")).isEmpty();
+    assertThat(SqlTables.extract("{call refresh_users(?)}")).isEmpty();
+    assertThat(SqlTables.extract("call refresh_users(?)")).isEmpty();
+  }
+
+  @Test
+  void shouldNormalizeNames() {
+    assertThat(SqlTables.normalize(" Sales.\"Orders\" ")).isEqualTo("orders");
+    assertThat(SqlTables.normalize("[dbo].[Users]")).isEqualTo("users");
+  }
+
+}
@@ -18,8 +18,13 @@ package org.apache.ibatis.reflection;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
+import org.apache.ibatis.reflection.invoker.GetFieldHandleInvoker;
+import org.apache.ibatis.reflection.invoker.MethodHandleInvoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldHandleInvoker;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
@@ -218,4 +223,65 @@ class ReflectorTest {
     Reflector reflector = reflectorFactory.findForClass(Bean.class);
     assertTrue((Boolean)reflector.getGetInvoker("bool").invoke(new Bean(), new Byte[0]));
   }
+
+  @Test
+  void shouldBindGettersAndSettersToMethodHandles() throws Exception {
+    @SuppressWarnings("unused")
+    class Bean {
+      private long id;
+      private String name;
+      public long getId() {return id;}
+      public void setId(long id) {this.id = id;}
+    }
+    Reflector reflector = new DefaultReflectorFactory().findForClass(Bean.class);
+    assertTrue(reflector.getGetInvoker("id") instanceof MethodHandleInvoker);
+    assertTrue(reflector.getSetInvoker("id") instanceof MethodHandleInvoker);
+    assertTrue(reflector.getGetInvoker("name") instanceof GetFieldHandleInvoker);
+    assertTrue(reflector.getSetInvoker("name") instanceof SetFieldHandleInvoker);
+
+    Bean bean = new Bean();
+    reflector.getSetInvoker("id").invoke(bean, new Object[] {10L});
+    reflector.getSetInvoker("name").invoke(bean, new Object[] {"foo"});
+    assertEquals(10L, reflector.getGetInvoker("id").invoke(bean, new Object[0]));
+    assertEquals("foo", reflector.getGetInvoker("name").invoke(bean, new Object[0]));
+  }
+
+  @Test
+  void shouldMethodHandleInvokersBehaveLikeReflection() throws Exception {
+    @SuppressWarnings("unused")
+    class Bean {
+      private long id;
+      private int count;
+      public void setId(long id) {this.id = id;}
+      public String getFailure() {throw new IllegalStateException("failure");}
+    }
+    Reflector reflector = new DefaultReflectorFactory().findForClass(Bean.class);
+    Bean bean = new Bean();
+
+    // widening conversions are left to the reflective path
+    reflector.getSetInvoker("id").invoke(bean, new Object[] {3});
+    assertEquals(3L, bean.id);
+    reflector.getSetInvoker("count").invoke(bean, new Object[] {(short) 4});
+    assertEquals(4, bean.count);
+
+    assertThrows(IllegalArgumentException.class, () -> reflector.getSetInvoker("id").invoke(bean, new Object[] {null}));
+    assertThrows(IllegalArgumentException.class, () -> reflector.getSetInvoker("count").invoke(bean, new Object[] {"5"}));
+
+    InvocationTargetException e = assertThrows(InvocationTargetException.class,
+      () -> reflector.getGetInvoker("failure").invoke(bean, new Object[0]));
+    assertTrue(e.getCause() instanceof IllegalStateException);
+  }
+
+  @Test
+  void shouldUseReflectionWhenMethodHandlesAreDisabled() throws Exception {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setMethodHandleEnabled(false);
+    Reflector reflector = reflectorFactory.findForClass(Section.class);
+    assertFalse(reflector.getGetInvoker("id") instanceof MethodHandleInvoker);
+    assertTrue(reflector.getGetInvoker("id") instanceof MethodInvoker);
+
+    Section section = new Section();
+    reflector.getSetInvoker("id").invoke(section, new Object[] {1L});
+    assertEquals(1L, reflector.getGetInvoker("id").invoke(section, new Object[0]));
+  }
 }
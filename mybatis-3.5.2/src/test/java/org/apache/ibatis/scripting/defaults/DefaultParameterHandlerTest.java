@@ -36,6 +36,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -70,6 +71,27 @@ class DefaultParameterHandlerTest {
 
   }
 
+  @Test
+  void setParametersShiftsIndexesByOffset() throws SQLException {
+    final MappedStatement mappedStatement = getMappedStatement();
+    final Configuration config = mappedStatement.getConfiguration();
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final BoundSql boundSql = mock(BoundSql.class);
+    List<ParameterMapping> parameterMappings = new ArrayList<>();
+    parameterMappings.add(new ParameterMapping.Builder(config, "a", registry.getTypeHandler(String.class)).build());
+    parameterMappings.add(new ParameterMapping.Builder(config, "b", registry.getTypeHandler(String.class)).build());
+    when(boundSql.getParameterMappings()).thenReturn(parameterMappings);
+    when(boundSql.hasAdditionalParameter(any())).thenReturn(true);
+    when(boundSql.getAdditionalParameter("a")).thenReturn("x");
+    when(boundSql.getAdditionalParameter("b")).thenReturn("y");
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    new DefaultParameterHandler(mappedStatement, null, boundSql).setParameters(ps, 4);
+
+    verify(ps).setString(5, "x");
+    verify(ps).setString(6, "y");
+  }
+
   MappedStatement getMappedStatement() {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
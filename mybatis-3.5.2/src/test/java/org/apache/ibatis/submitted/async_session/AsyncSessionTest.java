@@ -0,0 +1,159 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncSessionTest {
+
+  private static final String NAMESPACE = Mapper.class.getName();
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_session/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/async_session/CreateDB.sql");
+  }
+
+  @Test
+  void shouldRunMapperMethodsAsynchronously() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      CompletableFuture<User> user = mapper.getUser(1);
+      CompletableFuture<List<User>> users = mapper.getUsers();
+      assertEquals("User1", user.join().getName());
+      assertThat(users.join()).extracting(User::getName).containsExactly("User1", "User2");
+    }
+  }
+
+  @Test
+  void shouldRunCallsOfOneSessionInOrderOnItsTransaction() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      CompletableFuture<Integer> inserted = mapper.insertUser(new User(3, "User3"));
+      CompletableFuture<Void> updated = mapper.updateName(3, "Renamed");
+      CompletableFuture<User> user = mapper.getUser(3);
+      assertEquals(1, inserted.join());
+      assertNull(updated.join());
+      assertEquals("Renamed", user.join().getName());
+      sqlSession.rollback(true);
+      assertEquals(2, mapper.countUsers());
+    }
+  }
+
+  @Test
+  void shouldNeverRunCallsOfOneSessionConcurrently() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      for (int i = 0; i < 20; i++) {
+        final int call = i;
+        futures.add(sqlSession.executeAsync(session -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          order.add(call);
+          int count = session.selectOne(NAMESPACE + ".countUsers");
+          running.decrementAndGet();
+          return count;
+        }));
+      }
+      futures.forEach(CompletableFuture::join);
+    }
+    assertEquals(1, maxRunning.get());
+    assertThat(order).isSorted().hasSize(20);
+  }
+
+  @Test
+  void shouldSelectAndUpdateThroughSqlSession() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      CompletableFuture<Integer> updated = sqlSession.updateAsync(NAMESPACE + ".updateName", new User(2, "Changed"));
+      CompletableFuture<User> user = sqlSession.selectOneAsync(NAMESPACE + ".getUser", 2);
+      CompletableFuture<List<User>> users = sqlSession.selectListAsync(NAMESPACE + ".getUsers");
+      assertEquals(1, updated.join());
+      assertEquals("Changed", user.join().getName());
+      assertThat(users.join()).hasSize(2);
+    }
+  }
+
+  @Test
+  void shouldKeepRunningCallsAfterAFailure() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      CompletableFuture<Object> failed = sqlSession.selectOneAsync(NAMESPACE + ".getUsers");
+      CompletableFuture<User> user = sqlSession.selectOneAsync(NAMESPACE + ".getUser", 1);
+      CompletionException e = assertThrows(CompletionException.class, failed::join);
+      assertThat(e.getCause()).isInstanceOf(PersistenceException.class);
+      assertEquals("User1", user.join().getName());
+    }
+  }
+
+  @Test
+  void shouldShutDownTheCreatedExecutor() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    ExecutorService executor = configuration.getAsyncExecutor();
+    configuration.shutdown();
+    assertThat(executor.isShutdown()).isTrue();
+    // the sessions keep working on a new executor
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User1", sqlSession.getMapper(Mapper.class).getUser(1).join().getName());
+    }
+    configuration.shutdown();
+  }
+
+  @Test
+  void shouldLeaveTheApplicationExecutorRunning() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      configuration.setAsyncExecutor(executor);
+      configuration.shutdown();
+      assertThat(executor.isShutdown()).isFalse();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
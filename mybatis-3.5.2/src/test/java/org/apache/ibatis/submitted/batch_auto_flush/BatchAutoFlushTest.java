@@ -0,0 +1,116 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_auto_flush;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchAutoFlushTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_auto_flush/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_auto_flush/CreateDB.sql");
+  }
+
+  private List<BatchResult> insertOrders(int count) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= count; i++) {
+        mapper.insertOrder(i, "customer" + i);
+        mapper.insertLine(i, i, "product" + i);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      sqlSession.commit();
+      assertEquals(count, mapper.countLines());
+      return results;
+    }
+  }
+
+  private static int[] batchSizes(List<BatchResult> results) {
+    return results.stream().mapToInt(result -> result.getUpdateCounts().length).toArray();
+  }
+
+  private Configuration groupBatchStatements() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setGroupBatchStatements(true);
+    configuration.setBatchStatementOrder(Collections.singletonList(Mapper.class.getName() + ".insertOrder"));
+    return configuration;
+  }
+
+  @Test
+  void shouldFlushWhenAStatementReachesTheBatchSize() {
+    groupBatchStatements().setBatchMaxSize(3);
+    List<BatchResult> results = insertOrders(7);
+    assertThat(batchSizes(results)).containsExactly(3, 2, 2, 3, 2, 2);
+    assertThat(results.get(0).getParameterObjects()).hasSize(3);
+  }
+
+  @Test
+  void shouldFlushWhenTheBatchesReachTheRowCount() {
+    sqlSessionFactory.getConfiguration().setBatchMaxRows(4);
+    List<BatchResult> results = insertOrders(3);
+    assertThat(batchSizes(results)).containsExactly(1, 1, 1, 1, 1, 1);
+  }
+
+  @Test
+  void shouldFlushGroupedBatchesWhenTheyReachTheRowCount() {
+    groupBatchStatements().setBatchMaxRows(4);
+    List<BatchResult> results = insertOrders(5);
+    assertThat(batchSizes(results)).containsExactly(2, 2, 2, 2, 1, 1);
+  }
+
+  @Test
+  void shouldFlushWhenTheParametersReachTheEstimatedSize() {
+    groupBatchStatements().setBatchMaxBytes(1);
+    List<BatchResult> results = insertOrders(3);
+    assertThat(batchSizes(results)).containsExactly(1, 1, 1, 1, 1, 1);
+  }
+
+  @Test
+  void shouldDiscardParametersAndFlushedResults() {
+    Configuration configuration = groupBatchStatements();
+    configuration.setBatchMaxSize(3);
+    configuration.setDiscardBatchParameters(true);
+    List<BatchResult> results = insertOrders(7);
+    assertThat(batchSizes(results)).containsExactly(2, 2);
+    assertThat(results.get(0).getParameterObjects()).isEmpty();
+  }
+
+}
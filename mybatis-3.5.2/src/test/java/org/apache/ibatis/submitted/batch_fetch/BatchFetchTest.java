@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_fetch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchFetchTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final List<String> preparedSql = Collections.synchronizedList(new ArrayList<>());
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_fetch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(new PrepareRecorder(preparedSql));
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_fetch/CreateDB.sql");
+  }
+
+  @Test
+  void shouldLoadAssociationsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).getOrders();
+      assertThat(orders).hasSize(5);
+      // one query for the orders, two for the three distinct customers
+      assertThat(preparedSql).hasSize(3);
+      assertThat(preparedSql.get(1).chars().filter(c -> c == '?').count()).isEqualTo(2);
+      assertThat(preparedSql.get(2).chars().filter(c -> c == '?').count()).isEqualTo(1);
+      assertThat(orders.get(0).getCustomer().getName()).isEqualTo("alice");
+      assertThat(orders.get(1).getCustomer().getName()).isEqualTo("bob");
+      assertThat(orders.get(2).getCustomer()).isSameAs(orders.get(0).getCustomer());
+      assertThat(orders.get(3).getCustomer().getName()).isEqualTo("carol");
+      assertThat(orders.get(4).getCustomer()).isNull();
+    }
+  }
+
+  @Test
+  void shouldLoadLazyCollectionsOfAllParentsOnFirstAccess() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).getOrders();
+      preparedSql.clear();
+      assertThat(orders.get(1).getLines()).extracting(OrderLine::getProduct).containsExactly("plum");
+      assertThat(orders.get(0).getLines()).extracting(OrderLine::getProduct).containsExactly("apple", "pear");
+      assertThat(orders.get(2).getLines()).isEmpty();
+      assertThat(orders.get(3).getLines()).extracting(OrderLine::getProduct).containsExactly("fig");
+      assertThat(orders.get(4).getLines()).isEmpty();
+      assertThat(preparedSql).hasSize(1);
+      assertThat(preparedSql.get(0).chars().filter(c -> c == '?').count()).isEqualTo(5);
+    }
+  }
+
+  @Test
+  void shouldLoadLazyCollectionsAfterSessionIsClosed() {
+    List<Order> orders;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      orders = sqlSession.getMapper(Mapper.class).getOrders();
+    }
+    preparedSql.clear();
+    assertThat(orders.get(3).getLines()).extracting(OrderLine::getProduct).containsExactly("fig");
+    assertThat(orders.get(0).getLines()).hasSize(2);
+    assertThat(preparedSql).hasSize(1);
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+  static class PrepareRecorder implements Interceptor {
+
+    private final List<String> preparedSql;
+
+    PrepareRecorder(List<String> preparedSql) {
+      this.preparedSql = preparedSql;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      StatementHandler handler = (StatementHandler) invocation.getTarget();
+      preparedSql.add(handler.getBoundSql().getSql());
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+}
@@ -0,0 +1,51 @@
+--
+--    Copyright 2009-2022 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table order_line if exists;
+drop table orders if exists;
+drop table customer if exists;
+
+create table customer (
+  id int primary key,
+  name varchar(20)
+);
+
+create table orders (
+  id int primary key,
+  customer_id int
+);
+
+create table order_line (
+  id int primary key,
+  order_id int,
+  product varchar(20)
+);
+
+insert into customer values (1, 'alice');
+insert into customer values (2, 'bob');
+insert into customer values (3, 'carol');
+
+insert into orders values (1, 1);
+insert into orders values (2, 2);
+insert into orders values (3, 1);
+insert into orders values (4, 3);
+insert into orders values (5, null);
+
+insert into order_line values (1, 1, 'apple');
+insert into order_line values (2, 1, 'pear');
+insert into order_line values (3, 2, 'plum');
+insert into order_line values (4, 4, 'fig');
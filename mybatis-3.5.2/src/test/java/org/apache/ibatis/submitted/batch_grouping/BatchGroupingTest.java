@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_grouping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchGroupingTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_grouping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_grouping/CreateDB.sql");
+  }
+
+  @Test
+  void shouldKeepOneBatchPerStatement() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 5; i++) {
+        mapper.insertOrder(i, "customer" + i);
+        mapper.insertLine(i * 10, i, "product" + i);
+        mapper.insertLine(i * 10 + 1, i, "product" + i);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(Mapper.class.getName() + ".insertOrder", results.get(0).getMappedStatement().getId());
+      assertThat(results.get(0).getUpdateCounts()).hasSize(5);
+      assertEquals(Mapper.class.getName() + ".insertLine", results.get(1).getMappedStatement().getId());
+      assertThat(results.get(1).getUpdateCounts()).hasSize(10);
+      sqlSession.commit();
+      assertEquals(10, mapper.countLines());
+    }
+  }
+
+  @Test
+  void shouldExecuteBatchesInStatementOrder() {
+    sqlSessionFactory.getConfiguration().setBatchStatementOrder(Collections.singletonList(Mapper.class.getName() + ".insertOrder"));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertLine(10, 1, "product1");
+      mapper.insertOrder(1, "customer1");
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(Mapper.class.getName() + ".insertOrder", results.get(0).getMappedStatement().getId());
+      sqlSession.commit();
+      assertEquals(1, mapper.countLines());
+    }
+  }
+
+  @Test
+  void shouldExecuteBatchesInTheOrderTheyWereStarted() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertLine(10, 1, "product1");
+      mapper.insertOrder(1, "customer1");
+      assertThrows(PersistenceException.class, sqlSession::flushStatements);
+    }
+  }
+
+  @Test
+  void shouldOnlyBatchConsecutiveStatementsByDefault() {
+    sqlSessionFactory.getConfiguration().setGroupBatchStatements(false);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 3; i++) {
+        mapper.insertOrder(i, "customer" + i);
+        mapper.insertLine(i * 10, i, "product" + i);
+      }
+      assertEquals(6, sqlSession.flushStatements().size());
+    }
+  }
+
+}
@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_grouping;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Insert("insert into orders (id, customer) values (#{id}, #{customer})")
+  int insertOrder(@Param("id") int id, @Param("customer") String customer);
+
+  @Insert("insert into order_line (id, order_id, product) values (#{id}, #{orderId}, #{product})")
+  int insertLine(@Param("id") int id, @Param("orderId") int orderId, @Param("product") String product);
+
+  @Select("select count(*) from order_line")
+  int countLines();
+
+}
@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_expiry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CacheExpiryTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory, with empty caches for each test
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_expiry/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cache_expiry/CreateDB.sql");
+  }
+
+  @Test
+  void shouldPassStatementExpiryToTheCache() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      AnnotatedMapper mapper = sqlSession.getMapper(AnnotatedMapper.class);
+      assertThat(mapper.getName(1)).isEqualTo("alice");
+      assertThat(mapper.count()).isEqualTo(1);
+    }
+
+    Cache cache = sqlSessionFactory.getConfiguration().getCache(AnnotatedMapper.class.getName());
+    RecordingCache recordingCache = (RecordingCache) unwrap(cache);
+    assertThat(recordingCache.getExpiries().values())
+        .containsExactlyInAnyOrder(new long[] { 60000, 5000 }, new long[] { -1, -1 });
+  }
+
+  @Test
+  void shouldReadExpiryFromXml() {
+    MappedStatement getName = sqlSessionFactory.getConfiguration().getMappedStatement(XmlMapper.class.getName() + ".getName");
+    assertThat(getName.getCacheTimeToLive()).isEqualTo(1000);
+    assertThat(getName.getCacheTimeToIdle()).isEqualTo(-1);
+    MappedStatement count = sqlSessionFactory.getConfiguration().getMappedStatement(XmlMapper.class.getName() + ".count");
+    assertThat(count.getCacheTimeToLive()).isEqualTo(-1);
+
+    Cache cache = sqlSessionFactory.getConfiguration().getCache(XmlMapper.class.getName());
+    cache.putObject("default", "value");
+    cache.putObject("statement", "value", 1000, -1);
+    // idle for a minute at most
+    assertThat(cache.getTimeToLive("default")).isBetween(59000L, 60000L);
+    assertThat(cache.getTimeToLive("statement")).isBetween(0L, 1000L);
+  }
+
+  @Test
+  void shouldStillServeCachedResults() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(XmlMapper.class).getName(1)).isEqualTo("alice");
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Statement statement = sqlSession.getConnection().createStatement()) {
+      statement.executeUpdate("update users set name = 'changed' where id = 1");
+      sqlSession.commit(true);
+      // the entry has not expired yet
+      assertThat(sqlSession.getMapper(XmlMapper.class).getName(1)).isEqualTo("alice");
+    }
+  }
+
+  @Test
+  void shouldRejectExpiryOnCacheWithoutExpiry() {
+    assertThatThrownBy(() -> sqlSessionFactory.getConfiguration().addMapper(NonExpiringMapper.class))
+        .hasMessageContaining("does not expire entries individually");
+  }
+
+  private static Cache unwrap(Cache cache) {
+    try {
+      Field delegate = cache.getClass().getDeclaredField("delegate");
+      delegate.setAccessible(true);
+      return (Cache) delegate.get(cache);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,38 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_expiry;
+
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+
+@CacheNamespace(implementation = NonExpiringMapper.NonExpiringCache.class)
+public interface NonExpiringMapper {
+
+  @Select("select name from users where id = #{id}")
+  @Options(cacheTimeToLive = 60000)
+  String getName(int id);
+
+  class NonExpiringCache extends PerpetualCache {
+
+    public NonExpiringCache(String id) {
+      super(id);
+    }
+
+  }
+
+}
@@ -0,0 +1,51 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_expiry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.impl.PerpetualCache;
+
+public class RecordingCache extends PerpetualCache {
+
+  private final Map<Object, long[]> expiries = new HashMap<>();
+
+  public RecordingCache(String id) {
+    super(id);
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    putObject(key, value, -1, -1);
+  }
+
+  @Override
+  public void putObject(Object key, Object value, long timeToLive, long timeToIdle) {
+    super.putObject(key, value);
+    expiries.put(key, new long[] { timeToLive, timeToIdle });
+  }
+
+  @Override
+  public boolean supportsExpiry() {
+    return true;
+  }
+
+  public Map<Object, long[]> getExpiries() {
+    return expiries;
+  }
+
+}
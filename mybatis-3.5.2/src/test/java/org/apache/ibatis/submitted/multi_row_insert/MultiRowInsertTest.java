@@ -0,0 +1,171 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.multi_row_insert;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MultiRowInsertTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final List<String> preparedSql = Collections.synchronizedList(new ArrayList<>());
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/multi_row_insert/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setRewriteBatchedInserts(true);
+    configuration.setMultiRowInsertMaxParameters(20);
+    configuration.addInterceptor(new PrepareRecorder(preparedSql));
+
+    // populate in-memory database
+    BaseDataTest.runScript(configuration.getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/multi_row_insert/CreateDB.sql");
+  }
+
+  @Test
+  void shouldInsertRowsWithMultiRowStatementsAndAssignKeys() {
+    List<Item> items = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 25; i++) {
+        Item item = new Item("item" + i, i);
+        items.add(item);
+        mapper.insertItem(item);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      assertThat(results.get(0).getUpdateCounts()).hasSize(25).containsOnly(1);
+      sqlSession.commit();
+
+      assertThat(preparedSql).hasSize(3);
+      assertThat(preparedSql.get(0)).endsWith("values (?, ?), (?, ?), (?, ?), (?, ?), (?, ?), (?, ?), (?, ?), (?, ?), (?, ?), (?, ?)");
+      assertThat(items).extracting(Item::getId).doesNotContainNull().doesNotHaveDuplicates();
+      List<Item> stored = mapper.getItems();
+      assertEquals(25, stored.size());
+      for (int i = 0; i < items.size(); i++) {
+        assertEquals(items.get(i).getId(), stored.get(i).getId());
+        assertEquals(items.get(i).getName(), stored.get(i).getName());
+        assertEquals(items.get(i).getQuantity(), stored.get(i).getQuantity());
+      }
+    }
+  }
+
+  @Test
+  void shouldAssignKeysToNamedParameters() {
+    List<Item> items = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 4; i++) {
+        Item item = new Item("item" + i, i);
+        items.add(item);
+        mapper.insertNamedItem(item);
+      }
+      sqlSession.commit();
+      assertThat(preparedSql).hasSize(1);
+      assertThat(items).extracting(Item::getId).containsExactly(1, 2, 3, 4);
+    }
+  }
+
+  @Test
+  void shouldBatchStatementsThatCannotBeRewritten() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 3; i++) {
+        mapper.insertItemBySelect(new Item("item" + i, i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results.get(0).getUpdateCounts()).containsExactly(1, 1, 1);
+      assertThat(preparedSql).hasSize(1);
+      assertThat(preparedSql.get(0)).contains("select");
+    }
+  }
+
+  @Test
+  void shouldOnlyRewriteListedStatements() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setRewriteBatchedInserts(false);
+    configuration.setRewriteBatchedInsertStatements(Collections.singleton(Mapper.class.getName() + ".insertNamedItem"));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertItem(new Item("a", 1));
+      mapper.insertItem(new Item("b", 2));
+      mapper.insertNamedItem(new Item("c", 3));
+      mapper.insertNamedItem(new Item("d", 4));
+      sqlSession.commit();
+      assertThat(preparedSql).containsExactly(
+          "insert into item (name, quantity) values (?, ?)",
+          "insert into item (name, quantity) values (?, ?), (?, ?)");
+      assertEquals(4, mapper.getItems().size());
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+  static class PrepareRecorder implements Interceptor {
+
+    private final List<String> preparedSql;
+
+    PrepareRecorder(List<String> preparedSql) {
+      this.preparedSql = preparedSql;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      StatementHandler handler = (StatementHandler) invocation.getTarget();
+      if (handler.getBoundSql().getSql().startsWith("insert")) {
+        preparedSql.add(handler.getBoundSql().getSql());
+      }
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+}
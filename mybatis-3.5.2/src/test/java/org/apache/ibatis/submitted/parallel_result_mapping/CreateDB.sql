@@ -0,0 +1,28 @@
+--
+--    Copyright 2009-2022 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table item if exists;
+
+create table item (
+  id int,
+  name varchar(20),
+  tags varchar(100),
+  status varchar(10)
+);
+
+insert into item (id, name, tags, status)
+  select x, 'item' || x, 'a' || x || ',b' || x, trim(case when mod(x, 2) = 0 then 'ACTIVE' else 'RETIRED' end)
+  from unnest(sequence_array(1, 500, 1)) as t(x);
@@ -0,0 +1,50 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_result_mapping;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+public interface Mapper {
+
+  @Select("select id, name, tags, status from item order by id")
+  List<Item> getItems();
+
+  @Select("select id, name, tags, status from item order by id")
+  List<Item> getItemsWithRowBounds(RowBounds rowBounds);
+
+  @ResultType(Item.class)
+  @Select("select id, name, tags, status from item order by id")
+  void handleItems(ResultHandler<Item> resultHandler);
+
+  @Results({
+    @Result(property = "id", column = "id", id = true),
+    @Result(property = "tags", column = "tags")
+  })
+  @Select("select id, name, case when id = 300 then '!' else '' end || tags as tags from item order by id")
+  List<Item> getItemsWithInvalidTags();
+
+  @Select("select id, name from item order by id")
+  List<Map<String, Object>> getItemMaps();
+
+}
@@ -0,0 +1,147 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_result_mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ParallelResultMappingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_result_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/parallel_result_mapping/CreateDB.sql");
+  }
+
+  @Test
+  void shouldMapAllRowsInOrder() {
+    TagsTypeHandler.READING_THREADS.clear();
+    TagsTypeHandler.THREADS.clear();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItems();
+      assertEquals(500, items.size());
+      for (int i = 0; i < items.size(); i++) {
+        Item item = items.get(i);
+        int id = i + 1;
+        assertEquals(id, item.getId());
+        assertEquals("item" + id, item.getName());
+        assertThat(item.getTags().getValues()).containsExactly("a" + id, "b" + id);
+        assertEquals(id % 2 == 0 ? Status.ACTIVE : Status.RETIRED, item.getStatus());
+      }
+    }
+    // the type handler reads the result set on the calling thread and converts the values on the workers
+    assertThat(TagsTypeHandler.READING_THREADS).containsExactly(Thread.currentThread());
+    assertThat(TagsTypeHandler.THREADS).anyMatch(thread -> thread != Thread.currentThread());
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItemsWithRowBounds(new RowBounds(5, 200));
+      assertEquals(200, items.size());
+      assertEquals(6, items.get(0).getId());
+      assertEquals(205, items.get(199).getId());
+    }
+  }
+
+  @Test
+  void shouldPassRowsToResultHandlerInOrderUntilStopped() {
+    List<Integer> ids = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).handleItems(context -> {
+        ids.add(context.getResultObject().getId());
+        if (context.getResultCount() == 150) {
+          context.stop();
+        }
+      });
+    }
+    assertEquals(150, ids.size());
+    for (int i = 0; i < ids.size(); i++) {
+      assertEquals(i + 1, ids.get(i).intValue());
+    }
+  }
+
+  @Test
+  void shouldMapRowsToMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> items = sqlSession.getMapper(Mapper.class).getItemMaps();
+      assertEquals(500, items.size());
+      assertEquals(500, items.get(499).get("ID"));
+      assertEquals("item500", items.get(499).get("NAME"));
+    }
+  }
+
+  @Test
+  void shouldPropagateTypeHandlerErrors() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      PersistenceException e = assertThrows(PersistenceException.class, mapper::getItemsWithInvalidTags);
+      assertThat(e).hasMessageContaining("Invalid tags: !a300,b300");
+    }
+  }
+
+  @Test
+  void shouldShutDownTheCreatedPool() {
+    Configuration configuration = new Configuration();
+    configuration.setResultMappingParallelism(2);
+    ExecutorService pool = configuration.getResultMappingExecutor();
+    configuration.shutdown();
+    assertThat(pool.isShutdown()).isTrue();
+    assertThat(configuration.getResultMappingExecutor()).isNotSameAs(pool);
+    configuration.shutdown();
+  }
+
+  @Test
+  void shouldLeaveTheApplicationPoolRunning() {
+    Configuration configuration = new Configuration();
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      configuration.setResultMappingExecutor(pool);
+      configuration.shutdown();
+      assertThat(pool.isShutdown()).isFalse();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+}
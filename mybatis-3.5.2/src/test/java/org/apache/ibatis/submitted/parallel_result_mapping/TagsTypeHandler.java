@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_result_mapping;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.ParallelResultTypeHandler;
+
+public class TagsTypeHandler extends BaseTypeHandler<Tags> implements ParallelResultTypeHandler<Tags> {
+
+  static final Set<Thread> READING_THREADS = ConcurrentHashMap.newKeySet();
+  static final Set<Thread> THREADS = ConcurrentHashMap.newKeySet();
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, Tags parameter, JdbcType jdbcType) throws SQLException {
+    ps.setString(i, String.join(",", parameter.getValues()));
+  }
+
+  @Override
+  public Tags getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    // the real result set, not a copy of the row
+    rs.getMetaData();
+    return toTags(rs.getString(columnName));
+  }
+
+  @Override
+  public Tags getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    rs.getMetaData();
+    return toTags(rs.getString(columnIndex));
+  }
+
+  @Override
+  public Tags getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+    return toTags(cs.getString(columnIndex));
+  }
+
+  @Override
+  public Object getRawResult(ResultSet rs, int columnIndex) throws SQLException {
+    // the real result set, not a copy of the row
+    rs.getMetaData();
+    READING_THREADS.add(Thread.currentThread());
+    return rs.getString(columnIndex);
+  }
+
+  @Override
+  public Object getRawResult(ResultSet rs, String columnName) throws SQLException {
+    rs.getMetaData();
+    READING_THREADS.add(Thread.currentThread());
+    return rs.getString(columnName);
+  }
+
+  @Override
+  public Tags convertResult(Object rawValue) {
+    return toTags((String) rawValue);
+  }
+
+  private Tags toTags(String value) {
+    THREADS.add(Thread.currentThread());
+    if (value == null) {
+      return null;
+    }
+    if (value.startsWith("!")) {
+      throw new IllegalStateException("Invalid tags: " + value);
+    }
+    return new Tags(value.split(","));
+  }
+}
@@ -0,0 +1,223 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.pipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Pipeline;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PipelineTest {
+
+  private static final String NAMESPACE = Mapper.class.getName();
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final QueryRecorder recorder = new QueryRecorder();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/pipeline/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/pipeline/CreateDB.sql");
+  }
+
+  @Test
+  void shouldReturnResultsInQueueOrder() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Object> results = sqlSession.pipeline()
+          .selectOne(NAMESPACE + ".getUser", 2)
+          .selectList(NAMESPACE + ".getUsers")
+          .select(session -> session.getMapper(Mapper.class).countUsers())
+          .selectOne(NAMESPACE + ".getUser", 3)
+          .execute();
+      assertThat(results).hasSize(4);
+      assertThat(((User) results.get(0)).getName()).isEqualTo("User2");
+      assertThat((List<?>) results.get(1)).hasSize(3);
+      assertThat(results.get(2)).isEqualTo(3);
+      assertThat(((User) results.get(3)).getName()).isEqualTo("User3");
+    }
+  }
+
+  @Test
+  void shouldRunReadsConcurrently() {
+    recorder.barrier = new CyclicBarrier(3);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      List<Object> results = sqlSession.pipeline()
+          .selectOne(NAMESPACE + ".getUser", 1)
+          .selectOne(NAMESPACE + ".getUser", 2)
+          .selectOne(NAMESPACE + ".getUser", 3)
+          .execute();
+      assertThat(results).extracting("name").containsExactly("User1", "User2", "User3");
+    }
+    // every read waited for the other two, so they ran on three threads
+    assertThat(recorder.threads).hasSize(3).contains(Thread.currentThread().getName());
+  }
+
+  @Test
+  void shouldReadUncommittedChangesOnTheSession() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(new User(4, "User4"));
+      List<Object> results = sqlSession.pipeline()
+          .selectOne(NAMESPACE + ".getUser", 4)
+          .selectOne(NAMESPACE + ".countUsers")
+          .execute();
+      assertThat(((User) results.get(0)).getName()).isEqualTo("User4");
+      assertThat(results.get(1)).isEqualTo(4);
+      assertThat(recorder.threads).containsOnly(Thread.currentThread().getName());
+      sqlSession.rollback();
+    }
+  }
+
+  @Test
+  void shouldReadTheSnapshotOfATransactionOnTheSession() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Object> results = sqlSession.pipeline()
+          .selectOne(NAMESPACE + ".getUser", 1)
+          .selectOne(NAMESPACE + ".countUsers")
+          .execute();
+      assertThat(((User) results.get(0)).getName()).isEqualTo("User1");
+      assertThat(results.get(1)).isEqualTo(3);
+      assertThat(recorder.threads).containsOnly(Thread.currentThread().getName());
+    }
+  }
+
+  @Test
+  void shouldReadOnTheSessionWithIsolationLevel() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(TransactionIsolationLevel.SERIALIZABLE)) {
+      sqlSession.pipeline()
+          .selectOne(NAMESPACE + ".getUser", 1)
+          .selectOne(NAMESPACE + ".countUsers")
+          .execute();
+      assertThat(recorder.threads).containsOnly(Thread.currentThread().getName());
+    }
+  }
+
+  @Test
+  void shouldReadOnTheConnectionOfTheCaller() throws Exception {
+    DataSource dataSource = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(true);
+      try (SqlSession sqlSession = sqlSessionFactory.openSession(connection)) {
+        sqlSession.pipeline()
+            .selectOne(NAMESPACE + ".getUser", 1)
+            .selectOne(NAMESPACE + ".countUsers")
+            .execute();
+        assertThat(recorder.threads).containsOnly(Thread.currentThread().getName());
+      }
+    }
+  }
+
+  @Test
+  void shouldThrowFirstFailureAfterAllReadsFinished() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      PersistenceException e = assertThrows(PersistenceException.class, () -> sqlSession.pipeline()
+          .selectOne(NAMESPACE + ".getUser", 1)
+          .selectList(NAMESPACE + ".getMissing")
+          .selectOne(NAMESPACE + ".getUser", 2)
+          .execute());
+      assertThat(e.getMessage()).contains("MISSING_TABLE");
+      assertThat(recorder.threads).isNotEmpty();
+      // the session is still usable
+      assertThat(sqlSession.getMapper(Mapper.class).countUsers()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  void shouldBeEmptyAfterExecute() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Pipeline pipeline = sqlSession.pipeline().selectOne(NAMESPACE + ".countUsers");
+      assertThat(pipeline.execute()).containsExactly(3);
+      assertThat(pipeline.execute()).isEmpty();
+    }
+  }
+
+  @Test
+  void shouldRunPipelinesOfSqlSessionManager() {
+    SqlSessionManager manager = SqlSessionManager.newInstance(sqlSessionFactory);
+    List<Object> results = manager.pipeline()
+        .selectOne(NAMESPACE + ".getUser", 1)
+        .selectOne(NAMESPACE + ".countUsers")
+        .execute();
+    assertThat(((User) results.get(0)).getName()).isEqualTo("User1");
+    assertThat(results.get(1)).isEqualTo(3);
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }))
+  static class QueryRecorder implements Interceptor {
+
+    final Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    volatile CyclicBarrier barrier;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      threads.add(Thread.currentThread().getName());
+      CyclicBarrier barrier = this.barrier;
+      if (barrier != null) {
+        barrier.await(10, TimeUnit.SECONDS);
+      }
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+      // NOP
+    }
+
+  }
+
+}
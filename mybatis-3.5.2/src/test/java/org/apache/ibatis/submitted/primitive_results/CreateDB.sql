@@ -0,0 +1,29 @@
+--
+--    Copyright 2009-2022 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table measurement if exists;
+
+create table measurement (
+  id int,
+  counter bigint,
+  reading double,
+  note varchar(20)
+);
+
+insert into measurement (id, counter, reading, note) values (1, 10000000000, 1.5, 'a');
+insert into measurement (id, counter, reading, note) values (2, 20000000000, 2.5, null);
+insert into measurement (id, counter, reading, note) values (3, 30000000000, 3.5, 'c');
+insert into measurement (id, counter, reading, note) values (4, null, 4.5, 'd');
@@ -0,0 +1,51 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_results;
+
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.executor.result.DoubleList;
+import org.apache.ibatis.executor.result.LongList;
+import org.apache.ibatis.session.RowBounds;
+
+@CacheNamespace
+public interface Mapper {
+
+  @Select("select counter from measurement where counter is not null order by id")
+  @Options(useCache = false)
+  long[] getCounters();
+
+  @Select("select counter from measurement where counter is not null order by id")
+  @Options(useCache = false)
+  LongList getCounterList(RowBounds rowBounds);
+
+  @Select("select id from measurement order by id")
+  @Options(useCache = false)
+  int[] getIds();
+
+  @Select("select reading from measurement order by id")
+  @Options(useCache = false)
+  double[] getReadings();
+
+  @Select("select reading from measurement order by id")
+  DoubleList getCachedReadings();
+
+  @Select("select counter from measurement order by id")
+  @Options(useCache = false)
+  long[] getAllCounters();
+
+}
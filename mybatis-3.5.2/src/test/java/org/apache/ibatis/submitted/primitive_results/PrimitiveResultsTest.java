@@ -0,0 +1,123 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_results;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Reader;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.result.DoubleList;
+import org.apache.ibatis.executor.result.IntList;
+import org.apache.ibatis.executor.result.LongList;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class PrimitiveResultsTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/primitive_results/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/primitive_results/CreateDB.sql");
+  }
+
+  @Test
+  void shouldReturnPrimitiveArraysFromMapper() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getCounters()).containsExactly(10000000000L, 20000000000L, 30000000000L);
+      assertThat(mapper.getIds()).containsExactly(1, 2, 3, 4);
+      assertThat(mapper.getReadings()).containsExactly(1.5, 2.5, 3.5, 4.5);
+    }
+  }
+
+  @Test
+  void shouldReturnPrimitiveListFromMapper() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      LongList counters = sqlSession.getMapper(Mapper.class).getCounterList(new RowBounds(1, 1));
+      assertThat(counters.toArray()).containsExactly(20000000000L);
+    }
+  }
+
+  @Test
+  void shouldUseSecondLevelCacheForCachedStatement() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      DoubleList readings = sqlSession.getMapper(Mapper.class).getCachedReadings();
+      assertThat(readings.toArray()).containsExactly(1.5, 2.5, 3.5, 4.5);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      DoubleList readings = sqlSession.getMapper(Mapper.class).getCachedReadings();
+      assertThat(readings.toArray()).containsExactly(1.5, 2.5, 3.5, 4.5);
+    }
+    assertThat(sqlSessionFactory.getConfiguration().getCache(Mapper.class.getName()).getSize()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldSelectPrimitivesFromSqlSession() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      String statement = Mapper.class.getName() + ".getIds";
+      assertThat(sqlSession.selectInts(statement)).containsExactly(1, 2, 3, 4);
+      assertThat(sqlSession.selectLongs(statement, null, new RowBounds(2, 5))).containsExactly(3L, 4L);
+      // the int type handler cannot be read as double, so the mapped values are converted
+      assertThat(sqlSession.selectDoubles(statement)).containsExactly(1.0, 2.0, 3.0, 4.0);
+    }
+  }
+
+  @Test
+  void shouldStopReadingColumnWhenResultContextIsStopped() {
+    IntList ids = new IntList() {
+      @Override
+      public void readColumn(ResultContext<?> context, ResultSet rs, int columnIndex) throws SQLException {
+        super.readColumn(context, rs, columnIndex);
+        assertThat(context.getResultCount()).isEqualTo(size());
+        if (size() == 2) {
+          context.stop();
+        }
+      }
+    };
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.select(Mapper.class.getName() + ".getIds", ids);
+    }
+    assertThat(ids.toArray()).containsExactly(1, 2);
+  }
+
+  @Test
+  void shouldRejectNullValues() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThrows(PersistenceException.class, mapper::getAllCounters);
+    }
+  }
+
+}
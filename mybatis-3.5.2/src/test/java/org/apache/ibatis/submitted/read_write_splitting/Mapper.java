@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.read_write_splitting;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Select("select name from node")
+  String getNode();
+
+  @Select("select name from node")
+  @Options(usePrimary = true)
+  String getNodeFromPrimary();
+
+  @Select("select name from node for update")
+  String getNodeForUpdate();
+
+  @Select("select count(*) from item")
+  int countItems();
+
+  @Insert("insert into item (id) values (#{id})")
+  int insertItem(int id);
+
+}
@@ -0,0 +1,183 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.read_write_splitting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.ReplicaSelection;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ReadWriteSplittingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/read_write_splitting/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory databases, each one knows its own name
+    Environment environment = sqlSessionFactory.getConfiguration().getEnvironment();
+    populate(environment.getDataSource(), "primary");
+    populate(environment.getReplicaSet().getDataSources().get(0), "replica1");
+    populate(environment.getReplicaSet().getDataSources().get(1), "replica2");
+  }
+
+  private static void populate(DataSource dataSource, String name) throws Exception {
+    BaseDataTest.runScript(dataSource, "org/apache/ibatis/submitted/read_write_splitting/CreateDB.sql");
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.executeUpdate("insert into node (name) values ('" + name + "')");
+    }
+  }
+
+  @Test
+  void shouldParseReplicas() {
+    Environment environment = sqlSessionFactory.getConfiguration().getEnvironment();
+    assertThat(environment.getReplicaSet().size()).isEqualTo(2);
+    assertThat(environment.getReplicaSet().getSelection()).isEqualTo(ReplicaSelection.ROUND_ROBIN);
+  }
+
+  @Test
+  void shouldSendSelectsToReplicasInTurn() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      String first = mapper.getNode();
+      String second = mapper.getNode();
+      assertThat(first).startsWith("replica");
+      assertThat(second).startsWith("replica").isNotEqualTo(first);
+      assertThat(mapper.getNode()).isEqualTo(first);
+    }
+  }
+
+  @Test
+  void shouldSendOptedOutSelectsToPrimary() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getNodeFromPrimary()).isEqualTo("primary");
+      assertThat(mapper.getNode()).startsWith("replica");
+    }
+  }
+
+  @Test
+  void shouldReadOwnWritesAfterWriting() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getNode()).startsWith("replica");
+      mapper.insertItem(1);
+      assertThat(mapper.countItems()).isEqualTo(1);
+      assertThat(mapper.getNode()).isEqualTo("primary");
+      assertThat(mapper.getNode()).isEqualTo("primary");
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getNode()).startsWith("replica");
+      assertThat(mapper.countItems()).isZero();
+    }
+  }
+
+  @Test
+  void shouldRouteReadsOfBatchSessions() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH, true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getNode()).startsWith("replica");
+      mapper.insertItem(2);
+      assertThat(mapper.getNode()).isEqualTo("primary");
+    }
+  }
+
+  @Test
+  void shouldNotCacheReplicaReads() {
+    sqlSessionFactory.getConfiguration().getCache(CachedMapper.class.getName()).clear();
+    String first;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      first = sqlSession.getMapper(CachedMapper.class).getNode();
+      assertThat(first).startsWith("replica");
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      assertThat(sqlSession.getMapper(CachedMapper.class).getNode()).startsWith("replica").isNotEqualTo(first);
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(CachedMapper.class).getNode()).isEqualTo("primary");
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      assertThat(sqlSession.getMapper(CachedMapper.class).getNode()).isEqualTo("primary");
+    }
+  }
+
+  @Test
+  void shouldCacheReplicaReadsWhenEnabled() {
+    sqlSessionFactory.getConfiguration().getCache(CachedMapper.class.getName()).clear();
+    sqlSessionFactory.getConfiguration().setCacheReplicaReads(true);
+    try {
+      String first;
+      try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+        first = sqlSession.getMapper(CachedMapper.class).getNode();
+        assertThat(first).startsWith("replica");
+      }
+      try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+        assertThat(sqlSession.getMapper(CachedMapper.class).getNode()).isEqualTo(first);
+      }
+      try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+        assertThat(sqlSession.getMapper(CachedMapper.class).getNode()).isEqualTo(first);
+      }
+    } finally {
+      sqlSessionFactory.getConfiguration().setCacheReplicaReads(false);
+      sqlSessionFactory.getConfiguration().getCache(CachedMapper.class.getName()).clear();
+    }
+  }
+
+  @Test
+  void shouldReadFromPrimaryInTransactions() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).getNode()).isEqualTo("primary");
+    }
+  }
+
+  @Test
+  void shouldReadFromPrimaryOnGivenConnections() throws Exception {
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         SqlSession sqlSession = sqlSessionFactory.openSession(connection)) {
+      assertThat(sqlSession.getMapper(Mapper.class).getNode()).isEqualTo("primary");
+    }
+  }
+
+  @Test
+  void shouldSendLockingReadsToPrimary() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getNodeForUpdate()).isEqualTo("primary");
+      assertThat(mapper.getNode()).startsWith("replica");
+    }
+  }
+
+}
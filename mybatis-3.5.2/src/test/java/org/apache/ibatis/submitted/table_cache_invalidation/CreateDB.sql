@@ -0,0 +1,37 @@
+--
+--    Copyright 2009-2022 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop view user_names if exists;
+drop table orders if exists;
+drop table users if exists;
+
+create table users (
+  id int,
+  name varchar(20)
+);
+
+create table orders (
+  id int,
+  user_id int,
+  item varchar(20)
+);
+
+create view user_names as select id, name from users;
+
+insert into users (id, name) values(1, 'alice');
+insert into users (id, name) values(2, 'bob');
+insert into orders (id, user_id, item) values(1, 1, 'book');
@@ -0,0 +1,195 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_cache_invalidation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.CacheInvalidation;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TableCacheInvalidationTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory, with empty caches for each test
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_cache_invalidation/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/table_cache_invalidation/CreateDB.sql");
+  }
+
+  @Test
+  void shouldReadTheSetting() {
+    assertThat(sqlSessionFactory.getConfiguration().getCacheInvalidation()).isEqualTo(CacheInvalidation.TABLE);
+  }
+
+  @Test
+  void shouldKeepEntriesWhenOtherTablesAreWritten() throws Exception {
+    assertThat(userName(1)).isEqualTo("alice");
+    // changed behind the cache, so a cache hit still returns the old name
+    executeDirectly("update users set name = 'changed' where id = 1");
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(OrderMapper.class).updateItem(1, "lamp");
+      sqlSession.commit();
+    }
+    assertThat(userName(1)).isEqualTo("alice");
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(UserMapper.class).rename(2, "bobby");
+      sqlSession.commit();
+    }
+    assertThat(userName(1)).isEqualTo("changed");
+  }
+
+  @Test
+  void shouldInvalidateEntriesOnAnyWriteOfTheirNamespace() throws Exception {
+    assertThat(userName(1)).isEqualTo("alice");
+    executeDirectly("update users set name = 'changed' where id = 1");
+
+    // writes another table, but in the namespace of the entry, as a trigger or a cascade could change users
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(UserMapper.class).insertOrder(2, 2);
+      sqlSession.commit();
+    }
+    assertThat(userName(1)).isEqualTo("changed");
+  }
+
+  @Test
+  void shouldInvalidateEntriesOfOtherNamespaces() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(OrderMapper.class).countOrdersOf("alice")).isEqualTo(1);
+      assertThat(sqlSession.getMapper(OrderMapper.class).getItem(1)).isEqualTo("book");
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(UserMapper.class).rename(1, "carol");
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(OrderMapper.class).countOrdersOf("alice")).isEqualTo(0);
+      assertThat(sqlSession.getMapper(OrderMapper.class).countOrdersOf("carol")).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void shouldUseDeclaredTables() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(UserMapper.class).getNameFromView(1)).isEqualTo("alice");
+      assertThat(sqlSession.getMapper(OrderMapper.class).getUserNameFromView(1)).isEqualTo("alice");
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(UserMapper.class).rename(1, "dave");
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(UserMapper.class).getNameFromView(1)).isEqualTo("dave");
+      assertThat(sqlSession.getMapper(OrderMapper.class).getUserNameFromView(1)).isEqualTo("dave");
+    }
+  }
+
+  @Test
+  void shouldInvalidateEntriesWithUnknownTablesOnWritesOfTheirNamespace() throws Exception {
+    assertThat(usersWithOrders()).isEqualTo(1);
+    executeDirectly("insert into orders (id, user_id, item) values (3, 2, 'cup')");
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(OrderMapper.class).updateItem(1, "lamp");
+      sqlSession.commit();
+    }
+    assertThat(usersWithOrders()).isEqualTo(1);
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(UserMapper.class).rename(1, "erin");
+      sqlSession.commit();
+    }
+    assertThat(usersWithOrders()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldInvalidateEntriesWhoseNestedSelectsReadTheWrittenTable() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(OrderMapper.class).getUserWithItems(1).get("items")).isEqualTo(Arrays.asList("book"));
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(OrderMapper.class).updateItem(1, "lamp");
+      sqlSession.commit();
+    }
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(OrderMapper.class).getUserWithItems(1).get("items")).isEqualTo(Arrays.asList("lamp"));
+    }
+  }
+
+  @Test
+  void shouldNotInvalidateOnRollback() throws Exception {
+    assertThat(userName(1)).isEqualTo("alice");
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      UserMapper mapper = sqlSession.getMapper(UserMapper.class);
+      mapper.rename(1, "frank");
+      // the writing transaction does not read entries of the tables it wrote
+      assertThat(mapper.getName(1)).isEqualTo("frank");
+      sqlSession.rollback();
+    }
+
+    executeDirectly("update users set name = 'changed' where id = 1");
+    assertThat(userName(1)).isEqualTo("alice");
+  }
+
+  private String userName(int id) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(UserMapper.class).getName(id);
+    }
+  }
+
+  private int usersWithOrders() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(UserMapper.class).countUsersWithOrders();
+    }
+  }
+
+  private void executeDirectly(String sql) throws Exception {
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.executeUpdate(sql);
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    }
+  }
+
+}
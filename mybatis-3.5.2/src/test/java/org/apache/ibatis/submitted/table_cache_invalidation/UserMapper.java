@@ -0,0 +1,44 @@
+/**
+ *    Copyright 2009-2022 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_cache_invalidation;
+
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+@CacheNamespace
+public interface UserMapper {
+
+  @Select("select name from users where id = #{id}")
+  String getName(int id);
+
+  @Select("select name from user_names where id = #{id}")
+  @Options(tables = "users")
+  String getNameFromView(int id);
+
+  @Select("select count(*) from (users u join orders o on o.user_id = u.id)")
+  int countUsersWithOrders();
+
+  @Update("update users set name = #{name} where id = #{id}")
+  int rename(@Param("id") int id, @Param("name") String name);
+
+  @Insert("insert into orders (id, user_id, item) values (#{id}, #{userId}, 'pen')")
+  int insertOrder(@Param("id") int id, @Param("userId") int userId);
+
+}
@@ -91,4 +91,16 @@ class EnumOrdinalTypeHandlerTest extends BaseTypeHandlerTest {
     assertNull(TYPE_HANDLER.getResult(cs, 1));
   }
 
+  @Test
+  void shouldConvertRawResultApartFromReadingIt() throws Exception {
+    ParallelResultTypeHandler<MyEnum> handler = (ParallelResultTypeHandler<MyEnum>) TYPE_HANDLER;
+    when(rs.getInt(1)).thenReturn(0);
+    when(rs.wasNull()).thenReturn(true);
+    assertNull(handler.getRawResult(rs, 1));
+    assertNull(handler.convertResult(null));
+    when(rs.getInt(1)).thenReturn(1);
+    assertEquals(1, handler.getRawResult(rs, 1));
+    assertEquals(MyEnum.TWO, handler.convertResult(1));
+  }
+
 }
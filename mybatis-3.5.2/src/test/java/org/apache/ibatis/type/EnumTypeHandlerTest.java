@@ -92,4 +92,12 @@ class EnumTypeHandlerTest extends BaseTypeHandlerTest {
     verify(cs, never()).wasNull();
   }
 
+  @Test
+  void shouldConvertRawResultApartFromReadingIt() throws Exception {
+    ParallelResultTypeHandler<MyEnum> handler = (ParallelResultTypeHandler<MyEnum>) TYPE_HANDLER;
+    when(rs.getString(1)).thenReturn("ONE");
+    assertEquals("ONE", handler.getRawResult(rs, 1));
+    assertEquals(MyEnum.ONE, handler.convertResult("ONE"));
+  }
+
 }